@@ -34,6 +34,8 @@ public class PawConstants {
     public final static byte TWITTER_TOKENIZER = 3;
     public final static byte JAVA_TOKENIZER = 4;
     public final static byte CPP_TOKENIZER = 5;
+    public final static byte ENGLISH_TOKENIZER = 6;
+    public final static byte C_TOKENIZER = 7;
 
     /**
      * Index
@@ -25,6 +25,7 @@ import greycat.struct.EStructArray;
 import paw.graph.customTypes.bitset.roaring.CTRoaringBitMap;
 import paw.graph.customTypes.radix.struct.RadixTree;
 import paw.graph.customTypes.tokenizedContent.CTTCBitset;
+import paw.graph.customTypes.tokenizedContent.CTTCPacked;
 import paw.graph.customTypes.tokenizedContent.CTTCRoaring;
 import paw.graph.nodes.*;
 
@@ -76,6 +77,33 @@ public class PawPlugin implements Plugin {
                     }
                 });
 
+        graph.nodeRegistry()
+                .getOrCreateDeclaration(NGramNode.NAME)
+                .setFactory(new NodeFactory() {
+                    @Override
+                    public Node create(long world, long time, long id, Graph graph) {
+                        return new NGramNode(world, time, id, graph);
+                    }
+                });
+
+        graph.nodeRegistry()
+                .getOrCreateDeclaration(ContentChunkNode.NAME)
+                .setFactory(new NodeFactory() {
+                    @Override
+                    public Node create(long world, long time, long id, Graph graph) {
+                        return new ContentChunkNode(world, time, id, graph);
+                    }
+                });
+
+        graph.nodeRegistry()
+                .getOrCreateDeclaration(ContentPayloadNode.NAME)
+                .setFactory(new NodeFactory() {
+                    @Override
+                    public Node create(long world, long time, long id, Graph graph) {
+                        return new ContentPayloadNode(world, time, id, graph);
+                    }
+                });
+
         graph.typeRegistry()
                 .getOrCreateDeclaration(CTRoaringBitMap.NAME)
                 .setFactory(new TypeFactory() {
@@ -108,6 +136,14 @@ public class PawPlugin implements Plugin {
                         return new CTTCRoaring(backend);
                     }
                 });
+        graph.typeRegistry()
+                .getOrCreateDeclaration(CTTCPacked.NAME)
+                .setFactory(new TypeFactory() {
+                    @Override
+                    public Object wrap(final EStructArray backend) {
+                        return new CTTCPacked(backend);
+                    }
+                });
 
 
         graph.addConnectHook(result -> {
@@ -41,6 +41,11 @@ public abstract class CTBitset  extends BaseCustomType{
 
     public abstract void clear(int index);
 
+    /**
+     * Clear the bits [fromIndex, toIndex[
+     */
+    public abstract void clear(int fromIndex, int toIndex);
+
     public abstract int size();
 
     public abstract int cardinality();
@@ -67,6 +67,11 @@ public class CTFastBitSet extends CTBitset {
         bitSet.clear(index);
     }
 
+    @Override
+    public void clear(int fromIndex, int toIndex) {
+        bitSet.clear(fromIndex, toIndex);
+    }
+
     @Override
     public int size() {
         return bitSet.size();
@@ -49,7 +49,7 @@ public class CTRoaringBitMap extends CTBitset {
             backend.setRoot(root);
         }
         gBits = (String) root.getAt(BITS_H);
-        if (gBits != null) {
+        if (gBits != null && !gBits.isEmpty()) {
             ByteBuffer newbb = ByteBuffer.wrap(Base64.getDecoder().decode(gBits));
             bitmap = new ImmutableRoaringBitmap(newbb).toRoaringBitmap();
         } else {
@@ -125,6 +125,11 @@ public class CTRoaringBitMap extends CTBitset {
         bitmap.checkedRemove(index);
     }
 
+    @Override
+    public void clear(int fromIndex, int toIndex) {
+        bitmap.remove((long) fromIndex, (long) toIndex);
+    }
+
     @Override
     public int size() {
         return bitmap.last() + 1;
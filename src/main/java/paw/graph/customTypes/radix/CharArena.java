@@ -0,0 +1,281 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.customTypes.radix;
+
+import greycat.struct.StringArray;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Shared storage for the edge labels of a radix tree.
+ * All labels of a tree are appended to a few String chunks and an edge only keeps a packed reference (chunk, offset, length) to its characters.
+ * Splitting an edge is then a matter of arithmetic on the reference, no character being copied.
+ * The last chunk is kept in a mutable buffer while labels are appended, it is only written back to the chunks when it is full or on {@link #flush()}.
+ */
+public class CharArena {
+
+    /**
+     * Size of a chunk, a full chunk is written once and never copied again
+     */
+    public static final int CHUNK_SIZE = 4096;
+
+    private static final int LENGTH_BITS = 20;
+    private static final int OFFSET_BITS = 20;
+    private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+    private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+
+    /**
+     * Longest label that can be referenced
+     */
+    public static final int MAX_LENGTH = (int) LENGTH_MASK;
+
+    /**
+     * Reference of the empty label
+     */
+    public static final long EMPTY = 0L;
+
+    private final StringArray chunks;
+
+    /**
+     * Buffer of the chunk labels are appended to, null until the first append
+     */
+    private StringBuilder tail;
+    private int tailIndex = -1;
+    private boolean dirty = false;
+
+    public CharArena(StringArray chunks) {
+        this.chunks = chunks;
+    }
+
+    public static long ref(int chunk, int offset, int length) {
+        return ((long) chunk << (OFFSET_BITS + LENGTH_BITS)) | ((long) offset << LENGTH_BITS) | length;
+    }
+
+    public static int chunkOf(long ref) {
+        return (int) (ref >>> (OFFSET_BITS + LENGTH_BITS));
+    }
+
+    public static int offsetOf(long ref) {
+        return (int) ((ref >>> LENGTH_BITS) & OFFSET_MASK);
+    }
+
+    public static int lengthOf(long ref) {
+        return (int) (ref & LENGTH_MASK);
+    }
+
+    /**
+     * @return the reference of the characters [from, to[ of the referenced label
+     */
+    public static long subRef(long ref, int from, int to) {
+        if (to == from) {
+            return EMPTY;
+        }
+        return ref(chunkOf(ref), offsetOf(ref) + from, to - from);
+    }
+
+    /**
+     * Append the characters [start, end[ of a sequence to the arena
+     *
+     * @return the reference to the appended label
+     */
+    public long append(CharSequence sequence, int start, int end) {
+        int length = end - start;
+        if (length == 0) {
+            return EMPTY;
+        }
+        if (length > MAX_LENGTH) {
+            throw new IllegalArgumentException("label too long: " + length);
+        }
+        if (tail == null) {
+            openTail();
+        }
+        if (tail.length() != 0 && tail.length() + length > CHUNK_SIZE) {
+            flush();
+            tail = new StringBuilder(Math.max(CHUNK_SIZE, length));
+            tailIndex = chunks.size();
+        }
+        long ref = ref(tailIndex, tail.length(), length);
+        tail.append(sequence, start, end);
+        dirty = true;
+        return ref;
+    }
+
+    /**
+     * Load the last chunk in the buffer if there is still room in it, start a new chunk otherwise
+     */
+    private void openTail() {
+        int last = chunks.size() - 1;
+        if (last >= 0 && chunks.get(last).length() < CHUNK_SIZE) {
+            tail = new StringBuilder(CHUNK_SIZE).append(chunks.get(last));
+            tailIndex = last;
+        } else {
+            tail = new StringBuilder(CHUNK_SIZE);
+            tailIndex = last + 1;
+        }
+    }
+
+    /**
+     * Write the buffered chunk back to the chunks, to be called before the arena is dropped
+     */
+    public void flush() {
+        if (!dirty) {
+            return;
+        }
+        if (tailIndex < chunks.size()) {
+            chunks.set(tailIndex, tail.toString());
+        } else {
+            chunks.addElement(tail.toString());
+        }
+        dirty = false;
+    }
+
+    private CharSequence chunkAt(int index) {
+        if (index == tailIndex) {
+            return tail;
+        }
+        return chunks.get(index);
+    }
+
+    /**
+     * @return the reference of the concatenation of both labels, no character being copied if they are contiguous in the arena
+     */
+    public long concat(long first, long second) {
+        int firstLength = lengthOf(first);
+        int secondLength = lengthOf(second);
+        if (firstLength == 0) {
+            return second;
+        }
+        if (secondLength == 0) {
+            return first;
+        }
+        if (chunkOf(first) == chunkOf(second) && offsetOf(first) + firstLength == offsetOf(second) && firstLength + secondLength <= MAX_LENGTH) {
+            return ref(chunkOf(first), offsetOf(first), firstLength + secondLength);
+        }
+        StringBuilder builder = appendTo(second, appendTo(first, new StringBuilder(firstLength + secondLength)));
+        return append(builder, 0, builder.length());
+    }
+
+    /**
+     * Copy the characters of the referenced label to dst, starting at dstBegin
+     */
+    public void getChars(long ref, char[] dst, int dstBegin) {
+        int length = lengthOf(ref);
+        if (length == 0) {
+            return;
+        }
+        int offset = offsetOf(ref);
+        CharSequence chunk = chunkAt(chunkOf(ref));
+        if (chunk instanceof String) {
+            ((String) chunk).getChars(offset, offset + length, dst, dstBegin);
+        } else {
+            ((StringBuilder) chunk).getChars(offset, offset + length, dst, dstBegin);
+        }
+    }
+
+    public char charAt(long ref, int index) {
+        return chunkAt(chunkOf(ref)).charAt(offsetOf(ref) + index);
+    }
+
+    /**
+     * Compare the referenced label, starting at labelStart, with the key starting at keyStart
+     *
+     * @return the number of consecutive characters that are equal
+     */
+    public int matchLength(long ref, int labelStart, CharSequence key, int keyStart) {
+        int length = lengthOf(ref);
+        if (labelStart >= length) {
+            return 0;
+        }
+        CharSequence chunk = chunkAt(chunkOf(ref));
+        int offset = offsetOf(ref);
+        int max = Math.min(length - labelStart, key.length() - keyStart);
+        int i = 0;
+        while (i < max && chunk.charAt(offset + labelStart + i) == key.charAt(keyStart + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    public StringBuilder appendTo(long ref, StringBuilder builder) {
+        int length = lengthOf(ref);
+        if (length != 0) {
+            int offset = offsetOf(ref);
+            builder.append(chunkAt(chunkOf(ref)), offset, offset + length);
+        }
+        return builder;
+    }
+
+    public String toString(long ref) {
+        int length = lengthOf(ref);
+        if (length == 0) {
+            return "";
+        }
+        int offset = offsetOf(ref);
+        CharSequence chunk = chunkAt(chunkOf(ref));
+        if (chunk instanceof String) {
+            return ((String) chunk).substring(offset, offset + length);
+        }
+        return ((StringBuilder) chunk).substring(offset, offset + length);
+    }
+
+    /**
+     * @return the number of characters stored, including the ones no longer referenced
+     */
+    public int storedChars() {
+        int total = 0;
+        for (int i = 0; i < chunks.size(); i++) {
+            if (i != tailIndex) {
+                total += chunks.get(i).length();
+            }
+        }
+        if (tail != null) {
+            total += tail.length();
+        }
+        return total;
+    }
+
+    /**
+     * Rewrite the arena so that it only holds the given labels
+     *
+     * @param refs references of all the labels still in use, they are replaced in place by their new reference
+     */
+    public void compact(long[] refs) {
+        List<String> newChunks = new ArrayList<>();
+        StringBuilder current = new StringBuilder(CHUNK_SIZE);
+        for (int i = 0; i < refs.length; i++) {
+            int length = lengthOf(refs[i]);
+            if (length == 0) {
+                refs[i] = EMPTY;
+                continue;
+            }
+            if (current.length() != 0 && current.length() + length > CHUNK_SIZE) {
+                newChunks.add(current.toString());
+                current.setLength(0);
+            }
+            long newRef = ref(newChunks.size(), current.length(), length);
+            appendTo(refs[i], current);
+            refs[i] = newRef;
+        }
+        if (current.length() != 0) {
+            newChunks.add(current.toString());
+        }
+        chunks.initWith(newChunks.toArray(new String[newChunks.size()]));
+        tail = null;
+        tailIndex = -1;
+        dirty = false;
+    }
+}
@@ -18,6 +18,7 @@ package paw.graph.customTypes.radix.array;
 import greycat.Type;
 import greycat.base.BaseCustomType;
 import greycat.struct.*;
+import paw.graph.customTypes.radix.CharArena;
 import paw.graph.customTypes.radix.CharSequences;
 
 import java.util.ArrayList;
@@ -27,7 +28,9 @@ import java.util.List;
 public class RadixTreeArray extends BaseCustomType {
     private EStruct tree;
     private final LongLongArrayMap childs;
-    private final StringArray addition;
+    private final LongArray edges;
+    private final IntArray firstChars;
+    private final CharArena arena;
     private final IntArray realWord;
     private final IntArray fathers;
     private int size;
@@ -41,11 +44,43 @@ public class RadixTreeArray extends BaseCustomType {
             tree = backend.newEStruct();
             backend.setRoot(tree);
         }
-        addition = (StringArray) tree.getOrCreate("addition", Type.STRING_ARRAY);
+        edges = (LongArray) tree.getOrCreate("edges", Type.LONG_ARRAY);
+        arena = new CharArena((StringArray) tree.getOrCreate("arena", Type.STRING_ARRAY));
+        firstChars = (IntArray) tree.getOrCreate("firstChar", Type.INT_ARRAY);
         childs = (LongLongArrayMap) tree.getOrCreate("child", Type.LONG_TO_LONG_ARRAY_MAP);
         fathers = (IntArray) tree.getOrCreate("father", Type.INT_ARRAY);
         realWord = (IntArray) tree.getOrCreate("real", Type.INT_ARRAY);
         size = tree.getWithDefault("size", 0);
+        if (tree.get("addition") != null) {
+            migrateLegacyEdges();
+        }
+    }
+
+    /**
+     * Trees written before the arena kept the label of each node in an "addition" StringArray, indexed like the other arrays.
+     * The labels are moved to the arena on first load, the node indexes being unchanged.
+     */
+    private void migrateLegacyEdges() {
+        StringArray additions = (StringArray) tree.get("addition");
+        long[] refs = new long[additions.size()];
+        int[] chars = new int[additions.size()];
+        for (int i = 0; i < refs.length; i++) {
+            String addition = additions.get(i);
+            refs[i] = arena.append(addition, 0, addition.length());
+            chars[i] = addition.length() == 0 ? 0 : addition.charAt(0);
+        }
+        edges.initWith(refs);
+        firstChars.initWith(chars);
+        tree.remove("addition");
+        arena.flush();
+    }
+
+    /**
+     * Write the pending labels of the arena, to be called once a batch of modifications is over.
+     * Nodes of this tree are never dropped and splitting an edge does not copy any character, every character of the arena stays referenced so it never needs to be compacted.
+     */
+    public void save() {
+        arena.flush();
     }
 
     public int getIndexOfKey(String key) throws IllegalArgumentException {
@@ -56,17 +91,14 @@ public class RadixTreeArray extends BaseCustomType {
             throw new IllegalArgumentException("key is empty");
         }
 
-        SearchResult searchResult = searchTree(key);
-
-        switch (searchResult.classification) {
-            case EXACT_MATCH:
-                if (realWord.get(searchResult.nodeFound) == 1) {
-                    return searchResult.nodeFound;
-                }
-                return -1;
-            default:
-                return -1;
+        long searchResult = searchPacked(key);
+        if (charsMatchedOf(searchResult) == key.length() && isEdgeFullyMatched(searchResult)) {
+            int node = nodeOf(searchResult);
+            if (node != -1 && realWord.get(node) == 1) {
+                return node;
+            }
         }
+        return -1;
     }
 
     public int getOrCreate(String key) throws IllegalArgumentException {
@@ -79,9 +111,8 @@ public class RadixTreeArray extends BaseCustomType {
 
         SearchResult searchResult = searchTree(key);
 
-        CharSequence keyCharsFromStartOfNodeFound;
-        CharSequence commonPrefix;
-        CharSequence suffixFromExistingEdge;
+        long commonPrefix;
+        long suffixFromExistingEdge;
 
         switch (searchResult.classification) {
             case EXACT_MATCH:
@@ -92,13 +123,14 @@ public class RadixTreeArray extends BaseCustomType {
                 }
                 return searchResult.nodeFound;
             case KEY_ENDS_MID_EDGE:
-                keyCharsFromStartOfNodeFound = key.subSequence(searchResult.charsMatched - searchResult.charsMatchedInNodeFound, key.length());
-                commonPrefix = CharSequences.getCommonPrefix(keyCharsFromStartOfNodeFound, addition.get(searchResult.nodeFound));
-                suffixFromExistingEdge = CharSequences.subtractPrefix(addition.get(searchResult.nodeFound), commonPrefix);
+                // the edge is split where the key ends, both parts keep pointing to the same characters
+                commonPrefix = CharArena.subRef(searchResult.edge, 0, searchResult.charsMatchedInNodeFound);
+                suffixFromExistingEdge = CharArena.subRef(searchResult.edge, searchResult.charsMatchedInNodeFound, CharArena.lengthOf(searchResult.edge));
 
                 //New Intermediary Node
-                int newNode = addition.size();
-                addition.addElement((String) commonPrefix);
+                int newNode = edges.size();
+                edges.addElement(commonPrefix);
+                firstChars.addElement(firstChars.get(searchResult.nodeFound));
                 childs.put(newNode, searchResult.nodeFound);
                 int parent = searchResult.parentNode;
                 fathers.addElement(parent);
@@ -109,7 +141,8 @@ public class RadixTreeArray extends BaseCustomType {
                 childs.put(searchResult.parentNode, newNode);
 
                 //Former Node
-                addition.set(searchResult.nodeFound, (String) suffixFromExistingEdge);
+                edges.set(searchResult.nodeFound, suffixFromExistingEdge);
+                firstChars.set(searchResult.nodeFound, arena.charAt(suffixFromExistingEdge, 0));
                 fathers.set(searchResult.nodeFound, newNode);
 
                 realWord.addElement(1);
@@ -118,10 +151,11 @@ public class RadixTreeArray extends BaseCustomType {
                 return newNode;
 
             case INCOMPLETE_MATCH_TO_END_OF_EDGE:
-                CharSequence keySuffix = key.subSequence(searchResult.charsMatched, key.length());
+                long keySuffix = arena.append(key, searchResult.charsMatched, key.length());
 
-                newNode = addition.size();
-                addition.addElement((String) keySuffix);
+                newNode = edges.size();
+                edges.addElement(keySuffix);
+                firstChars.addElement(key.charAt(searchResult.charsMatched));
                 fathers.addElement(searchResult.nodeFound);
                 realWord.addElement(1);
 
@@ -133,14 +167,14 @@ public class RadixTreeArray extends BaseCustomType {
 
             case INCOMPLETE_MATCH_TO_MIDDLE_OF_EDGE:
 
-                keyCharsFromStartOfNodeFound = key.subSequence(searchResult.charsMatched - searchResult.charsMatchedInNodeFound, key.length());
-                commonPrefix = CharSequences.getCommonPrefix(keyCharsFromStartOfNodeFound, addition.get(searchResult.nodeFound));
-                suffixFromExistingEdge = CharSequences.subtractPrefix(addition.get(searchResult.nodeFound), commonPrefix);
-                CharSequence suffixFromKey = key.subSequence(searchResult.charsMatched, key.length());
+                commonPrefix = CharArena.subRef(searchResult.edge, 0, searchResult.charsMatchedInNodeFound);
+                suffixFromExistingEdge = CharArena.subRef(searchResult.edge, searchResult.charsMatchedInNodeFound, CharArena.lengthOf(searchResult.edge));
+                long suffixFromKey = arena.append(key, searchResult.charsMatched, key.length());
 
-                int intermediaryNode = addition.size();
-                newNode = addition.size() + 1;
-                addition.addAll(new String[]{(String) commonPrefix, (String) suffixFromKey});
+                int intermediaryNode = edges.size();
+                newNode = edges.size() + 1;
+                edges.addAll(new long[]{commonPrefix, suffixFromKey});
+                firstChars.addAll(new int[]{firstChars.get(searchResult.nodeFound), key.charAt(searchResult.charsMatched)});
                 realWord.addAll(new int[]{0, 1});
 
                 childs.put(intermediaryNode, searchResult.nodeFound);
@@ -153,7 +187,8 @@ public class RadixTreeArray extends BaseCustomType {
                 childs.put(searchResult.parentNode, intermediaryNode);
 
                 fathers.set(searchResult.nodeFound, intermediaryNode);
-                addition.set(searchResult.nodeFound, (String) suffixFromExistingEdge);
+                edges.set(searchResult.nodeFound, suffixFromExistingEdge);
+                firstChars.set(searchResult.nodeFound, arena.charAt(suffixFromExistingEdge, 0));
 
                 tree.set("size", Type.INT, size + 1);
                 size++;
@@ -165,58 +200,102 @@ public class RadixTreeArray extends BaseCustomType {
 
 
     SearchResult searchTree(CharSequence key) {
-        int parentNodesParent = -1;
-        int parentNode = -1;
+        long packed = searchPacked(key);
+        int nodeFound = nodeOf(packed);
+        if (nodeFound == -1) {
+            return new SearchResult(CharArena.EMPTY, key, -1, 0, 0, -1, -1);
+        }
+        long edge = edges.get(nodeFound);
+        int parentNode = fathers.get(nodeFound);
+        int parentNodesParent = parentNode == -1 ? -1 : fathers.get(parentNode);
+        int charsMatchedInNodeFound;
+        if (isEdgeFullyMatched(packed)) {
+            charsMatchedInNodeFound = CharArena.lengthOf(edge);
+        } else {
+            int depth = 0;
+            for (int id = parentNode; id != -1; id = fathers.get(id)) {
+                depth += CharArena.lengthOf(edges.get(id));
+            }
+            charsMatchedInNodeFound = charsMatchedOf(packed) - depth;
+        }
+        return new SearchResult(edge, key, nodeFound, charsMatchedOf(packed), charsMatchedInNodeFound, parentNode, parentNodesParent);
+    }
+
+    /**
+     * Search of the deepest node matching the key, children being selected on the cached first char of their edge
+     *
+     * @return the node found, the number of chars of the key matched and whether the edge of the node was fully matched, packed in a long
+     */
+    long searchPacked(CharSequence key) {
         int currentNode = -1;
-        int charsMatched = 0, charsMatchedInNodeFound = 0;
+        int charsMatched = 0;
+        boolean edgeFullyMatched = true;
 
         final int keyLength = key.length();
-        outer_loop:
         while (charsMatched < keyLength) {
             int nextNode = -1;
+            char nextChar = key.charAt(charsMatched);
             long[] child = childs.get(currentNode);
             for (int i = 0; i < child.length; i++) {
                 int studiedNode = (int) child[i];
-                if (addition.get(studiedNode).startsWith(String.valueOf(key.charAt(charsMatched)))) {
+                if (firstChars.get(studiedNode) == nextChar) {
                     nextNode = studiedNode;
                     break;
                 }
             }
             if (nextNode == -1) {
                 // Next node is a dead end...
-                //noinspection UnnecessaryLabelOnBreakStatement
-                break outer_loop;
+                break;
             }
-            parentNodesParent = parentNode;
-            parentNode = currentNode;
             currentNode = nextNode;
-            charsMatchedInNodeFound = 0;
-            CharSequence currentNodeEdgeCharacters = addition.get(currentNode);
-            for (int i = 0, numEdgeChars = currentNodeEdgeCharacters.length(); i < numEdgeChars && charsMatched < keyLength; i++) {
-                if (currentNodeEdgeCharacters.charAt(i) != key.charAt(charsMatched)) {
-                    // Found a difference in chars between character in key and a character in current node.
-                    // Current node is the deepest match (inexact match)....
-                    break outer_loop;
-                }
-                charsMatched++;
-                charsMatchedInNodeFound++;
+            long currentEdge = edges.get(currentNode);
+            int charsMatchedInNodeFound = arena.matchLength(currentEdge, 0, key, charsMatched);
+            charsMatched += charsMatchedInNodeFound;
+            if (charsMatchedInNodeFound < CharArena.lengthOf(currentEdge)) {
+                // Found a difference in chars between character in key and a character in current node, or the key ended.
+                // Current node is the deepest match (inexact match)....
+                edgeFullyMatched = false;
+                break;
             }
         }
-        return new SearchResult(addition.extract(), key, currentNode, charsMatched, charsMatchedInNodeFound, parentNode, parentNodesParent);
+        return (edgeFullyMatched ? EDGE_FULLY_MATCHED : 0L) | ((long) charsMatched << 32) | (currentNode & 0xFFFFFFFFL);
+    }
+
+    private static final long EDGE_FULLY_MATCHED = 1L << 63;
+
+    static int nodeOf(long packedResult) {
+        return (int) packedResult;
+    }
+
+    static int charsMatchedOf(long packedResult) {
+        return (int) ((packedResult & ~EDGE_FULLY_MATCHED) >>> 32);
+    }
+
+    static boolean isEdgeFullyMatched(long packedResult) {
+        return (packedResult & EDGE_FULLY_MATCHED) != 0;
     }
 
     public String getNameOfToken(int tokenId) {
-        StringBuilder token = new StringBuilder();
-        token.insert(0, addition.get(tokenId));
+        int length = CharArena.lengthOf(edges.get(tokenId));
+        int depth = 1;
         int id = fathers.get(tokenId);
         while (id != -1) {
-            token.insert(0, addition.get(id));
+            length += CharArena.lengthOf(edges.get(id));
+            depth++;
+            id = fathers.get(id);
+        }
+        char[] token = new char[length];
+        id = tokenId;
+        for (int i = 0; i < depth; i++) {
+            long edge = edges.get(id);
+            int edgeLength = CharArena.lengthOf(edge);
+            length -= edgeLength;
+            arena.getChars(edge, token, length);
             id = fathers.get(id);
         }
-        return token.toString();
+        return new String(token);
     }
 
-
     public CharSequence[] getClosestWordsFrom(String candidate) {
         SearchResult searchResult = searchTree(candidate);
         switch (searchResult.classification) {
@@ -227,7 +306,7 @@ public class RadixTreeArray extends BaseCustomType {
                 // Append the remaining characters of the edge to the key.
                 // For example if we searched for CO, but first matching node was COFFEE,
                 // the key associated with the first node should be COFFEE...
-                CharSequence edgeSuffix = CharSequences.getSuffix(addition.get(searchResult.nodeFound), searchResult.charsMatchedInNodeFound);
+                CharSequence edgeSuffix = CharSequences.getSuffix(arena.toString(searchResult.edge), searchResult.charsMatchedInNodeFound);
                 CharSequence word = CharSequences.concatenate(candidate, edgeSuffix);
                 return getDescendantKeys(word, searchResult.nodeFound);
             }
@@ -235,7 +314,7 @@ public class RadixTreeArray extends BaseCustomType {
                 // Example: if we searched for CX, but deepest matching node was CO,
                 // the results should include node CO and its descendants...
                 CharSequence keyOfParentNode = CharSequences.getPrefix(candidate, searchResult.charsMatched - searchResult.charsMatchedInNodeFound);
-                CharSequence keyOfNodeFound = CharSequences.concatenate(keyOfParentNode, addition.get(searchResult.nodeFound));
+                CharSequence keyOfNodeFound = CharSequences.concatenate(keyOfParentNode, arena.toString(searchResult.edge));
                 return getDescendantKeys(keyOfNodeFound, searchResult.nodeFound);
             }
             case INCOMPLETE_MATCH_TO_END_OF_EDGE: {
@@ -263,7 +342,7 @@ public class RadixTreeArray extends BaseCustomType {
                 // Append the remaining characters of the edge to the key.
                 // For example if we searched for CO, but first matching node was COFFEE,
                 // the key associated with the first node should be COFFEE...
-                CharSequence edgeSuffix = CharSequences.getSuffix(addition.get(searchResult.nodeFound), searchResult.charsMatchedInNodeFound);
+                CharSequence edgeSuffix = CharSequences.getSuffix(arena.toString(searchResult.edge), searchResult.charsMatchedInNodeFound);
                 CharSequence candidate = CharSequences.concatenate(word, edgeSuffix);
                 return getDescendantNodes(candidate, searchResult.nodeFound);
             }
@@ -271,7 +350,7 @@ public class RadixTreeArray extends BaseCustomType {
                 // Example: if we searched for CX, but deepest matching node was CO,
                 // the results should include node CO and its descendants...
                 CharSequence keyOfParentNode = CharSequences.getPrefix(word, searchResult.charsMatched - searchResult.charsMatchedInNodeFound);
-                CharSequence keyOfNodeFound = CharSequences.concatenate(keyOfParentNode, addition.get(searchResult.nodeFound));
+                CharSequence keyOfNodeFound = CharSequences.concatenate(keyOfParentNode, arena.toString(searchResult.edge));
                 return getDescendantNodes(keyOfNodeFound, searchResult.nodeFound);
             }
             case INCOMPLETE_MATCH_TO_END_OF_EDGE: {
@@ -318,7 +397,7 @@ public class RadixTreeArray extends BaseCustomType {
             case EXACT_MATCH:
                 return getDescendantKeys(prefix, searchResult.nodeFound);
             case KEY_ENDS_MID_EDGE:
-                CharSequence edgeSuffix = CharSequences.getSuffix(addition.get(searchResult.nodeFound), searchResult.charsMatchedInNodeFound);
+                CharSequence edgeSuffix = CharSequences.getSuffix(arena.toString(searchResult.edge), searchResult.charsMatchedInNodeFound);
                 prefix = CharSequences.concatenate(prefix, edgeSuffix);
                 return getDescendantKeys(prefix, searchResult.nodeFound);
             default:
@@ -333,7 +412,7 @@ public class RadixTreeArray extends BaseCustomType {
             case EXACT_MATCH:
                 return getDescendantNodes(prefix, searchResult.nodeFound);
             case KEY_ENDS_MID_EDGE:
-                CharSequence edgeSuffix = CharSequences.getSuffix(addition.get(searchResult.nodeFound), searchResult.charsMatchedInNodeFound);
+                CharSequence edgeSuffix = CharSequences.getSuffix(arena.toString(searchResult.edge), searchResult.charsMatchedInNodeFound);
                 prefix = CharSequences.concatenate(prefix, edgeSuffix);
                 return getDescendantNodes(prefix, searchResult.nodeFound);
             default:
@@ -368,7 +447,7 @@ public class RadixTreeArray extends BaseCustomType {
         }
         for (int i = 0; i < children.length; i++) {
             int child = (int) children[i];
-            CharSequence newContent = CharSequences.concatenate(prefix, addition.get(child));
+            CharSequence newContent = arena.appendTo(edges.get(child), new StringBuilder(prefix));
             nodeKeyPairs.addAll(getDescendant(newContent, child));
         }
         return nodeKeyPairs;
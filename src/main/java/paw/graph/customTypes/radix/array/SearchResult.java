@@ -15,6 +15,8 @@
  */
 package paw.graph.customTypes.radix.array;
 
+import paw.graph.customTypes.radix.CharArena;
+
 class SearchResult {
     final CharSequence key;
     final int nodeFound;
@@ -23,7 +25,7 @@ class SearchResult {
     final int parentNode;
     final int parentNodesParent;
     final Classification classification;
-    private final String[] stringArray;
+    final long edge;
 
     enum Classification {
         EXACT_MATCH,
@@ -32,14 +34,14 @@ class SearchResult {
         KEY_ENDS_MID_EDGE,
     }
 
-    SearchResult(String[] stringArray, CharSequence key, int nodeFound, int charsMatched, int charsMatchedInNodeFound, int parentNode, int parentNodesParent) {
+    SearchResult(long edge, CharSequence key, int nodeFound, int charsMatched, int charsMatchedInNodeFound, int parentNode, int parentNodesParent) {
         this.key = key;
         this.nodeFound = nodeFound;
         this.charsMatched = charsMatched;
         this.charsMatchedInNodeFound = charsMatchedInNodeFound;
         this.parentNode = parentNode;
         this.parentNodesParent = parentNodesParent;
-        this.stringArray = stringArray;
+        this.edge = edge;
 
         // Classify this search result...
         this.classification = classify(key, nodeFound, charsMatched, charsMatchedInNodeFound);
@@ -49,7 +51,7 @@ class SearchResult {
         if(nodeFound == -1){
             return Classification.INCOMPLETE_MATCH_TO_END_OF_EDGE;
         }
-        int length = stringArray[nodeFound].length();
+        int length = CharArena.lengthOf(edge);
         if (charsMatched == key.length()) {
             if (charsMatchedInNodeFound == length) {
                 return Classification.EXACT_MATCH;
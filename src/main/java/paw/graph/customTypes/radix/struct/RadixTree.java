@@ -20,23 +20,52 @@ import greycat.base.BaseCustomType;
 import greycat.struct.EStruct;
 import greycat.struct.EStructArray;
 import greycat.struct.IntArray;
+import greycat.struct.StringArray;
+import greycat.utility.HashHelper;
+import paw.graph.customTypes.radix.CharArena;
 import paw.graph.customTypes.radix.CharSequences;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class RadixTree extends BaseCustomType {
     public static final String NAME = "RadixTreeStruct" ;
 
+    private final CharArena arena;
+
     public RadixTree(final EStructArray eGraph) {
         super(eGraph);
-        if (eGraph.root() == null) {
-            EStruct root = eGraph.newEStruct();
-            root.set(NODE_ADDITION, Type.STRING, "");
-            root.getOrCreate(NODE_CHILD, Type.INT_ARRAY);
-            root.set(VOCABULARY_SIZE, Type.INT, 0);
+        EStruct root = eGraph.root();
+        if (root == null) {
+            root = eGraph.newEStruct();
+            root.setAt(NODE_EDGE_H, Type.LONG, CharArena.EMPTY);
+            root.getOrCreateAt(NODE_CHILD_H, Type.INT_ARRAY);
+            root.getOrCreateAt(NODE_FIRST_CHARS_H, Type.INT_ARRAY);
+            root.setAt(VOCABULARY_SIZE_H, Type.INT, 0);
             eGraph.setRoot(root);
         }
+        arena = new CharArena((StringArray) root.getOrCreateAt(ARENA_H, Type.STRING_ARRAY));
+        if (root.getAt(LEGACY_NODE_ADDITION_H) != null) {
+            migrateLegacyEdges();
+        }
+    }
+
+    /**
+     * Trees written before the arena kept one String per edge, their labels are moved to the arena on first load
+     */
+    private void migrateLegacyEdges() {
+        for (int i = 0; i < _backend.size(); i++) {
+            EStruct eNode = _backend.estruct(i);
+            if (eNode != null) {
+                String addition = (String) eNode.getAt(LEGACY_NODE_ADDITION_H);
+                if (addition != null) {
+                    eNode.setAt(NODE_EDGE_H, Type.LONG, arena.append(addition, 0, addition.length()));
+                    eNode.removeAt(LEGACY_NODE_ADDITION_H);
+                }
+            }
+        }
+        arena.flush();
     }
 
 
@@ -48,17 +77,14 @@ public class RadixTree extends BaseCustomType {
             throw new IllegalArgumentException("key is empty");
         }
 
-        SearchResult searchResult = searchTree(key);
-
-        switch (searchResult.classification) {
-            case EXACT_MATCH:
-                if ((boolean) searchResult.nodeFound.get(NODE_REAL_WORD)) {
-                    return searchResult.nodeFound.id();
-                }
-                return -1;
-            default:
-                return -1;
+        long searchResult = searchPacked(key, _backend.root(), 0);
+        if (charsMatchedOf(searchResult) == key.length() && isEdgeFullyMatched(searchResult)) {
+            int node = nodeOf(searchResult);
+            if (Boolean.TRUE.equals(_backend.estruct(node).getAt(NODE_REAL_WORD_H))) {
+                return node;
+            }
         }
+        return -1;
     }
 
     public int getOrCreate(String key) throws IllegalArgumentException {
@@ -70,92 +96,187 @@ public class RadixTree extends BaseCustomType {
         }
 
         SearchResult searchResult = searchTree(key);
+        if (isNewWord(searchResult)) {
+            incrementVocabularySize();
+        }
+        return insert(key, searchResult);
+    }
+
+    /**
+     * Bulk version of {@link #getOrCreate(String)} for a sorted batch of words.
+     * The batch is merged into the tree in a single pass: every search starts from the deepest node shared with the previous word instead of the root,
+     * and the vocabulary size is only written once at the end.
+     *
+     * @param sortedKeys words sorted in natural order, duplicates are allowed
+     * @return the position of every word in the radix tree, in the same order as the keys
+     * @throws IllegalArgumentException if a key is null, empty or if the keys are not sorted
+     */
+    public int[] getOrCreateAll(String[] sortedKeys) throws IllegalArgumentException {
+        int[] positions = new int[sortedKeys.length];
+        EStruct[] pathNodes = new EStruct[16];
+        int[] pathDepths = new int[16];
+        pathNodes[0] = _backend.root();
+        int pathSize = 1;
+        int created = 0;
+        String previous = null;
+
+        for (int i = 0; i < sortedKeys.length; i++) {
+            String key = sortedKeys[i];
+            if (key == null) {
+                throw new IllegalArgumentException("key is null");
+            }
+            if (key.length() == 0) {
+                throw new IllegalArgumentException("key is empty");
+            }
+            int commonPrefix = 0;
+            if (previous != null) {
+                if (key.compareTo(previous) < 0) {
+                    throw new IllegalArgumentException("keys are not sorted: " + previous + " before " + key);
+                }
+                int minLength = Math.min(key.length(), previous.length());
+                while (commonPrefix < minLength && key.charAt(commonPrefix) == previous.charAt(commonPrefix)) {
+                    commonPrefix++;
+                }
+            }
+            // deepest node of the previous path whose key is still a prefix of the current one
+            while (pathDepths[pathSize - 1] > commonPrefix) {
+                pathSize--;
+            }
+
+            SearchResult searchResult = searchTree(key, pathNodes[pathSize - 1], pathDepths[pathSize - 1]);
+            if (isNewWord(searchResult)) {
+                created++;
+            }
+            int position = insert(key, searchResult);
+            positions[i] = position;
+
+            // rebuild the path from the root to the word that was just inserted
+            int depth = 0;
+            EStruct eNode = _backend.estruct(position);
+            while (eNode.getAt(NODE_PARENT_H) != null) {
+                depth++;
+                eNode = _backend.estruct((Integer) eNode.getAt(NODE_PARENT_H));
+            }
+            if (depth + 1 > pathNodes.length) {
+                pathNodes = Arrays.copyOf(pathNodes, depth + 1);
+                pathDepths = Arrays.copyOf(pathDepths, depth + 1);
+            }
+            pathSize = depth + 1;
+            eNode = _backend.estruct(position);
+            int keyDepth = key.length();
+            for (int j = depth; j > 0; j--) {
+                pathNodes[j] = eNode;
+                pathDepths[j] = keyDepth;
+                keyDepth -= CharArena.lengthOf(edgeOf(eNode));
+                eNode = _backend.estruct((Integer) eNode.getAt(NODE_PARENT_H));
+            }
+            previous = key;
+        }
+        if (created != 0) {
+            addToVocabularySize(created);
+        }
+        return positions;
+    }
+
+    private boolean isNewWord(SearchResult searchResult) {
+        return searchResult.classification != SearchResult.Classification.EXACT_MATCH || !(boolean) searchResult.nodeFound.getAt(NODE_REAL_WORD_H);
+    }
+
+    private int insert(String key, SearchResult searchResult) {
         EStruct enode;
-        CharSequence keyCharsFromStartOfNodeFound;
-        CharSequence commonPrefix;
-        CharSequence suffixFromExistingEdge;
+        long commonPrefix;
+        long suffixFromExistingEdge;
         IntArray eChild;
 
         switch (searchResult.classification) {
             case EXACT_MATCH:
-                if (!(boolean) searchResult.nodeFound.get(NODE_REAL_WORD)) {
-                    searchResult.nodeFound.set(NODE_REAL_WORD, Type.BOOL, true);
-                    incrementVocabularySize();
+                if (!(boolean) searchResult.nodeFound.getAt(NODE_REAL_WORD_H)) {
+                    searchResult.nodeFound.setAt(NODE_REAL_WORD_H, Type.BOOL, true);
                 }
                 return searchResult.nodeFound.id();
             case KEY_ENDS_MID_EDGE:
-                keyCharsFromStartOfNodeFound = key.subSequence(searchResult.charsMatched - searchResult.charsMatchedInNodeFound, key.length());
-                commonPrefix = CharSequences.getCommonPrefix(keyCharsFromStartOfNodeFound, (String) searchResult.nodeFound.get(NODE_ADDITION));
-                suffixFromExistingEdge = CharSequences.subtractPrefix((String) searchResult.nodeFound.get(NODE_ADDITION), commonPrefix);
+                // the edge is split where the key ends, both parts keep pointing to the same characters
+                commonPrefix = CharArena.subRef(searchResult.edge, 0, searchResult.charsMatchedInNodeFound);
+                suffixFromExistingEdge = CharArena.subRef(searchResult.edge, searchResult.charsMatchedInNodeFound, CharArena.lengthOf(searchResult.edge));
 
                 //New Intermediary Node
                 enode = _backend.newEStruct();
-                enode.set(NODE_ADDITION, Type.STRING, commonPrefix);
-                eChild = (IntArray) enode.getOrCreate(NODE_CHILD, Type.INT_ARRAY);
+                enode.setAt(NODE_EDGE_H, Type.LONG, commonPrefix);
+                eChild = (IntArray) enode.getOrCreateAt(NODE_CHILD_H, Type.INT_ARRAY);
                 eChild.addElement(searchResult.nodeFound.id());
-
+                ((IntArray) enode.getOrCreateAt(NODE_FIRST_CHARS_H, Type.INT_ARRAY)).addElement(arena.charAt(suffixFromExistingEdge, 0));
 
                 int parent = searchResult.parentNode.id();
-                enode.set(NODE_PARENT, Type.INT, parent);
+                enode.setAt(NODE_PARENT_H, Type.INT, parent);
 
                 //former Parent
-                IntArray children = (IntArray) searchResult.parentNode.get(NODE_CHILD);
+                IntArray children = (IntArray) searchResult.parentNode.getAt(NODE_CHILD_H);
                 children.replaceElementby(searchResult.nodeFound.id(), enode.id());
+                updateCharTable(searchResult.parentNode, arena.charAt(commonPrefix, 0), enode.id());
 
                 //Former Node
-                searchResult.nodeFound.set(NODE_ADDITION, Type.STRING, suffixFromExistingEdge);
-                searchResult.nodeFound.set(NODE_PARENT, Type.INT, enode.id());
+                searchResult.nodeFound.setAt(NODE_EDGE_H, Type.LONG, suffixFromExistingEdge);
+                searchResult.nodeFound.setAt(NODE_PARENT_H, Type.INT, enode.id());
 
-                enode.set(NODE_REAL_WORD, Type.BOOL, true);
-                incrementVocabularySize();
+                enode.setAt(NODE_REAL_WORD_H, Type.BOOL, true);
                 return enode.id();
 
             case INCOMPLETE_MATCH_TO_END_OF_EDGE:
-                CharSequence keySuffix = key.subSequence(searchResult.charsMatched, key.length());
-
+                long keySuffix = arena.append(key, searchResult.charsMatched, key.length());
 
                 enode = _backend.newEStruct();
-                enode.set(NODE_ADDITION, Type.STRING, keySuffix);
-                enode.set(NODE_PARENT, Type.INT, searchResult.nodeFound.id());
-                enode.getOrCreate(NODE_CHILD, Type.INT_ARRAY);
-
-                eChild = (IntArray) searchResult.nodeFound.get(NODE_CHILD);
-                eChild.addElement(enode.id());
-
-                enode.set(NODE_REAL_WORD, Type.BOOL, true);
-                incrementVocabularySize();
+                enode.setAt(NODE_EDGE_H, Type.LONG, keySuffix);
+                enode.setAt(NODE_PARENT_H, Type.INT, searchResult.nodeFound.id());
+
+                // children are kept sorted by first char, a leaf only gets its arrays when its first child is added
+                char firstChar = key.charAt(searchResult.charsMatched);
+                int position = -indexOfChild(searchResult.nodeFound, firstChar) - 1;
+                eChild = (IntArray) searchResult.nodeFound.getOrCreateAt(NODE_CHILD_H, Type.INT_ARRAY);
+                eChild.insertElementAt(position, enode.id());
+                ((IntArray) searchResult.nodeFound.getOrCreateAt(NODE_FIRST_CHARS_H, Type.INT_ARRAY)).insertElementAt(position, firstChar);
+                updateCharTable(searchResult.nodeFound, firstChar, enode.id());
+                indexCharTableIfDense(searchResult.nodeFound);
+
+                enode.setAt(NODE_REAL_WORD_H, Type.BOOL, true);
                 return enode.id();
 
             case INCOMPLETE_MATCH_TO_MIDDLE_OF_EDGE:
 
-                keyCharsFromStartOfNodeFound = key.subSequence(searchResult.charsMatched - searchResult.charsMatchedInNodeFound, key.length());
-                commonPrefix = CharSequences.getCommonPrefix(keyCharsFromStartOfNodeFound, (String) searchResult.nodeFound.get(NODE_ADDITION));
-                suffixFromExistingEdge = CharSequences.subtractPrefix((String) searchResult.nodeFound.get(NODE_ADDITION), commonPrefix);
-                CharSequence suffixFromKey = key.subSequence(searchResult.charsMatched, key.length());
+                commonPrefix = CharArena.subRef(searchResult.edge, 0, searchResult.charsMatchedInNodeFound);
+                suffixFromExistingEdge = CharArena.subRef(searchResult.edge, searchResult.charsMatchedInNodeFound, CharArena.lengthOf(searchResult.edge));
+                long suffixFromKey = arena.append(key, searchResult.charsMatched, key.length());
 
                 EStruct intermediaryEnode = _backend.newEStruct();
-                intermediaryEnode.set(NODE_ADDITION, Type.STRING, commonPrefix);
-                intermediaryEnode.set(NODE_REAL_WORD, Type.BOOL, false);
+                intermediaryEnode.setAt(NODE_EDGE_H, Type.LONG, commonPrefix);
+                intermediaryEnode.setAt(NODE_REAL_WORD_H, Type.BOOL, false);
 
                 enode = _backend.newEStruct();
-                enode.set(NODE_ADDITION, Type.STRING, suffixFromKey);
-                enode.set(NODE_REAL_WORD, Type.BOOL, true);
-                enode.getOrCreate(NODE_CHILD, Type.INT_ARRAY);
-
-                eChild = (IntArray) intermediaryEnode.getOrCreate(NODE_CHILD, Type.INT_ARRAY);
-                eChild.initWith(new int[]{searchResult.nodeFound.id(), enode.id()});
+                enode.setAt(NODE_EDGE_H, Type.LONG, suffixFromKey);
+                enode.setAt(NODE_REAL_WORD_H, Type.BOOL, true);
+
+                eChild = (IntArray) intermediaryEnode.getOrCreateAt(NODE_CHILD_H, Type.INT_ARRAY);
+                IntArray eFirstChars = (IntArray) intermediaryEnode.getOrCreateAt(NODE_FIRST_CHARS_H, Type.INT_ARRAY);
+                char existingFirstChar = arena.charAt(suffixFromExistingEdge, 0);
+                char newFirstChar = arena.charAt(suffixFromKey, 0);
+                if (existingFirstChar < newFirstChar) {
+                    eChild.initWith(new int[]{searchResult.nodeFound.id(), enode.id()});
+                    eFirstChars.initWith(new int[]{existingFirstChar, newFirstChar});
+                } else {
+                    eChild.initWith(new int[]{enode.id(), searchResult.nodeFound.id()});
+                    eFirstChars.initWith(new int[]{newFirstChar, existingFirstChar});
+                }
 
                 parent = searchResult.parentNode.id();
-                intermediaryEnode.set(NODE_PARENT, Type.INT, parent);
+                intermediaryEnode.setAt(NODE_PARENT_H, Type.INT, parent);
 
                 //former Parent
-                children = (IntArray) searchResult.parentNode.get(NODE_CHILD);
+                children = (IntArray) searchResult.parentNode.getAt(NODE_CHILD_H);
                 children.replaceElementby(searchResult.nodeFound.id(), intermediaryEnode.id());
+                updateCharTable(searchResult.parentNode, arena.charAt(commonPrefix, 0), intermediaryEnode.id());
 
-                enode.set(NODE_PARENT, Type.INT, intermediaryEnode.id());
-                searchResult.nodeFound.set(NODE_PARENT, Type.INT, intermediaryEnode.id());
-                searchResult.nodeFound.set(NODE_ADDITION, Type.STRING, suffixFromExistingEdge);
-                incrementVocabularySize();
+                enode.setAt(NODE_PARENT_H, Type.INT, intermediaryEnode.id());
+                searchResult.nodeFound.setAt(NODE_PARENT_H, Type.INT, intermediaryEnode.id());
+                searchResult.nodeFound.setAt(NODE_EDGE_H, Type.LONG, suffixFromExistingEdge);
                 return enode.id();
             default:
                 return -1;
@@ -172,7 +293,7 @@ public class RadixTree extends BaseCustomType {
                 // Append the remaining characters of the edge to the key.
                 // For example if we searched for CO, but first matching node was COFFEE,
                 // the key associated with the first node should be COFFEE...
-                CharSequence edgeSuffix = CharSequences.getSuffix((CharSequence) searchResult.nodeFound.get(NODE_ADDITION), searchResult.charsMatchedInNodeFound);
+                CharSequence edgeSuffix = CharSequences.getSuffix(arena.toString(searchResult.edge), searchResult.charsMatchedInNodeFound);
                 CharSequence word = CharSequences.concatenate(candidate, edgeSuffix);
                 return getDescendantKeys(word, searchResult.nodeFound);
             }
@@ -180,7 +301,7 @@ public class RadixTree extends BaseCustomType {
                 // Example: if we searched for CX, but deepest matching node was CO,
                 // the results should include node CO and its descendants...
                 CharSequence keyOfParentNode = CharSequences.getPrefix(candidate, searchResult.charsMatched - searchResult.charsMatchedInNodeFound);
-                CharSequence keyOfNodeFound = CharSequences.concatenate(keyOfParentNode, (CharSequence) searchResult.nodeFound.get(NODE_ADDITION));
+                CharSequence keyOfNodeFound = CharSequences.concatenate(keyOfParentNode, arena.toString(searchResult.edge));
                 return getDescendantKeys(keyOfNodeFound, searchResult.nodeFound);
             }
             case INCOMPLETE_MATCH_TO_END_OF_EDGE: {
@@ -208,7 +329,7 @@ public class RadixTree extends BaseCustomType {
                 // Append the remaining characters of the edge to the key.
                 // For example if we searched for CO, but first matching node was COFFEE,
                 // the key associated with the first node should be COFFEE...
-                CharSequence edgeSuffix = CharSequences.getSuffix((CharSequence) searchResult.nodeFound.get(NODE_ADDITION), searchResult.charsMatchedInNodeFound);
+                CharSequence edgeSuffix = CharSequences.getSuffix(arena.toString(searchResult.edge), searchResult.charsMatchedInNodeFound);
                 CharSequence candidate = CharSequences.concatenate(word, edgeSuffix);
                 return getDescendantNodes(candidate, searchResult.nodeFound);
             }
@@ -216,7 +337,7 @@ public class RadixTree extends BaseCustomType {
                 // Example: if we searched for CX, but deepest matching node was CO,
                 // the results should include node CO and its descendants...
                 CharSequence keyOfParentNode = CharSequences.getPrefix(word, searchResult.charsMatched - searchResult.charsMatchedInNodeFound);
-                CharSequence keyOfNodeFound = CharSequences.concatenate(keyOfParentNode, (CharSequence) searchResult.nodeFound.get(NODE_ADDITION));
+                CharSequence keyOfNodeFound = CharSequences.concatenate(keyOfParentNode, arena.toString(searchResult.edge));
                 return getDescendantNodes(keyOfNodeFound, searchResult.nodeFound);
             }
             case INCOMPLETE_MATCH_TO_END_OF_EDGE: {
@@ -234,6 +355,12 @@ public class RadixTree extends BaseCustomType {
     }
 
 
+    /**
+     * Remove a word from the tree, the vocabulary size being decremented.
+     * A word with several descendants stays as a branching node of the tree, it is only no longer a word.
+     *
+     * @return whether the word was in the tree
+     */
     public boolean removeWord(String word) {
         if (word == null) {
             throw new IllegalArgumentException("The key argument was null");
@@ -242,25 +369,39 @@ public class RadixTree extends BaseCustomType {
         SearchResult.Classification classification = searchResult.classification;
         switch (classification) {
             case EXACT_MATCH:
-                if (!(boolean) searchResult.nodeFound.get(NODE_REAL_WORD)) {
+                if (!Boolean.TRUE.equals(searchResult.nodeFound.getAt(NODE_REAL_WORD_H))) {
                     return false;
                 }
-                IntArray children = ((IntArray) searchResult.nodeFound.get(NODE_CHILD));
-                if (children.size() == 0) {
-                    int id = searchResult.nodeFound.id();
-                    ((IntArray) searchResult.parentNode.get(NODE_CHILD)).removeElement(id);
+                addToVocabularySize(-1);
+                IntArray children = ((IntArray) searchResult.nodeFound.getAt(NODE_CHILD_H));
+                if (children == null || children.size() == 0) {
+                    int position = indexOfChild(searchResult.parentNode, arena.charAt(searchResult.edge, 0));
+                    ((IntArray) searchResult.parentNode.getAt(NODE_CHILD_H)).removeElementbyIndex(position);
+                    ((IntArray) searchResult.parentNode.getAt(NODE_FIRST_CHARS_H)).removeElementbyIndex(position);
+                    updateCharTable(searchResult.parentNode, arena.charAt(searchResult.edge, 0), -1);
                     _backend.drop(searchResult.nodeFound);
+                    addToGarbage(CharArena.lengthOf(searchResult.edge));
                     return true;
                 } else if (children.size() == 1) {
                     int id = searchResult.nodeFound.id();
                     EStruct child = _backend.estruct(children.get(0));
-                    IntArray parentChild = (IntArray) searchResult.parentNode.get(NODE_CHILD);
+                    // the child takes the place of the removed node, its edge starts with the same char
+                    long childEdge = edgeOf(child);
+                    long merged = arena.concat(searchResult.edge, childEdge);
+                    if (CharArena.chunkOf(merged) != CharArena.chunkOf(searchResult.edge) || CharArena.offsetOf(merged) != CharArena.offsetOf(searchResult.edge)) {
+                        // both labels were copied to the end of the arena
+                        addToGarbage(CharArena.lengthOf(searchResult.edge) + CharArena.lengthOf(childEdge));
+                    }
+                    child.setAt(NODE_EDGE_H, Type.LONG, merged);
+                    IntArray parentChild = (IntArray) searchResult.parentNode.getAt(NODE_CHILD_H);
                     parentChild.replaceElementby(id, child.id());
-                    child.set(NODE_PARENT, Type.INT, searchResult.parentNode.id());
+                    updateCharTable(searchResult.parentNode, arena.charAt(searchResult.edge, 0), child.id());
+                    child.setAt(NODE_PARENT_H, Type.INT, searchResult.parentNode.id());
                     _backend.drop(searchResult.nodeFound);
                     return true;
                 } else {
-                    return false;
+                    searchResult.nodeFound.setAt(NODE_REAL_WORD_H, Type.BOOL, false);
+                    return true;
                 }
             default:
                 return false;
@@ -269,7 +410,7 @@ public class RadixTree extends BaseCustomType {
     }
 
     public int size() {
-        return (int) _backend.root().get(VOCABULARY_SIZE);
+        return (int) _backend.root().getAt(VOCABULARY_SIZE_H);
     }
 
 
@@ -279,7 +420,7 @@ public class RadixTree extends BaseCustomType {
             case EXACT_MATCH:
                 return getDescendantKeys(prefix, searchResult.nodeFound);
             case KEY_ENDS_MID_EDGE:
-                CharSequence edgeSuffix = CharSequences.getSuffix((String) searchResult.nodeFound.get(NODE_ADDITION), searchResult.charsMatchedInNodeFound);
+                CharSequence edgeSuffix = CharSequences.getSuffix(arena.toString(searchResult.edge), searchResult.charsMatchedInNodeFound);
                 prefix = CharSequences.concatenate(prefix, edgeSuffix);
                 return getDescendantKeys(prefix, searchResult.nodeFound);
             default:
@@ -294,7 +435,7 @@ public class RadixTree extends BaseCustomType {
             case EXACT_MATCH:
                 return getDescendantNodes(prefix, searchResult.nodeFound);
             case KEY_ENDS_MID_EDGE:
-                CharSequence edgeSuffix = CharSequences.getSuffix((String) searchResult.nodeFound.get(NODE_ADDITION), searchResult.charsMatchedInNodeFound);
+                CharSequence edgeSuffix = CharSequences.getSuffix(arena.toString(searchResult.edge), searchResult.charsMatchedInNodeFound);
                 prefix = CharSequences.concatenate(prefix, edgeSuffix);
                 return getDescendantNodes(prefix, searchResult.nodeFound);
             default:
@@ -321,14 +462,14 @@ public class RadixTree extends BaseCustomType {
     }
 
     private List<NodeKeyPair> getDescendant(CharSequence prefix, EStruct nodeFound) {
-        IntArray children = (IntArray) nodeFound.get(NODE_CHILD);
+        IntArray children = (IntArray) nodeFound.getAt(NODE_CHILD_H);
         List<NodeKeyPair> nodeKeyPairs = new ArrayList<>();
-        if ((boolean) nodeFound.get(NODE_REAL_WORD)) {
+        if ((boolean) nodeFound.getAt(NODE_REAL_WORD_H)) {
             nodeKeyPairs.add(new NodeKeyPair(nodeFound, prefix));
         }
-        for (int i = 0; i < children.size(); i++) {
-            EStruct child = _backend.estruct(i);
-            CharSequence newContent = CharSequences.concatenate(prefix, (CharSequence) child.get(NODE_ADDITION)).toString();
+        for (int i = 0; children != null && i < children.size(); i++) {
+            EStruct child = _backend.estruct(children.get(i));
+            CharSequence newContent = arena.appendTo(edgeOf(child), new StringBuilder(prefix)).toString();
             nodeKeyPairs.addAll(getDescendant(newContent, child));
         }
         return nodeKeyPairs;
@@ -336,64 +477,321 @@ public class RadixTree extends BaseCustomType {
     }
 
     private void incrementVocabularySize() {
+        addToVocabularySize(1);
+    }
+
+    private void addToVocabularySize(int added) {
         EStruct root = _backend.root();
-        int size = (int) root.get(VOCABULARY_SIZE);
-        root.set(VOCABULARY_SIZE, Type.INT, size + 1);
+        int size = (int) root.getAt(VOCABULARY_SIZE_H);
+        root.setAt(VOCABULARY_SIZE_H, Type.INT, size + added);
     }
 
     SearchResult searchTree(CharSequence key) {
-        EStruct parentNodesParent = null;
-        EStruct parentNode = null;
-        EStruct currentNode = _backend.root();
-        int charsMatched = 0, charsMatchedInNodeFound = 0;
+        return searchTree(key, _backend.root(), 0);
+    }
+
+    /**
+     * @param startNode    node from which the search starts, its key must be a prefix of the searched key
+     * @param charsMatched length of the key of the start node
+     */
+    private SearchResult searchTree(CharSequence key, EStruct startNode, int charsMatched) {
+        long packed = searchPacked(key, startNode, charsMatched);
+        EStruct nodeFound = _backend.estruct(nodeOf(packed));
+        long edge = edgeOf(nodeFound);
+        int charsMatchedInNodeFound;
+        if (isEdgeFullyMatched(packed)) {
+            charsMatchedInNodeFound = CharArena.lengthOf(edge);
+        } else {
+            charsMatchedInNodeFound = charsMatchedOf(packed) - depthOf(nodeFound);
+        }
+        EStruct parentNode = parentOf(nodeFound);
+        EStruct parentNodesParent = parentNode == null ? null : parentOf(parentNode);
+        return new SearchResult(key, nodeFound, edge, charsMatchedOf(packed), charsMatchedInNodeFound, parentNode, parentNodesParent);
+    }
+
+    /**
+     * Allocation free search of the deepest node matching the key
+     *
+     * @param startNode    node from which the search starts, its key must be a prefix of the searched key
+     * @param charsMatched length of the key of the start node
+     * @return the id of the node found, the number of chars of the key matched and whether the edge of the node was fully matched, packed in a long
+     */
+    long searchPacked(CharSequence key, EStruct startNode, int charsMatched) {
+        EStruct currentNode = startNode;
+        boolean edgeFullyMatched = true;
 
         final int keyLength = key.length();
-        outer_loop:
         while (charsMatched < keyLength) {
-            EStruct nextNode = null;
-            IntArray intArray = (IntArray) currentNode.get(NODE_CHILD);
-            for (int i = 0; i < intArray.size(); i++) {
-                EStruct eNode = _backend.estruct(intArray.get(i));
-                if (((String) eNode.get(NODE_ADDITION)).startsWith(String.valueOf(key.charAt(charsMatched)))) {
-                    nextNode = eNode;
-                    break;
-                }
-            }
-            if (nextNode == null) {
+            int child = childFor(currentNode, key.charAt(charsMatched));
+            if (child == -1) {
                 // Next node is a dead end...
-                //noinspection UnnecessaryLabelOnBreakStatement
-                break outer_loop;
+                break;
             }
+            currentNode = _backend.estruct(child);
+            long currentEdge = edgeOf(currentNode);
+            int charsMatchedInNodeFound = arena.matchLength(currentEdge, 0, key, charsMatched);
+            charsMatched += charsMatchedInNodeFound;
+            if (charsMatchedInNodeFound < CharArena.lengthOf(currentEdge)) {
+                // Found a difference in chars between character in key and a character in current node, or the key ended.
+                // Current node is the deepest match (inexact match)....
+                edgeFullyMatched = false;
+                break;
+            }
+        }
+        return (edgeFullyMatched ? EDGE_FULLY_MATCHED : 0L) | ((long) charsMatched << 32) | (currentNode.id() & 0xFFFFFFFFL);
+    }
 
-            parentNodesParent = parentNode;
-            parentNode = currentNode;
-            currentNode = nextNode;
-            charsMatchedInNodeFound = 0;
-            CharSequence currentNodeEdgeCharacters = (String) currentNode.get(NODE_ADDITION);
-            for (int i = 0, numEdgeChars = currentNodeEdgeCharacters.length(); i < numEdgeChars && charsMatched < keyLength; i++) {
-                if (currentNodeEdgeCharacters.charAt(i) != key.charAt(charsMatched)) {
-                    // Found a difference in chars between character in key and a character in current node.
-                    // Current node is the deepest match (inexact match)....
-                    break outer_loop;
-                }
-                charsMatched++;
-                charsMatchedInNodeFound++;
+    private static final long EDGE_FULLY_MATCHED = 1L << 63;
+
+    /**
+     * Size of the direct char to child table and number of children from which a node gets one
+     */
+    private static final int CHAR_TABLE_SIZE = 256;
+    private static final int DENSE_CHILDREN = 24;
+
+    static int nodeOf(long packedResult) {
+        return (int) packedResult;
+    }
+
+    static int charsMatchedOf(long packedResult) {
+        return (int) ((packedResult & ~EDGE_FULLY_MATCHED) >>> 32);
+    }
+
+    static boolean isEdgeFullyMatched(long packedResult) {
+        return (packedResult & EDGE_FULLY_MATCHED) != 0;
+    }
+
+    /**
+     * Child selection, through the direct table for dense nodes and latin chars, through a binary search of the sorted first chars otherwise
+     *
+     * @return the id of the child whose edge starts with the given char or -1 if there is none
+     */
+    private int childFor(EStruct eNode, char firstChar) {
+        if (firstChar < CHAR_TABLE_SIZE) {
+            IntArray table = (IntArray) eNode.getAt(NODE_CHAR_TABLE_H);
+            if (table != null) {
+                return table.get(firstChar) - 1;
+            }
+        }
+        int position = indexOfChild(eNode, firstChar);
+        if (position < 0) {
+            return -1;
+        }
+        return ((IntArray) eNode.getAt(NODE_CHILD_H)).get(position);
+    }
+
+    /**
+     * Record in the direct table of a node, if it has one, the child starting with the given char
+     *
+     * @param childId id of the child or -1 if there is no more child starting with this char
+     */
+    private void updateCharTable(EStruct eNode, int firstChar, int childId) {
+        if (firstChar < CHAR_TABLE_SIZE) {
+            IntArray table = (IntArray) eNode.getAt(NODE_CHAR_TABLE_H);
+            if (table != null) {
+                table.set(firstChar, childId + 1);
+            }
+        }
+    }
+
+    /**
+     * Nodes having at least DENSE_CHILDREN children starting with a latin char get a direct table from char to child id + 1
+     */
+    private void indexCharTableIfDense(EStruct eNode) {
+        if (eNode.getAt(NODE_CHAR_TABLE_H) != null) {
+            return;
+        }
+        // children starting with a latin char are the ones before the insertion point of the first non latin char, which may be a child itself
+        int firstNonLatin = indexOfChild(eNode, (char) CHAR_TABLE_SIZE);
+        int latinChildren = firstNonLatin >= 0 ? firstNonLatin : -firstNonLatin - 1;
+        if (latinChildren >= DENSE_CHILDREN) {
+            IntArray firstChars = (IntArray) eNode.getAt(NODE_FIRST_CHARS_H);
+            IntArray children = (IntArray) eNode.getAt(NODE_CHILD_H);
+            int[] table = new int[CHAR_TABLE_SIZE];
+            for (int i = 0; i < latinChildren; i++) {
+                table[firstChars.get(i)] = children.get(i) + 1;
+            }
+            ((IntArray) eNode.getOrCreateAt(NODE_CHAR_TABLE_H, Type.INT_ARRAY)).initWith(table);
+        }
+    }
+
+    /**
+     * Binary search of the child starting with the given char, children of a node being sorted by their first char
+     *
+     * Leaves have neither children nor first chars until their first child is added.
+     *
+     * @return the position of the child in the children of the node or (-(insertion point) - 1) if there is none
+     */
+    private int indexOfChild(EStruct eNode, char firstChar) {
+        IntArray firstChars = (IntArray) eNode.getAt(NODE_FIRST_CHARS_H);
+        if (firstChars == null) {
+            IntArray children = (IntArray) eNode.getAt(NODE_CHILD_H);
+            if (children == null || children.size() == 0) {
+                return -1;
             }
+            firstChars = indexFirstChars(eNode);
+        }
+        int low = 0;
+        int high = firstChars.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int middleChar = firstChars.get(middle);
+            if (middleChar < firstChar) {
+                low = middle + 1;
+            } else if (middleChar > firstChar) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -(low + 1);
+    }
+
+    /**
+     * Nodes written before the first char index only have their children, they get sorted and indexed on first access
+     */
+    private IntArray indexFirstChars(EStruct eNode) {
+        IntArray children = (IntArray) eNode.getAt(NODE_CHILD_H);
+        long[] sorted = new long[children.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            int child = children.get(i);
+            sorted[i] = ((long) arena.charAt(edgeOf(_backend.estruct(child)), 0) << 32) | child;
+        }
+        Arrays.sort(sorted);
+        int[] childIds = new int[sorted.length];
+        int[] firstChars = new int[sorted.length];
+        for (int i = 0; i < sorted.length; i++) {
+            childIds[i] = (int) sorted[i];
+            firstChars[i] = (int) (sorted[i] >>> 32);
+        }
+        children.initWith(childIds);
+        IntArray eFirstChars = (IntArray) eNode.getOrCreateAt(NODE_FIRST_CHARS_H, Type.INT_ARRAY);
+        eFirstChars.initWith(firstChars);
+        indexCharTableIfDense(eNode);
+        return eFirstChars;
+    }
+
+    private EStruct parentOf(EStruct eNode) {
+        Object parent = eNode.getAt(NODE_PARENT_H);
+        if (parent == null) {
+            return null;
+        }
+        return _backend.estruct((int) parent);
+    }
+
+    /**
+     * @return the length of the key leading to the node, its own edge excluded
+     */
+    private int depthOf(EStruct eNode) {
+        int depth = 0;
+        EStruct parent = parentOf(eNode);
+        while (parent != null) {
+            depth += CharArena.lengthOf(edgeOf(parent));
+            parent = parentOf(parent);
         }
-        return new SearchResult(key, currentNode, charsMatched, charsMatchedInNodeFound, parentNode, parentNodesParent);
+        return depth;
     }
 
     public String getNameOfToken(int tokenId) {
-        StringBuilder token = new StringBuilder();
+        long[] edges = new long[8];
+        int depth = 0;
+        int length = 0;
         EStruct eNode = _backend.estruct(tokenId);
-        token.insert(0, (String) eNode.get(NODE_ADDITION));
-        while (eNode.get(NODE_PARENT) != null) {
-            eNode = _backend.estruct((Integer) eNode.get(NODE_PARENT));
-            token.insert(0, (String) eNode.get(NODE_ADDITION));
+        while (true) {
+            if (depth == edges.length) {
+                edges = Arrays.copyOf(edges, depth * 2);
+            }
+            long edge = edgeOf(eNode);
+            edges[depth++] = edge;
+            length += CharArena.lengthOf(edge);
+            Object parent = eNode.getAt(NODE_PARENT_H);
+            if (parent == null) {
+                break;
+            }
+            eNode = _backend.estruct((Integer) parent);
+        }
+        StringBuilder token = new StringBuilder(length);
+        for (int i = depth - 1; i >= 0; i--) {
+            arena.appendTo(edges[i], token);
         }
         return token.toString();
     }
 
+    /**
+     * @return the position of every word of the tree
+     */
+    public int[] getWordNodes() {
+        int[] positions = new int[16];
+        int size = 0;
+        List<EStruct> toVisit = new ArrayList<>();
+        toVisit.add(_backend.root());
+        while (!toVisit.isEmpty()) {
+            EStruct eNode = toVisit.remove(toVisit.size() - 1);
+            if (Boolean.TRUE.equals(eNode.getAt(NODE_REAL_WORD_H))) {
+                if (size == positions.length) {
+                    positions = Arrays.copyOf(positions, size * 2);
+                }
+                positions[size++] = eNode.id();
+            }
+            IntArray children = (IntArray) eNode.getAt(NODE_CHILD_H);
+            if (children != null) {
+                for (int i = 0; i < children.size(); i++) {
+                    toVisit.add(_backend.estruct(children.get(i)));
+                }
+            }
+        }
+        return Arrays.copyOf(positions, size);
+    }
+
+    private void addToGarbage(int chars) {
+        EStruct root = _backend.root();
+        root.setAt(ARENA_GARBAGE_H, Type.INT, root.getAtWithDefault(ARENA_GARBAGE_H, 0) + chars);
+    }
+
+    /**
+     * Write the pending labels of the arena and compact it when most of its characters are left by removed words.
+     * To be called once a batch of modifications is over.
+     */
+    public void save() {
+        arena.flush();
+        int garbage = _backend.root().getAtWithDefault(ARENA_GARBAGE_H, 0);
+        if (garbage > CharArena.CHUNK_SIZE && 2 * garbage > arena.storedChars()) {
+            compact();
+        }
+    }
+
+    /**
+     * Rewrite the char arena so that it only holds the labels of the edges still in the tree, dropping the characters left by removed words
+     */
+    public void compact() {
+        List<EStruct> eNodes = new ArrayList<>();
+        List<EStruct> toVisit = new ArrayList<>();
+        toVisit.add(_backend.root());
+        while (!toVisit.isEmpty()) {
+            EStruct eNode = toVisit.remove(toVisit.size() - 1);
+            eNodes.add(eNode);
+            IntArray children = (IntArray) eNode.getAt(NODE_CHILD_H);
+            if (children != null) {
+                for (int i = 0; i < children.size(); i++) {
+                    toVisit.add(_backend.estruct(children.get(i)));
+                }
+            }
+        }
+        long[] edges = new long[eNodes.size()];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = edgeOf(eNodes.get(i));
+        }
+        arena.compact(edges);
+        for (int i = 0; i < edges.length; i++) {
+            eNodes.get(i).setAt(NODE_EDGE_H, Type.LONG, edges[i]);
+        }
+        _backend.root().removeAt(ARENA_GARBAGE_H);
+    }
+
+    private long edgeOf(EStruct eNode) {
+        return (long) eNode.getAt(NODE_EDGE_H);
+    }
+
 
     protected static class NodeKeyPair {
         public final EStruct node;
@@ -405,9 +803,25 @@ public class RadixTree extends BaseCustomType {
         }
     }
 
-    public static String NODE_ADDITION = "incoming";
+    private static String NODE_EDGE = "edge";
+    private static String ARENA = "arena";
+    private static String ARENA_GARBAGE = "garbage";
+    private static String LEGACY_NODE_ADDITION = "incoming";
     private static String NODE_PARENT = "father";
     private static String NODE_CHILD = "children";
+    private static String NODE_FIRST_CHARS = "firstChars";
+    private static String NODE_CHAR_TABLE = "charTable";
     private static String NODE_REAL_WORD = "real";
     private static String VOCABULARY_SIZE = "size";
+
+    private static final int NODE_EDGE_H = HashHelper.hash(NODE_EDGE);
+    private static final int ARENA_H = HashHelper.hash(ARENA);
+    private static final int ARENA_GARBAGE_H = HashHelper.hash(ARENA_GARBAGE);
+    private static final int LEGACY_NODE_ADDITION_H = HashHelper.hash(LEGACY_NODE_ADDITION);
+    private static final int NODE_PARENT_H = HashHelper.hash(NODE_PARENT);
+    private static final int NODE_CHILD_H = HashHelper.hash(NODE_CHILD);
+    private static final int NODE_FIRST_CHARS_H = HashHelper.hash(NODE_FIRST_CHARS);
+    private static final int NODE_CHAR_TABLE_H = HashHelper.hash(NODE_CHAR_TABLE);
+    private static final int NODE_REAL_WORD_H = HashHelper.hash(NODE_REAL_WORD);
+    private static final int VOCABULARY_SIZE_H = HashHelper.hash(VOCABULARY_SIZE);
 }
@@ -16,10 +16,12 @@
 package paw.graph.customTypes.radix.struct;
 
 import greycat.struct.EStruct;
+import paw.graph.customTypes.radix.CharArena;
 
 class SearchResult {
     final CharSequence key;
     final EStruct nodeFound;
+    final long edge;
     final int charsMatched;
     final int charsMatchedInNodeFound;
     final EStruct parentNode;
@@ -33,29 +35,31 @@ class SearchResult {
         KEY_ENDS_MID_EDGE,
     }
 
-    SearchResult(CharSequence key, EStruct nodeFound, int charsMatched, int charsMatchedInNodeFound, EStruct parentNode, EStruct parentNodesParent) {
+    SearchResult(CharSequence key, EStruct nodeFound, long edge, int charsMatched, int charsMatchedInNodeFound, EStruct parentNode, EStruct parentNodesParent) {
         this.key = key;
         this.nodeFound = nodeFound;
+        this.edge = edge;
         this.charsMatched = charsMatched;
         this.charsMatchedInNodeFound = charsMatchedInNodeFound;
         this.parentNode = parentNode;
         this.parentNodesParent = parentNodesParent;
 
         // Classify this search result...
-        this.classification = classify(key, nodeFound, charsMatched, charsMatchedInNodeFound);
+        this.classification = classify(key, edge, charsMatched, charsMatchedInNodeFound);
     }
 
-    protected Classification classify(CharSequence key, EStruct nodeFound, int charsMatched, int charsMatchedInNodeFound) {
+    protected Classification classify(CharSequence key, long edge, int charsMatched, int charsMatchedInNodeFound) {
+        int length = CharArena.lengthOf(edge);
         if (charsMatched == key.length()) {
-            if (charsMatchedInNodeFound == ((String) nodeFound.get(RadixTree.NODE_ADDITION)).length()) {
+            if (charsMatchedInNodeFound == length) {
                 return Classification.EXACT_MATCH;
-            } else if (charsMatchedInNodeFound < ((String) nodeFound.get(RadixTree.NODE_ADDITION)).length()) {
+            } else if (charsMatchedInNodeFound < length) {
                 return Classification.KEY_ENDS_MID_EDGE;
             }
         } else if (charsMatched < key.length()) {
-            if (charsMatchedInNodeFound == ((String) nodeFound.get(RadixTree.NODE_ADDITION)).length()) {
+            if (charsMatchedInNodeFound == length) {
                 return Classification.INCOMPLETE_MATCH_TO_END_OF_EDGE;
-            } else if (charsMatchedInNodeFound < ((String) nodeFound.get(RadixTree.NODE_ADDITION)).length()) {
+            } else if (charsMatchedInNodeFound < length) {
                 return Classification.INCOMPLETE_MATCH_TO_MIDDLE_OF_EDGE;
             }
         }
@@ -0,0 +1,220 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.customTypes.tokenizedContent;
+
+import java.util.Arrays;
+
+/**
+ * Frame of reference packing of a stream of ints in blocks of BLOCK_SIZE values.
+ * The values of a block are packed on the number of bits that minimizes the size of the block, the few values needing more bits being stored as exceptions after the packed ones.
+ * An encoded stream starts with its number of values, each block then being a header (bit width | number of exceptions << 8), the packed values and a pair (position, high bits) per exception.
+ */
+final class BlockPacking {
+
+    /**
+     * Number of values of a block, but the last one
+     */
+    static final int BLOCK_SIZE = 128;
+
+    private BlockPacking() {
+    }
+
+    /**
+     * @return the encoding of the values [0, size[
+     */
+    static int[] pack(int[] values, int size) {
+        int[] encoded = new int[1 + (size + BLOCK_SIZE - 1) / BLOCK_SIZE + size + 2];
+        encoded[0] = size;
+        int position = 1;
+        int[] widths = new int[33];
+        for (int from = 0; from < size; from += BLOCK_SIZE) {
+            int to = Math.min(size, from + BLOCK_SIZE);
+            int n = to - from;
+            Arrays.fill(widths, 0);
+            for (int i = from; i < to; i++) {
+                widths[32 - Integer.numberOfLeadingZeros(values[i])]++;
+            }
+            int width = 32;
+            int exceptions = 0;
+            int bestCost = n;
+            int above = 0;
+            for (int b = 32; b >= 0; b--) {
+                int cost = (n * b + 31) / 32 + 2 * above;
+                if (cost <= bestCost) {
+                    bestCost = cost;
+                    width = b;
+                    exceptions = above;
+                }
+                above += widths[b];
+            }
+            int needed = position + 1 + bestCost;
+            if (needed > encoded.length) {
+                encoded = Arrays.copyOf(encoded, Math.max(needed, encoded.length * 2));
+            }
+            encoded[position++] = width | (exceptions << 8);
+            if (width == 32) {
+                System.arraycopy(values, from, encoded, position, n);
+            } else if (width != 0) {
+                int mask = (1 << width) - 1;
+                int bit = 0;
+                for (int i = from; i < to; i++) {
+                    int value = values[i] & mask;
+                    int index = position + (bit >>> 5);
+                    int shift = bit & 31;
+                    encoded[index] |= value << shift;
+                    if (shift + width > 32) {
+                        encoded[index + 1] |= value >>> (32 - shift);
+                    }
+                    bit += width;
+                }
+            }
+            position += (n * width + 31) / 32;
+            if (exceptions != 0) {
+                for (int i = from; i < to; i++) {
+                    if (width < 32 && (values[i] >>> width) != 0) {
+                        encoded[position++] = i - from;
+                        encoded[position++] = values[i] >>> width;
+                    }
+                }
+            }
+        }
+        return Arrays.copyOf(encoded, position);
+    }
+
+    /**
+     * @return the number of values of an encoded stream
+     */
+    static int size(int[] encoded) {
+        return encoded.length == 0 ? 0 : encoded[0];
+    }
+
+    /**
+     * @return all the values of an encoded stream
+     */
+    static int[] unpack(int[] encoded) {
+        Reader reader = new Reader(encoded);
+        int[] values = new int[reader.size];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = reader.next();
+        }
+        return values;
+    }
+
+    /**
+     * Sequential reader of an encoded stream, a whole block being unpacked at once
+     */
+    static final class Reader {
+        private final int[] encoded;
+        private final int size;
+        private final int[] block = new int[BLOCK_SIZE];
+        private int position = 1;
+        private int read = 0;
+        private int index = 0;
+        private int blockSize = 0;
+
+        Reader(int[] encoded) {
+            this.encoded = encoded;
+            this.size = size(encoded);
+        }
+
+        boolean hasNext() {
+            return read < size;
+        }
+
+        int next() {
+            if (index == blockSize) {
+                unpackBlock(Math.min(BLOCK_SIZE, size - read));
+            }
+            read++;
+            return block[index++];
+        }
+
+        private void unpackBlock(int n) {
+            int header = encoded[position++];
+            int width = header & 0xFF;
+            int exceptions = header >>> 8;
+            if (width == 32) {
+                System.arraycopy(encoded, position, block, 0, n);
+            } else if (width == 0) {
+                Arrays.fill(block, 0, n, 0);
+            } else {
+                unpackValues(encoded, position, block, n, width);
+            }
+            position += (n * width + 31) / 32;
+            for (int i = 0; i < exceptions; i++) {
+                block[encoded[position]] |= encoded[position + 1] << width;
+                position += 2;
+            }
+            index = 0;
+            blockSize = n;
+        }
+    }
+
+    /**
+     * Unpack n values of the given width, 0 < width < 32, starting at a word of the encoding.
+     * The widths packing a whole number of values per word have an unrolled loop per word, the other ones going through a 64 bits window refilled a word at a time.
+     */
+    private static void unpackValues(int[] encoded, int position, int[] values, int n, int width) {
+        int i = 0;
+        int word = position;
+        switch (width) {
+            case 4:
+                for (; i + 8 <= n; i += 8) {
+                    int w = encoded[word++];
+                    values[i] = w & 0xF;
+                    values[i + 1] = (w >>> 4) & 0xF;
+                    values[i + 2] = (w >>> 8) & 0xF;
+                    values[i + 3] = (w >>> 12) & 0xF;
+                    values[i + 4] = (w >>> 16) & 0xF;
+                    values[i + 5] = (w >>> 20) & 0xF;
+                    values[i + 6] = (w >>> 24) & 0xF;
+                    values[i + 7] = w >>> 28;
+                }
+                break;
+            case 8:
+                for (; i + 4 <= n; i += 4) {
+                    int w = encoded[word++];
+                    values[i] = w & 0xFF;
+                    values[i + 1] = (w >>> 8) & 0xFF;
+                    values[i + 2] = (w >>> 16) & 0xFF;
+                    values[i + 3] = w >>> 24;
+                }
+                break;
+            case 16:
+                for (; i + 2 <= n; i += 2) {
+                    int w = encoded[word++];
+                    values[i] = w & 0xFFFF;
+                    values[i + 1] = w >>> 16;
+                }
+                break;
+            default:
+                break;
+        }
+        // values left by the unrolled loops start on a word, as those of the other widths
+        long mask = (1L << width) - 1;
+        long window = 0;
+        int bits = 0;
+        for (; i < n; i++) {
+            if (bits < width) {
+                window |= (encoded[word++] & 0xFFFFFFFFL) << bits;
+                bits += 32;
+            }
+            values[i] = (int) (window & mask);
+            window >>>= width;
+            bits -= width;
+        }
+    }
+}
@@ -15,38 +15,30 @@
  */
 package paw.graph.customTypes.tokenizedContent;
 
-import greycat.Type;
 import greycat.struct.EStructArray;
-import greycat.utility.HashHelper;
 import paw.graph.customTypes.bitset.fastbitset.CTFastBitSet;
 
 import java.util.List;
 
-@SuppressWarnings("Duplicates")
-public class CTTCBitset extends CTFastBitSet {
+public class CTTCBitset extends CTFastBitSet implements InterfaceTokenizeContent {
     public static final String NAME = "FastBitSetEncoded";
 
-    private static final String CURRENTSTOP = "cs";
-    private static final int CURRENTSTOP_H = HashHelper.hash(CURRENTSTOP);
-
     private int currentStop;
+    private int format;
     private boolean dirty = false;
 
 
     public CTTCBitset(EStructArray backend) {
         super(backend);
-        Object result = root.getAt(CURRENTSTOP_H);
-        if (result == null) {
-            currentStop = 0;
-        } else {
-            currentStop = (int) result;
-        }
+        currentStop = CTTokenizeContent.currentStop(root);
+        format = CTTokenizeContent.format(root, currentStop);
     }
 
     @Override
     public void clear() {
         currentStop = 0;
-        root.setAt(CURRENTSTOP_H, Type.INT, 0);
+        format = CTTokenizeContent.NUMBER_FORMAT;
+        CTTokenizeContent.save(root, currentStop, format);
         super.clear();
         dirty = true;
     }
@@ -54,7 +46,7 @@ public class CTTCBitset extends CTFastBitSet {
     @Override
     public void save() {
         if (dirty) {
-            root.setAt(CURRENTSTOP_H, Type.INT, currentStop);
+            CTTokenizeContent.save(root, currentStop, format);
             super.save();
         }
     }
@@ -63,12 +55,41 @@ public class CTTCBitset extends CTFastBitSet {
         return dirty;
     }
 
+    /**
+     * @return the format of the encoding, contents written before numbers were extended being in the LEGACY_FORMAT until cleared
+     */
+    @Override
+    public int getFormat() {
+        return format;
+    }
+
+    @Override
     public void addWords(List<Word> word) {
-        currentStop = CTTokenizeContent.addWord(word, this, currentStop);
+        currentStop = CTTokenizeContent.addWord(word, this, currentStop, format);
         dirty = true;
     }
 
+    /**
+     * Replace the words [from, to[ by new ones, the encoding of the following words being shifted
+     */
+    @Override
+    public void replaceWords(int from, int to, List<Word> words) {
+        currentStop = CTTokenizeContent.replaceWords(this, currentStop, format, from, to, words);
+        dirty = true;
+    }
+
+    @Override
     public List<Word> decodeWords() {
-        return CTTokenizeContent.decodeWords(this);
+        return CTTokenizeContent.decodeWords(this, format);
+    }
+
+    @Override
+    public CTTokenizeContent.WordCursor cursor() {
+        return CTTokenizeContent.cursor(this, format);
+    }
+
+    @Override
+    public int estimatedSize() {
+        return 4 * ((currentStop + 31) >>> 5);
     }
 }
@@ -0,0 +1,308 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.customTypes.tokenizedContent;
+
+import greycat.Type;
+import greycat.base.BaseCustomType;
+import greycat.struct.EStruct;
+import greycat.struct.EStructArray;
+import greycat.struct.IntArray;
+import greycat.struct.LongArray;
+import greycat.utility.HashHelper;
+import paw.PawConstants;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Encoding of a list of words as separate streams of ints packed in blocks, decoded a block at a time instead of a bit at a time.
+ * The type of each word is kept on 2 bits, the ids and first chars of the contents, the delimiters and the scales of the numbers being each in their own {@link BlockPacking} stream.
+ * The delimiters are stored as indexes in the table of the distinct delimiter hashes of the content, so that they are packed on a few bits.
+ * Numbers are kept as longs.
+ */
+public class CTTCPacked extends BaseCustomType implements InterfaceTokenizeContent {
+    public final static String NAME = "PACKED_ENCODED";
+
+    private static final String SIZE = "size";
+    private static final int SIZE_H = HashHelper.hash(SIZE);
+    private static final String TYPES = "types";
+    private static final int TYPES_H = HashHelper.hash(TYPES);
+    private static final String IDS = "ids";
+    private static final int IDS_H = HashHelper.hash(IDS);
+    private static final String FIRST_CHARS = "chars";
+    private static final int FIRST_CHARS_H = HashHelper.hash(FIRST_CHARS);
+    private static final String DELIMITER_TABLE = "delimiterTable";
+    private static final int DELIMITER_TABLE_H = HashHelper.hash(DELIMITER_TABLE);
+    private static final String DELIMITERS = "delimiters";
+    private static final int DELIMITERS_H = HashHelper.hash(DELIMITERS);
+    private static final String NUMBERS = "numbers";
+    private static final int NUMBERS_H = HashHelper.hash(NUMBERS);
+    private static final String NUMBER_EXTENSIONS = "extensions";
+    private static final int NUMBER_EXTENSIONS_H = HashHelper.hash(NUMBER_EXTENSIONS);
+
+    private static final int[] EMPTY = new int[0];
+
+    private final EStruct root;
+
+    /**
+     * Words of the content once it is modified, null as long as the stored streams are up to date
+     */
+    private List<Word> words;
+    private boolean dirty = false;
+
+    private int size;
+    private int[] types;
+    private int[] ids;
+    private int[] firstChars;
+    private int[] delimiterTable;
+    private int[] delimiters;
+    private long[] numbers;
+    private int[] extensions;
+
+    public CTTCPacked(EStructArray backend) {
+        super(backend);
+        EStruct existing = backend.root();
+        if (existing == null) {
+            existing = backend.newEStruct();
+            backend.setRoot(existing);
+        }
+        root = existing;
+        Object storedSize = root.getAt(SIZE_H);
+        size = storedSize == null ? 0 : (int) storedSize;
+        types = ints(TYPES_H);
+        ids = ints(IDS_H);
+        firstChars = ints(FIRST_CHARS_H);
+        delimiterTable = ints(DELIMITER_TABLE_H);
+        delimiters = ints(DELIMITERS_H);
+        extensions = ints(NUMBER_EXTENSIONS_H);
+        LongArray storedNumbers = (LongArray) root.getAt(NUMBERS_H);
+        numbers = storedNumbers == null ? new long[0] : storedNumbers.extract();
+    }
+
+    private int[] ints(int hash) {
+        IntArray array = (IntArray) root.getAt(hash);
+        return array == null ? EMPTY : array.extract();
+    }
+
+    @Override
+    public void clear() {
+        words = new ArrayList<>();
+        dirty = true;
+    }
+
+    @Override
+    public void save() {
+        if (!dirty) {
+            return;
+        }
+        pack();
+        root.setAt(SIZE_H, Type.INT, size);
+        ((IntArray) root.getOrCreateAt(TYPES_H, Type.INT_ARRAY)).initWith(types);
+        ((IntArray) root.getOrCreateAt(IDS_H, Type.INT_ARRAY)).initWith(ids);
+        ((IntArray) root.getOrCreateAt(FIRST_CHARS_H, Type.INT_ARRAY)).initWith(firstChars);
+        ((IntArray) root.getOrCreateAt(DELIMITER_TABLE_H, Type.INT_ARRAY)).initWith(delimiterTable);
+        ((IntArray) root.getOrCreateAt(DELIMITERS_H, Type.INT_ARRAY)).initWith(delimiters);
+        ((IntArray) root.getOrCreateAt(NUMBER_EXTENSIONS_H, Type.INT_ARRAY)).initWith(extensions);
+        ((LongArray) root.getOrCreateAt(NUMBERS_H, Type.LONG_ARRAY)).initWith(numbers);
+        words = null;
+        dirty = false;
+    }
+
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * @return the number of encoded words
+     */
+    public int size() {
+        return words != null ? words.size() : size;
+    }
+
+    @Override
+    public void addWords(List<Word> word) {
+        modifiableWords().addAll(word);
+        dirty = true;
+    }
+
+    /**
+     * Replace the words [from, to[ by new ones
+     *
+     * @param from index of the first word to replace
+     * @param to   index following the last word to replace
+     * @param word to encode in place of the replaced ones
+     */
+    @Override
+    public void replaceWords(int from, int to, List<Word> word) {
+        List<Word> current = modifiableWords();
+        current.subList(from, to).clear();
+        current.addAll(from, word);
+        dirty = true;
+    }
+
+    @Override
+    public List<Word> decodeWords() {
+        if (words != null) {
+            return new ArrayList<>(words);
+        }
+        List<Word> decoded = new ArrayList<>(size);
+        CTTokenizeContent.WordCursor cursor = cursor();
+        while (cursor.next()) {
+            decoded.add(cursor.toWord());
+        }
+        return decoded;
+    }
+
+    /**
+     * @return a cursor over the words, decoded a block at a time
+     */
+    @Override
+    public CTTokenizeContent.WordCursor cursor() {
+        if (words != null) {
+            pack();
+        }
+        return new PackedCursor(size, types, ids, firstChars, delimiterTable, delimiters, numbers, extensions);
+    }
+
+    /**
+     * Numbers are always encoded with their scale and leading zeros
+     */
+    @Override
+    public int getFormat() {
+        return CTTokenizeContent.NUMBER_FORMAT;
+    }
+
+    @Override
+    public int estimatedSize() {
+        if (words != null) {
+            pack();
+        }
+        return 4 * (1 + types.length + ids.length + firstChars.length + delimiterTable.length + delimiters.length + extensions.length) + 8 * numbers.length;
+    }
+
+    private List<Word> modifiableWords() {
+        if (words == null) {
+            words = decodeWords();
+        }
+        return words;
+    }
+
+    /**
+     * Encode the modified words in the streams
+     */
+    private void pack() {
+        size = words.size();
+        types = new int[(size + 15) >>> 4];
+        int[] contentIds = new int[size];
+        int[] contentChars = new int[size];
+        int[] delimiterIndexes = new int[size];
+        int[] numberExtensions = new int[size];
+        long[] numberValues = new long[size];
+        int contents = 0;
+        int delimiterCount = 0;
+        int numberCount = 0;
+        Map<Integer, Integer> table = new HashMap<>();
+        List<Integer> tableValues = new ArrayList<>();
+        for (int i = 0; i < size; i++) {
+            Word word = words.get(i);
+            types[i >>> 4] |= word.getType() << ((i & 15) << 1);
+            switch (word.getType()) {
+                case PawConstants.CONTENT_TOKEN:
+                    contentIds[contents] = word.getWordID();
+                    contentChars[contents++] = word.getFirstChar();
+                    break;
+                case PawConstants.DELIMITER_TOKEN:
+                    Integer index = table.get(word.getWordID());
+                    if (index == null) {
+                        index = tableValues.size();
+                        table.put(word.getWordID(), index);
+                        tableValues.add(word.getWordID());
+                    }
+                    delimiterIndexes[delimiterCount++] = index;
+                    break;
+                default:
+                    numberExtensions[numberCount] = (word.getScale() << 4) | word.getLeadingZeros();
+                    numberValues[numberCount++] = word.getNumber();
+                    break;
+            }
+        }
+        ids = BlockPacking.pack(contentIds, contents);
+        firstChars = BlockPacking.pack(contentChars, contents);
+        delimiters = BlockPacking.pack(delimiterIndexes, delimiterCount);
+        extensions = BlockPacking.pack(numberExtensions, numberCount);
+        numbers = Arrays.copyOf(numberValues, numberCount);
+        delimiterTable = new int[tableValues.size()];
+        for (int i = 0; i < delimiterTable.length; i++) {
+            delimiterTable[i] = tableValues.get(i);
+        }
+    }
+
+    /**
+     * Cursor reading the streams in parallel, the type of each word telling which stream holds its next value
+     */
+    private static final class PackedCursor extends CTTokenizeContent.WordCursor {
+        private final int size;
+        private final int[] types;
+        private final BlockPacking.Reader ids;
+        private final BlockPacking.Reader firstChars;
+        private final int[] delimiterTable;
+        private final BlockPacking.Reader delimiters;
+        private final long[] numbers;
+        private final BlockPacking.Reader extensions;
+        private int position = 0;
+        private int numberIndex = 0;
+
+        private PackedCursor(int size, int[] types, int[] ids, int[] firstChars, int[] delimiterTable, int[] delimiters, long[] numbers, int[] extensions) {
+            super(CTTokenizeContent.NUMBER_FORMAT);
+            this.size = size;
+            this.types = types;
+            this.ids = new BlockPacking.Reader(ids);
+            this.firstChars = new BlockPacking.Reader(firstChars);
+            this.delimiterTable = delimiterTable;
+            this.delimiters = new BlockPacking.Reader(delimiters);
+            this.numbers = numbers;
+            this.extensions = new BlockPacking.Reader(extensions);
+        }
+
+        @Override
+        public boolean next() {
+            if (position == size) {
+                return false;
+            }
+            type = (byte) ((types[position >>> 4] >>> ((position & 15) << 1)) & 3);
+            position++;
+            switch (type) {
+                case PawConstants.CONTENT_TOKEN:
+                    wordId = ids.next();
+                    firstChar = firstChars.next();
+                    break;
+                case PawConstants.DELIMITER_TOKEN:
+                    wordId = delimiterTable[delimiters.next()];
+                    break;
+                default:
+                    int extension = extensions.next();
+                    scale = extension >>> 4;
+                    leadingZeros = extension & 15;
+                    number = numbers[numberIndex++];
+                    break;
+            }
+            return true;
+        }
+    }
+}
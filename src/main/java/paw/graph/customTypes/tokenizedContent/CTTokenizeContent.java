@@ -15,17 +15,51 @@
  */
 package paw.graph.customTypes.tokenizedContent;
 
+import greycat.Type;
+import greycat.struct.EStruct;
+import greycat.utility.HashHelper;
 import org.roaringbitmap.IntIterator;
 import paw.PawConstants;
 import paw.graph.customTypes.bitset.CTBitset;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+/**
+ * Bit encoding of a list of words.
+ * Each word starts with its type: 0 for a content, 10 for a delimiter and 11 for a number.
+ * A content is followed by its first char and its id in the vocabulary, a delimiter by its hash, each value being preceded by 2 bits giving its size.
+ * In the LEGACY_FORMAT a number is encoded as an int like a delimiter hash, in the NUMBER_FORMAT it is encoded by {@link #encodeNumber}.
+ */
 public class CTTokenizeContent {
 
+    /**
+     * Format in which numbers are ints
+     */
+    public static final int LEGACY_FORMAT = 0;
+
+    /**
+     * Format in which numbers are longs with an optional decimal scale and leading zeros
+     */
+    public static final int NUMBER_FORMAT = 1;
+
+    /**
+     * Largest scale and number of leading zeros of a number in the NUMBER_FORMAT
+     */
+    public static final int MAX_NUMBER_EXTENSION = 15;
+
+    /**
+     * Attributes of the root of a bit encoded content holding the bit following its last word and its format
+     */
+    public static final String CURRENTSTOP = "cs";
+    private static final int CURRENTSTOP_H = HashHelper.hash(CURRENTSTOP);
+    public static final String FORMAT = "format";
+    private static final int FORMAT_H = HashHelper.hash(FORMAT);
+
     private static int[] SIZE_CODING_FC = new int[]{7, 8, 16, 32};
     private static int[] SIZE_CODING_CONTENT = new int[]{8, 16, 24, 32};
+    private static int[] SIZE_CODING_NUMBER = new int[]{8, 16, 32, 64};
 
     private static int encodingSize(int toEncode, List<Integer> bitset, int currentStop, int[] encodingArraySize) {
         int minimumBitSize = 32 - Integer.numberOfLeadingZeros(toEncode);
@@ -53,16 +87,86 @@ public class CTTokenizeContent {
         return iterationMax;
     }
 
-    private static void encoding(int iterationMax, int toEncode, List<Integer> bitset, int currentStop) {
+    private static void encoding(int iterationMax, long toEncode, List<Integer> bitset, int currentStop) {
         int stop = currentStop;
         for (int i = iterationMax - 1; i >= 0; i--) {
-            if ((toEncode & 1 << i) != 0) {
+            if ((toEncode & 1L << i) != 0) {
                 bitset.add(stop);
             }
             stop++;
         }
     }
 
+    private static int sizeIndex(long toEncode, int[] encodingArraySize) {
+        int minimumBitSize = 64 - Long.numberOfLeadingZeros(toEncode);
+        for (int i = 0; i < encodingArraySize.length - 1; i++) {
+            if (minimumBitSize <= encodingArraySize[i]) {
+                return i;
+            }
+        }
+        return encodingArraySize.length - 1;
+    }
+
+    private static int encodingSize(int toEncode, int[] encodingArraySize) {
+        return encodingArraySize[sizeIndex(toEncode & 0xFFFFFFFFL, encodingArraySize)];
+    }
+
+    private static long zigZag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unZigZag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * A number of the NUMBER_FORMAT is a bit telling whether it has a scale or leading zeros, both then following on 4 bits,
+     * then 2 bits giving the size of its zigzag encoded value among 8, 16, 32 and 64 bits and the value itself.
+     *
+     * @return the bit following the number
+     */
+    private static int encodeNumber(Word word, List<Integer> bitset, int currentStop) {
+        int stop = currentStop;
+        if (word.scale != 0 || word.leadingZeros != 0) {
+            bitset.add(stop);
+            encoding(4, word.scale, bitset, stop + 1);
+            encoding(4, word.leadingZeros, bitset, stop + 5);
+            stop += 9;
+        } else {
+            stop++;
+        }
+        long value = zigZag(word.number);
+        int sizeIndex = sizeIndex(value, SIZE_CODING_NUMBER);
+        encoding(2, sizeIndex, bitset, stop);
+        encoding(SIZE_CODING_NUMBER[sizeIndex], value, bitset, stop + 2);
+        return stop + 2 + SIZE_CODING_NUMBER[sizeIndex];
+    }
+
+    private static int numberLength(Word word) {
+        int length = word.scale != 0 || word.leadingZeros != 0 ? 9 : 1;
+        return length + 2 + SIZE_CODING_NUMBER[sizeIndex(zigZag(word.number), SIZE_CODING_NUMBER)];
+    }
+
+    /**
+     * @return the number of bits used by the encoding of the word in the LEGACY_FORMAT
+     */
+    public static int encodedLength(Word word) {
+        return encodedLength(word, LEGACY_FORMAT);
+    }
+
+    /**
+     * @return the number of bits used by the encoding of the word
+     */
+    public static int encodedLength(Word word, int format) {
+        if (word.type == PawConstants.CONTENT_TOKEN) {
+            return 1 + 2 + encodingSize(word.firstChar, SIZE_CODING_FC) + 2 + encodingSize(word.wordID, SIZE_CODING_CONTENT);
+        }
+        if (word.type == PawConstants.NUMBER_TOKEN && format == NUMBER_FORMAT) {
+            return 2 + numberLength(word);
+        }
+        return 2 + 2 + encodingSize(word.wordID, SIZE_CODING_CONTENT);
+    }
+
     private final static byte TYPE_ENCODING = 0;
     private final static byte FIRST_CHAR_SIZE_ENCODING = 1;
     private final static byte FIRST_CHAR_ENCODING = 2;
@@ -71,6 +175,14 @@ public class CTTokenizeContent {
     private final static byte END_OF_ENCODING = 5;
 
     public static int addWord(List<Word> words, CTBitset bitset, int currentStop) {
+        return addWord(words, bitset, currentStop, LEGACY_FORMAT);
+    }
+
+    /**
+     * @param format of the encoding, numbers that are not ints are rejected by the LEGACY_FORMAT
+     * @return the bit following the last encoded word
+     */
+    public static int addWord(List<Word> words, CTBitset bitset, int currentStop, int format) {
         int newStop = currentStop;
         List<Integer> toAdd = new ArrayList<>();
         for (Word word : words) {
@@ -82,6 +194,15 @@ public class CTTokenizeContent {
                         switch (word.type) {
                             case PawConstants.NUMBER_TOKEN:
                                 toAdd.add(newStop + 1);
+                                if (format == NUMBER_FORMAT) {
+                                    toAdd.add(newStop);
+                                    newStop = encodeNumber(word, toAdd, newStop + 2);
+                                    state = END_OF_ENCODING;
+                                    break;
+                                }
+                                if (!word.isIntNumber()) {
+                                    throw new IllegalArgumentException("number " + word.number + " cannot be encoded in the legacy format");
+                                }
                             case PawConstants.DELIMITER_TOKEN:
                                 toAdd.add(newStop);
                                 newStop += 2;
@@ -121,142 +242,345 @@ public class CTTokenizeContent {
         return newStop;
     }
 
+    /**
+     * Sequential reader of the bits of a bitset, copied once in an array of longs
+     */
+    private static final class BitReader {
+        private final long[] bits;
+        private final int last;
+        private int position = 0;
+
+        private BitReader(CTBitset bitset) {
+            IntIterator iterator = bitset.iterator();
+            long[] words = new long[16];
+            int lastBit = -1;
+            while (iterator.hasNext()) {
+                lastBit = iterator.next();
+                if ((lastBit >>> 6) >= words.length) {
+                    words = Arrays.copyOf(words, Math.max(words.length * 2, (lastBit >>> 6) + 1));
+                }
+                words[lastBit >>> 6] |= 1L << (63 - (lastBit & 63));
+            }
+            this.bits = words;
+            this.last = lastBit;
+        }
+
+        /**
+         * @return whether a bit is set at or after the current position, every word having at least one bit set
+         */
+        private boolean hasWord() {
+            return position <= last;
+        }
 
-    private final static byte TYPE_DECODING = 0;
-    private final static byte FIRST_CHAR_SIZE_DECODING = 1;
-    private final static byte FIRST_CHAR_DECODING = 2;
-    private final static byte CONTENT_SIZE_DECODING = 3;
-    private final static byte CONTENT_DECODING = 4;
+        private boolean read() {
+            int index = position++;
+            return index <= last && (bits[index >>> 6] & (1L << (63 - (index & 63)))) != 0;
+        }
 
-    private static int decodeSize(boolean b0, boolean b1, int[] decodeArray) {
-        if (b1) {
-            if (b0) {
-                return decodeArray[3];
-            } else {
-                return decodeArray[2];
+        /**
+         * @return the value written on the next size bits, most significant bit first
+         */
+        private long read(int size) {
+            long value = 0;
+            for (int i = 0; i < size; i++) {
+                value = (value << 1) | (read() ? 1 : 0);
             }
-        } else {
-            if (b0) {
-                return decodeArray[1];
-            } else {
-                return decodeArray[0];
+            return value;
+        }
+    }
+
+    /**
+     * @return the bit following the last word of the content stored in the root, 0 for a new content
+     */
+    public static int currentStop(EStruct root) {
+        Object currentStop = root.getAt(CURRENTSTOP_H);
+        return currentStop == null ? 0 : (int) currentStop;
+    }
+
+    /**
+     * @return the format of the content stored in the root, contents written before numbers were extended being in the LEGACY_FORMAT until cleared
+     */
+    public static int format(EStruct root, int currentStop) {
+        Object format = root.getAt(FORMAT_H);
+        if (format != null) {
+            return (int) format;
+        }
+        return currentStop == 0 ? NUMBER_FORMAT : LEGACY_FORMAT;
+    }
+
+    /**
+     * Method to store the bit following the last word and the format of a content in its root
+     */
+    public static void save(EStruct root, int currentStop, int format) {
+        root.setAt(CURRENTSTOP_H, Type.INT, currentStop);
+        root.setAt(FORMAT_H, Type.INT, format);
+    }
+
+    /**
+     * Replace the words [from, to[ of the content encoded in the bitset by new ones, the bits of the replaced words being found from the encoded length of the preceding ones
+     *
+     * @param currentStop bit following the last word of the content
+     * @return the bit following the last word of the new content
+     */
+    public static int replaceWords(CTBitset bitset, int currentStop, int format, int from, int to, List<Word> words) {
+        WordCursor cursor = cursor(bitset, format);
+        int startBit = 0;
+        int endBit = 0;
+        for (int i = 0; i < to && cursor.next(); i++) {
+            int length = encodedLength(cursor.toWord(), format);
+            if (i < from) {
+                startBit += length;
             }
+            endBit += length;
         }
+        return replaceBits(bitset, currentStop, format, startBit, endBit, words);
     }
 
+    /**
+     * Replace the words encoded between two bits by new ones, the encoding of the following words being shifted accordingly
+     *
+     * @param startBit first bit of the first word to replace
+     * @param endBit   first bit following the last word to replace
+     * @param words    to encode in place of the replaced ones
+     * @return the bit following the last word of the new content
+     */
+    public static int replaceBits(CTBitset bitset, int currentStop, int format, int startBit, int endBit, List<Word> words) {
+        List<Integer> tail = new ArrayList<>();
+        IntIterator iterator = bitset.iterator();
+        while (iterator.hasNext()) {
+            int bit = iterator.next();
+            if (bit >= endBit) {
+                tail.add(bit);
+            }
+        }
+        bitset.clear(startBit, Math.max(startBit, currentStop));
+        int shift = addWord(words, bitset, startBit, format) - endBit;
+        for (int i = 0; i < tail.size(); i++) {
+            tail.set(i, tail.get(i) + shift);
+        }
+        bitset.addAll(tail);
+        return currentStop + shift;
+    }
 
     public static List<Word> decodeWords(CTBitset bitset) throws IllegalArgumentException {
+        return decodeWords(bitset, LEGACY_FORMAT);
+    }
+
+    public static List<Word> decodeWords(CTBitset bitset, int format) throws IllegalArgumentException {
         List<Word> words = new ArrayList<>();
-        IntIterator iterator = bitset.iterator();
+        WordCursor cursor = new BitCursor(new CTBitset[]{bitset}, format);
+        while (cursor.next()) {
+            words.add(cursor.toWord());
+        }
+        return words;
+    }
+
+    /**
+     * @return a cursor over the words encoded in the bitset, decoded one at a time
+     */
+    public static WordCursor cursor(CTBitset bitset, int format) {
+        return new BitCursor(new CTBitset[]{bitset}, format);
+    }
+
+    /**
+     * @return a cursor over the words encoded in the successive bitsets, all encoded with the same format
+     */
+    public static WordCursor cursor(CTBitset[] bitsets, int format) {
+        return new BitCursor(bitsets, format);
+    }
+
+    /**
+     * @return a cursor over the words of the successive cursors, which may come from different codecs.
+     * The parts must not be in the LEGACY_FORMAT, their numbers being returned as numbers with a scale.
+     */
+    public static WordCursor cursor(WordCursor[] cursors) {
+        return new ChainedCursor(cursors);
+    }
+
+    /**
+     * @return a cursor over words already decoded, or encoded in memory and not yet stored
+     */
+    public static WordCursor cursor(List<Word> words) {
+        return new ListCursor(words);
+    }
+
+    /**
+     * Streaming decoder of the words of an encoded content, the fields of the current word being overwritten by each call to next.
+     * No Word is allocated unless toWord is called.
+     */
+    public static abstract class WordCursor {
+        protected final int format;
+        protected byte type;
+        protected int wordId;
+        protected int firstChar;
+        protected long number;
+        protected int scale;
+        protected int leadingZeros;
+
+        /**
+         * @param format of the numbers, LEGACY_FORMAT numbers being rebuilt as int words by toWord
+         */
+        protected WordCursor(int format) {
+            this.format = format;
+        }
 
-        //read information
-        int index = 0;
-        int startWord = 0;
-        byte state = TYPE_DECODING;
-        int nextInterestingBit = startWord;
+        /**
+         * Move to the next word
+         *
+         * @return false if there is no more word
+         */
+        public abstract boolean next();
 
+        public final byte getType() {
+            return type;
+        }
+
+        /**
+         * @return the position of the word in its vocabulary, for content and delimiter words
+         */
+        public final int getWordID() {
+            return wordId;
+        }
 
-        // word variable
-        byte type = 0;
-        int wordId = 0;
-        int firstChar = 0;
+        public final int getFirstChar() {
+            return firstChar;
+        }
 
+        /**
+         * @return the unscaled value of a number word
+         */
+        public final long getNumber() {
+            return number;
+        }
 
-        //state variable
-        boolean type_second_bit = false;
-        int toRead = 0;
+        public final int getScale() {
+            return scale;
+        }
 
-        boolean used = true;
+        public final int getLeadingZeros() {
+            return leadingZeros;
+        }
 
-        while (iterator.hasNext() || !used) {
-            if (used) {
-                index = iterator.next();
-                used = false;
+        /**
+         * @return a copy of the current word
+         */
+        public final Word toWord() {
+            switch (type) {
+                case PawConstants.CONTENT_TOKEN:
+                    return new Word(PawConstants.CONTENT_TOKEN, wordId, firstChar);
+                case PawConstants.DELIMITER_TOKEN:
+                    return new Word(PawConstants.DELIMITER_TOKEN, wordId);
+                default:
+                    return format == NUMBER_FORMAT ? new Word(number, scale, leadingZeros) : new Word(PawConstants.NUMBER_TOKEN, (int) number);
             }
-            switch (state) {
-                case (TYPE_DECODING):
-                    if (!type_second_bit) {
-                        nextInterestingBit = startWord;
-                        if (index != startWord) {
-                            type = PawConstants.CONTENT_TOKEN;
-                            state = FIRST_CHAR_SIZE_DECODING;
-                            nextInterestingBit += 2;
-                        } else {
-                            type_second_bit = true;
-                            nextInterestingBit += 3;
-                        }
-                    } else {
-                        state = CONTENT_SIZE_DECODING;
-                        type_second_bit = false;
-                        if (index == startWord + 1) {
-                            type = PawConstants.NUMBER_TOKEN;
-                            used = true;
-                        } else {
-                            type = PawConstants.DELIMITER_TOKEN;
-                        }
-                    }
-                    break;
-
-                case (FIRST_CHAR_SIZE_DECODING):
-                    if (index > nextInterestingBit) {
-                        boolean bitSize0 = bitset.get(nextInterestingBit);
-                        boolean bitSize1 = bitset.get(nextInterestingBit - 1);
-                        toRead = decodeSize(bitSize0, bitSize1, SIZE_CODING_FC);
-                        nextInterestingBit += toRead;
-                        state = FIRST_CHAR_DECODING;
-                        firstChar = 0;
-                    } else {
-                        used = true;
-                    }
-                    break;
-
-                case (FIRST_CHAR_DECODING):
-                    if (index <= nextInterestingBit) {
-                        firstChar += (1 << (nextInterestingBit - index));
-                        used = true;
-                    } else {
-                        state = CONTENT_SIZE_DECODING;
-                        nextInterestingBit += 2;
-                    }
-                    break;
-                case (CONTENT_SIZE_DECODING):
-                    if (index > nextInterestingBit) {
-                        boolean bitSize0 = bitset.get(nextInterestingBit);
-                        boolean bitSize1 = bitset.get(nextInterestingBit - 1);
-                        toRead = decodeSize(bitSize0, bitSize1, SIZE_CODING_CONTENT);
-                        nextInterestingBit += toRead;
-                        state = CONTENT_DECODING;
-                        wordId = 0;
-                    } else {
-                        used = true;
-                    }
-                    break;
+        }
+    }
 
-                case (CONTENT_DECODING):
-                    if (index <= nextInterestingBit) {
-                        wordId += (1 << (nextInterestingBit - index));
-                        used = true;
-                    } else {
-                        words.add(new Word(type, wordId, firstChar));
+    /**
+     * Cursor copying the current word of each of the successive cursors in turn
+     */
+    private static final class ChainedCursor extends WordCursor {
+        private final WordCursor[] cursors;
+        private int current = 0;
 
-                        state = TYPE_DECODING;
-                        startWord = nextInterestingBit + 1;
-                    }
-                    break;
+        private ChainedCursor(WordCursor[] cursors) {
+            super(NUMBER_FORMAT);
+            this.cursors = cursors;
+        }
+
+        @Override
+        public boolean next() {
+            while (current < cursors.length && !cursors[current].next()) {
+                current++;
+            }
+            if (current == cursors.length) {
+                return false;
+            }
+            WordCursor cursor = cursors[current];
+            type = cursor.type;
+            wordId = cursor.wordId;
+            firstChar = cursor.firstChar;
+            number = cursor.number;
+            scale = cursor.scale;
+            leadingZeros = cursor.leadingZeros;
+            return true;
+        }
+    }
+
+    /**
+     * Cursor copying the fields of each word of a list in turn
+     */
+    private static final class ListCursor extends WordCursor {
+        private final List<Word> words;
+        private int current = 0;
+
+        private ListCursor(List<Word> words) {
+            super(NUMBER_FORMAT);
+            this.words = words;
+        }
+
+        @Override
+        public boolean next() {
+            if (current == words.size()) {
+                return false;
             }
+            Word word = words.get(current++);
+            type = word.getType();
+            wordId = word.getWordID();
+            firstChar = word.getFirstChar();
+            number = word.getNumber();
+            scale = word.getScale();
+            leadingZeros = word.getLeadingZeros();
+            return true;
         }
-        if (state != TYPE_ENCODING) {
-            switch (state) {
-                case (FIRST_CHAR_SIZE_DECODING):
-                    firstChar = 0;
-                case (FIRST_CHAR_DECODING):
-                case (CONTENT_SIZE_DECODING):
-                    wordId = 0;
-                case (CONTENT_DECODING):
-                    words.add(new Word(type, wordId, firstChar));
-                    break;
+    }
+
+    /**
+     * Cursor over words encoded in successive bitsets
+     */
+    private static final class BitCursor extends WordCursor {
+        private final BitReader[] readers;
+        private int current = 0;
+
+        private BitCursor(CTBitset[] bitsets, int format) {
+            super(format);
+            this.readers = new BitReader[bitsets.length];
+            for (int i = 0; i < bitsets.length; i++) {
+                readers[i] = new BitReader(bitsets[i]);
             }
         }
-        return words;
+
+        @Override
+        public boolean next() {
+            while (current < readers.length && !readers[current].hasWord()) {
+                current++;
+            }
+            if (current == readers.length) {
+                return false;
+            }
+            BitReader reader = readers[current];
+            if (!reader.read()) {
+                type = PawConstants.CONTENT_TOKEN;
+                firstChar = (int) reader.read(SIZE_CODING_FC[(int) reader.read(2)]);
+                wordId = (int) reader.read(SIZE_CODING_CONTENT[(int) reader.read(2)]);
+            } else if (!reader.read()) {
+                type = PawConstants.DELIMITER_TOKEN;
+                wordId = (int) reader.read(SIZE_CODING_CONTENT[(int) reader.read(2)]);
+            } else {
+                type = PawConstants.NUMBER_TOKEN;
+                scale = 0;
+                leadingZeros = 0;
+                if (format == NUMBER_FORMAT) {
+                    if (reader.read()) {
+                        scale = (int) reader.read(4);
+                        leadingZeros = (int) reader.read(4);
+                    }
+                    number = unZigZag(reader.read(SIZE_CODING_NUMBER[(int) reader.read(2)]));
+                } else {
+                    number = (int) reader.read(SIZE_CODING_CONTENT[(int) reader.read(2)]);
+                }
+            }
+            return true;
+        }
     }
 }
@@ -15,19 +15,43 @@
  */
 package paw.graph.customTypes.tokenizedContent;
 
-import java.io.IOException;
 import java.util.List;
 
+/**
+ * Encoding of the words of a tokenize content, implemented by the custom types listed in {@link TokenizeContentCodecs}.
+ * Changes are kept in memory until save is called.
+ */
 public interface InterfaceTokenizeContent {
 
     void clear();
 
-    void save() throws IOException;
+    void save();
 
-    void addWords(List<Word> word);
+    void addWords(List<Word> words);
 
     List<Word> decodeWords();
 
-
-
+    /**
+     * Replace the words [from, to[ by new ones
+     *
+     * @param from  index of the first word to replace
+     * @param to    index following the last word to replace
+     * @param words to encode in place of the replaced ones
+     */
+    void replaceWords(int from, int to, List<Word> words);
+
+    /**
+     * @return a cursor decoding the words one at a time
+     */
+    CTTokenizeContent.WordCursor cursor();
+
+    /**
+     * @return the format of the numbers, contents in the LEGACY_FORMAT only holding int numbers
+     */
+    int getFormat();
+
+    /**
+     * @return an estimation of the number of bytes used by the encoded words
+     */
+    int estimatedSize();
 }
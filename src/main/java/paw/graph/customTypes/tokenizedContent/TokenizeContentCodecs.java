@@ -0,0 +1,51 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.customTypes.tokenizedContent;
+
+/**
+ * Names of the custom types that can encode the words of a tokenize content
+ */
+public final class TokenizeContentCodecs {
+
+    /**
+     * Codec of the categories that do not declare one, and of the contents written before codecs could be chosen
+     */
+    public static final String DEFAULT = CTTCRoaring.NAME;
+
+    private static final String[] NAMES = new String[]{CTTCRoaring.NAME, CTTCBitset.NAME, CTTCPacked.NAME};
+
+    private TokenizeContentCodecs() {
+    }
+
+    /**
+     * @return the names of all the codecs
+     */
+    public static String[] names() {
+        return NAMES.clone();
+    }
+
+    /**
+     * @return whether the name is the one of a codec
+     */
+    public static boolean isCodec(String name) {
+        for (int i = 0; i < NAMES.length; i++) {
+            if (NAMES[i].equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -15,21 +15,39 @@
  */
 package paw.graph.customTypes.tokenizedContent;
 
+import paw.PawConstants;
+
 public class Word {
     protected final byte type;
     protected final int wordID;
     protected int firstChar;
+    protected long number;
+    protected byte scale;
+    protected byte leadingZeros;
 
 
     public Word(byte type, int wordID) {
         this.type = type;
         this.wordID = wordID;
+        this.number = wordID;
     }
 
     public Word(byte type, int wordID, int firstChar) {
         this.type = type;
         this.wordID = wordID;
         this.firstChar = firstChar;
+        this.number = wordID;
+    }
+
+    /**
+     * Number word, its value being unscaled / 10^scale written with the given number of extra leading zeros
+     */
+    public Word(long unscaled, int scale, int leadingZeros) {
+        this.type = PawConstants.NUMBER_TOKEN;
+        this.wordID = (int) unscaled;
+        this.number = unscaled;
+        this.scale = (byte) scale;
+        this.leadingZeros = (byte) leadingZeros;
     }
 
     public byte getType() {
@@ -44,4 +62,23 @@ public class Word {
         return firstChar;
     }
 
+    public long getNumber() {
+        return number;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public int getLeadingZeros() {
+        return leadingZeros;
+    }
+
+    /**
+     * @return whether the word is a number that can be encoded as a plain int
+     */
+    public boolean isIntNumber() {
+        return type == PawConstants.NUMBER_TOKEN && scale == 0 && leadingZeros == 0 && number == (int) number;
+    }
+
 }
@@ -0,0 +1,118 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Graph;
+import greycat.Type;
+import greycat.base.BaseNode;
+import greycat.struct.IntArray;
+import greycat.utility.HashHelper;
+import paw.graph.customTypes.tokenizedContent.InterfaceTokenizeContent;
+import paw.graph.customTypes.tokenizedContent.TokenizeContentCodecs;
+import paw.graph.customTypes.tokenizedContent.Word;
+
+import java.util.List;
+
+/**
+ * Class representing a run of encoded words shared by the versions of the tokenize contents of a category.
+ * A chunk is addressed by the hash of its words, casing included, and is never modified once written.
+ * Its words are encoded with the codec of its category at the time it was written, chunks written before codecs could be chosen using the default one.
+ */
+public class ContentChunkNode extends BaseNode {
+    public final static String NAME = "ContentChunk";
+
+    public final static String WORDS = "words";
+    public final static String CASES = "cases";
+    public final static String MASKS = "masks";
+    public final static String SIZE = "size";
+    public final static String CODEC = "codec";
+
+    private final static int WORDS_H = HashHelper.hash(WORDS);
+    private final static int CASES_H = HashHelper.hash(CASES);
+    private final static int MASKS_H = HashHelper.hash(MASKS);
+    private final static int SIZE_H = HashHelper.hash(SIZE);
+    private final static int CODEC_H = HashHelper.hash(CODEC);
+
+    /**
+     * Constructor
+     *
+     * @param p_world
+     * @param p_time
+     * @param p_id
+     * @param p_graph
+     */
+    public ContentChunkNode(long p_world, long p_time, long p_id, Graph p_graph) {
+        super(p_world, p_time, p_id, p_graph);
+    }
+
+    /**
+     * method to initialize the node
+     *
+     * @param words encoded words of the chunk
+     * @param cases packed case codes of the words, indexed from the first word of the chunk
+     * @param masks masks of the mixed case words, as a sequence of position in the chunk, length and mask
+     * @param codec name of the codec encoding the words, one of TokenizeContentCodecs.names
+     */
+    final void initChunk(List<Word> words, int[] cases, int[] masks, String codec) {
+        setTimeSensitivity(-1, 0);
+        setAt(SIZE_H, Type.INT, words.size());
+        setAt(CODEC_H, Type.STRING, codec);
+        InterfaceTokenizeContent encoded = (InterfaceTokenizeContent) getOrCreateCustomAt(WORDS_H, codec);
+        encoded.addWords(words);
+        encoded.save();
+        ((IntArray) getOrCreateAt(CASES_H, Type.INT_ARRAY)).initWith(cases);
+        if (masks.length != 0) {
+            ((IntArray) getOrCreateAt(MASKS_H, Type.INT_ARRAY)).initWith(masks);
+        }
+    }
+
+    /**
+     * @return the number of words of the chunk
+     */
+    public final int getSize() {
+        return (int) getAt(SIZE_H);
+    }
+
+    /**
+     * @return the name of the codec encoding the words of the chunk
+     */
+    public final String getCodec() {
+        Object codec = getAt(CODEC_H);
+        return codec == null ? TokenizeContentCodecs.DEFAULT : (String) codec;
+    }
+
+    /**
+     * @return the encoded words of the chunk
+     */
+    public final InterfaceTokenizeContent getWords() {
+        return (InterfaceTokenizeContent) getOrCreateCustomAt(WORDS_H, getCodec());
+    }
+
+    /**
+     * @return the packed case codes of the words, indexed from the first word of the chunk
+     */
+    public final int[] getCases() {
+        return ((IntArray) getAt(CASES_H)).extract();
+    }
+
+    /**
+     * @return the masks of the mixed case words, as a sequence of position in the chunk, length and mask
+     */
+    public final int[] getMasks() {
+        IntArray masks = (IntArray) getAt(MASKS_H);
+        return masks == null ? new int[0] : masks.extract();
+    }
+}
@@ -0,0 +1,348 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Constants;
+import greycat.Graph;
+import greycat.Node;
+import paw.graph.customTypes.tokenizedContent.CTTokenizeContent;
+import paw.graph.customTypes.tokenizedContent.Word;
+import paw.tokenizer.utils.LowerString;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static greycat.Constants.BEGINNING_OF_TIME;
+import static paw.PawConstants.CONTENT_TOKEN;
+import static paw.PawConstants.DELIMITER_TOKEN;
+
+/**
+ * Splitting of an encoded content in content addressed chunks, and reading of a content from its chunks.
+ * Chunk boundaries only depend on the words around them, so that an edit only changes the chunks it touches and the other chunks are shared with the previous versions.
+ */
+final class ContentChunks {
+
+    /**
+     * Minimal number of words of a chunk, but the last one
+     */
+    final static int MIN_CHUNK = 8;
+    /**
+     * Maximal number of words of a chunk
+     */
+    final static int MAX_CHUNK = 256;
+    /**
+     * A chunk ends after a word whose hash has these bits unset, once it has MIN_CHUNK words, giving chunks of about 24 words
+     */
+    private final static long BOUNDARY_MASK = 15;
+
+    private ContentChunks() {
+    }
+
+    /**
+     * Method to store an encoded content as chunks, the chunks already known by the category being reused
+     *
+     * @param content encoded words, case codes and masks of the content
+     * @return the ids of the chunks of the content, in order
+     */
+    static long[] write(Graph graph, DictionnaryNode dictionnaryNode, Content content) {
+        return write(graph, dictionnaryNode, content, null);
+    }
+
+    /**
+     * Method to store a new version of an encoded content as chunks.
+     * A chunk of the previous version holding the same words, cases and masks is reused as is, being compared in memory rather than read again,
+     * the other chunks being looked up in the category, so that only the chunks touched by the edit are encoded.
+     *
+     * @param content  encoded words, case codes and masks of the new version
+     * @param previous content of the previous version as read from its chunks, null if it was not stored as chunks
+     * @return the ids of the chunks of the content, in order
+     */
+    static long[] write(Graph graph, DictionnaryNode dictionnaryNode, Content content, Content previous) {
+        Map<Long, List<Integer>> previousChunks = new HashMap<>();
+        if (previous != null && previous.chunkIds != null) {
+            int from = 0;
+            for (int c = 0; c < previous.ends.length; c++) {
+                previousChunks.computeIfAbsent(key(previous, from, previous.ends[c]), k -> new ArrayList<>()).add(c);
+                from = previous.ends[c];
+            }
+        }
+        List<Word> words = content.words;
+        List<Long> chunks = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i < words.size(); i++) {
+            int size = i + 1 - start;
+            if (size == MAX_CHUNK || (size >= MIN_CHUNK && (hash(words.get(i)) & BOUNDARY_MASK) == 0) || i == words.size() - 1) {
+                long key = key(content, start, i + 1);
+                long id = Constants.NULL_LONG;
+                List<Integer> candidates = previousChunks.get(key);
+                if (candidates != null) {
+                    for (int c : candidates) {
+                        int from = c == 0 ? 0 : previous.ends[c - 1];
+                        if (previous.ends[c] - from == size && sameRange(previous, from, content, start, size)) {
+                            id = previous.chunkIds[c];
+                            break;
+                        }
+                    }
+                }
+                chunks.add(id != Constants.NULL_LONG ? id : chunk(graph, dictionnaryNode, key, content, start, i + 1));
+                start = i + 1;
+            }
+        }
+        long[] ids = new long[chunks.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = chunks.get(i);
+        }
+        return ids;
+    }
+
+    /**
+     * @return the key of the words [from, to[ in the chunks of the category, made of the hash of their words, cases and masks and of their number
+     */
+    private static long key(Content content, int from, int to) {
+        long hash = 0;
+        for (int i = from; i < to; i++) {
+            byte casing = caseOf(content.cases, i);
+            hash = hash * 0x9E3779B97F4A7C15L + mix(hash(content.words.get(i)) ^ ((long) casing << 62));
+            if (casing == LowerString.MIXED) {
+                int[] mask = content.masks.get(i);
+                for (int j = 0; j < mask.length; j++) {
+                    hash = hash * 0x9E3779B97F4A7C15L + mix(mask[j]);
+                }
+            }
+        }
+        return hash * 31 + (to - from);
+    }
+
+    /**
+     * @return whether both ranges of words have the same words, cases and masks
+     */
+    private static boolean sameRange(Content first, int firstFrom, Content second, int secondFrom, int size) {
+        if (!sameWords(first.words.subList(firstFrom, firstFrom + size), second.words.subList(secondFrom, secondFrom + size))) {
+            return false;
+        }
+        for (int i = 0; i < size; i++) {
+            byte casing = caseOf(first.cases, firstFrom + i);
+            if (casing != caseOf(second.cases, secondFrom + i)
+                    || (casing == LowerString.MIXED && !Arrays.equals(first.masks.get(firstFrom + i), second.masks.get(secondFrom + i)))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the id of the chunk holding the words [from, to[, a chunk found by its key being reused only if it holds the same words, cases and masks.
+     * On a collision the next keys are probed until the chunk or a free key is found.
+     * A chunk is reused whatever its codec, new chunks being encoded with the codec of the category.
+     */
+    private static long chunk(Graph graph, DictionnaryNode dictionnaryNode, long key, Content content, int from, int to) {
+        int[] chunkCases = new int[(to - from + 15) >>> 4];
+        List<Integer> chunkMasks = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            byte casing = caseOf(content.cases, i);
+            chunkCases[(i - from) >>> 4] |= casing << (((i - from) & 15) << 1);
+            if (casing == LowerString.MIXED) {
+                int[] mask = content.masks.get(i);
+                chunkMasks.add(i - from);
+                chunkMasks.add(mask.length);
+                for (int j = 0; j < mask.length; j++) {
+                    chunkMasks.add(mask[j]);
+                }
+            }
+        }
+        int[] packedMasks = new int[chunkMasks.size()];
+        for (int i = 0; i < packedMasks.length; i++) {
+            packedMasks[i] = chunkMasks.get(i);
+        }
+        List<Word> chunkWords = content.words.subList(from, to);
+        long id = dictionnaryNode.getContentChunk(key);
+        while (id != Constants.NULL_LONG) {
+            boolean[] same = new boolean[1];
+            graph.lookup(0, BEGINNING_OF_TIME, id, result -> {
+                ContentChunkNode existing = (ContentChunkNode) result;
+                // the words are only decoded once the size, cases and masks match
+                same[0] = existing.getSize() == chunkWords.size()
+                        && Arrays.equals(existing.getCases(), chunkCases)
+                        && Arrays.equals(existing.getMasks(), packedMasks)
+                        && sameWords(existing.getWords().decodeWords(), chunkWords);
+                result.free();
+            });
+            if (same[0]) {
+                return id;
+            }
+            key++;
+            id = dictionnaryNode.getContentChunk(key);
+        }
+        ContentChunkNode chunk = (ContentChunkNode) graph.newTypedNode(0, BEGINNING_OF_TIME, ContentChunkNode.NAME);
+        chunk.initChunk(chunkWords, chunkCases, packedMasks, dictionnaryNode.getCodec());
+        id = chunk.id();
+        chunk.free();
+        dictionnaryNode.addContentChunk(key, id);
+        return id;
+    }
+
+    private static boolean sameWords(List<Word> first, List<Word> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            Word a = first.get(i);
+            Word b = second.get(i);
+            if (a.getType() != b.getType() || a.getWordID() != b.getWordID() || a.getNumber() != b.getNumber()
+                    || a.getScale() != b.getScale() || a.getLeadingZeros() != b.getLeadingZeros()
+                    || (a.getType() == CONTENT_TOKEN && a.getFirstChar() != b.getFirstChar())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @param fingerprint of a content
+     * @return the ids of the chunks of the content already stored with this fingerprint, null if there is none.
+     * The stored content may differ from the one of the fingerprint, its tokens have to be compared before it is reused.
+     */
+    static long[] payload(Graph graph, DictionnaryNode dictionnaryNode, long fingerprint) {
+        long id = dictionnaryNode.getContentPayload(fingerprint);
+        if (id == Constants.NULL_LONG) {
+            return null;
+        }
+        long[][] chunkIds = new long[1][];
+        graph.lookup(0, BEGINNING_OF_TIME, id, result -> {
+            chunkIds[0] = ((ContentPayloadNode) result).getChunks();
+            result.free();
+        });
+        return chunkIds[0];
+    }
+
+    /**
+     * Method to record the chunks of a content as the payload of its fingerprint, unless one is already recorded
+     */
+    static void addPayload(Graph graph, DictionnaryNode dictionnaryNode, long fingerprint, long[] chunkIds) {
+        if (dictionnaryNode.getContentPayload(fingerprint) != Constants.NULL_LONG) {
+            return;
+        }
+        ContentPayloadNode payload = (ContentPayloadNode) graph.newTypedNode(0, BEGINNING_OF_TIME, ContentPayloadNode.NAME);
+        payload.initPayload(fingerprint, chunkIds);
+        dictionnaryNode.addContentPayload(fingerprint, payload.id());
+        payload.free();
+    }
+
+    /**
+     * Encoded words, packed case codes and masks of the mixed case words of a content, by position
+     */
+    static final class Content {
+        final List<Word> words;
+        int[] cases;
+        final Map<Integer, int[]> masks;
+        /**
+         * Ids of the chunks the content was read from, null if it was not read from chunks
+         */
+        long[] chunkIds;
+        /**
+         * Position following the last word of each chunk
+         */
+        int[] ends;
+
+        Content() {
+            this(new ArrayList<>(), new int[0], new HashMap<>());
+        }
+
+        Content(List<Word> words, int[] cases, Map<Integer, int[]> masks) {
+            this.words = words;
+            this.cases = cases;
+            this.masks = masks;
+        }
+    }
+
+    /**
+     * @return the words, case codes and masks of the content made of the given chunks
+     */
+    static Content read(Graph graph, long[] chunkIds) {
+        Content content = new Content();
+        content.chunkIds = chunkIds;
+        content.ends = new int[chunkIds.length];
+        graph.lookupAll(0, BEGINNING_OF_TIME, chunkIds, (Node[] chunks) -> {
+            for (int c = 0; c < chunks.length; c++) {
+                ContentChunkNode chunk = (ContentChunkNode) chunks[c];
+                int offset = content.words.size();
+                content.words.addAll(chunk.getWords().decodeWords());
+                int[] chunkCases = chunk.getCases();
+                content.cases = Arrays.copyOf(content.cases, (content.words.size() + 15) >>> 4);
+                for (int i = 0; i < chunk.getSize(); i++) {
+                    int position = offset + i;
+                    content.cases[position >>> 4] |= ((chunkCases[i >>> 4] >>> ((i & 15) << 1)) & 3) << ((position & 15) << 1);
+                }
+                int[] masks = chunk.getMasks();
+                int i = 0;
+                while (i < masks.length) {
+                    content.masks.put(offset + masks[i], Arrays.copyOfRange(masks, i + 2, i + 2 + masks[i + 1]));
+                    i += 2 + masks[i + 1];
+                }
+                content.ends[c] = content.words.size();
+                chunk.free();
+            }
+        });
+        return content;
+    }
+
+    /**
+     * @return a cursor over the words of the content made of the given chunks
+     */
+    static CTTokenizeContent.WordCursor cursor(Graph graph, long[] chunkIds) {
+        CTTokenizeContent.WordCursor[] cursor = new CTTokenizeContent.WordCursor[1];
+        graph.lookupAll(0, BEGINNING_OF_TIME, chunkIds, (Node[] chunks) -> {
+            CTTokenizeContent.WordCursor[] cursors = new CTTokenizeContent.WordCursor[chunks.length];
+            for (int c = 0; c < chunks.length; c++) {
+                cursors[c] = ((ContentChunkNode) chunks[c]).getWords().cursor();
+            }
+            // each codec reads the encoded words of its chunk when its cursor is built, the chunks can then be freed
+            cursor[0] = CTTokenizeContent.cursor(cursors);
+            for (int c = 0; c < chunks.length; c++) {
+                chunks[c].free();
+            }
+        });
+        return cursor[0];
+    }
+
+    private static byte caseOf(int[] cases, int position) {
+        return (byte) ((cases[position >>> 4] >>> ((position & 15) << 1)) & 3);
+    }
+
+    /**
+     * @return the hash of an encoded word, its casing excluded
+     */
+    private static long hash(Word word) {
+        long value;
+        if (word.getType() == CONTENT_TOKEN) {
+            value = ((long) word.getFirstChar() << 32) | (word.getWordID() & 0xFFFFFFFFL);
+        } else if (word.getType() == DELIMITER_TOKEN) {
+            value = word.getWordID();
+        } else {
+            value = word.getNumber() * 31 + word.getScale() * 17 + word.getLeadingZeros();
+        }
+        return mix(value * 3 + word.getType());
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,131 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Constants;
+import paw.tokenizer.token.ContentT;
+import paw.tokenizer.token.NumberT;
+import paw.tokenizer.token.Token;
+import paw.tokenizer.utils.LowerString;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static paw.PawConstants.CONTENT_TOKEN;
+import static paw.PawConstants.NUMBER_TOKEN;
+
+/**
+ * 64 bits fingerprint of a content, computed on its tokens so that two contents can be compared before any of them is encoded.
+ * Casing and masks are part of the fingerprint. Two different contents may still have the same fingerprint,
+ * a content found by its fingerprint being only taken as the same one once its tokens are compared with sameTokens.
+ */
+final class ContentFingerprint {
+
+    private long hash = 0;
+    private int size = 0;
+
+    /**
+     * @return the fingerprint of the tokens
+     */
+    static long of(List<Token> tokens) {
+        ContentFingerprint fingerprint = new ContentFingerprint();
+        for (int i = 0; i < tokens.size(); i++) {
+            fingerprint.add(tokens.get(i));
+        }
+        return fingerprint.value();
+    }
+
+    /**
+     * Add the next token of the content to the fingerprint
+     */
+    void add(Token token) {
+        long value;
+        if (token.getType() == NUMBER_TOKEN) {
+            NumberT number = (NumberT) token;
+            value = mix(number.getLong()) * 31 + number.getScale() * 17 + number.getLeadingZeros();
+        } else {
+            value = hash(token.getToken());
+            if (token.getType() == CONTENT_TOKEN) {
+                LowerString lowerString = ((ContentT) token).getLowerString();
+                value = value * 31 + lowerString.getCasing();
+                if (lowerString.getCasing() == LowerString.MIXED) {
+                    int[] mask = lowerString.getMask();
+                    for (int i = 0; i < mask.length; i++) {
+                        value = value * 31 + mask[i];
+                    }
+                }
+            }
+        }
+        hash = hash * 0x9E3779B97F4A7C15L + mix(value * 3 + token.getType());
+        size++;
+    }
+
+    /**
+     * @return the fingerprint of the tokens added so far, never NULL_LONG
+     */
+    long value() {
+        long value = mix(hash * 31 + size);
+        return value == Constants.NULL_LONG ? 0 : value;
+    }
+
+    /**
+     * @return whether both lists hold the same tokens, with the same casing, masks and numbers, as compared by the fingerprint
+     */
+    static boolean sameTokens(List<Token> first, List<Token> second) {
+        if (first.size() != second.size()) {
+            return false;
+        }
+        for (int i = 0; i < first.size(); i++) {
+            Token a = first.get(i);
+            Token b = second.get(i);
+            if (a.getType() != b.getType()) {
+                return false;
+            }
+            if (a.getType() == NUMBER_TOKEN) {
+                NumberT numberA = (NumberT) a;
+                NumberT numberB = (NumberT) b;
+                if (numberA.getLong() != numberB.getLong() || numberA.getScale() != numberB.getScale()
+                        || numberA.getLeadingZeros() != numberB.getLeadingZeros()) {
+                    return false;
+                }
+            } else if (!a.getToken().equals(b.getToken())) {
+                return false;
+            } else if (a.getType() == CONTENT_TOKEN) {
+                LowerString lowerA = ((ContentT) a).getLowerString();
+                LowerString lowerB = ((ContentT) b).getLowerString();
+                if (lowerA.getCasing() != lowerB.getCasing()
+                        || (lowerA.getCasing() == LowerString.MIXED && !Arrays.equals(lowerA.getMask(), lowerB.getMask()))) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static long hash(String token) {
+        long value = 1125899906842597L;
+        for (int i = 0; i < token.length(); i++) {
+            value = value * 31 + token.charAt(i);
+        }
+        return value;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
@@ -0,0 +1,71 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Graph;
+import greycat.Type;
+import greycat.base.BaseNode;
+import greycat.struct.LongArray;
+import greycat.utility.HashHelper;
+
+/**
+ * Class representing the list of chunks of a whole content, shared by all the tokenize contents of a category having the same fingerprint.
+ * A payload is never modified once written.
+ */
+public class ContentPayloadNode extends BaseNode {
+    public final static String NAME = "ContentPayload";
+
+    public final static String FINGERPRINT = "fingerprint";
+    public final static String CHUNKS = "chunks";
+
+    private final static int FINGERPRINT_H = HashHelper.hash(FINGERPRINT);
+    private final static int CHUNKS_H = HashHelper.hash(CHUNKS);
+
+    /**
+     * Constructor
+     *
+     * @param p_world
+     * @param p_time
+     * @param p_id
+     * @param p_graph
+     */
+    public ContentPayloadNode(long p_world, long p_time, long p_id, Graph p_graph) {
+        super(p_world, p_time, p_id, p_graph);
+    }
+
+    /**
+     * method to initialize the node
+     *
+     * @param fingerprint of the content
+     * @param chunkIds    ids of the chunks of the content, in order
+     */
+    final void initPayload(long fingerprint, long[] chunkIds) {
+        setTimeSensitivity(-1, 0);
+        setAt(FINGERPRINT_H, Type.LONG, fingerprint);
+        ((LongArray) getOrCreateAt(CHUNKS_H, Type.LONG_ARRAY)).initWith(chunkIds);
+    }
+
+    public final long getFingerprint() {
+        return (long) getAt(FINGERPRINT_H);
+    }
+
+    /**
+     * @return the ids of the chunks of the content, in order
+     */
+    public final long[] getChunks() {
+        return ((LongArray) getAt(CHUNKS_H)).extract();
+    }
+}
@@ -17,8 +17,27 @@ package paw.graph.nodes;
 
 import greycat.*;
 import greycat.base.BaseNode;
+import greycat.struct.LongArray;
+import greycat.struct.LongLongArrayMap;
+import greycat.struct.LongLongMap;
 import greycat.struct.Relation;
 import greycat.utility.HashHelper;
+import paw.PawConstants;
+import paw.graph.customTypes.tokenizedContent.CTTokenizeContent;
+import paw.graph.customTypes.tokenizedContent.TokenizeContentCodecs;
+import paw.graph.customTypes.tokenizedContent.Word;
+import paw.tokenizer.AbstractTokenizer;
+import paw.tokenizer.TokenizerRegistry;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static greycat.Constants.BEGINNING_OF_TIME;
 import static paw.PawConstants.INDEX_DICTIONNARY;
@@ -40,6 +59,64 @@ public class DictionnaryNode extends BaseNode {
     public final static String NUMBER_OF_TC = "numberOfTc";
     private final static int NUMBER_OF_TC_H = HashHelper.hash(NUMBER_OF_TC);
 
+    public final static String TC_TAIL = "tcTail";
+    private final static int TC_TAIL_H = HashHelper.hash(TC_TAIL);
+
+    /**
+     * Number of tokenize contents of a full TCListNode, the ordinal of a tokenize content giving its chunk and its position in it
+     */
+    public final static int TC_PER_LIST = 10000;
+
+    public final static String TOKENIZER_TYPE = "tokenizer";
+    private final static int TOKENIZER_TYPE_H = HashHelper.hash(TOKENIZER_TYPE);
+
+    public final static String TOKENIZER_CONFIGURATION = "tokenizerConfiguration";
+    private final static int TOKENIZER_CONFIGURATION_H = HashHelper.hash(TOKENIZER_CONFIGURATION);
+
+    public final static String CODEC = "codec";
+    private final static int CODEC_H = HashHelper.hash(CODEC);
+
+    public final static String NGRAMS = "ngrams";
+    private final static int NGRAMS_H = HashHelper.hash(NGRAMS);
+
+    public final static String NGRAM_SHARDS = "ngramShards";
+    private final static int NGRAM_SHARDS_H = HashHelper.hash(NGRAM_SHARDS);
+
+    private final static String TERM_IDS = "termIds";
+    private final static int TERM_IDS_H = HashHelper.hash(TERM_IDS);
+
+    private final static String TERM_WORDS = "termWords";
+    private final static int TERM_WORDS_H = HashHelper.hash(TERM_WORDS);
+
+    public final static String TERM_VECTORS = "termVectors";
+    private final static int TERM_VECTORS_H = HashHelper.hash(TERM_VECTORS);
+
+    public final static String MINHASH = "minhash";
+    private final static int MINHASH_H = HashHelper.hash(MINHASH);
+
+    private final static String MINHASH_BANDS = "minhashBands";
+    private final static int MINHASH_BANDS_H = HashHelper.hash(MINHASH_BANDS);
+
+    public final static String SHARED_CONTENT = "sharedContent";
+    private final static int SHARED_CONTENT_H = HashHelper.hash(SHARED_CONTENT);
+
+    private final static String CONTENT_CHUNKS = "contentChunks";
+    private final static int CONTENT_CHUNKS_H = HashHelper.hash(CONTENT_CHUNKS);
+
+    public final static String FINGERPRINTS = "fingerprints";
+    private final static int FINGERPRINTS_H = HashHelper.hash(FINGERPRINTS);
+
+    private final static String CONTENT_PAYLOADS = "contentPayloads";
+    private final static int CONTENT_PAYLOADS_H = HashHelper.hash(CONTENT_PAYLOADS);
+
+    private final static String COMPLETE_FREQUENCIES = "completeFrequencies";
+    private final static int COMPLETE_FREQUENCIES_H = HashHelper.hash(COMPLETE_FREQUENCIES);
+
+    /**
+     * Tokenizer type of a category whose tokenizer is not known
+     */
+    public final static byte NO_TOKENIZER = -1;
+
     /**
      * Constructor
      *
@@ -60,20 +137,198 @@ public class DictionnaryNode extends BaseNode {
     }
 
 
-    public final void addTCToTCList(long id) {
-        int ntc = (int) getAt(NUMBER_OF_TC_H);
-        final TCListNode[] node = new TCListNode[1];
+    /**
+     * @return the type of the tokenizer used by the contents of the category, NO_TOKENIZER if it is not known
+     */
+    public final byte getTokenizerType() {
+        Object type = getAt(TOKENIZER_TYPE_H);
+        return type == null ? NO_TOKENIZER : (byte) (int) type;
+    }
+
+    /**
+     * Method to record the type of the tokenizer used by the contents of the category
+     *
+     * @param type of the tokenizer, as returned by getType
+     */
+    public final void setTokenizerType(byte type) {
+        setAt(TOKENIZER_TYPE_H, Type.INT, (int) type);
+    }
+
+    /**
+     * @return the configuration of the tokenizer used by the contents of the category, null if it is not known
+     */
+    public final String getTokenizerConfiguration() {
+        return (String) getAt(TOKENIZER_CONFIGURATION_H);
+    }
+
+    /**
+     * Method to record the type and the configuration of the tokenizer used by the contents of the category
+     *
+     * @param tokenizer used by the contents
+     */
+    public final void setTokenizer(AbstractTokenizer tokenizer) {
+        setTokenizerType(tokenizer.getType());
+        setAt(TOKENIZER_CONFIGURATION_H, Type.STRING, tokenizer.getConfiguration());
+    }
+
+    /**
+     * @return the name of the codec encoding the new contents of the category, the default one if none was declared
+     */
+    public final String getCodec() {
+        Object codec = getAt(CODEC_H);
+        return codec == null ? TokenizeContentCodecs.DEFAULT : (String) codec;
+    }
+
+    /**
+     * Method to declare the codec encoding the contents of the category.
+     * Existing contents keep their codec until they are fully rewritten, new contents and full rewrites using this one.
+     *
+     * @param codec name of the codec, one of TokenizeContentCodecs.names
+     * @throws IllegalArgumentException if the name is not the one of a codec
+     */
+    public final void setCodec(String codec) {
+        if (!TokenizeContentCodecs.isCodec(codec)) {
+            throw new IllegalArgumentException("unknown codec " + codec);
+        }
+        setAt(CODEC_H, Type.STRING, codec);
+    }
+
+    /**
+     * @return the tokenizer of the current thread for the type recorded for the category, null if it is not known
+     * @throws IllegalStateException if the tokenizer registered for the type is not configured as the one recorded for the category,
+     *                               a factory building a tokenizer with the recorded configuration having then to be registered
+     */
+    public final AbstractTokenizer getTokenizer() {
+        byte type = getTokenizerType();
+        if (type == NO_TOKENIZER) {
+            return null;
+        }
+        AbstractTokenizer tokenizer = TokenizerRegistry.get(type);
+        String configuration = getTokenizerConfiguration();
+        if (configuration != null && !configuration.equals(tokenizer.getConfiguration())) {
+            throw new IllegalStateException("the contents of the category " + getCategory() + " were tokenized by " + configuration
+                    + " but the tokenizer registered for type " + type + " is " + tokenizer.getConfiguration());
+        }
+        return tokenizer;
+    }
+
+    /**
+     * Method to register a tokenize content in the category.
+     * The ids of the last TC_PER_LIST tokenize contents are kept in the category node itself, a TCListNode being only created once they are TC_PER_LIST.
+     *
+     * @param id of the tokenize content
+     * @return the ordinal of the tokenize content in the category, the number of tokenize contents registered before it
+     */
+    public final int addTCToTCList(long id) {
+        migrateTCList();
+        int ntc = getNumberOfTC();
+        LongArray tail = (LongArray) getOrCreateAt(TC_TAIL_H, Type.LONG_ARRAY);
+        tail.addElement(id);
+        if (tail.size() == TC_PER_LIST) {
+            TCListNode node = (TCListNode) graph().newTypedNode(0, BEGINNING_OF_TIME, TCListNode.NAME);
+            node.initNode();
+            node.addTokenizeContentIDs(tail.extract());
+            ((Relation) getAt(TC_LIST_H)).add(node.id());
+            node.free();
+            tail.clear();
+        }
+        setAt(NUMBER_OF_TC_H, Type.INT, ntc + 1);
+        return ntc;
+    }
+
+    /**
+     * @return the number of tokenize contents registered in the category
+     */
+    public final int getNumberOfTC() {
+        Object ntc = getAt(NUMBER_OF_TC_H);
+        return ntc == null ? 0 : (int) ntc;
+    }
+
+    /**
+     * Method to retrieve the id of a tokenize content from its ordinal, at most one TCListNode being looked up
+     *
+     * @param ordinal of the tokenize content, as returned by addTCToTCList
+     * @return the id of the tokenize content
+     */
+    public final long tcIdAtOrdinal(int ordinal) {
+        migrateTCList();
+        if (ordinal < 0 || ordinal >= getNumberOfTC()) {
+            throw new IndexOutOfBoundsException("ordinal " + ordinal + " out of " + getNumberOfTC() + " tokenize contents");
+        }
         Relation relation = (Relation) getAt(TC_LIST_H);
-        if (ntc % 10000 == 0) {
-            node[0] = (TCListNode) graph().newTypedNode(0, BEGINNING_OF_TIME, TCListNode.NAME);
-            node[0].initNode();
-            relation.add(node[0].id());
-        } else {
-            long nodeId = relation.get(relation.size() - 1);
-            graph().lookup(0, BEGINNING_OF_TIME, nodeId, result -> node[0] = (TCListNode) result);
+        int chunk = ordinal / TC_PER_LIST;
+        int position = ordinal % TC_PER_LIST;
+        if (chunk == relation.size()) {
+            return ((LongArray) getAt(TC_TAIL_H)).get(position);
+        }
+        final long[] id = new long[1];
+        graph().lookup(0, BEGINNING_OF_TIME, relation.get(chunk), result -> {
+            id[0] = ((TCListNode) result).tcIdAtPosition(position);
+            result.free();
+        });
+        return id[0];
+    }
+
+    /**
+     * Method to retrieve the ids of a range of tokenize contents, each TCListNode overlapping the range being looked up once
+     *
+     * @param from first ordinal, included
+     * @param to   last ordinal, excluded
+     * @return the ids of the tokenize contents, in ordinal order
+     */
+    public final long[] tcIds(int from, int to) {
+        migrateTCList();
+        if (from < 0 || to > getNumberOfTC() || from > to) {
+            throw new IndexOutOfBoundsException("ordinals [" + from + ", " + to + "[ out of " + getNumberOfTC() + " tokenize contents");
+        }
+        Relation relation = (Relation) getAt(TC_LIST_H);
+        long[] ids = new long[to - from];
+        int ordinal = from;
+        while (ordinal < to) {
+            int chunk = ordinal / TC_PER_LIST;
+            int start = ordinal % TC_PER_LIST;
+            int length = Math.min(TC_PER_LIST - start, to - ordinal);
+            int offset = ordinal - from;
+            if (chunk == relation.size()) {
+                LongArray tail = (LongArray) getAt(TC_TAIL_H);
+                for (int i = 0; i < length; i++) {
+                    ids[offset + i] = tail.get(start + i);
+                }
+            } else {
+                graph().lookup(0, BEGINNING_OF_TIME, relation.get(chunk), result -> {
+                    System.arraycopy(((TCListNode) result).tcIds(), start, ids, offset, length);
+                    result.free();
+                });
+            }
+            ordinal += length;
+        }
+        return ids;
+    }
+
+    /**
+     * Method to rebuild the list of tokenize contents written before the ordinals were maintained, every tokenize content having then its own TCListNode
+     */
+    private void migrateTCList() {
+        Relation relation = (Relation) getAt(TC_LIST_H);
+        if (getNumberOfTC() != 0 || relation == null || relation.size() == 0) {
+            return;
+        }
+        List<Long> ids = new ArrayList<>();
+        long[] chunks = relation.all();
+        for (int i = 0; i < chunks.length; i++) {
+            graph().lookup(0, BEGINNING_OF_TIME, chunks[i], result -> {
+                TCListNode node = (TCListNode) result;
+                for (int j = 0; j < node.size(); j++) {
+                    ids.add(node.tcIdAtPosition(j));
+                }
+                node.drop(dropped -> {
+                });
+            });
+        }
+        relation.clear();
+        for (int i = 0; i < ids.size(); i++) {
+            addTCToTCList(ids.get(i));
         }
-        node[0].addTokenizeContentID(id);
-        node[0].free();
     }
 
     /**
@@ -96,6 +351,511 @@ public class DictionnaryNode extends BaseNode {
     }
 
 
+    /**
+     * Method to start keeping the bigram and trigram statistics of the category, maintained by every following setContent.
+     * Contents set before are not counted.
+     *
+     * @param callback called once the statistics are ready
+     */
+    public final void enableNGrams(Callback<Boolean> callback) {
+        if (isNGramsEnabled()) {
+            callback.on(true);
+            return;
+        }
+        setAt(NGRAMS_H, Type.BOOL, true);
+        Index index = (Index) getOrCreateAt(NGRAM_SHARDS_H, Type.INDEX);
+        index.declareAttributes(result -> callback.on(true), NGramNode.FIRST_CHAR);
+    }
+
+    /**
+     * @return whether the category keeps n-gram statistics
+     */
+    public final boolean isNGramsEnabled() {
+        return Boolean.TRUE.equals(getAt(NGRAMS_H));
+    }
+
+    /**
+     * Method to get the dense term id of a content word, creating it if necessary.
+     * Term ids are given in order of first use, they identify the words in the n-gram statistics and in the term vectors of the category.
+     *
+     * @param firstChar first character of the word
+     * @param wordId    position of the word in its vocabulary node
+     * @return the term id of the word
+     */
+    public final int getOrCreateTermId(int firstChar, int wordId) {
+        long packed = ((long) firstChar << 32) | (wordId & 0xFFFFFFFFL);
+        LongLongMap ids = (LongLongMap) getOrCreateAt(TERM_IDS_H, Type.LONG_TO_LONG_MAP);
+        long id = ids.get(packed);
+        if (id == Constants.NULL_LONG) {
+            LongArray words = (LongArray) getOrCreateAt(TERM_WORDS_H, Type.LONG_ARRAY);
+            id = words.size();
+            words.addElement(packed);
+            ids.put(packed, id);
+        }
+        return (int) id;
+    }
+
+    /**
+     * @param word content word, as encoded in a tokenize content
+     * @return the term id of the word
+     */
+    public final int getOrCreateTermId(Word word) {
+        return getOrCreateTermId(word.getFirstChar(), word.getWordID());
+    }
+
+    /**
+     * @param word in its lower case form as produced by the tokenizers
+     * @return the term id of the word, -1 if the word has none
+     */
+    public final int getTermId(String word) {
+        LongLongMap ids = (LongLongMap) getAt(TERM_IDS_H);
+        VocabularyNode vocabularyNode = ids == null ? null : existingVocabularyNodeFor(word.charAt(0));
+        if (vocabularyNode == null) {
+            return -1;
+        }
+        int position = vocabularyNode.getWord(HashHelper.hash(word));
+        vocabularyNode.free();
+        long id = position == Constants.NULL_INT ? Constants.NULL_LONG : ids.get(((long) word.charAt(0) << 32) | (position & 0xFFFFFFFFL));
+        return id == Constants.NULL_LONG ? -1 : (int) id;
+    }
+
+    /**
+     * @param termId term id of a word
+     * @return the word, in its lower case form
+     */
+    public final String getTerm(int termId) {
+        long packed = ((LongArray) getAt(TERM_WORDS_H)).get(termId);
+        VocabularyNode vocabularyNode = existingVocabularyNodeFor((char) (packed >>> 32));
+        String word = vocabularyNode.getWordForPosition((int) packed);
+        vocabularyNode.free();
+        return word;
+    }
+
+    /**
+     * @return the number of term ids given in the category
+     */
+    public final int getNumberOfTerms() {
+        LongArray words = (LongArray) getAt(TERM_WORDS_H);
+        return words == null ? 0 : words.size();
+    }
+
+    /**
+     * Method to start keeping the term frequency vector of every content of the category, computed by every following setContent.
+     * Contents set before have no vector until their content is set again.
+     */
+    public final void enableTermVectors() {
+        setAt(TERM_VECTORS_H, Type.BOOL, true);
+    }
+
+    /**
+     * @return whether the contents of the category keep a term frequency vector
+     */
+    public final boolean isTermVectorsEnabled() {
+        return Boolean.TRUE.equals(getAt(TERM_VECTORS_H));
+    }
+
+    /**
+     * return in a CallBack the shard of the n-gram statistics containing all n-grams whose first word starts by the given firstchar
+     *
+     * @param firstChar of the first word of the n-grams
+     * @param callback  in which the node will be returned
+     */
+    public final void getNGramNodeFor(char firstChar, Callback<NGramNode> callback) {
+        Index index = (Index) getAt(NGRAM_SHARDS_H);
+        long[] shardId = index.select(String.valueOf(firstChar));
+        if (shardId.length == 0) {
+            NGramNode nGramNode = (NGramNode) _graph.newTypedNode(0, BEGINNING_OF_TIME, NGramNode.NAME);
+            nGramNode.initNGramNode(firstChar);
+            index.update(nGramNode);
+            callback.on(nGramNode);
+        } else {
+            _graph.lookup(0, BEGINNING_OF_TIME, shardId[0], result -> callback.on((NGramNode) result));
+        }
+    }
+
+    /**
+     * Method to retrieve the most frequent words following a prefix in the contents of the category
+     *
+     * @param prefix one word, for the bigram statistics, or two words, for the trigram statistics, in their lower case form as produced by the tokenizers
+     * @param k      maximum number of continuations
+     * @return the continuations with their number of occurrences, by decreasing number of occurrences
+     */
+    public final Map<String, Long> topContinuations(String[] prefix, int k) {
+        Map<String, Long> continuations = new LinkedHashMap<>();
+        if (!isNGramsEnabled()) {
+            return continuations;
+        }
+        int[] prefixIds = new int[prefix.length];
+        for (int i = 0; i < prefix.length; i++) {
+            prefixIds[i] = getTermId(prefix[i]);
+            if (prefixIds[i] == -1) {
+                return continuations;
+            }
+        }
+        long[] shardId = ((Index) getAt(NGRAM_SHARDS_H)).select(String.valueOf(prefix[0].charAt(0)));
+        if (shardId.length == 0) {
+            return continuations;
+        }
+        final long[][][] best = new long[1][][];
+        _graph.lookup(0, BEGINNING_OF_TIME, shardId[0], result -> {
+            best[0] = ((NGramNode) result).topContinuations(prefixIds, k);
+            result.free();
+        });
+        for (int i = 0; i < best[0].length; i++) {
+            continuations.put(getTerm((int) best[0][i][0]), best[0][i][1]);
+        }
+        return continuations;
+    }
+
+    /**
+     * @param word in its lower case form as produced by the tokenizers
+     * @return the number of tokenize contents of the category holding the word
+     */
+    public final int getDocumentFrequency(String word) {
+        VocabularyNode vocabularyNode = existingVocabularyNodeFor(word.charAt(0));
+        if (vocabularyNode == null) {
+            return 0;
+        }
+        int position = vocabularyNode.getWord(HashHelper.hash(word));
+        int frequency = position == Constants.NULL_INT ? 0 : vocabularyNode.getDocumentFrequency(position);
+        vocabularyNode.free();
+        return frequency;
+    }
+
+    /**
+     * @param word in its lower case form as produced by the tokenizers
+     * @return the number of occurrences of the word in the tokenize contents of the category
+     */
+    public final long getCollectionFrequency(String word) {
+        VocabularyNode vocabularyNode = existingVocabularyNodeFor(word.charAt(0));
+        if (vocabularyNode == null) {
+            return 0;
+        }
+        int position = vocabularyNode.getWord(HashHelper.hash(word));
+        long frequency = position == Constants.NULL_INT ? 0 : vocabularyNode.getCollectionFrequency(position);
+        vocabularyNode.free();
+        return frequency;
+    }
+
+    /**
+     * @return whether the document frequencies of the words count every tokenize content of the category, which is not the case for categories created before they were maintained
+     */
+    public final boolean hasCompleteFrequencies() {
+        return Boolean.TRUE.equals(getAt(COMPLETE_FREQUENCIES_H));
+    }
+
+    /**
+     * Method to recompute the document and collection frequencies of all the words from the tokenize contents of the category
+     *
+     * @param world world in which the contents are resolved
+     * @param time  time at which the contents are resolved
+     */
+    public final void recountFrequencies(long world, long time) {
+        Map<Long, long[]> frequencies = new HashMap<>();
+        Set<Long> document = new HashSet<>();
+        int size = getNumberOfTC();
+        for (int from = 0; from < size; from += TC_PER_LIST) {
+            long[] ids = tcIds(from, Math.min(size, from + TC_PER_LIST));
+            for (int i = 0; i < ids.length; i++) {
+                _graph.lookup(world, time, ids[i], result -> {
+                    if (result == null) {
+                        return;
+                    }
+                    CTTokenizeContent.WordCursor cursor = ((TokenizeContentNode) result).wordCursor();
+                    while (cursor.next()) {
+                        if (cursor.getType() == PawConstants.CONTENT_TOKEN) {
+                            long key = ((long) cursor.getFirstChar() << 32) | (cursor.getWordID() & 0xFFFFFFFFL);
+                            long[] frequency = frequencies.computeIfAbsent(key, k -> new long[2]);
+                            if (document.add(key)) {
+                                frequency[0]++;
+                            }
+                            frequency[1]++;
+                        }
+                    }
+                    document.clear();
+                    result.free();
+                });
+            }
+        }
+        Map<Integer, List<Long>> keysPerFirstChar = new HashMap<>();
+        for (Long key : frequencies.keySet()) {
+            keysPerFirstChar.computeIfAbsent((int) (key >>> 32), k -> new ArrayList<>()).add(key);
+        }
+        long[] vocabularyIds = ((Index) getAt(VOCABULARY_RELATION_H)).all();
+        for (int i = 0; i < vocabularyIds.length; i++) {
+            _graph.lookup(0, BEGINNING_OF_TIME, vocabularyIds[i], result -> {
+                VocabularyNode vocabularyNode = (VocabularyNode) result;
+                vocabularyNode.clearFrequencies();
+                List<Long> keys = keysPerFirstChar.get((int) vocabularyNode.getFirstChar().charAt(0));
+                if (keys != null) {
+                    int[] wordIds = new int[keys.size()];
+                    int[] documentFrequencies = new int[keys.size()];
+                    long[] collectionFrequencies = new long[keys.size()];
+                    for (int j = 0; j < wordIds.length; j++) {
+                        long[] frequency = frequencies.get(keys.get(j));
+                        wordIds[j] = (int) (long) keys.get(j);
+                        documentFrequencies[j] = (int) frequency[0];
+                        collectionFrequencies[j] = frequency[1];
+                    }
+                    vocabularyNode.addFrequencies(wordIds, documentFrequencies, collectionFrequencies);
+                }
+                vocabularyNode.free();
+            });
+        }
+        setAt(COMPLETE_FREQUENCIES_H, Type.BOOL, true);
+    }
+
+    /**
+     * Method to remove from the vocabulary the words no longer held by any tokenize content of the category, the ids of the other words being kept.
+     * A removed word used again gets a new id, so a content set again after the compaction does not get the same signature, fingerprint nor term ids as before.
+     * The labels of the removed words are kept for the previous versions until purgeTombstones.
+     *
+     * @return the number of removed words
+     * @throws IllegalStateException if the document frequencies are not complete, recountFrequencies having to be called first
+     */
+    public final int compactVocabulary() {
+        if (!hasCompleteFrequencies()) {
+            throw new IllegalStateException("frequencies of the category " + getCategory() + " are not complete, they must be recounted before compacting the vocabulary");
+        }
+        int[] removed = new int[1];
+        long[] vocabularyIds = ((Index) getAt(VOCABULARY_RELATION_H)).all();
+        for (int i = 0; i < vocabularyIds.length; i++) {
+            _graph.lookup(0, BEGINNING_OF_TIME, vocabularyIds[i], result -> {
+                removed[0] += ((VocabularyNode) result).compact();
+                result.free();
+            });
+        }
+        if (removed[0] != 0) {
+            // payloads are found by the fingerprint of their tokens and may hold removed words, that would not be given the same ids again
+            removeAt(CONTENT_PAYLOADS_H);
+        }
+        return removed[0];
+    }
+
+    /**
+     * Method to drop the labels kept for the words removed by compactVocabulary once neither a version of a tokenize content nor a shared chunk of the category holds them.
+     * Every version of the contents in the given world is decoded: the labels of words only held by versions of other worlds are dropped as well.
+     * The ids of the dropped words are never given again.
+     *
+     * @param world world of the versions of the contents
+     * @return the number of dropped labels
+     */
+    public final int purgeTombstones(long world) {
+        Map<Integer, BitSet> referenced = new HashMap<>();
+        int size = getNumberOfTC();
+        for (int from = 0; from < size; from += TC_PER_LIST) {
+            long[] ids = tcIds(from, Math.min(size, from + TC_PER_LIST));
+            for (int i = 0; i < ids.length; i++) {
+                long id = ids[i];
+                _graph.lookup(world, BEGINNING_OF_TIME, id, result -> {
+                    if (result == null) {
+                        return;
+                    }
+                    result.timepoints(BEGINNING_OF_TIME, Constants.END_OF_TIME, times -> {
+                        for (int t = 0; t < times.length; t++) {
+                            _graph.lookup(world, times[t], id, version -> {
+                                if (version != null) {
+                                    markWords(((TokenizeContentNode) version).wordCursor(), referenced);
+                                    version.free();
+                                }
+                            });
+                        }
+                    });
+                    result.free();
+                });
+            }
+        }
+        LongLongMap chunks = (LongLongMap) getAt(CONTENT_CHUNKS_H);
+        if (chunks != null) {
+            List<Long> chunkIds = new ArrayList<>();
+            chunks.each((hash, chunkId) -> chunkIds.add(chunkId));
+            for (int i = 0; i < chunkIds.size(); i++) {
+                _graph.lookup(0, BEGINNING_OF_TIME, chunkIds.get(i), result -> {
+                    markWords(((ContentChunkNode) result).getWords().cursor(), referenced);
+                    result.free();
+                });
+            }
+        }
+        int[] purged = new int[1];
+        long[] vocabularyIds = ((Index) getAt(VOCABULARY_RELATION_H)).all();
+        for (int i = 0; i < vocabularyIds.length; i++) {
+            _graph.lookup(0, BEGINNING_OF_TIME, vocabularyIds[i], result -> {
+                VocabularyNode vocabularyNode = (VocabularyNode) result;
+                BitSet words = referenced.get((int) vocabularyNode.getFirstChar().charAt(0));
+                purged[0] += vocabularyNode.purgeTombstones(words == null ? new BitSet() : words);
+                vocabularyNode.free();
+            });
+        }
+        return purged[0];
+    }
+
+    /**
+     * Method to mark the content words of a cursor in the sets of word ids of their first character
+     */
+    private static void markWords(CTTokenizeContent.WordCursor cursor, Map<Integer, BitSet> referenced) {
+        while (cursor.next()) {
+            if (cursor.getType() == PawConstants.CONTENT_TOKEN) {
+                referenced.computeIfAbsent(cursor.getFirstChar(), k -> new BitSet()).set(cursor.getWordID());
+            }
+        }
+    }
+
+    /**
+     * @return the vocabulary node of the words starting by the given firstchar, null if there is none
+     */
+    private VocabularyNode existingVocabularyNodeFor(char firstChar) {
+        long[] vocId = ((Index) getAt(VOCABULARY_RELATION_H)).select(String.valueOf(firstChar));
+        if (vocId.length == 0) {
+            return null;
+        }
+        final VocabularyNode[] vocabularyNode = new VocabularyNode[1];
+        _graph.lookup(0, BEGINNING_OF_TIME, vocId[0], result -> vocabularyNode[0] = (VocabularyNode) result);
+        return vocabularyNode[0];
+    }
+
+    /**
+     * Method to start keeping a MinHash signature of every content of the category, computed by every following setContent, and their index by bands.
+     * Contents set before have no signature until their content is set again.
+     */
+    public final void enableMinHash() {
+        setAt(MINHASH_H, Type.BOOL, true);
+        getOrCreateAt(MINHASH_BANDS_H, Type.LONG_TO_LONG_ARRAY_MAP);
+    }
+
+    /**
+     * @return whether the contents of the category keep a MinHash signature
+     */
+    public final boolean isMinHashEnabled() {
+        return Boolean.TRUE.equals(getAt(MINHASH_H));
+    }
+
+    /**
+     * Method to move a tokenize content in the band index
+     *
+     * @param id           of the tokenize content
+     * @param oldSignature previous signature of the content, null if it had none
+     * @param signature    new signature of the content, null if it has none
+     */
+    final void indexSignature(long id, int[] oldSignature, int[] signature) {
+        LongLongArrayMap bands = (LongLongArrayMap) getOrCreateAt(MINHASH_BANDS_H, Type.LONG_TO_LONG_ARRAY_MAP);
+        if (oldSignature != null) {
+            long[] keys = MinHash.bandKeys(oldSignature);
+            for (int i = 0; i < keys.length; i++) {
+                bands.delete(keys[i], id);
+            }
+        }
+        if (signature != null) {
+            long[] keys = MinHash.bandKeys(signature);
+            for (int i = 0; i < keys.length; i++) {
+                if (!bands.contains(keys[i], id)) {
+                    bands.put(keys[i], id);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the ids of the tokenize contents sharing at least one band with the signature
+     */
+    final long[] signatureCandidates(int[] signature) {
+        LongLongArrayMap bands = (LongLongArrayMap) getAt(MINHASH_BANDS_H);
+        if (bands == null) {
+            return new long[0];
+        }
+        Set<Long> candidates = new LinkedHashSet<>();
+        long[] keys = MinHash.bandKeys(signature);
+        for (int i = 0; i < keys.length; i++) {
+            long[] ids = bands.get(keys[i]);
+            for (int j = 0; j < ids.length; j++) {
+                candidates.add(ids[j]);
+            }
+        }
+        long[] result = new long[candidates.size()];
+        int i = 0;
+        for (long candidate : candidates) {
+            result[i++] = candidate;
+        }
+        return result;
+    }
+
+    /**
+     * Method to store the contents of the category as content addressed chunks, shared by all the versions of the contents holding them.
+     * A version then only keeps the list of its chunks, a content being moved to chunks the next time it is set.
+     */
+    public final void enableSharedContent() {
+        setAt(SHARED_CONTENT_H, Type.BOOL, true);
+        getOrCreateAt(CONTENT_CHUNKS_H, Type.LONG_TO_LONG_MAP);
+    }
+
+    /**
+     * @return whether the contents of the category are stored as shared chunks
+     */
+    public final boolean isSharedContentEnabled() {
+        return Boolean.TRUE.equals(getAt(SHARED_CONTENT_H));
+    }
+
+    /**
+     * @param hash of the words of a chunk
+     * @return the id of the chunk node with this hash, NULL_LONG if there is none
+     */
+    final long getContentChunk(long hash) {
+        return ((LongLongMap) getOrCreateAt(CONTENT_CHUNKS_H, Type.LONG_TO_LONG_MAP)).get(hash);
+    }
+
+    final void addContentChunk(long hash, long chunkId) {
+        ((LongLongMap) getOrCreateAt(CONTENT_CHUNKS_H, Type.LONG_TO_LONG_MAP)).put(hash, chunkId);
+    }
+
+    /**
+     * Method to keep a fingerprint of every content of the category, computed on its tokens by every following setContent.
+     * Setting a content having the fingerprint of the current one is then skipped, and for categories storing their contents as shared chunks, a content having the fingerprint of an already stored one reuses its chunks without being encoded.
+     */
+    public final void enableFingerprints() {
+        setAt(FINGERPRINTS_H, Type.BOOL, true);
+    }
+
+    /**
+     * @return whether the contents of the category are fingerprinted
+     */
+    public final boolean isFingerprintsEnabled() {
+        return Boolean.TRUE.equals(getAt(FINGERPRINTS_H));
+    }
+
+    /**
+     * @param fingerprint of a content
+     * @return the id of the payload node of the contents with this fingerprint, NULL_LONG if there is none
+     */
+    final long getContentPayload(long fingerprint) {
+        LongLongMap payloads = (LongLongMap) getAt(CONTENT_PAYLOADS_H);
+        return payloads == null ? Constants.NULL_LONG : payloads.get(fingerprint);
+    }
+
+    final void addContentPayload(long fingerprint, long payloadId) {
+        ((LongLongMap) getOrCreateAt(CONTENT_PAYLOADS_H, Type.LONG_TO_LONG_MAP)).put(fingerprint, payloadId);
+    }
+
+    /**
+     * Method to import an already existing vocabulary in this category, words are grouped by first character and bulk loaded in the corresponding vocabulary node
+     *
+     * @param words to import, in their lower case form as produced by the tokenizers
+     */
+    public final void importVocabulary(String[] words) {
+        Map<Character, List<String>> wordsPerFirstChar = new HashMap<>();
+        for (int i = 0; i < words.length; i++) {
+            String word = words[i];
+            if (word != null && word.length() != 0) {
+                wordsPerFirstChar.computeIfAbsent(word.charAt(0), k -> new ArrayList<>()).add(word);
+            }
+        }
+        for (Map.Entry<Character, List<String>> entry : wordsPerFirstChar.entrySet()) {
+            List<String> group = entry.getValue();
+            getVocabularyNodeFor(entry.getKey(), result -> {
+                result.getOrCreateWords(group.toArray(new String[group.size()]));
+                result.free();
+            });
+        }
+    }
+
     /**
      * Function to initialize the category node
      *
@@ -108,7 +868,9 @@ public class DictionnaryNode extends BaseNode {
         indexfather.free();
 
         getOrCreateAt(TC_LIST_H, Type.RELATION);
+        getOrCreateAt(TC_TAIL_H, Type.LONG_ARRAY);
         setAt(NUMBER_OF_TC_H, Type.INT, 0);
+        setAt(COMPLETE_FREQUENCIES_H, Type.BOOL, true);
 
         DictionnaryNode categoryNode = this;
 
@@ -0,0 +1,130 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import paw.graph.customTypes.tokenizedContent.Word;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static paw.PawConstants.CONTENT_TOKEN;
+
+/**
+ * Accumulator of the changes of the document and collection frequencies of the content words of a tokenize content, applied to the vocabulary nodes in a single flush.
+ * The occurrences of each word before the change are counted on the old content, so that the document frequency only moves for the words appearing or disappearing.
+ */
+final class FrequencyCounter {
+
+    private final DictionnaryNode dictionnaryNode;
+    /**
+     * Packed first character and word id to its number of occurrences in the old content and its change of occurrences
+     */
+    private final Map<Long, long[]> counts = new HashMap<>();
+
+    FrequencyCounter(DictionnaryNode dictionnaryNode) {
+        this.dictionnaryNode = dictionnaryNode;
+    }
+
+    /**
+     * Count the occurrences in the content before the change of the words removed or added so far, the other words keeping their frequencies
+     */
+    void before(List<Word> oldContent) {
+        for (int i = 0; i < oldContent.size(); i++) {
+            Word word = oldContent.get(i);
+            if (word.getType() == CONTENT_TOKEN) {
+                long[] entry = counts.get(key(word));
+                if (entry != null) {
+                    entry[0]++;
+                }
+            }
+        }
+    }
+
+    void remove(List<Word> words) {
+        for (int i = 0; i < words.size(); i++) {
+            remove(words.get(i));
+        }
+    }
+
+    void remove(Word word) {
+        if (word.getType() == CONTENT_TOKEN) {
+            entry(word)[1]--;
+        }
+    }
+
+    void add(List<Word> words) {
+        for (int i = 0; i < words.size(); i++) {
+            add(words.get(i));
+        }
+    }
+
+    void add(Word word) {
+        if (word.getType() == CONTENT_TOKEN) {
+            entry(word)[1]++;
+        }
+    }
+
+    private static long key(Word word) {
+        return ((long) word.getFirstChar() << 32) | (word.getWordID() & 0xFFFFFFFFL);
+    }
+
+    private long[] entry(Word word) {
+        long key = key(word);
+        long[] entry = counts.get(key);
+        if (entry == null) {
+            entry = new long[2];
+            counts.put(key, entry);
+        }
+        return entry;
+    }
+
+    /**
+     * Apply the accumulated changes to the vocabulary nodes of the category
+     */
+    void flush() {
+        Map<Integer, List<long[]>> changesPerFirstChar = new HashMap<>();
+        for (Map.Entry<Long, long[]> entry : counts.entrySet()) {
+            long[] count = entry.getValue();
+            if (count[1] == 0) {
+                continue;
+            }
+            long key = entry.getKey();
+            long before = count[0];
+            long after = before + count[1];
+            int documentDelta = (after > 0 ? 1 : 0) - (before > 0 ? 1 : 0);
+            changesPerFirstChar.computeIfAbsent((int) (key >>> 32), k -> new ArrayList<>()).add(new long[]{(int) key, documentDelta, count[1]});
+        }
+        for (Map.Entry<Integer, List<long[]>> entry : changesPerFirstChar.entrySet()) {
+            List<long[]> changes = entry.getValue();
+            int[] wordIds = new int[changes.size()];
+            int[] documentDeltas = new int[changes.size()];
+            long[] collectionDeltas = new long[changes.size()];
+            for (int i = 0; i < wordIds.length; i++) {
+                long[] change = changes.get(i);
+                wordIds[i] = (int) change[0];
+                documentDeltas[i] = (int) change[1];
+                collectionDeltas[i] = change[2];
+            }
+            dictionnaryNode.getVocabularyNodeFor((char) (int) entry.getKey(), result -> {
+                result.addFrequencies(wordIds, documentDeltas, collectionDeltas);
+                result.free();
+            });
+        }
+        counts.clear();
+    }
+}
@@ -0,0 +1,113 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import paw.graph.customTypes.tokenizedContent.CTTokenizeContent;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static paw.PawConstants.CONTENT_TOKEN;
+import static paw.PawConstants.NUMBER_TOKEN;
+
+/**
+ * MinHash signature of the set of content words and numbers of a tokenize content, computed on the encoded words.
+ * The signature is cut in BANDS bands of ROWS values, two contents sharing a band being candidates for near-duplication.
+ */
+final class MinHash {
+
+    public final static int ROWS = 4;
+    public final static int BANDS = 32;
+    public final static int SIZE = ROWS * BANDS;
+
+    private final static long[] MULTIPLIERS = new long[SIZE];
+    private final static long[] INCREMENTS = new long[SIZE];
+
+    static {
+        // fixed seed, signatures being persisted
+        SplittableRandom random = new SplittableRandom(0x5EED5EEDL);
+        for (int i = 0; i < SIZE; i++) {
+            MULTIPLIERS[i] = random.nextLong() | 1L;
+            INCREMENTS[i] = random.nextLong();
+        }
+    }
+
+    private MinHash() {
+    }
+
+    /**
+     * @return the signature of the words of the cursor, null if there is no content word nor number
+     */
+    static int[] signature(CTTokenizeContent.WordCursor cursor) {
+        int[] signature = new int[SIZE];
+        Arrays.fill(signature, Integer.MAX_VALUE);
+        boolean empty = true;
+        while (cursor.next()) {
+            long feature;
+            if (cursor.getType() == CONTENT_TOKEN) {
+                feature = ((long) cursor.getFirstChar() << 32) | (cursor.getWordID() & 0xFFFFFFFFL);
+            } else if (cursor.getType() == NUMBER_TOKEN) {
+                // numbers are kept apart from the words, whose packed key never has the high bit set
+                feature = (cursor.getNumber() * 31 + cursor.getScale()) | Long.MIN_VALUE;
+            } else {
+                continue;
+            }
+            empty = false;
+            long hash = mix(feature);
+            for (int i = 0; i < SIZE; i++) {
+                int value = (int) ((hash * MULTIPLIERS[i] + INCREMENTS[i]) >>> 33);
+                if (value < signature[i]) {
+                    signature[i] = value;
+                }
+            }
+        }
+        return empty ? null : signature;
+    }
+
+    /**
+     * @return the key of each band of the signature in the index of the category, the band number being in the high bits
+     */
+    static long[] bandKeys(int[] signature) {
+        long[] keys = new long[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            int hash = band;
+            for (int row = 0; row < ROWS; row++) {
+                hash = hash * 0x01000193 ^ signature[band * ROWS + row];
+            }
+            keys[band] = ((long) band << 32) | (hash & 0xFFFFFFFFL);
+        }
+        return keys;
+    }
+
+    /**
+     * @return the estimated Jaccard similarity of the contents of both signatures
+     */
+    static double similarity(int[] first, int[] second) {
+        int equal = 0;
+        for (int i = 0; i < SIZE; i++) {
+            if (first[i] == second[i]) {
+                equal++;
+            }
+        }
+        return (double) equal / SIZE;
+    }
+
+    private static long mix(long value) {
+        value = (value ^ (value >>> 33)) * 0xFF51AFD7ED558CCDL;
+        value = (value ^ (value >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return value ^ (value >>> 33);
+    }
+}
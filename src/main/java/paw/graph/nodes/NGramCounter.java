@@ -0,0 +1,189 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import paw.graph.customTypes.tokenizedContent.Word;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static paw.PawConstants.CONTENT_TOKEN;
+
+/**
+ * Accumulator of the changes of the n-gram statistics of a category, applied to the n-gram shards in a single flush.
+ * N-grams are built on the successive content words, delimiters and numbers being skipped.
+ */
+final class NGramCounter {
+
+    private final DictionnaryNode dictionnaryNode;
+    private final Deltas bigrams = new Deltas();
+    private final Deltas trigrams = new Deltas();
+
+    private int sign;
+    private int previous;
+    private int beforePrevious;
+    private char previousChar;
+    private char beforePreviousChar;
+    private int seen;
+
+    NGramCounter(DictionnaryNode dictionnaryNode) {
+        this.dictionnaryNode = dictionnaryNode;
+    }
+
+    /**
+     * Count the n-grams of a sequence of words
+     *
+     * @param delta 1 for added words, -1 for removed ones
+     */
+    void count(Iterable<Word> words, int delta) {
+        begin(delta);
+        for (Word word : words) {
+            push(word);
+        }
+    }
+
+    /**
+     * Start a new sequence of words, pushed one by one
+     *
+     * @param delta 1 for added words, -1 for removed ones
+     */
+    void begin(int delta) {
+        sign = delta;
+        seen = 0;
+    }
+
+    void push(Word word) {
+        if (word.getType() != CONTENT_TOKEN) {
+            return;
+        }
+        int id = dictionnaryNode.getOrCreateTermId(word);
+        char firstChar = (char) word.getFirstChar();
+        if (seen >= 1) {
+            bigrams.add(NGramNode.bigramKey(previous, id), 0, previousChar, sign);
+        }
+        if (seen >= 2) {
+            trigrams.add(NGramNode.bigramKey(beforePrevious, previous), id, beforePreviousChar, sign);
+        }
+        beforePrevious = previous;
+        beforePreviousChar = previousChar;
+        previous = id;
+        previousChar = firstChar;
+        seen++;
+    }
+
+    /**
+     * Apply the accumulated changes to the n-gram shards of the category
+     */
+    void flush() {
+        Map<Character, NGramNode> shards = new HashMap<>();
+        bigrams.applyTo(shards, false);
+        trigrams.applyTo(shards, true);
+        for (NGramNode shard : shards.values()) {
+            shard.free();
+        }
+        bigrams.clear();
+        trigrams.clear();
+    }
+
+    /**
+     * Open addressing map from a n-gram key to its change of occurrences and the first character of its first word.
+     * A n-gram is keyed by the bigram key of its two first words and by the id of its third word, 0 for a bigram.
+     */
+    private final class Deltas {
+        private long[] keys = new long[64];
+        private int[] thirds = new int[64];
+        private int[] counts = new int[64];
+        private char[] shards = new char[64];
+        private boolean[] used = new boolean[64];
+        private int size = 0;
+
+        void add(long key, int third, char shard, int delta) {
+            if ((size + 1) * 2 > keys.length) {
+                grow();
+            }
+            int slot = slot(key, third, keys, thirds, used);
+            if (!used[slot]) {
+                used[slot] = true;
+                keys[slot] = key;
+                thirds[slot] = third;
+                shards[slot] = shard;
+                size++;
+            }
+            counts[slot] += delta;
+        }
+
+        private int slot(long key, int third, long[] keys, int[] thirds, boolean[] used) {
+            int mask = keys.length - 1;
+            int slot = (int) (((key + third * 0xC2B2AE3D27D4EB4FL) * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+            while (used[slot] && (keys[slot] != key || thirds[slot] != third)) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+
+        private void grow() {
+            long[] oldKeys = keys;
+            int[] oldThirds = thirds;
+            int[] oldCounts = counts;
+            char[] oldShards = shards;
+            boolean[] oldUsed = used;
+            keys = new long[oldKeys.length * 2];
+            thirds = new int[keys.length];
+            counts = new int[keys.length];
+            shards = new char[keys.length];
+            used = new boolean[keys.length];
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldUsed[i]) {
+                    int slot = slot(oldKeys[i], oldThirds[i], keys, thirds, used);
+                    used[slot] = true;
+                    keys[slot] = oldKeys[i];
+                    thirds[slot] = oldThirds[i];
+                    counts[slot] = oldCounts[i];
+                    shards[slot] = oldShards[i];
+                }
+            }
+        }
+
+        void applyTo(Map<Character, NGramNode> nodes, boolean trigram) {
+            for (int i = 0; i < keys.length; i++) {
+                if (used[i] && counts[i] != 0) {
+                    char shard = shards[i];
+                    NGramNode node = nodes.get(shard);
+                    if (node == null) {
+                        NGramNode[] result = new NGramNode[1];
+                        dictionnaryNode.getNGramNodeFor(shard, n -> result[0] = n);
+                        node = result[0];
+                        nodes.put(shard, node);
+                    }
+                    if (trigram) {
+                        node.addTrigramOccurrences(keys[i], thirds[i], counts[i]);
+                    } else {
+                        node.addOccurrences(keys[i], counts[i]);
+                    }
+                }
+            }
+        }
+
+        void clear() {
+            keys = new long[64];
+            thirds = new int[64];
+            counts = new int[64];
+            shards = new char[64];
+            used = new boolean[64];
+            size = 0;
+        }
+    }
+}
@@ -0,0 +1,286 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Constants;
+import greycat.Graph;
+import greycat.Type;
+import greycat.base.BaseNode;
+import greycat.struct.LongLongArrayMap;
+import greycat.struct.LongLongMap;
+import greycat.utility.HashHelper;
+
+import java.util.PriorityQueue;
+
+/**
+ * Class representing a shard of the n-gram statistics of a category, n-grams are splitted between shards based on the first character of their first word.
+ * Words are identified by their term id in the category, a bigram being keyed by the two ids packed in a long.
+ * A trigram is keyed in two levels: its two first words get a prefix id in the shard, the trigram is then keyed by the prefix id and the id of its third word packed in a long.
+ * The prefix id of two words is dropped with their last trigram, a new one being given if they are counted again.
+ * The continuations of each first word and of each prefix id are indexed, so that the continuations of a prefix are enumerated without scanning the shard.
+ */
+public class NGramNode extends BaseNode {
+    public final static String NAME = "NGram";
+
+    public final static String FIRST_CHAR = "fc";
+    public final static String BIGRAMS = "bigrams";
+    public final static String TRIGRAMS = "trigrams";
+    public final static String TRIGRAM_PREFIXES = "trigramPrefixes";
+    public final static String NEXT_TRIGRAM_PREFIX = "nextTrigramPrefix";
+    public final static String BIGRAM_CONTINUATIONS = "bigramContinuations";
+    public final static String TRIGRAM_CONTINUATIONS = "trigramContinuations";
+
+    private final static int FIRST_CHAR_H = HashHelper.hash(FIRST_CHAR);
+    private final static int BIGRAMS_H = HashHelper.hash(BIGRAMS);
+    private final static int TRIGRAMS_H = HashHelper.hash(TRIGRAMS);
+    private final static int TRIGRAM_PREFIXES_H = HashHelper.hash(TRIGRAM_PREFIXES);
+    private final static int NEXT_TRIGRAM_PREFIX_H = HashHelper.hash(NEXT_TRIGRAM_PREFIX);
+    private final static int BIGRAM_CONTINUATIONS_H = HashHelper.hash(BIGRAM_CONTINUATIONS);
+    private final static int TRIGRAM_CONTINUATIONS_H = HashHelper.hash(TRIGRAM_CONTINUATIONS);
+
+    /**
+     * Number of bits of a word id in the trigram keys of the shards written before the prefix ids
+     */
+    private final static int LEGACY_TRIGRAM_ID_BITS = 21;
+
+    /**
+     * Constructor
+     *
+     * @param p_world
+     * @param p_time
+     * @param p_id
+     * @param p_graph
+     */
+    public NGramNode(long p_world, long p_time, long p_id, Graph p_graph) {
+        super(p_world, p_time, p_id, p_graph);
+    }
+
+    /**
+     * method to initialize the node
+     *
+     * @param firstChar first character of the first word of all n-grams that will be counted in this shard
+     */
+    public final void initNGramNode(char firstChar) {
+        setAt(FIRST_CHAR_H, Type.STRING, String.valueOf(firstChar));
+        setTimeSensitivity(-1, 0);
+        getOrCreateAt(BIGRAMS_H, Type.LONG_TO_LONG_MAP);
+        getOrCreateAt(TRIGRAMS_H, Type.LONG_TO_LONG_MAP);
+        getOrCreateAt(TRIGRAM_PREFIXES_H, Type.LONG_TO_LONG_MAP);
+        getOrCreateAt(BIGRAM_CONTINUATIONS_H, Type.LONG_TO_LONG_ARRAY_MAP);
+        getOrCreateAt(TRIGRAM_CONTINUATIONS_H, Type.LONG_TO_LONG_ARRAY_MAP);
+    }
+
+    public static long bigramKey(int first, int second) {
+        return ((long) first << 32) | (second & 0xFFFFFFFFL);
+    }
+
+    /**
+     * @return the map from the bigram key of the two first words of a trigram to its prefix id
+     */
+    private LongLongMap trigramPrefixes() {
+        LongLongMap prefixes = (LongLongMap) getAt(TRIGRAM_PREFIXES_H);
+        if (prefixes == null) {
+            prefixes = (LongLongMap) getOrCreateAt(TRIGRAM_PREFIXES_H, Type.LONG_TO_LONG_MAP);
+            migrateLegacyTrigrams();
+        }
+        return prefixes;
+    }
+
+    /**
+     * Shards written before the prefix ids keyed a trigram by its three ids packed on 21 bits each, they are keyed again on first access
+     */
+    private void migrateLegacyTrigrams() {
+        LongLongMap trigrams = (LongLongMap) getAt(TRIGRAMS_H);
+        if (trigrams == null || trigrams.size() == 0) {
+            return;
+        }
+        final long idMask = (1L << LEGACY_TRIGRAM_ID_BITS) - 1;
+        final int size = trigrams.size();
+        final long[] keys = new long[size];
+        final long[] counts = new long[size];
+        final int[] index = new int[1];
+        trigrams.each((key, count) -> {
+            keys[index[0]] = key;
+            counts[index[0]] = count;
+            index[0]++;
+        });
+        removeAt(TRIGRAMS_H);
+        getOrCreateAt(TRIGRAMS_H, Type.LONG_TO_LONG_MAP);
+        removeAt(TRIGRAM_CONTINUATIONS_H);
+        getOrCreateAt(TRIGRAM_CONTINUATIONS_H, Type.LONG_TO_LONG_ARRAY_MAP);
+        for (int i = 0; i < index[0]; i++) {
+            long key = keys[i];
+            addTrigramOccurrences(bigramKey((int) (key >>> (2 * LEGACY_TRIGRAM_ID_BITS)), (int) ((key >>> LEGACY_TRIGRAM_ID_BITS) & idMask)), (int) (key & idMask), counts[i]);
+        }
+    }
+
+    /**
+     * @param trigram whether the index of the trigrams, keyed by prefix id, or the one of the bigrams, keyed by first word, is requested
+     * @return the index of the continuations, built from the n-grams on first access for shards written before it
+     */
+    private LongLongArrayMap continuations(boolean trigram) {
+        if (trigram) {
+            // legacy trigrams are keyed again first, the index being built with them
+            trigramPrefixes();
+        }
+        int attribute = trigram ? TRIGRAM_CONTINUATIONS_H : BIGRAM_CONTINUATIONS_H;
+        LongLongArrayMap continuations = (LongLongArrayMap) getAt(attribute);
+        if (continuations == null) {
+            LongLongArrayMap index = (LongLongArrayMap) getOrCreateAt(attribute, Type.LONG_TO_LONG_ARRAY_MAP);
+            ((LongLongMap) getAt(trigram ? TRIGRAMS_H : BIGRAMS_H)).each((key, count) -> index.put(key >>> 32, key & 0xFFFFFFFFL));
+            if (trigram) {
+                removeUnusedPrefixes(index);
+            }
+            continuations = index;
+        }
+        return continuations;
+    }
+
+    /**
+     * Shards written before the index kept the prefix ids of the trigrams they no longer count, they are dropped when the index is built
+     */
+    private void removeUnusedPrefixes(LongLongArrayMap continuations) {
+        LongLongMap prefixes = trigramPrefixes();
+        final long[] unused = new long[prefixes.size()];
+        final int[] count = new int[1];
+        prefixes.each((prefixKey, prefix) -> {
+            if (continuations.get(prefix).length == 0) {
+                unused[count[0]++] = prefixKey;
+            }
+        });
+        for (int i = 0; i < count[0]; i++) {
+            prefixes.remove(unused[i]);
+        }
+    }
+
+    /**
+     * Method to add a number of occurrences to a bigram, bigrams without occurrence being removed
+     *
+     * @param key   of the bigram, as given by {@link #bigramKey(int, int)}
+     * @param delta number of occurrences to add, negative for removed occurrences
+     */
+    public final void addOccurrences(long key, long delta) {
+        addTo((LongLongMap) getAt(BIGRAMS_H), continuations(false), key, delta);
+    }
+
+    /**
+     * Method to add a number of occurrences to a trigram, trigrams without occurrence being removed, as well as the prefix id of their two first words once they have no trigram left
+     *
+     * @param prefixKey bigram key of the two first words of the trigram
+     * @param third     term id of the third word
+     * @param delta     number of occurrences to add, negative for removed occurrences
+     */
+    public final void addTrigramOccurrences(long prefixKey, int third, long delta) {
+        LongLongMap prefixes = trigramPrefixes();
+        LongLongArrayMap continuations = continuations(true);
+        long prefix = prefixes.get(prefixKey);
+        if (prefix == Constants.NULL_LONG) {
+            if (delta <= 0) {
+                return;
+            }
+            int next = getAtWithDefault(NEXT_TRIGRAM_PREFIX_H, 0);
+            setAt(NEXT_TRIGRAM_PREFIX_H, Type.INT, next + 1);
+            prefix = next;
+            prefixes.put(prefixKey, prefix);
+        }
+        if (!addTo((LongLongMap) getAt(TRIGRAMS_H), continuations, bigramKey((int) prefix, third), delta) && continuations.get(prefix).length == 0) {
+            prefixes.remove(prefixKey);
+        }
+    }
+
+    /**
+     * Method to add a number of occurrences to an n-gram keyed by its prefix in the high 32 bits and its last word in the low ones, the index of the continuations following the n-grams created and removed
+     *
+     * @return whether the n-gram still has occurrences
+     */
+    private static boolean addTo(LongLongMap map, LongLongArrayMap continuations, long key, long delta) {
+        long count = map.get(key);
+        boolean known = count != Constants.NULL_LONG;
+        if (!known) {
+            count = 0;
+        }
+        count += delta;
+        if (count > 0) {
+            map.put(key, count);
+            if (!known) {
+                continuations.put(key >>> 32, key & 0xFFFFFFFFL);
+            }
+            return true;
+        }
+        if (known) {
+            map.remove(key);
+            continuations.delete(key >>> 32, key & 0xFFFFFFFFL);
+        }
+        return false;
+    }
+
+    /**
+     * @param ngram term ids of the two or three words of the n-gram
+     * @return the number of occurrences of the n-gram
+     */
+    public final long getOccurrences(int[] ngram) {
+        long count;
+        if (ngram.length == 2) {
+            count = ((LongLongMap) getAt(BIGRAMS_H)).get(bigramKey(ngram[0], ngram[1]));
+        } else if (ngram.length == 3) {
+            long prefix = trigramPrefixes().get(bigramKey(ngram[0], ngram[1]));
+            if (prefix == Constants.NULL_LONG) {
+                return 0;
+            }
+            count = ((LongLongMap) getAt(TRIGRAMS_H)).get(bigramKey((int) prefix, ngram[2]));
+        } else {
+            throw new IllegalArgumentException("n-gram of two or three words expected, got " + ngram.length);
+        }
+        return count == Constants.NULL_LONG ? 0 : count;
+    }
+
+    /**
+     * Method to retrieve the most frequent continuations of a prefix of one word, using the bigrams, or of two words, using the trigrams
+     *
+     * @param prefix term ids of the words of the prefix
+     * @param k      maximum number of continuations
+     * @return pairs of term id and number of occurrences of the continuations, by decreasing number of occurrences
+     */
+    public final long[][] topContinuations(int[] prefix, int k) {
+        if (prefix.length != 1 && prefix.length != 2) {
+            throw new IllegalArgumentException("prefix of one or two words expected, got " + prefix.length);
+        }
+        boolean trigram = prefix.length == 2;
+        long prefixKey;
+        if (trigram) {
+            prefixKey = trigramPrefixes().get(bigramKey(prefix[0], prefix[1]));
+            if (prefixKey == Constants.NULL_LONG) {
+                return new long[0][];
+            }
+        } else {
+            prefixKey = prefix[0] & 0xFFFFFFFFL;
+        }
+        LongLongMap ngrams = (LongLongMap) getAt(trigram ? TRIGRAMS_H : BIGRAMS_H);
+        long[] continuations = continuations(trigram).get(prefixKey);
+        PriorityQueue<long[]> best = new PriorityQueue<>(k + 1, (a, b) -> Long.compare(a[1], b[1]));
+        for (int i = 0; i < continuations.length; i++) {
+            best.add(new long[]{continuations[i], ngrams.get((prefixKey << 32) | continuations[i])});
+            if (best.size() > k) {
+                best.poll();
+            }
+        }
+        long[][] result = new long[best.size()][];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = best.poll();
+        }
+        return result;
+    }
+}
@@ -69,6 +69,23 @@ public class TCListNode extends BaseNode {
     }
 
 
+    /**
+     * method to add a batch of tokenize Content ids
+     *
+     * @param nodeIds
+     */
+    protected final void addTokenizeContentIDs(long[] nodeIds) {
+        ((Relation) getOrCreateAt(TC_RELATION_H, Type.RELATION)).addAll(nodeIds);
+    }
+
+    /**
+     * @return the number of tokenize content ids of the list
+     */
+    public final int size() {
+        return ((Relation) getAt(TC_RELATION_H)).size();
+    }
+
+
     /**
      * method to retrieve the tc id at a given position
      *
@@ -81,6 +98,14 @@ public class TCListNode extends BaseNode {
     }
 
 
+    /**
+     * @return all the tokenize content ids of the list
+     */
+    public final long[] tcIds() {
+        return ((Relation) getAt(TC_RELATION_H)).all();
+    }
+
+
     /**
      * @param
      * @return
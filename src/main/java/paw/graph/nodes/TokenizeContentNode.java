@@ -21,16 +21,24 @@ import greycat.plugin.Job;
 import greycat.struct.EStruct;
 import greycat.struct.EStructArray;
 import greycat.struct.IntArray;
+import greycat.struct.LongArray;
 import greycat.utility.HashHelper;
-import paw.graph.customTypes.tokenizedContent.CTTCRoaring;
+import paw.graph.customTypes.tokenizedContent.CTTokenizeContent;
+import paw.graph.customTypes.tokenizedContent.InterfaceTokenizeContent;
+import paw.graph.customTypes.tokenizedContent.TokenizeContentCodecs;
 import paw.graph.customTypes.tokenizedContent.Word;
+import paw.tokenizer.AbstractTokenizer;
+import paw.tokenizer.TokenSink;
 import paw.tokenizer.token.ContentT;
 import paw.tokenizer.token.DelimiterT;
 import paw.tokenizer.token.NumberT;
 import paw.tokenizer.token.Token;
 import paw.tokenizer.utils.LowerString;
 
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -50,8 +58,16 @@ public class TokenizeContentNode extends BaseNode {
     public final static String TOKENIZE_CONTENT_NAME = "name";
     public final static String CATEGORY = "category";
     public final static String FATHER = "father";
+    public final static String ORDINAL = "ordinal";
+    public final static String CODEC = "codec";
+    private final static String INTERNAL_SIGNATURE = "signature";
+    private final static String INTERNAL_CHUNKS = "chunks";
+    private final static String INTERNAL_FINGERPRINT = "fingerprint";
+    private final static String INTERNAL_TERM_IDS = "termIds";
+    private final static String INTERNAL_TERM_FREQUENCIES = "termFrequencies";
     private final static String INTERNAL_ENCODED_TEXT = "encodedText";
     private final static String INTERNAL_LOCAL_STAT = "localStat";
+    private final static String INTERNAL_CASES = "cases";
     // private final static String INTERNAL_MAP_OF_WORDS = "mapOfWords";
     // private final static String INTERNAL_MASKS = "masks";
     public final static String TOKENIZED_CONTENT_INDEX = "indexOfTC";
@@ -59,8 +75,21 @@ public class TokenizeContentNode extends BaseNode {
     protected final static int TOKENIZE_CONTENT_NAME_H = HashHelper.hash(TOKENIZE_CONTENT_NAME);
     protected final static int CATEGORY_H = HashHelper.hash(CATEGORY);
     protected final static int FATHER_H = HashHelper.hash(FATHER);
+    private final static int ORDINAL_H = HashHelper.hash(ORDINAL);
+    private final static int CODEC_H = HashHelper.hash(CODEC);
+    private final static int INTERNAL_SIGNATURE_H = HashHelper.hash(INTERNAL_SIGNATURE);
+    private final static int INTERNAL_CHUNKS_H = HashHelper.hash(INTERNAL_CHUNKS);
+    private final static int INTERNAL_FINGERPRINT_H = HashHelper.hash(INTERNAL_FINGERPRINT);
+    private final static int INTERNAL_TERM_IDS_H = HashHelper.hash(INTERNAL_TERM_IDS);
+    private final static int INTERNAL_TERM_FREQUENCIES_H = HashHelper.hash(INTERNAL_TERM_FREQUENCIES);
     private final static int INTERNAL_ENCODED_TEXT_H = HashHelper.hash(INTERNAL_ENCODED_TEXT);
     private final static int INTERNAL_LOCAL_STAT_H = HashHelper.hash(INTERNAL_LOCAL_STAT);
+    private final static int INTERNAL_CASES_H = HashHelper.hash(INTERNAL_CASES);
+
+    /**
+     * Number of words encoded at once when the content is streamed
+     */
+    private final static int STREAM_BATCH = 1024;
     //private final static int INTERNAL_MAP_OF_WORDS_H = HashHelper.hash(INTERNAL_MAP_OF_WORDS);
     //private final static int INTERNAL_MASKS_H = HashHelper.hash(INTERNAL_MASKS);
     protected final static int TOKENIZED_CONTENT_INDEX_H = HashHelper.hash(TOKENIZED_CONTENT_INDEX);
@@ -88,8 +117,6 @@ public class TokenizeContentNode extends BaseNode {
         addToRelationAt(FATHER_H, relatedNode);
         setAt(TOKENIZE_CONTENT_NAME_H, Type.STRING, name);
         setAt(CATEGORY_H, Type.STRING, category);
-
-        getOrCreateCustomAt(INTERNAL_ENCODED_TEXT_H, CTTCRoaring.NAME);
     }
 
     /**
@@ -99,6 +126,37 @@ public class TokenizeContentNode extends BaseNode {
         return (String) getAt(CATEGORY_H);
     }
 
+    /**
+     * @return the ordinal of the tokenize content in its category, -1 if it was created before the ordinals were maintained
+     */
+    public final int getOrdinal() {
+        Object ordinal = getAt(ORDINAL_H);
+        return ordinal == null ? -1 : (int) ordinal;
+    }
+
+    /**
+     * @return the name of the codec encoding the words of the content, the default one for contents written before codecs could be chosen
+     */
+    public final String getCodec() {
+        Object codec = getAt(CODEC_H);
+        return codec == null ? TokenizeContentCodecs.DEFAULT : (String) codec;
+    }
+
+    /**
+     * @return an estimation of the number of bytes used by the encoded words of this version, only the list of chunks being counted for shared contents
+     */
+    public final int getEncodedSize() {
+        LongArray chunks = (LongArray) getAt(INTERNAL_CHUNKS_H);
+        return chunks != null ? 8 * chunks.size() : encodedText().estimatedSize();
+    }
+
+    /**
+     * @return the encoded words of the node, with the codec of the node
+     */
+    private InterfaceTokenizeContent encodedText() {
+        return (InterfaceTokenizeContent) getOrCreateCustomAt(INTERNAL_ENCODED_TEXT_H, getCodec());
+    }
+
     /**
      * Method to retrieve the related Node
      *
@@ -110,30 +168,36 @@ public class TokenizeContentNode extends BaseNode {
 
     /**
      * @return
+     * @throws IllegalStateException if a word of the content can not be found in the vocabulary, as for contents whose words were removed by a compaction without tombstones
      */
     public final List<Token> rebuildContent() {
-        CTTCRoaring roaring = (CTTCRoaring) getOrCreateCustomAt(INTERNAL_ENCODED_TEXT_H, CTTCRoaring.NAME);
-        List<Word> words = roaring.decodeWords();
-
-        String category = getCategory();
+        long[] chunkIds = contentChunks();
+        if (chunkIds != null) {
+            // only the chunks of this version are read
+            return rebuildContent(ContentChunks.read(_graph, chunkIds));
+        }
+        IntArray casesArray = (IntArray) getAt(INTERNAL_CASES_H);
+        return rebuildTokens(encodedText().decodeWords(), casesArray == null ? null : casesArray.extract(),
+                ((EStructArray) getAt(INTERNAL_LOCAL_STAT_H)).estruct(1), null);
+    }
 
-        final DictionnaryNode[] dictionnaryNodes = new DictionnaryNode[1];
-        graph().index(0, BEGINNING_OF_TIME, INDEX_DICTIONNARY,
-                index -> index.findFrom(
-                        result -> {
-                            dictionnaryNodes[0] = (DictionnaryNode) result[0];
-                            index.free();
-                        }, category));
+    /**
+     * @return the tokens of a content read from its chunks
+     */
+    private List<Token> rebuildContent(ContentChunks.Content content) {
+        return rebuildTokens(content.words, content.cases, null, content.masks);
+    }
 
-        final DelimiterVocabularyNode[] delimiterVocabularyNodes = new DelimiterVocabularyNode[1];
-        graph().index(0, BEGINNING_OF_TIME, INDEX_DELIMITER,
-                index -> index.findFrom(
-                        result -> {
-                            delimiterVocabularyNodes[0] = (DelimiterVocabularyNode) result[0];
-                            index.free();
-                        }, category));
+    /**
+     * @param cases      packed case codes of the words, null for a content written before the case codes
+     * @param masks      masks of the mixed case words of a content stored in the node, null for a content read from its chunks
+     * @param chunkMasks masks of the mixed case words of a content read from its chunks, by position
+     */
+    private List<Token> rebuildTokens(List<Word> words, int[] cases, EStruct masks, Map<Integer, int[]> chunkMasks) {
+        String category = getCategory();
 
-        EStruct masks = ((EStructArray) getAt(INTERNAL_LOCAL_STAT_H)).estruct(1);
+        DictionnaryNode dictionnaryNode = dictionnaryNodeOf(category);
+        DelimiterVocabularyNode delimiterVocabularyNode = delimiterVocabularyNodeOf(category);
 
         List<Token> tokens = new ArrayList<>(words.size());
 
@@ -142,43 +206,569 @@ public class TokenizeContentNode extends BaseNode {
             Token[] token = new Token[1];
             switch (word.getType()) {
                 case CONTENT_TOKEN:
-                    Object omask = masks.getAt(i);
                     int[] mask;
-                    if (omask != null) {
-                        mask = ((IntArray) omask).extract();
+                    if (chunkMasks != null) {
+                        mask = chunkMasks.get(i);
+                    } else {
+                        Object omask = masks.getAt(i);
+                        mask = omask == null ? null : ((IntArray) omask).extract();
+                    }
+                    byte casing;
+                    if (cases != null) {
+                        casing = caseOf(cases, i);
                     } else {
-                        mask = new int[0];
+                        // content written before the case codes, every upper case token has a mask
+                        casing = mask == null ? LowerString.LOWER : LowerString.MIXED;
                     }
-                    dictionnaryNodes[0].getVocabularyNodeFor((char) word.getFirstChar(),
+                    dictionnaryNode.getVocabularyNodeFor((char) word.getFirstChar(),
                             result -> {
-                                token[0] = new ContentT(
-                                        new LowerString(
-                                                result.getWordForPosition(word.getWordID()),
-                                                mask)
-                                );
+                                String lower = result.getWordForPosition(word.getWordID());
                                 result.free();
+                                if (lower == null) {
+                                    throw new IllegalStateException("word " + word.getWordID() + " starting with '" + (char) word.getFirstChar()
+                                            + "' is missing from the vocabulary of the category " + category);
+                                }
+                                token[0] = new ContentT(new LowerString(lower, casing, mask));
                             });
                     break;
                 case DELIMITER_TOKEN:
-                    token[0] = new DelimiterT(delimiterVocabularyNodes[0].retrieveDelimiterCorrespondingTo(word.getWordID()));
+                    token[0] = new DelimiterT(delimiterVocabularyNode.retrieveDelimiterCorrespondingTo(word.getWordID()));
                     break;
                 case NUMBER_TOKEN:
-                    token[0] = new NumberT(word.getWordID());
+                    token[0] = new NumberT(word.getNumber(), word.getScale(), word.getLeadingZeros());
                     break;
             }
             tokens.add(token[0]);
         }
-        delimiterVocabularyNodes[0].free();
-        dictionnaryNodes[0].free();
+        delimiterVocabularyNode.free();
+        dictionnaryNode.free();
 
         return tokens;
     }
 
+    /**
+     * @return a cursor decoding the words of the content one at a time, without rebuilding the tokens
+     */
+    public final CTTokenizeContent.WordCursor wordCursor() {
+        long[] chunkIds = contentChunks();
+        if (chunkIds != null) {
+            return ContentChunks.cursor(_graph, chunkIds);
+        }
+        return encodedText().cursor();
+    }
+
+    /**
+     * @return the ids of the chunks of the content, null if the content is not stored as shared chunks
+     */
+    private long[] contentChunks() {
+        LongArray chunks = (LongArray) getAt(INTERNAL_CHUNKS_H);
+        return chunks == null ? null : chunks.extract();
+    }
+
+    /**
+     * @return whether the content is, or has to be, stored as shared chunks
+     */
+    private boolean isSharedContent(DictionnaryNode dictionnaryNode) {
+        return getAt(INTERNAL_CHUNKS_H) != null || dictionnaryNode.isSharedContentEnabled();
+    }
+
+    /**
+     * @return the content of the node, read once from its chunks or, for a node not yet stored as shared chunks, from its encoded text
+     */
+    private ContentChunks.Content previousContent() {
+        long[] chunkIds = contentChunks();
+        if (chunkIds != null) {
+            return ContentChunks.read(_graph, chunkIds);
+        }
+        // only the words are needed, the chunks of the new version can not be those of a content never stored as chunks
+        return new ContentChunks.Content(encodedText().decodeWords(), new int[0], new HashMap<>());
+    }
+
+    /**
+     * @return the encoder of a new content of a shared chunks node, the words, case codes and masks being kept in memory instead of in the node
+     */
+    private ContentEncoder sharedContentEncoder(int expectedSize) {
+        String category = getCategory();
+        DictionnaryNode dictionnaryNode = dictionnaryNodeOf(category);
+        NGramCounter ngrams = dictionnaryNode.isNGramsEnabled() ? new NGramCounter(dictionnaryNode) : null;
+        return new ContentEncoder(null, null, new int[casesLength(expectedSize)], dictionnaryNode, delimiterVocabularyNodeOf(category), ngrams, new FrequencyCounter(dictionnaryNode));
+    }
+
+    /**
+     * Method to store the words encoded in memory as the shared chunks of the current version, the chunks of the previous version left unchanged by the edit being reused
+     * without being read again nor encoded. The encoded text, cases and masks of the node are removed, only the list of chunks being kept in this version.
+     *
+     * @param previous    content of the previous version
+     * @param words       encoded words of the new content
+     * @param encoder     encoder of the new content
+     * @param fingerprint of the new content, its chunks being recorded as the payload of the fingerprint, NULL_LONG if the content has none
+     */
+    private void writeSharedContent(ContentChunks.Content previous, List<Word> words, ContentEncoder encoder, long fingerprint) {
+        DictionnaryNode dictionnaryNode = encoder.dictionnaryNode;
+        if (encoder.ngrams != null) {
+            encoder.ngrams.count(previous.words, -1);
+            encoder.ngrams.count(words, 1);
+            encoder.ngrams.flush();
+        }
+        encoder.frequencies.remove(previous.words);
+        encoder.frequencies.add(words);
+        encoder.frequencies.before(previous.words);
+        encoder.frequencies.flush();
+        ContentChunks.Content content = new ContentChunks.Content(words, encoder.cases(), encoder.sharedMasks);
+        long[] chunkIds = ContentChunks.write(_graph, dictionnaryNode, content, previous);
+        removeAt(INTERNAL_ENCODED_TEXT_H);
+        removeAt(INTERNAL_LOCAL_STAT_H);
+        removeAt(INTERNAL_CASES_H);
+        ((LongArray) getOrCreateAt(INTERNAL_CHUNKS_H, Type.LONG_ARRAY)).initWith(chunkIds);
+        if (fingerprint != Constants.NULL_LONG) {
+            ContentChunks.addPayload(_graph, dictionnaryNode, fingerprint, chunkIds);
+        }
+        updateDerivedStatistics(dictionnaryNode, words);
+    }
+
+    /**
+     * Method to set the content of a new version of the node to chunks already stored by the category, no token being encoded.
+     * The statistics of the category are updated from the words of the old and new contents, as for any other content.
+     *
+     * @param content new content, as read from its chunks
+     */
+    private void adoptPayload(ContentChunks.Content content, DictionnaryNode dictionnaryNode) {
+        this.rephase();
+        long[] oldChunkIds = contentChunks();
+        List<Word> oldWords = oldChunkIds != null ? ContentChunks.read(_graph, oldChunkIds).words
+                : encodedText().decodeWords();
+        List<Word> newWords = content.words;
+        if (dictionnaryNode.isNGramsEnabled()) {
+            NGramCounter ngrams = new NGramCounter(dictionnaryNode);
+            ngrams.count(oldWords, -1);
+            ngrams.count(newWords, 1);
+            ngrams.flush();
+        }
+        FrequencyCounter frequencies = new FrequencyCounter(dictionnaryNode);
+        frequencies.remove(oldWords);
+        frequencies.add(newWords);
+        frequencies.before(oldWords);
+        frequencies.flush();
+        removeAt(INTERNAL_ENCODED_TEXT_H);
+        removeAt(INTERNAL_LOCAL_STAT_H);
+        removeAt(INTERNAL_CASES_H);
+        ((LongArray) getOrCreateAt(INTERNAL_CHUNKS_H, Type.LONG_ARRAY)).initWith(content.chunkIds);
+        updateDerivedStatistics(dictionnaryNode, newWords);
+    }
+
+    /**
+     * @return the fingerprint of the tokens of the content, NULL_LONG if the category does not keep fingerprints or the content was set before
+     */
+    public final long getFingerprint() {
+        Object fingerprint = getAt(INTERNAL_FINGERPRINT_H);
+        return fingerprint == null ? Constants.NULL_LONG : (long) fingerprint;
+    }
+
+    /**
+     * @return the MinHash signature of the content, null if the category does not keep signatures or the content has no word
+     */
+    public final int[] getSignature() {
+        IntArray signature = (IntArray) getAt(INTERNAL_SIGNATURE_H);
+        return signature == null ? null : signature.extract();
+    }
+
+    /**
+     * Method to retrieve the contents of the category whose estimated Jaccard similarity with this content, on their sets of words and numbers, reaches a threshold.
+     * Only the contents sharing a band of their signature with this one are compared.
+     *
+     * @param threshold minimal similarity, between 0 and 1
+     * @param callback  in which the ids of the near duplicates will be returned, empty if the category does not keep signatures
+     */
+    public final void nearDuplicates(double threshold, Callback<long[]> callback) {
+        int[] signature = getSignature();
+        if (signature == null) {
+            callback.on(new long[0]);
+            return;
+        }
+        DictionnaryNode dictionnaryNode = dictionnaryNodeOf(getCategory());
+        long[] candidates = dictionnaryNode.signatureCandidates(signature);
+        dictionnaryNode.free();
+        List<Long> duplicates = new ArrayList<>();
+        for (int i = 0; i < candidates.length; i++) {
+            long candidate = candidates[i];
+            if (candidate == id()) {
+                continue;
+            }
+            _graph.lookup(world(), time(), candidate, result -> {
+                if (result != null) {
+                    int[] other = ((TokenizeContentNode) result).getSignature();
+                    if (other != null && MinHash.similarity(signature, other) >= threshold) {
+                        duplicates.add(candidate);
+                    }
+                    result.free();
+                }
+            });
+        }
+        long[] ids = new long[duplicates.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = duplicates.get(i);
+        }
+        callback.on(ids);
+    }
+
+    /**
+     * @return the term ids of the distinct content words, in increasing order, null if the category does not keep term vectors
+     */
+    public final int[] getTermIds() {
+        IntArray termIds = (IntArray) getAt(INTERNAL_TERM_IDS_H);
+        return termIds == null ? null : termIds.extract();
+    }
+
+    /**
+     * @return the number of occurrences of each term of getTermIds, null if the category does not keep term vectors
+     */
+    public final int[] getTermFrequencies() {
+        IntArray frequencies = (IntArray) getAt(INTERNAL_TERM_FREQUENCIES_H);
+        return frequencies == null ? null : frequencies.extract();
+    }
+
+    /**
+     * Method to compute the cosine similarity of the term frequency vectors of two contents of the same category, with a merge join on their sorted term ids
+     *
+     * @param other content to compare with
+     * @return the similarity, 0 if one of the contents has no term vector
+     */
+    public final double cosineSimilarity(TokenizeContentNode other) {
+        int[] ids = getTermIds();
+        int[] otherIds = other.getTermIds();
+        if (ids == null || otherIds == null || ids.length == 0 || otherIds.length == 0) {
+            return 0;
+        }
+        int[] tfs = getTermFrequencies();
+        int[] otherTfs = other.getTermFrequencies();
+        long dot = 0;
+        int i = 0;
+        int j = 0;
+        while (i < ids.length && j < otherIds.length) {
+            if (ids[i] < otherIds[j]) {
+                i++;
+            } else if (ids[i] > otherIds[j]) {
+                j++;
+            } else {
+                dot += (long) tfs[i++] * otherTfs[j++];
+            }
+        }
+        return dot / (norm(tfs) * norm(otherTfs));
+    }
+
+    private static double norm(int[] frequencies) {
+        long sum = 0;
+        for (int i = 0; i < frequencies.length; i++) {
+            sum += (long) frequencies[i] * frequencies[i];
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * Method to recompute the signature and the term vector of the content, for the categories keeping them
+     *
+     * @param words encoded words of the content when they are at hand, null to read them from the node
+     */
+    private void updateDerivedStatistics(DictionnaryNode dictionnaryNode, List<Word> words) {
+        updateSignature(dictionnaryNode, words);
+        updateTermVector(dictionnaryNode, words);
+    }
+
+    /**
+     * @return a cursor over the given words, over the stored words of the content if they are null
+     */
+    private CTTokenizeContent.WordCursor wordCursor(List<Word> words) {
+        return words == null ? wordCursor() : CTTokenizeContent.cursor(words);
+    }
+
+    /**
+     * Method to recompute the term frequency vector of the content from its encoded words, as the sorted term ids of its content words and their number of occurrences
+     */
+    private void updateTermVector(DictionnaryNode dictionnaryNode, List<Word> words) {
+        if (!dictionnaryNode.isTermVectorsEnabled()) {
+            return;
+        }
+        CTTokenizeContent.WordCursor cursor = wordCursor(words);
+        int[] terms = new int[64];
+        int size = 0;
+        while (cursor.next()) {
+            if (cursor.getType() == CONTENT_TOKEN) {
+                if (size == terms.length) {
+                    terms = Arrays.copyOf(terms, size * 2);
+                }
+                terms[size++] = dictionnaryNode.getOrCreateTermId(cursor.getFirstChar(), cursor.getWordID());
+            }
+        }
+        Arrays.sort(terms, 0, size);
+        int distinct = 0;
+        int[] frequencies = new int[size];
+        for (int i = 0; i < size; i++) {
+            if (distinct == 0 || terms[distinct - 1] != terms[i]) {
+                terms[distinct++] = terms[i];
+            }
+            frequencies[distinct - 1]++;
+        }
+        ((IntArray) getOrCreateAt(INTERNAL_TERM_IDS_H, Type.INT_ARRAY)).initWith(Arrays.copyOf(terms, distinct));
+        ((IntArray) getOrCreateAt(INTERNAL_TERM_FREQUENCIES_H, Type.INT_ARRAY)).initWith(Arrays.copyOf(frequencies, distinct));
+    }
+
+    /**
+     * Method to recompute the MinHash signature of the content from its encoded words and move it in the index of the category
+     */
+    private void updateSignature(DictionnaryNode dictionnaryNode, List<Word> words) {
+        if (!dictionnaryNode.isMinHashEnabled()) {
+            return;
+        }
+        int[] oldSignature = getSignature();
+        int[] signature = MinHash.signature(wordCursor(words));
+        dictionnaryNode.indexSignature(id(), oldSignature, signature);
+        if (signature == null) {
+            removeAt(INTERNAL_SIGNATURE_H);
+        } else {
+            ((IntArray) getOrCreateAt(INTERNAL_SIGNATURE_H, Type.INT_ARRAY)).initWith(signature);
+        }
+    }
+
+    /**
+     * Method to set the content of the node.
+     * If the node already has a content, only the span between the common prefix and suffix of both versions is rewritten.
+     * The casing of each content token is stored as a 2 bits code, a mask of its upper case characters being only kept for mixed case tokens.
+     * Contents encoded with the legacy format are fully rewritten, so that they can hold any number.
+     * Contents of categories storing them as shared chunks are encoded in memory and compared with the chunks of the previous version, only the chunks touched by the edit being written.
+     * For categories keeping fingerprints, nothing is done if the tokens have the fingerprint of the current content, and a content of a shared chunks category whose fingerprint is already known reuses the stored chunks without being encoded.
+     * In both cases the stored tokens are first compared with the new ones, two contents having the same fingerprint not being always the same.
+     *
+     * @param tokens new content
+     */
     public final void setContent(List<Token> tokens) {
+        DictionnaryNode dictionnaryNode = dictionnaryNodeOf(getCategory());
+        long fingerprint = Constants.NULL_LONG;
+        if (dictionnaryNode.isFingerprintsEnabled()) {
+            fingerprint = ContentFingerprint.of(tokens);
+            if (fingerprint == getFingerprint() && ContentFingerprint.sameTokens(tokens, rebuildContent())) {
+                dictionnaryNode.free();
+                return;
+            }
+        }
+        try {
+            if (isSharedContent(dictionnaryNode)) {
+                long[] payload = fingerprint == Constants.NULL_LONG ? null : ContentChunks.payload(_graph, dictionnaryNode, fingerprint);
+                ContentChunks.Content stored = payload == null ? null : ContentChunks.read(_graph, payload);
+                if (stored != null && ContentFingerprint.sameTokens(tokens, rebuildContent(stored))) {
+                    adoptPayload(stored, dictionnaryNode);
+                } else {
+                    this.rephase();
+                    ContentChunks.Content previous = previousContent();
+                    ContentEncoder encoder = sharedContentEncoder(tokens.size());
+                    try {
+                        writeSharedContent(previous, encoder.encode(tokens, 0, tokens.size()), encoder, fingerprint);
+                    } finally {
+                        encoder.free();
+                    }
+                }
+            } else if (getAt(INTERNAL_LOCAL_STAT_H) == null || getAt(INTERNAL_CASES_H) == null
+                    || encodedText().getFormat() == CTTokenizeContent.LEGACY_FORMAT) {
+                rewriteContent(tokens);
+            } else {
+                updateContent(tokens);
+            }
+            if (fingerprint != Constants.NULL_LONG) {
+                setAt(INTERNAL_FINGERPRINT_H, Type.LONG, fingerprint);
+            }
+        } finally {
+            dictionnaryNode.free();
+        }
+    }
+
+    /**
+     * Method to set the content of the node from a reader, tokenized by the tokenizer recorded for the category of the node
+     *
+     * @param reader content to tokenize
+     * @throws IOException           in case of reader exception
+     * @throws IllegalStateException if no tokenizer is recorded for the category, or if the tokenizer registered for its type is not configured as the recorded one
+     */
+    public final void setContent(Reader reader) throws IOException {
+        DictionnaryNode dictionnaryNode = dictionnaryNodeOf(getCategory());
+        AbstractTokenizer tokenizer;
+        try {
+            tokenizer = dictionnaryNode.getTokenizer();
+        } finally {
+            dictionnaryNode.free();
+        }
+        if (tokenizer == null) {
+            throw new IllegalStateException("no tokenizer recorded for the category " + getCategory());
+        }
+        setContent(reader, tokenizer);
+    }
+
+    /**
+     * Method to set the content of the node from a reader, the tokens being encoded as soon as the tokenizer produces them.
+     * The whole content is rewritten, without the tokens ever being all in memory, only the encoded words of a shared chunks content being kept until its chunks are written.
+     * The type and the configuration of the tokenizer are recorded for the category if no configuration is yet, for setContent(Reader) to check it.
+     * For categories keeping fingerprints, the fingerprint is computed while the tokens are encoded, a streamed content is thus always encoded.
+     *
+     * @param reader    content to tokenize
+     * @param tokenizer to use
+     * @throws IOException in case of reader exception
+     */
+    public final void setContent(Reader reader, AbstractTokenizer tokenizer) throws IOException {
+        DictionnaryNode dictionnaryNode = dictionnaryNodeOf(getCategory());
+        try {
+            ContentFingerprint fingerprint = dictionnaryNode.isFingerprintsEnabled() ? new ContentFingerprint() : null;
+            if (isSharedContent(dictionnaryNode)) {
+                this.rephase();
+                ContentChunks.Content previous = previousContent();
+                ContentEncoder encoder = sharedContentEncoder(STREAM_BATCH);
+                try {
+                    recordTokenizer(encoder.dictionnaryNode, tokenizer);
+                    List<Word> words = new ArrayList<>();
+                    tokenize(reader, tokenizer, fingerprint, encoder, words::add);
+                    writeSharedContent(previous, words, encoder, fingerprint == null ? Constants.NULL_LONG : fingerprint.value());
+                } finally {
+                    encoder.free();
+                }
+            } else {
+                streamContent(reader, tokenizer, fingerprint);
+            }
+            if (fingerprint != null) {
+                setAt(INTERNAL_FINGERPRINT_H, Type.LONG, fingerprint.value());
+            }
+        } finally {
+            dictionnaryNode.free();
+        }
+    }
+
+    /**
+     * @param fingerprint to which the tokens are added, null if the category does not keep fingerprints
+     */
+    private void streamContent(Reader reader, AbstractTokenizer tokenizer, ContentFingerprint fingerprint) throws IOException {
         this.rephase();
+        ContentEncoder encoder = clearContent(STREAM_BATCH);
+        InterfaceTokenizeContent text = encodedText();
+        recordTokenizer(encoder.dictionnaryNode, tokenizer);
+        if (encoder.ngrams != null) {
+            encoder.ngrams.begin(1);
+        }
+        List<Word> batch = new ArrayList<>(STREAM_BATCH);
+        try {
+            tokenize(reader, tokenizer, fingerprint, encoder, word -> {
+                batch.add(word);
+                encoder.frequencies.add(word);
+                if (encoder.ngrams != null) {
+                    encoder.ngrams.push(word);
+                }
+                if (batch.size() == STREAM_BATCH) {
+                    text.addWords(batch);
+                    batch.clear();
+                }
+            });
+            text.addWords(batch);
+            ((IntArray) getOrCreateAt(INTERNAL_CASES_H, Type.INT_ARRAY)).initWith(encoder.cases());
+            text.save();
+            if (encoder.ngrams != null) {
+                encoder.ngrams.flush();
+            }
+            encoder.frequencies.flush();
+            updateDerivedStatistics(encoder.dictionnaryNode, null);
+        } finally {
+            encoder.free();
+        }
+    }
+
+    /**
+     * Method to record the type and the configuration of the tokenizer for the category if no configuration is yet and the type is not another one
+     */
+    private static void recordTokenizer(DictionnaryNode dictionnaryNode, AbstractTokenizer tokenizer) {
+        if (dictionnaryNode.getTokenizerConfiguration() == null
+                && (dictionnaryNode.getTokenizerType() == DictionnaryNode.NO_TOKENIZER || dictionnaryNode.getTokenizerType() == tokenizer.getType())) {
+            dictionnaryNode.setTokenizer(tokenizer);
+        }
+    }
+
+    /**
+     * Method to encode the tokens of the reader as soon as the tokenizer produces them
+     *
+     * @param fingerprint to which the tokens are added, null if the category does not keep fingerprints
+     * @param consumer    called with each encoded word, in order
+     */
+    private static void tokenize(Reader reader, AbstractTokenizer tokenizer, ContentFingerprint fingerprint, ContentEncoder encoder, Callback<Word> consumer) throws IOException {
+        tokenizer.tokenize(reader, new TokenSink() {
+            private int position = 0;
+
+            @Override
+            public void onContent(char[] chars, int offset, int length) {
+                push(new ContentT(new String(chars, offset, length)));
+            }
+
+            @Override
+            public void onNumber(int number) {
+                push(new NumberT(number));
+            }
+
+            @Override
+            public void onNumber(long unscaled, int scale, int leadingZeros) {
+                push(new NumberT(unscaled, scale, leadingZeros));
+            }
+
+            @Override
+            public void onDelimiter(char[] chars, int offset, int length) {
+                push(new DelimiterT(new String(chars, offset, length)));
+            }
+
+            private void push(Token token) {
+                if (fingerprint != null) {
+                    fingerprint.add(token);
+                }
+                consumer.on(encoder.encode(token, position++));
+            }
+        });
+    }
+
+    private void rewriteContent(List<Token> tokens) {
+        this.rephase();
+        ContentEncoder encoder = clearContent(tokens.size());
+        InterfaceTokenizeContent text = encodedText();
+        List<Word> words = encoder.encode(tokens, 0, tokens.size());
+        text.addWords(words);
+        ((IntArray) getOrCreateAt(INTERNAL_CASES_H, Type.INT_ARRAY)).initWith(encoder.cases());
+        if (encoder.ngrams != null) {
+            encoder.ngrams.count(words, 1);
+            encoder.ngrams.flush();
+        }
+        encoder.frequencies.add(words);
+        encoder.frequencies.flush();
+        text.save();
+        updateDerivedStatistics(encoder.dictionnaryNode, words);
+        encoder.free();
+    }
+
+    /**
+     * Clear the encoded text and the local statistics of the node, the n-grams and the frequencies of the old content being removed from the statistics of the category.
+     * The encoded text is moved to the codec of the category if the node uses another one.
+     *
+     * @param expectedSize expected number of tokens of the new content
+     * @return the encoder of the new content
+     */
+    private ContentEncoder clearContent(int expectedSize) {
         String category = getCategory();
-        CTTCRoaring roaring = (CTTCRoaring) getOrCreateCustomAt(INTERNAL_ENCODED_TEXT_H, CTTCRoaring.NAME);
-        roaring.clear();
+        DictionnaryNode dictionnaryNode = dictionnaryNodeOf(category);
+        InterfaceTokenizeContent text = encodedText();
+        List<Word> oldWords = text.decodeWords();
+        NGramCounter ngrams = null;
+        if (dictionnaryNode.isNGramsEnabled()) {
+            ngrams = new NGramCounter(dictionnaryNode);
+            ngrams.count(oldWords, -1);
+        }
+        FrequencyCounter frequencies = new FrequencyCounter(dictionnaryNode);
+        frequencies.remove(oldWords);
+        frequencies.before(oldWords);
+        String codec = dictionnaryNode.getCodec();
+        if (codec.equals(getCodec())) {
+            text.clear();
+        } else {
+            removeAt(INTERNAL_ENCODED_TEXT_H);
+            setAt(CODEC_H, Type.STRING, codec);
+        }
 
         removeAt(INTERNAL_LOCAL_STAT_H);
         EStructArray array = (EStructArray) getOrCreateAt(INTERNAL_LOCAL_STAT_H, Type.ESTRUCT_ARRAY);
@@ -186,66 +776,399 @@ public class TokenizeContentNode extends BaseNode {
         array.setRoot(ls);
         EStruct masks = array.newEStruct();
 
+        return new ContentEncoder(ls, masks, new int[casesLength(expectedSize)], dictionnaryNode, delimiterVocabularyNodeOf(category), ngrams, frequencies);
+    }
 
-        final DictionnaryNode[] dictionnaryNodes = new DictionnaryNode[1];
-        graph().index(0, BEGINNING_OF_TIME, INDEX_DICTIONNARY,
-                index -> index.findFrom(
-                        result -> {
-                            dictionnaryNodes[0] = (DictionnaryNode) result[0];
-                            index.free();
-                        }, category));
+    private void updateContent(List<Token> tokens) {
+        List<Word> oldWords = encodedText().decodeWords();
+        EStructArray array = (EStructArray) getAt(INTERNAL_LOCAL_STAT_H);
+        EStruct ls = array.root();
+        EStruct masks = array.estruct(1);
+        IntArray oldCases = (IntArray) getAt(INTERNAL_CASES_H);
 
-        final DelimiterVocabularyNode[] delimiterVocabularyNodes = new DelimiterVocabularyNode[1];
-        graph().index(0, BEGINNING_OF_TIME, INDEX_DELIMITER,
-                index -> index.findFrom(
-                        result -> {
-                            delimiterVocabularyNodes[0] = (DelimiterVocabularyNode) result[0];
-                            index.free();
-                        }, category));
+        int oldSize = oldWords.size();
+        int newSize = tokens.size();
+        int common = Math.min(oldSize, newSize);
+        int prefix = 0;
+        while (prefix < common && sameToken(oldWords.get(prefix), prefix, tokens.get(prefix), ls, masks, oldCases)) {
+            prefix++;
+        }
+        if (prefix == oldSize && prefix == newSize) {
+            return;
+        }
+        int suffix = 0;
+        while (suffix < common - prefix
+                && sameToken(oldWords.get(oldSize - 1 - suffix), oldSize - 1 - suffix, tokens.get(newSize - 1 - suffix), ls, masks, oldCases)) {
+            suffix++;
+        }
+        int oldEnd = oldSize - suffix;
+        int newEnd = newSize - suffix;
 
-        Map<Integer, Integer> map = new HashMap<>();
+        int[] cases = new int[casesLength(newSize)];
+        for (int i = 0; i < prefix; i++) {
+            setCase(cases, i, caseOf(oldCases, i));
+        }
+        for (int i = oldEnd; i < oldSize; i++) {
+            setCase(cases, i + newEnd - oldEnd, caseOf(oldCases, i));
+        }
 
-        List<Word> words = new ArrayList<>();
+        this.rephase();
+        String category = getCategory();
+        InterfaceTokenizeContent text = encodedText();
+        array = (EStructArray) getAt(INTERNAL_LOCAL_STAT_H);
+        ls = array.root();
+        masks = array.estruct(1);
+
+        removePositions(ls, prefix, oldEnd, newEnd - oldEnd);
+        removeMasks(masks, prefix, oldEnd, oldSize, newEnd - oldEnd);
+
+        DictionnaryNode dictionnaryNode = dictionnaryNodeOf(category);
+        NGramCounter ngrams = dictionnaryNode.isNGramsEnabled() ? new NGramCounter(dictionnaryNode) : null;
+        FrequencyCounter frequencies = new FrequencyCounter(dictionnaryNode);
+        ContentEncoder encoder = new ContentEncoder(ls, masks, cases, dictionnaryNode, delimiterVocabularyNodeOf(category), ngrams, frequencies);
+        List<Word> newWords = encoder.encode(tokens, prefix, newEnd);
+        text.replaceWords(prefix, oldEnd, newWords);
+        ((IntArray) getAt(INTERNAL_CASES_H)).initWith(cases);
+        if (ngrams != null) {
+            // only the n-grams around the replaced words change, the others are counted in both windows and cancel out
+            int windowStart = ngramWindowStart(oldWords, prefix);
+            int windowEnd = ngramWindowEnd(oldWords, oldEnd);
+            ngrams.count(oldWords.subList(windowStart, windowEnd), -1);
+            List<Word> window = new ArrayList<>(oldWords.subList(windowStart, prefix));
+            window.addAll(newWords);
+            window.addAll(oldWords.subList(oldEnd, windowEnd));
+            ngrams.count(window, 1);
+            ngrams.flush();
+        }
+        frequencies.remove(oldWords.subList(prefix, oldEnd));
+        frequencies.add(newWords);
+        frequencies.before(oldWords);
+        frequencies.flush();
+        text.save();
+        updateDerivedStatistics(dictionnaryNode, null);
+        encoder.free();
+    }
 
-        for (int i = 0; i < tokens.size(); i++) {
-            Token token = tokens.get(i);
+    /**
+     * Encoder of the tokens of a content, recording their local statistics and casing.
+     * The encoder of a shared chunks content records no local statistics, the masks being kept in memory.
+     */
+    private static final class ContentEncoder {
+        /**
+         * Positions of the words in the content, null for a shared chunks content
+         */
+        private final EStruct ls;
+        /**
+         * Masks of the mixed case words, null for a shared chunks content
+         */
+        private final EStruct masks;
+        /**
+         * Masks of the mixed case words of a shared chunks content, by position
+         */
+        private final Map<Integer, int[]> sharedMasks = new HashMap<>();
+        private final DictionnaryNode dictionnaryNode;
+        private final DelimiterVocabularyNode delimiterVocabularyNode;
+        /**
+         * Counter of the n-grams of the category, null if the category does not keep n-gram statistics
+         */
+        private final NGramCounter ngrams;
+        /**
+         * Counter of the changes of the document and collection frequencies of the words
+         */
+        private final FrequencyCounter frequencies;
+        private final Map<Integer, Integer> map = new HashMap<>();
+        /**
+         * Vocabulary nodes holding the new words of the content, kept until free so that their radix trees are only saved once
+         */
+        private final Map<Character, VocabularyNode> vocabularyNodes = new HashMap<>();
+        private int[] cases;
+        private int size = 0;
+
+        ContentEncoder(EStruct ls, EStruct masks, int[] cases, DictionnaryNode dictionnaryNode, DelimiterVocabularyNode delimiterVocabularyNode, NGramCounter ngrams, FrequencyCounter frequencies) {
+            this.ls = ls;
+            this.masks = masks;
+            this.cases = cases;
+            this.dictionnaryNode = dictionnaryNode;
+            this.delimiterVocabularyNode = delimiterVocabularyNode;
+            this.ngrams = ngrams;
+            this.frequencies = frequencies;
+        }
+
+        /**
+         * Encode the tokens [from, to[
+         *
+         * @return the encoded words
+         */
+        List<Word> encode(List<Token> tokens, int from, int to) {
+            List<Word> words = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                words.add(encode(tokens.get(i), i));
+            }
+            return words;
+        }
+
+        Word encode(Token token, int position) {
+            if (casesLength(position + 1) > cases.length) {
+                cases = Arrays.copyOf(cases, Math.max(cases.length * 2, casesLength(position + 1)));
+            }
+            size = Math.max(size, position + 1);
             String content = token.getToken();
             int hash = HashHelper.hash(content);
             switch (token.getType()) {
                 case CONTENT_TOKEN:
-                    IntArray positions = (IntArray) ls.getOrCreateAt(hash, Type.INT_ARRAY);
-                    positions.addElement(i);
+                    if (ls != null) {
+                        IntArray positions = (IntArray) ls.getOrCreateAt(hash, Type.INT_ARRAY);
+                        addPosition(positions, position);
+                    }
 
-                    int[] mask = ((ContentT) token).getLowerString().getMask();
-                    if (!(mask.length == 1 && mask[0] == 0)) {
-                        IntArray maskI = (IntArray) masks.getOrCreateAt(i, Type.INT_ARRAY);
-                        maskI.initWith(mask);
+                    LowerString lowerString = ((ContentT) token).getLowerString();
+                    setCase(cases, position, lowerString.getCasing());
+                    if (lowerString.getCasing() == LowerString.MIXED) {
+                        if (masks != null) {
+                            IntArray maskI = (IntArray) masks.getOrCreateAt(position, Type.INT_ARRAY);
+                            maskI.initWith(lowerString.getMask());
+                        } else {
+                            sharedMasks.put(position, lowerString.getMask());
+                        }
                     }
                     char firstChar = content.charAt(0);
-                    if (map.containsKey(hash)) {
-                        words.add(new Word(CONTENT_TOKEN, map.get(hash), firstChar));
-                    } else {
-                        VocabularyNode[] vocabularyNodes = new VocabularyNode[1];
-                        dictionnaryNodes[0].getVocabularyNodeFor(firstChar, result -> vocabularyNodes[0] = result);
-                        int position = vocabularyNodes[0].getOrCreateWord(content);
-                        words.add(new Word(CONTENT_TOKEN, position, firstChar));
-                        map.put(hash, position);
-                        vocabularyNodes[0].free();
+                    Integer known = map.get(hash);
+                    if (known != null) {
+                        return new Word(CONTENT_TOKEN, known, firstChar);
                     }
-                    break;
+                    VocabularyNode vocabularyNode = vocabularyNodes.get(firstChar);
+                    if (vocabularyNode == null) {
+                        VocabularyNode[] result = new VocabularyNode[1];
+                        dictionnaryNode.getVocabularyNodeFor(firstChar, node -> result[0] = node);
+                        vocabularyNode = result[0];
+                        vocabularyNodes.put(firstChar, vocabularyNode);
+                    }
+                    int wordPosition = vocabularyNode.getOrCreateWord(content);
+                    map.put(hash, wordPosition);
+                    return new Word(CONTENT_TOKEN, wordPosition, firstChar);
                 case DELIMITER_TOKEN:
-                    delimiterVocabularyNodes[0].addDelimiter(hash, content);
-                    words.add(new Word(DELIMITER_TOKEN, hash));
-                    break;
-                case NUMBER_TOKEN:
-                    words.add(new Word(NUMBER_TOKEN, ((NumberT) token).getInt()));
-                    break;
+                    delimiterVocabularyNode.addDelimiter(hash, content);
+                    return new Word(DELIMITER_TOKEN, hash);
+                default:
+                    NumberT number = (NumberT) token;
+                    return new Word(number.getLong(), number.getScale(), number.getLeadingZeros());
+            }
+        }
+
+        /**
+         * @return the packed case codes of the encoded content
+         */
+        int[] cases() {
+            if (cases.length != casesLength(size)) {
+                cases = Arrays.copyOf(cases, casesLength(size));
+            }
+            return cases;
+        }
+
+        /**
+         * Save the words created by the content and free the nodes used by the encoder
+         */
+        void free() {
+            for (VocabularyNode vocabularyNode : vocabularyNodes.values()) {
+                vocabularyNode.saveWords();
+                vocabularyNode.free();
+            }
+            vocabularyNodes.clear();
+            dictionnaryNode.free();
+            delimiterVocabularyNode.free();
+        }
+    }
+
+    /**
+     * @return whether the token is the one encoded by the word at the given position
+     */
+    private static boolean sameToken(Word word, int position, Token token, EStruct ls, EStruct masks, IntArray cases) {
+        if (word.getType() != token.getType()) {
+            return false;
+        }
+        switch (token.getType()) {
+            case CONTENT_TOKEN:
+                IntArray positions = (IntArray) ls.getAt(HashHelper.hash(token.getToken()));
+                if (positions == null) {
+                    return false;
+                }
+                int index = firstIndexFrom(positions, position);
+                if (index == positions.size() || positions.get(index) != position) {
+                    return false;
+                }
+                LowerString lowerString = ((ContentT) token).getLowerString();
+                return caseOf(cases, position) == lowerString.getCasing()
+                        && (lowerString.getCasing() != LowerString.MIXED || sameMask((IntArray) masks.getAt(position), lowerString.getMask()));
+            case DELIMITER_TOKEN:
+                return word.getWordID() == HashHelper.hash(token.getToken());
+            case NUMBER_TOKEN:
+                NumberT number = (NumberT) token;
+                return word.getNumber() == number.getLong() && word.getScale() == number.getScale() && word.getLeadingZeros() == number.getLeadingZeros();
+        }
+        return false;
+    }
+
+    /**
+     * @return the start of the words whose n-grams may involve the word at the given index, two content words before it
+     */
+    private static int ngramWindowStart(List<Word> words, int index) {
+        int start = index;
+        int contents = 0;
+        while (start > 0 && contents < 2) {
+            start--;
+            if (words.get(start).getType() == CONTENT_TOKEN) {
+                contents++;
+            }
+        }
+        return start;
+    }
+
+    /**
+     * @return the end of the words whose n-grams may involve the word preceding the given index, two content words after it
+     */
+    private static int ngramWindowEnd(List<Word> words, int index) {
+        int end = index;
+        int contents = 0;
+        while (end < words.size() && contents < 2) {
+            if (words.get(end).getType() == CONTENT_TOKEN) {
+                contents++;
+            }
+            end++;
+        }
+        return end;
+    }
+
+    private static boolean sameMask(IntArray stored, int[] mask) {
+        if (stored == null || stored.size() != mask.length) {
+            return false;
+        }
+        for (int i = 0; i < mask.length; i++) {
+            if (stored.get(i) != mask[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Case codes are packed 16 per int, in token order
+     */
+    private static int casesLength(int numberOfTokens) {
+        return (numberOfTokens + 15) >>> 4;
+    }
+
+    private static byte caseOf(int[] cases, int position) {
+        return (byte) ((cases[position >>> 4] >>> ((position & 15) << 1)) & 3);
+    }
+
+    private static byte caseOf(IntArray cases, int position) {
+        return (byte) ((cases.get(position >>> 4) >>> ((position & 15) << 1)) & 3);
+    }
+
+    private static void setCase(int[] cases, int position, byte casing) {
+        cases[position >>> 4] |= casing << ((position & 15) << 1);
+    }
+
+    /**
+     * @return index of the first position greater or equal to the given one
+     */
+    private static int firstIndexFrom(IntArray positions, int position) {
+        int low = 0;
+        int high = positions.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (positions.get(middle) < position) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private static void addPosition(IntArray positions, int position) {
+        int size = positions.size();
+        if (size == 0 || positions.get(size - 1) < position) {
+            positions.addElement(position);
+        } else {
+            positions.insertElementAt(firstIndexFrom(positions, position), position);
+        }
+    }
+
+    /**
+     * Remove the positions [from, to[ from the local statistics and shift the following ones
+     */
+    private static void removePositions(EStruct ls, int from, int to, int shift) {
+        int[] hashes = ls.attributeIndexes();
+        for (int h = 0; h < hashes.length; h++) {
+            IntArray positions = (IntArray) ls.getAt(hashes[h]);
+            int size = positions.size();
+            int start = firstIndexFrom(positions, from);
+            int end = firstIndexFrom(positions, to);
+            if (start == end && (shift == 0 || end == size)) {
+                continue;
+            }
+            int[] updated = new int[size - end + start];
+            for (int i = 0; i < start; i++) {
+                updated[i] = positions.get(i);
+            }
+            for (int i = end; i < size; i++) {
+                updated[start + i - end] = positions.get(i) + shift;
+            }
+            if (updated.length == 0) {
+                ls.removeAt(hashes[h]);
+            } else {
+                positions.initWith(updated);
             }
         }
-        roaring.addWords(words);
-        dictionnaryNodes[0].free();
-        delimiterVocabularyNodes[0].free();
-        roaring.save();
+    }
+
+    /**
+     * Remove the masks of the positions [from, to[ and shift the ones of the following positions, up to size
+     */
+    private static void removeMasks(EStruct masks, int from, int to, int size, int shift) {
+        for (int i = from; i < to; i++) {
+            masks.removeAt(i);
+        }
+        if (shift > 0) {
+            for (int i = size - 1; i >= to; i--) {
+                moveMask(masks, i, i + shift);
+            }
+        } else if (shift < 0) {
+            for (int i = to; i < size; i++) {
+                moveMask(masks, i, i + shift);
+            }
+        }
+    }
+
+    private static void moveMask(EStruct masks, int from, int to) {
+        IntArray mask = (IntArray) masks.getAt(from);
+        if (mask != null) {
+            ((IntArray) masks.getOrCreateAt(to, Type.INT_ARRAY)).initWith(mask.extract());
+            masks.removeAt(from);
+        }
+    }
+
+    private DictionnaryNode dictionnaryNodeOf(String category) {
+        final DictionnaryNode[] dictionnaryNodes = new DictionnaryNode[1];
+        graph().index(0, BEGINNING_OF_TIME, INDEX_DICTIONNARY,
+                index -> index.findFrom(
+                        result -> {
+                            dictionnaryNodes[0] = (DictionnaryNode) result[0];
+                            index.free();
+                        }, category));
+        return dictionnaryNodes[0];
+    }
+
+    private DelimiterVocabularyNode delimiterVocabularyNodeOf(String category) {
+        final DelimiterVocabularyNode[] delimiterVocabularyNodes = new DelimiterVocabularyNode[1];
+        graph().index(0, BEGINNING_OF_TIME, INDEX_DELIMITER,
+                index -> index.findFrom(
+                        result -> {
+                            delimiterVocabularyNodes[0] = (DelimiterVocabularyNode) result[0];
+                            index.free();
+                        }, category));
+        return delimiterVocabularyNodes[0];
     }
 
     public final void containsWord(String word, boolean caseSensitive, Callback<Boolean> callback) {
@@ -272,7 +1195,7 @@ public class TokenizeContentNode extends BaseNode {
         }
     }
 
-    private static void generateDelimiterAndDictionnaryForCategory(Graph graph, String category, long id, Callback<Boolean> callback) {
+    private static void generateDelimiterAndDictionnaryForCategory(Graph graph, String category, byte tokenizerType, TokenizeContentNode node, Callback<Boolean> callback) {
         DeferCounter counter = graph.newCounter(2);
         graph.index(0, BEGINNING_OF_TIME, INDEX_DELIMITER, new Callback<NodeIndex>() {
             @Override
@@ -314,7 +1237,11 @@ public class TokenizeContentNode extends BaseNode {
                         }
                     });
                 }
-                dictionnaryNodes[0].addTCToTCList(id);
+                if (tokenizerType != DictionnaryNode.NO_TOKENIZER && dictionnaryNodes[0].getTokenizerType() == DictionnaryNode.NO_TOKENIZER) {
+                    dictionnaryNodes[0].setTokenizerType(tokenizerType);
+                }
+                node.setAt(ORDINAL_H, Type.INT, dictionnaryNodes[0].addTCToTCList(node.id()));
+                node.setAt(CODEC_H, Type.STRING, dictionnaryNodes[0].getCodec());
                 dictionnaryNodes[0].free();
                 counter.count();
             }
@@ -329,6 +1256,19 @@ public class TokenizeContentNode extends BaseNode {
     }
 
     public static void getOrCreateTokenizeContentOfNode(Node relatedNode, String name, String category, Callback<TokenizeContentNode> callback) {
+        getOrCreateTokenizeContentOfNode(relatedNode, name, category, DictionnaryNode.NO_TOKENIZER, callback);
+    }
+
+    /**
+     * Method to retrieve or create the tokenize content of a node, the type of the tokenizer being recorded for the category if none is yet
+     *
+     * @param relatedNode   node holding the content
+     * @param name          of the content
+     * @param category      of the content
+     * @param tokenizerType type of the tokenizer of the category
+     * @param callback      in which the tokenize content will be returned
+     */
+    public static void getOrCreateTokenizeContentOfNode(Node relatedNode, String name, String category, byte tokenizerType, Callback<TokenizeContentNode> callback) {
         getTokenizeContentOfNode(relatedNode, name, new Callback<TokenizeContentNode>() {
             @Override
             public void on(TokenizeContentNode result) {
@@ -350,7 +1290,7 @@ public class TokenizeContentNode extends BaseNode {
                         index.update(node);
                         counter.count();
                     }
-                    generateDelimiterAndDictionnaryForCategory(graph, category, node.id(), new Callback<Boolean>() {
+                    generateDelimiterAndDictionnaryForCategory(graph, category, tokenizerType, node, new Callback<Boolean>() {
                         @Override
                         public void on(Boolean result) {
                             counter.count();
@@ -19,12 +19,22 @@ import greycat.Constants;
 import greycat.Graph;
 import greycat.Type;
 import greycat.base.BaseNode;
+import greycat.struct.IntArray;
 import greycat.struct.IntIntMap;
+import greycat.struct.LongArray;
 import greycat.utility.HashHelper;
 import paw.graph.customTypes.radix.struct.RadixTree;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.TreeSet;
+
 /**
- * Class representing a vocabulary node, words are splitted between vocabulary nodes based on their first character
+ * Class representing a vocabulary node, words are splitted between vocabulary nodes based on their first character.
+ * The id of a word is its position in the radix tree until the vocabulary is first compacted, a table then giving the position of every id so that ids stay stable.
+ * Words removed by a compaction keep their label in a tombstone arena, the previous versions of the contents still referencing their id, until purgeTombstones drops the labels no longer referenced.
  */
 public class VocabularyNode extends BaseNode {
     public final static String NAME = "Vocabulary";
@@ -32,10 +42,32 @@ public class VocabularyNode extends BaseNode {
     public final static String FIRST_CHAR = "fc";
     public final static String RADIX = "radix";
     public final static String MAPOFWORD = "map";
+    public final static String DOCUMENT_FREQUENCIES = "df";
+    public final static String COLLECTION_FREQUENCIES = "cf";
+    public final static String WORD_NODES = "nodes";
+    public final static String TOMBSTONE_IDS = "tombstoneIds";
+    public final static String TOMBSTONE_ENDS = "tombstoneEnds";
+    public final static String TOMBSTONE_LABELS = "tombstoneLabels";
 
     private final static int FIRST_CHAR_H = HashHelper.hash(FIRST_CHAR);
     private final static int RADIX_H = HashHelper.hash(RADIX);
     private final static int MAPOFWORD_H = HashHelper.hash(MAPOFWORD);
+    private final static int DOCUMENT_FREQUENCIES_H = HashHelper.hash(DOCUMENT_FREQUENCIES);
+    private final static int COLLECTION_FREQUENCIES_H = HashHelper.hash(COLLECTION_FREQUENCIES);
+    private final static int WORD_NODES_H = HashHelper.hash(WORD_NODES);
+    private final static int TOMBSTONE_IDS_H = HashHelper.hash(TOMBSTONE_IDS);
+    private final static int TOMBSTONE_ENDS_H = HashHelper.hash(TOMBSTONE_ENDS);
+    private final static int TOMBSTONE_LABELS_H = HashHelper.hash(TOMBSTONE_LABELS);
+
+    /**
+     * Position of a removed word in the table of word nodes
+     */
+    private final static int REMOVED = -1;
+
+    /**
+     * Radix tree of the node, kept between calls so that the labels of the words created by a batch are buffered in its arena until saveWords
+     */
+    private RadixTree radixTree;
 
     /**
      * Constructor
@@ -74,7 +106,7 @@ public class VocabularyNode extends BaseNode {
      * Method to know whether a word is present in this vocabulary based on its hash
      *
      * @param hash of the word to look foe
-     * @return the position of the word in the radix tree
+     * @return the id of the word
      */
     public final int getWord(int hash) {
         IntIntMap map = (IntIntMap) getAt(MAPOFWORD_H);
@@ -82,17 +114,17 @@ public class VocabularyNode extends BaseNode {
     }
 
     /**
-     * Method to get the position of a word in the radix and create it if necessary, the tokenizecontent id requesting it will be stored in the radix tree.
+     * Method to get the id of a word and create it if necessary.
+     * The label of a new word is only written to the radix tree by saveWords, to be called on this node object once the batch of words is created.
      *
      * @param word to look for
-     * @return the position of the word in the radix tree.
+     * @return the id of the word
      */
     public final int getOrCreateWord(String word) {
         int hash = HashHelper.hash(word);
         int result = getWord(hash);
-        RadixTree radixTree = (RadixTree) getOrCreateCustomAt(RADIX_H, RadixTree.NAME);
         if (result == Constants.NULL_INT) {
-            result = radixTree.getOrCreate(word);
+            result = idOfNode(radixTree().getOrCreate(word));
             IntIntMap map = (IntIntMap) getAt(MAPOFWORD_H);
             map.put(hash, result);
         }
@@ -100,11 +132,295 @@ public class VocabularyNode extends BaseNode {
     }
 
     /**
-     * @param position
-     * @return
+     * Method to get the id of a batch of words, the missing ones being created in a single sorted pass over the radix tree.
+     *
+     * @param words to look for
+     * @return the id of each word, in the same order as the words
+     */
+    public final int[] getOrCreateWords(String[] words) {
+        IntIntMap map = (IntIntMap) getAt(MAPOFWORD_H);
+        int[] result = new int[words.length];
+        TreeSet<String> missing = new TreeSet<>();
+        for (int i = 0; i < words.length; i++) {
+            result[i] = map.get(HashHelper.hash(words[i]));
+            if (result[i] == Constants.NULL_INT) {
+                missing.add(words[i]);
+            }
+        }
+        if (!missing.isEmpty()) {
+            String[] sorted = missing.toArray(new String[missing.size()]);
+            int[] positions = radixTree().getOrCreateAll(sorted);
+            saveWords();
+            for (int i = 0; i < sorted.length; i++) {
+                if (map.get(HashHelper.hash(sorted[i])) == Constants.NULL_INT) {
+                    map.put(HashHelper.hash(sorted[i]), idOfNode(positions[i]));
+                }
+            }
+            for (int i = 0; i < words.length; i++) {
+                if (result[i] == Constants.NULL_INT) {
+                    result[i] = map.get(HashHelper.hash(words[i]));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Method to write the labels of the words created since the last call to the radix tree
+     */
+    public final void saveWords() {
+        if (radixTree != null) {
+            radixTree.save();
+        }
+    }
+
+    private RadixTree radixTree() {
+        if (radixTree == null) {
+            radixTree = (RadixTree) getOrCreateCustomAt(RADIX_H, RadixTree.NAME);
+        }
+        return radixTree;
+    }
+
+    /**
+     * @param position id of the word
+     * @return the number of tokenize contents holding the word
+     */
+    public final int getDocumentFrequency(int position) {
+        IntArray frequencies = (IntArray) getAt(DOCUMENT_FREQUENCIES_H);
+        return frequencies == null || position >= frequencies.size() ? 0 : frequencies.get(position);
+    }
+
+    /**
+     * @param position id of the word
+     * @return the number of occurrences of the word in all the tokenize contents
+     */
+    public final long getCollectionFrequency(int position) {
+        LongArray frequencies = (LongArray) getAt(COLLECTION_FREQUENCIES_H);
+        return frequencies == null || position >= frequencies.size() ? 0 : frequencies.get(position);
+    }
+
+    /**
+     * Method to update the frequencies of a batch of words, both arrays being indexed by the id of the words.
+     * The arrays grow by half of their size at least, so that the words added by each document only copy them a logarithmic number of times.
+     *
+     * @param positions        ids of the words
+     * @param documentDeltas   change of the number of tokenize contents holding each word
+     * @param collectionDeltas change of the number of occurrences of each word
+     */
+    public final void addFrequencies(int[] positions, int[] documentDeltas, long[] collectionDeltas) {
+        int max = -1;
+        for (int i = 0; i < positions.length; i++) {
+            max = Math.max(max, positions[i]);
+        }
+        IntArray df = (IntArray) getOrCreateAt(DOCUMENT_FREQUENCIES_H, Type.INT_ARRAY);
+        LongArray cf = (LongArray) getOrCreateAt(COLLECTION_FREQUENCIES_H, Type.LONG_ARRAY);
+        if (max >= df.size()) {
+            df.addAll(new int[capacityFor(max, df.size()) - df.size()]);
+        }
+        if (max >= cf.size()) {
+            cf.addAll(new long[capacityFor(max, cf.size()) - cf.size()]);
+        }
+        for (int i = 0; i < positions.length; i++) {
+            df.set(positions[i], df.get(positions[i]) + documentDeltas[i]);
+            cf.set(positions[i], cf.get(positions[i]) + collectionDeltas[i]);
+        }
+    }
+
+    /**
+     * @return the size of a frequency array of the given size grown to hold the given position
+     */
+    private static int capacityFor(int position, int size) {
+        return Math.max(position + 1, size + (size >> 1));
+    }
+
+    /**
+     * @param position id of the word
+     * @return the word, removed words being found in the tombstones, null if the id was never given
      */
     public final String getWordForPosition(int position) {
-        RadixTree radixTree = (RadixTree) getOrCreateCustomAt(RADIX_H, RadixTree.NAME);
-        return radixTree.getNameOfToken(position);
+        IntArray nodes = (IntArray) getAt(WORD_NODES_H);
+        int node = position;
+        if (nodes != null) {
+            node = position < nodes.size() ? nodes.get(position) : REMOVED;
+            if (node == REMOVED) {
+                return tombstone(position);
+            }
+        }
+        return radixTree().getNameOfToken(node);
+    }
+
+    /**
+     * @return the label kept for a removed word, null if it was purged
+     */
+    private String tombstone(int id) {
+        IntArray ids = (IntArray) getAt(TOMBSTONE_IDS_H);
+        if (ids == null) {
+            return null;
+        }
+        int low = 0;
+        int high = ids.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int current = ids.get(middle);
+            if (current < id) {
+                low = middle + 1;
+            } else if (current > id) {
+                high = middle - 1;
+            } else {
+                IntArray ends = (IntArray) getAt(TOMBSTONE_ENDS_H);
+                int start = middle == 0 ? 0 : ends.get(middle - 1);
+                return ((String) getAt(TOMBSTONE_LABELS_H)).substring(start, ends.get(middle));
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return the labels kept for the removed words, by id
+     */
+    private TreeMap<Integer, String> tombstones() {
+        TreeMap<Integer, String> tombstones = new TreeMap<>();
+        IntArray ids = (IntArray) getAt(TOMBSTONE_IDS_H);
+        if (ids != null) {
+            int[] ends = ((IntArray) getAt(TOMBSTONE_ENDS_H)).extract();
+            String labels = (String) getAt(TOMBSTONE_LABELS_H);
+            for (int i = 0; i < ends.length; i++) {
+                tombstones.put(ids.get(i), labels.substring(i == 0 ? 0 : ends[i - 1], ends[i]));
+            }
+        }
+        return tombstones;
+    }
+
+    /**
+     * Method to write the labels of the removed words as an arena: their ids in increasing order, the end of each label and all the labels concatenated
+     */
+    private void setTombstones(TreeMap<Integer, String> tombstones) {
+        if (tombstones.isEmpty()) {
+            removeAt(TOMBSTONE_IDS_H);
+            removeAt(TOMBSTONE_ENDS_H);
+            removeAt(TOMBSTONE_LABELS_H);
+            return;
+        }
+        int[] ids = new int[tombstones.size()];
+        int[] ends = new int[tombstones.size()];
+        StringBuilder labels = new StringBuilder();
+        int i = 0;
+        for (Map.Entry<Integer, String> entry : tombstones.entrySet()) {
+            ids[i] = entry.getKey();
+            labels.append(entry.getValue());
+            ends[i++] = labels.length();
+        }
+        ((IntArray) getOrCreateAt(TOMBSTONE_IDS_H, Type.INT_ARRAY)).initWith(ids);
+        ((IntArray) getOrCreateAt(TOMBSTONE_ENDS_H, Type.INT_ARRAY)).initWith(ends);
+        setAt(TOMBSTONE_LABELS_H, Type.STRING, labels.toString());
+    }
+
+    /**
+     * @return the number of removed words whose label is still kept
+     */
+    public final int getNumberOfTombstones() {
+        IntArray ids = (IntArray) getAt(TOMBSTONE_IDS_H);
+        return ids == null ? 0 : ids.size();
+    }
+
+    /**
+     * Method to drop the labels of the removed words no longer referenced, these words being no longer resolvable by their id.
+     * Their ids are still never given again, the table of the word positions keeping an entry for them.
+     *
+     * @param referenced ids of the words still held by a version or a chunk of a tokenize content
+     * @return the number of dropped labels
+     */
+    public final int purgeTombstones(BitSet referenced) {
+        TreeMap<Integer, String> tombstones = tombstones();
+        int size = tombstones.size();
+        tombstones.keySet().removeIf(id -> !referenced.get(id));
+        int purged = size - tombstones.size();
+        if (purged != 0) {
+            setTombstones(tombstones);
+        }
+        return purged;
+    }
+
+    /**
+     * @return the id of a word newly created at the given position of the radix tree
+     */
+    private int idOfNode(int position) {
+        IntArray nodes = (IntArray) getAt(WORD_NODES_H);
+        if (nodes == null) {
+            return position;
+        }
+        nodes.addElement(position);
+        return nodes.size() - 1;
+    }
+
+    /**
+     * Method to remove the words no longer held by any tokenize content, the radix tree being rebuilt with the remaining words only.
+     * The ids of the remaining words do not change, the ids of the removed words are never given again.
+     * The document frequencies must count every tokenize content, words only used by previous versions of the contents are removed as well:
+     * they can no longer be found by their hash nor by the radix tree, but their label is kept in the tombstones
+     * so that the previous versions and the shared chunks of contents can still be decoded.
+     * A removed word used again gets a new id: a content holding it is then encoded differently than before the compaction,
+     * its MinHash signature, fingerprint and term ids differing from those of the same content set before.
+     *
+     * @return the number of removed words
+     */
+    public final int compact() {
+        RadixTree radixTree = radixTree();
+        IntArray nodes = (IntArray) getAt(WORD_NODES_H);
+        int[] table;
+        if (nodes == null) {
+            int[] wordNodes = radixTree.getWordNodes();
+            int max = -1;
+            for (int i = 0; i < wordNodes.length; i++) {
+                max = Math.max(max, wordNodes[i]);
+            }
+            table = new int[max + 1];
+            Arrays.fill(table, REMOVED);
+            for (int i = 0; i < wordNodes.length; i++) {
+                table[wordNodes[i]] = wordNodes[i];
+            }
+        } else {
+            table = nodes.extract();
+        }
+        IntIntMap map = (IntIntMap) getAt(MAPOFWORD_H);
+        TreeMap<Integer, String> tombstones = tombstones();
+        TreeMap<String, Integer> kept = new TreeMap<>();
+        int removed = 0;
+        for (int id = 0; id < table.length; id++) {
+            if (table[id] == REMOVED) {
+                continue;
+            }
+            String word = radixTree.getNameOfToken(table[id]);
+            if (getDocumentFrequency(id) > 0) {
+                kept.put(word, id);
+            } else {
+                map.remove(HashHelper.hash(word));
+                tombstones.put(id, word);
+                table[id] = REMOVED;
+                removed++;
+            }
+        }
+        if (removed == 0) {
+            return 0;
+        }
+        setTombstones(tombstones);
+        removeAt(RADIX_H);
+        this.radixTree = null;
+        int[] positions = radixTree().getOrCreateAll(kept.keySet().toArray(new String[kept.size()]));
+        saveWords();
+        int i = 0;
+        for (Integer id : kept.values()) {
+            table[id] = positions[i++];
+        }
+        ((IntArray) getOrCreateAt(WORD_NODES_H, Type.INT_ARRAY)).initWith(table);
+        return removed;
+    }
+
+    /**
+     * Method to reset the document and collection frequencies of all the words
+     */
+    public final void clearFrequencies() {
+        removeAt(DOCUMENT_FREQUENCIES_H);
+        removeAt(COLLECTION_FREQUENCIES_H);
     }
 }
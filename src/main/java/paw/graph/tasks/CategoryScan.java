@@ -0,0 +1,198 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.tasks;
+
+import greycat.DeferCounter;
+import greycat.Graph;
+import greycat.Node;
+import greycat.Task;
+import paw.graph.customTypes.tokenizedContent.CTTokenizeContent;
+import paw.graph.nodes.DictionnaryNode;
+import paw.graph.nodes.TokenizeContentNode;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static greycat.Constants.BEGINNING_OF_TIME;
+import static greycat.Tasks.newTask;
+import static paw.PawConstants.INDEX_DICTIONNARY;
+
+/**
+ * Scan of all the tokenize contents of a category.
+ * Contents are resolved by batches of ordinals and decoded by a pool of threads, every node being freed once visited, so that at most one batch is loaded at a time.
+ * No thread waits for another: each batch is resolved once the previous one is visited, and the end of the scan is notified through a callback.
+ */
+public class CategoryScan {
+
+    /**
+     * Default number of tokenize contents loaded at once
+     */
+    public final static int DEFAULT_BATCH = 1024;
+
+    /**
+     * Visitor of the tokenize contents of a category, called concurrently by the threads of the scan
+     */
+    public interface DocumentVisitor {
+        /**
+         * @param node   tokenize content, freed after the call
+         * @param cursor over the words of the content
+         */
+        void visit(TokenizeContentNode node, CTTokenizeContent.WordCursor cursor);
+    }
+
+    /**
+     * Callback notified once a scan ended
+     */
+    public interface ScanCallback {
+        /**
+         * @param size  number of tokenize contents of the category when the scan started
+         * @param error first exception thrown while resolving or visiting the contents, null if every content was visited
+         */
+        void on(int size, RuntimeException error);
+    }
+
+    /**
+     * @return a task scanning the category at the world and time of the context, ended with the first exception of the visitor if any
+     */
+    public static Task scanCategory(String category, int batchSize, int threads, DocumentVisitor visitor) {
+        return newTask()
+                .thenDo(ctx -> scan(ctx.graph(), ctx.world(), ctx.time(), category, batchSize, threads, visitor, (size, error) -> {
+                    if (error != null) {
+                        ctx.endTask(ctx.result(), error);
+                    } else {
+                        ctx.continueTask();
+                    }
+                }));
+    }
+
+    /**
+     * Method to visit every tokenize content of a category, in no particular order
+     *
+     * @param graph     graph
+     * @param world     world in which the contents are resolved
+     * @param time      time at which the contents are resolved
+     * @param category  to scan
+     * @param batchSize maximum number of tokenize contents loaded at once
+     * @param threads   number of threads decoding the contents
+     * @param visitor   called for each tokenize content, it must be thread safe
+     * @param callback  called once every content is visited or the first exception is caught, from any thread
+     */
+    public static void scan(Graph graph, long world, long time, String category, int batchSize, int threads, DocumentVisitor visitor, ScanCallback callback) {
+        if (batchSize <= 0 || threads <= 0) {
+            throw new IllegalArgumentException("batch size and number of threads must be positive");
+        }
+        graph.index(0, BEGINNING_OF_TIME, INDEX_DICTIONNARY, index -> {
+            long[] catId = index.select(category);
+            index.free();
+            if (catId.length == 0) {
+                callback.on(0, null);
+                return;
+            }
+            graph.lookup(0, BEGINNING_OF_TIME, catId[0], result -> {
+                DictionnaryNode dictionnaryNode = (DictionnaryNode) result;
+                new Scan(graph, world, time, dictionnaryNode, batchSize, threads, visitor, callback).next(0);
+            });
+        });
+    }
+
+    /**
+     * State of a running scan
+     */
+    private static final class Scan {
+
+        private final Graph graph;
+        private final long world;
+        private final long time;
+        private final DictionnaryNode dictionnaryNode;
+        private final int size;
+        private final int batchSize;
+        private final int threads;
+        private final DocumentVisitor visitor;
+        private final ScanCallback callback;
+        private final ExecutorService executor;
+        private final AtomicReference<RuntimeException> error = new AtomicReference<>();
+
+        private Scan(Graph graph, long world, long time, DictionnaryNode dictionnaryNode, int batchSize, int threads, DocumentVisitor visitor, ScanCallback callback) {
+            this.graph = graph;
+            this.world = world;
+            this.time = time;
+            this.dictionnaryNode = dictionnaryNode;
+            this.size = dictionnaryNode.getNumberOfTC();
+            this.batchSize = batchSize;
+            this.threads = threads;
+            this.visitor = visitor;
+            this.callback = callback;
+            this.executor = Executors.newFixedThreadPool(threads);
+        }
+
+        /**
+         * Method to resolve the batch starting at the given ordinal and hand it to the threads, the next batch being resolved by the thread finishing the last slice
+         *
+         * @param from first ordinal of the batch
+         */
+        private void next(int from) {
+            if (from >= size || error.get() != null) {
+                end();
+                return;
+            }
+            int to = Math.min(size, from + batchSize);
+            try {
+                long[] ids = dictionnaryNode.tcIds(from, to);
+                graph.lookupAll(world, time, ids, nodes -> {
+                    int slice = (nodes.length + threads - 1) / threads;
+                    DeferCounter counter = graph.newCounter((nodes.length + slice - 1) / slice);
+                    counter.then(() -> next(to));
+                    for (int start = 0; start < nodes.length; start += slice) {
+                        int first = start;
+                        int end = Math.min(nodes.length, start + slice);
+                        executor.execute(() -> {
+                            for (int i = first; i < end; i++) {
+                                visit(nodes[i]);
+                            }
+                            counter.count();
+                        });
+                    }
+                });
+            } catch (RuntimeException e) {
+                error.compareAndSet(null, e);
+                end();
+            }
+        }
+
+        private void visit(Node result) {
+            if (result == null) {
+                return;
+            }
+            try {
+                if (error.get() == null) {
+                    TokenizeContentNode node = (TokenizeContentNode) result;
+                    visitor.visit(node, node.wordCursor());
+                }
+            } catch (RuntimeException e) {
+                error.compareAndSet(null, e);
+            } finally {
+                result.free();
+            }
+        }
+
+        private void end() {
+            executor.shutdown();
+            dictionnaryNode.free();
+            callback.on(size, error.get());
+        }
+    }
+}
@@ -15,11 +15,18 @@
  */
 package paw.tokenizer;
 
+import paw.PawConstants;
+import paw.tokenizer.token.ContentT;
+import paw.tokenizer.token.NumberT;
+import paw.tokenizer.preprocessor.TokenPreprocessor;
 import paw.tokenizer.token.Token;
+import paw.tokenizer.utils.NumberParser;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 /**
@@ -27,6 +34,126 @@ import java.util.List;
  */
 public abstract class AbstractTokenizer {
 
+    /**
+     * Whether longs, decimals and numbers with leading zeros are returned as numbers rather than contents
+     */
+    protected boolean wideNumbers = false;
+
+    /**
+     * Preprocessors applied to the tokens, in their order of registration
+     */
+    private final List<TokenPreprocessor> preprocessors = new ArrayList<>();
+
+    /**
+     * Whether the instance is shared by the {@link TokenizerRegistry}, its configuration being then frozen
+     */
+    private boolean shared = false;
+
+    /**
+     * @throws IllegalStateException if the tokenizer is shared by the registry
+     */
+    public void setWideNumbers(boolean wideNumbers) {
+        checkNotShared();
+        this.wideNumbers = wideNumbers;
+    }
+
+    public boolean isWideNumbers() {
+        return wideNumbers;
+    }
+
+    /**
+     * Method to register a preprocessor, applied after the ones already registered
+     *
+     * @param preprocessor to add
+     * @return this tokenizer
+     * @throws IllegalStateException if the tokenizer is shared by the registry
+     */
+    public AbstractTokenizer addPreprocessor(TokenPreprocessor preprocessor) {
+        checkNotShared();
+        preprocessors.add(preprocessor);
+        return this;
+    }
+
+    /**
+     * @return a read only view of the preprocessors, in their order of registration
+     */
+    public List<TokenPreprocessor> getPreprocessors() {
+        return Collections.unmodifiableList(preprocessors);
+    }
+
+    /**
+     * Method called by the registry on the instances it hands out, which are shared by all the users of a thread
+     */
+    final void share() {
+        shared = true;
+    }
+
+    private void checkNotShared() {
+        if (shared) {
+            throw new IllegalStateException("the " + getClass().getSimpleName() + " of the registry is shared and cannot be reconfigured, a factory building the configured tokenizer has to be registered instead");
+        }
+    }
+
+    /**
+     * Description of the settings of the tokenizer changing the tokens it produces, recorded with the contents tokenized by it.
+     * Two tokenizers with the same configuration produce the same tokens.
+     *
+     * @return the class of the tokenizer with its own settings, whether it reads wide numbers and the configurations of its preprocessors
+     */
+    public final String getConfiguration() {
+        StringBuilder builder = new StringBuilder(getClass().getName());
+        String settings = settings();
+        if (!settings.isEmpty()) {
+            builder.append('(').append(settings).append(')');
+        }
+        if (wideNumbers) {
+            builder.append(" wideNumbers");
+        }
+        for (TokenPreprocessor preprocessor : preprocessors) {
+            builder.append(" | ").append(preprocessor.getConfiguration());
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the settings specific to the tokenizer, empty if it has none
+     */
+    protected String settings() {
+        return "";
+    }
+
+    /**
+     * @return a sink applying all preprocessors registered before pushing the tokens to the given sink
+     */
+    protected TokenSink preprocess(TokenSink sink) {
+        TokenSink result = sink;
+        for (int i = preprocessors.size() - 1; i >= 0; i--) {
+            result = preprocessors.get(i).apply(result);
+        }
+        return result;
+    }
+
+    /**
+     * Method applying the preprocessors to the tokens of a tokenizer that can only produce a list
+     *
+     * @return the list itself if no preprocessor is registered
+     */
+    protected List<Token> preprocess(List<Token> tokens) {
+        if (preprocessors.isEmpty() || tokens == null) {
+            return tokens;
+        }
+        TokenCollector collector = new TokenCollector();
+        push(tokens, preprocess(collector));
+        return collector.getTokens();
+    }
+
+    /**
+     * @return the parser of the numbers of a content, according to the configuration of the tokenizer
+     */
+    protected NumberParser numberParser() {
+        return new NumberParser(wideNumbers);
+    }
+
 
     /**
      * Tokenize
@@ -41,6 +168,67 @@ public abstract class AbstractTokenizer {
      */
     public abstract List<Token> tokenize(Reader reader) throws IOException;
 
+    /**
+     * Method to tokenize a reader, pushing the tokens to a sink as soon as they are produced
+     *
+     * @param reader to use
+     * @param sink   receiving the tokens on which all preprocessor registered have been applied
+     * @throws IOException in case of reader exception
+     */
+    public void tokenize(Reader reader, TokenSink sink) throws IOException {
+        push(tokenize(reader), sink);
+    }
+
+    /**
+     * Push a list of tokens to a sink
+     */
+    protected static void push(List<Token> tokens, TokenSink sink) {
+        if (tokens != null) {
+            for (int i = 0; i < tokens.size(); i++) {
+                Token token = tokens.get(i);
+                switch (token.getType()) {
+                    case PawConstants.CONTENT_TOKEN:
+                        char[] content = ((ContentT) token).getLowerString().rebuild().toCharArray();
+                        sink.onContent(content, 0, content.length);
+                        break;
+                    case PawConstants.NUMBER_TOKEN:
+                        NumberT number = (NumberT) token;
+                        if (number.isInt()) {
+                            sink.onNumber(number.getInt());
+                        } else {
+                            sink.onNumber(number.getLong(), number.getScale(), number.getLeadingZeros());
+                        }
+                        break;
+                    case PawConstants.DELIMITER_TOKEN:
+                        char[] delimiter = token.getToken().toCharArray();
+                        sink.onDelimiter(delimiter, 0, delimiter.length);
+                        break;
+                }
+            }
+        }
+    }
+
+    /**
+     * Push the characters [offset, offset + length[ of an array to the sink, as a number if they form one and as a content otherwise
+     */
+    protected static void pushWord(char[] chars, int offset, int length, NumberParser numbers, TokenSink sink) {
+        if (numbers.parse(chars, offset, length)) {
+            numbers.pushTo(sink);
+        } else {
+            sink.onContent(chars, offset, length);
+        }
+    }
+
+    /**
+     * @return the token of a word, a number if it is one and a content otherwise
+     */
+    protected static Token wordToken(String word, NumberParser numbers) {
+        if (numbers.parse(word)) {
+            return numbers.toToken();
+        }
+        return new ContentT(word);
+    }
+
     /**
      * Method to tokenize a string
      *
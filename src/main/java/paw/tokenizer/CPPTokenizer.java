@@ -16,42 +16,123 @@
 package paw.tokenizer;
 
 import org.antlr.v4.runtime.ANTLRInputStream;
-import org.antlr.v4.runtime.CommonTokenStream;
+import org.antlr.v4.runtime.Lexer;
 import paw.PawConstants;
 import paw.tokenizer.cpp.CPP14Lexer;
-import paw.tokenizer.token.ContentT;
-import paw.tokenizer.token.NumberT;
 import paw.tokenizer.token.Token;
-import paw.tokenizer.utils.Utils;
+import paw.tokenizer.utils.NumberParser;
 
 import java.io.IOException;
 import java.io.Reader;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 public class CPPTokenizer extends AbstractTokenizer {
+
+    /**
+     * Lexer of each thread, reused with its input buffer from one content to the next.
+     * The DFA built by the lexer is shared by all of them.
+     */
+    private static final ThreadLocal<ReusableLexer> LEXERS = ThreadLocal.withInitial(ReusableLexer::new);
+
+    private final boolean skipHidden;
+
+    public CPPTokenizer() {
+        this(false);
+    }
+
+    /**
+     * @param skipHidden whether the tokens of the hidden channel, the preprocessor directives, are skipped
+     */
+    public CPPTokenizer(boolean skipHidden) {
+        this.skipHidden = skipHidden;
+    }
+
     @Override
     public List<Token> tokenize(Reader reader) throws IOException {
-        List<Token> tokens = new ArrayList<>();
-        ANTLRInputStream inputStream = new ANTLRInputStream(reader);
-        CPP14Lexer lexer = new CPP14Lexer(inputStream);
-        CommonTokenStream commonTokenStream = new CommonTokenStream(lexer);
-        commonTokenStream.fill();
-        List<org.antlr.v4.runtime.Token> list = commonTokenStream.getTokens();
-        for (int i = 0; i < list.size(); i++) {
-            String res = list.get(i).getText();
-            if (Utils.isNumericArray(res) && !res.startsWith("0")) {
-                int number = Integer.parseInt(res);
-                tokens.add(new NumberT(number));
-            } else {
-                tokens.add(new ContentT(res));
+        TokenCollector collector = new TokenCollector();
+        tokenize(reader, collector);
+        return collector.getTokens();
+    }
+
+    /**
+     * The tokens are pushed to the sink as the lexer produces them, but the whole content is still read in memory first.
+     * The lexers of ANTLR 4.6 need a random access CharStream, its UnbufferedCharStream would copy the text of every token.
+     */
+    @Override
+    public void tokenize(Reader reader, TokenSink sink) throws IOException {
+        sink = preprocess(sink);
+        ReusableLexer reusable = LEXERS.get();
+        reusable.input.load(reader);
+        try {
+            reusable.lexer.setInputStream(reusable.input);
+            char[] data = reusable.input.data();
+            NumberParser numbers = numberParser();
+            org.antlr.v4.runtime.Token token = reusable.lexer.nextToken();
+            while (token.getType() != org.antlr.v4.runtime.Token.EOF) {
+                if (!skipHidden || token.getChannel() == Lexer.DEFAULT_TOKEN_CHANNEL) {
+                    int start = token.getStartIndex();
+                    pushWord(data, start, token.getStopIndex() - start + 1, numbers, sink);
+                }
+                token = reusable.lexer.nextToken();
             }
+        } finally {
+            reusable.input.release();
         }
-        return tokens;
+    }
+
+    @Override
+    protected String settings() {
+        return skipHidden ? "skipHidden" : "";
     }
 
     @Override
     public byte getType() {
         return PawConstants.CPP_TOKENIZER;
     }
+
+    private static final class ReusableLexer {
+        private final ReusableInputStream input = new ReusableInputStream();
+        private final CPP14Lexer lexer = new CPP14Lexer(input);
+    }
+
+    /**
+     * Input stream whose buffer is kept and refilled from one content to the next.
+     * The buffer grows to hold the largest content, it is dropped after a content larger than MAX_RETAINED_SIZE chars.
+     */
+    private static final class ReusableInputStream extends ANTLRInputStream {
+
+        private static final int MAX_RETAINED_SIZE = 1 << 20;
+
+        private ReusableInputStream() {
+            super(new char[INITIAL_BUFFER_SIZE], 0);
+        }
+
+        private void load(Reader reader) throws IOException {
+            n = 0;
+            p = 0;
+            int read;
+            while ((read = reader.read(data, n, data.length - n)) != -1) {
+                n += read;
+                if (n == data.length) {
+                    data = Arrays.copyOf(data, data.length * 2);
+                }
+            }
+        }
+
+        private char[] data() {
+            return data;
+        }
+
+        /**
+         * Method to drop the buffer once the content is tokenized if it grew too much to be kept by the thread
+         */
+        private void release() {
+            if (data.length > MAX_RETAINED_SIZE) {
+                data = new char[INITIAL_BUFFER_SIZE];
+            }
+            n = 0;
+            p = 0;
+        }
+    }
 }
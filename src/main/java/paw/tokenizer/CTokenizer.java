@@ -0,0 +1,78 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer;
+
+import paw.PawConstants;
+import paw.tokenizer.c.CScanner;
+import paw.tokenizer.token.Token;
+import paw.tokenizer.utils.CharWindow;
+import paw.tokenizer.utils.NumberParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Tokenizer of C source code, returning the same tokens as the {@link CPPTokenizer} for C sources without running the C++14 lexer.
+ * The only difference is that right shifts are single tokens, the C++ lexer splitting them to close template arguments.
+ */
+public class CTokenizer extends AbstractTokenizer {
+
+    private final boolean skipDirectives;
+
+    public CTokenizer() {
+        this(false);
+    }
+
+    /**
+     * @param skipDirectives whether the preprocessor directives are skipped
+     */
+    public CTokenizer(boolean skipDirectives) {
+        this.skipDirectives = skipDirectives;
+    }
+
+    @Override
+    public List<Token> tokenize(Reader reader) throws IOException {
+        TokenCollector collector = new TokenCollector();
+        tokenize(reader, collector);
+        return collector.getTokens();
+    }
+
+    @Override
+    public void tokenize(Reader reader, TokenSink sink) throws IOException {
+        sink = preprocess(sink);
+        StringBuilder sb = new StringBuilder();
+        new CharWindow(reader).appendAll(sb);
+        CScanner scanner = new CScanner(sb.toString());
+        char[] source = scanner.source();
+        NumberParser numbers = numberParser();
+        while (scanner.next()) {
+            if (!skipDirectives || !scanner.isDirective()) {
+                pushWord(source, scanner.start(), scanner.end() - scanner.start(), numbers, sink);
+            }
+        }
+    }
+
+    @Override
+    protected String settings() {
+        return skipDirectives ? "skipDirectives" : "";
+    }
+
+    @Override
+    public byte getType() {
+        return PawConstants.C_TOKENIZER;
+    }
+}
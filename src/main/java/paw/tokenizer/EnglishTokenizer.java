@@ -0,0 +1,324 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer;
+
+import paw.PawConstants;
+import paw.tokenizer.token.Token;
+import paw.tokenizer.utils.CharWindow;
+import paw.tokenizer.utils.NumberParser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.List;
+
+/**
+ * Tokenizer of english texts, splitting them in a single pass driven by a table of character classes, without regular expression.
+ * <ul>
+ * <li>white spaces separate the tokens and are dropped, runs of punctuation are returned as delimiters</li>
+ * <li>words keep their inner hyphens (state-of-the-art), decimal points and thousands separators (1,000.5)</li>
+ * <li>contractions are split following the Penn Treebank conventions: don't gives do n't, we're gives we 're, John's gives John 's</li>
+ * <li>abbreviations keep their final period, for the known ones (Mr., etc.) and for initials (U.S., e.g.)</li>
+ * <li>urls and emails are returned as a single content</li>
+ * </ul>
+ */
+public class EnglishTokenizer extends AbstractTokenizer {
+
+    private static final byte SPACE = 0;
+    private static final byte LETTER = 1;
+    private static final byte DIGIT = 2;
+    private static final byte PUNCTUATION = 3;
+
+    private static final byte[] ASCII_CLASSES = new byte[128];
+
+    static {
+        for (char c = 0; c < 128; c++) {
+            if (c <= ' ') {
+                ASCII_CLASSES[c] = SPACE;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                ASCII_CLASSES[c] = LETTER;
+            } else if (c >= '0' && c <= '9') {
+                ASCII_CLASSES[c] = DIGIT;
+            } else {
+                ASCII_CLASSES[c] = PUNCTUATION;
+            }
+        }
+        ASCII_CLASSES[127] = SPACE;
+    }
+
+    /**
+     * Abbreviations keeping their final period, in lower case
+     */
+    private static final String[] ABBREVIATIONS = {
+            "mr", "mrs", "ms", "dr", "prof", "sr", "jr", "st", "vs", "etc", "inc", "ltd", "corp", "dept",
+            "fig", "vol", "approx", "jan", "feb", "mar", "apr", "jun", "jul", "aug", "sep", "sept",
+            "oct", "nov", "dec", "mt", "ave", "gen", "gov", "sen", "rep", "capt", "lt", "col", "sgt"
+    };
+
+    private static final int LONGEST_ABBREVIATION = 6;
+
+    /**
+     * Contractions split from the word they end, in lower case and with a straight apostrophe
+     */
+    private static final String[] CLITICS = {"n't", "'s", "'m", "'re", "'ve", "'ll", "'d"};
+
+    private static final String[] URL_PREFIXES = {"http://", "https://", "ftp://", "www."};
+
+    @Override
+    public List<Token> tokenize(Reader reader) throws IOException {
+        TokenCollector collector = new TokenCollector();
+        tokenize(reader, collector);
+        return collector.getTokens();
+    }
+
+    @Override
+    public void tokenize(Reader reader, TokenSink sink) throws IOException {
+        sink = preprocess(sink);
+        StringBuilder sb = new StringBuilder();
+        new CharWindow(reader).appendAll(sb);
+        char[] source = new char[sb.length()];
+        sb.getChars(0, source.length, source, 0);
+        NumberParser numbers = numberParser();
+        int length = source.length;
+        int i = 0;
+        while (i < length) {
+            byte type = classOf(source[i]);
+            if (type == SPACE) {
+                i++;
+            } else if (type == PUNCTUATION) {
+                int end = i + 1;
+                while (end < length && classOf(source[end]) == PUNCTUATION) {
+                    end++;
+                }
+                sink.onDelimiter(source, i, end - i);
+                i = end;
+            } else {
+                int end = urlEnd(source, i, length);
+                if (end == i) {
+                    end = wordEnd(source, i, length);
+                    if (end < length && isEmailChar(source[end])) {
+                        int email = emailEnd(source, i, length);
+                        if (email != i) {
+                            sink.onContent(source, i, email - i);
+                            i = email;
+                            continue;
+                        }
+                    }
+                    end = abbreviationEnd(source, i, end, length);
+                    int clitic = cliticStart(source, i, end);
+                    if (clitic != end) {
+                        pushWord(source, i, clitic - i, numbers, sink);
+                        sink.onContent(source, clitic, end - clitic);
+                    } else {
+                        pushWord(source, i, end - i, numbers, sink);
+                    }
+                } else {
+                    sink.onContent(source, i, end - i);
+                }
+                i = end;
+            }
+        }
+    }
+
+    private static byte classOf(char c) {
+        if (c < 128) {
+            return ASCII_CLASSES[c];
+        }
+        if (Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK || Character.getType(c) == Character.COMBINING_SPACING_MARK) {
+            return LETTER;
+        }
+        if (Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+            return SPACE;
+        }
+        return PUNCTUATION;
+    }
+
+    private static boolean isApostrophe(char c) {
+        return c == '\'' || c == '\u2019';
+    }
+
+    private static boolean isWordChar(char c) {
+        byte type = classOf(c);
+        return type == LETTER || type == DIGIT;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    /**
+     * @return the end of the word starting at start, including its inner hyphens, apostrophes and number separators
+     */
+    private static int wordEnd(char[] source, int start, int length) {
+        int end = start;
+        while (true) {
+            while (end < length && isWordChar(source[end])) {
+                end++;
+            }
+            if (end + 1 >= length || !isWordChar(source[end + 1])) {
+                return end;
+            }
+            char c = source[end];
+            if (c == '-' || isApostrophe(c)) {
+                end++;
+            } else if (c == '.' && isDigit(source[end - 1]) && isDigit(source[end + 1])) {
+                end++;
+            } else if (c == ',' && isDigit(source[end - 1]) && isThousands(source, end + 1, length)) {
+                end++;
+            } else {
+                return end;
+            }
+        }
+    }
+
+    /**
+     * @return whether exactly three digits start at from
+     */
+    private static boolean isThousands(char[] source, int from, int length) {
+        return from + 3 <= length && isDigit(source[from]) && isDigit(source[from + 1]) && isDigit(source[from + 2])
+                && (from + 3 == length || !isWordChar(source[from + 3]));
+    }
+
+    /**
+     * @return the end of the word including its final period if it is an abbreviation
+     */
+    private static int abbreviationEnd(char[] source, int start, int end, int length) {
+        if (end >= length || source[end] != '.') {
+            return end;
+        }
+        if (end == start + 1) {
+            // initials, single letters each followed by a period
+            int index = end + 1;
+            while (index + 1 < length && classOf(source[index]) == LETTER && source[index + 1] == '.') {
+                index += 2;
+            }
+            if (index != end + 1) {
+                return index;
+            }
+        }
+        int wordLength = end - start;
+        if (wordLength <= LONGEST_ABBREVIATION) {
+            for (int i = 0; i < ABBREVIATIONS.length; i++) {
+                if (equalsIgnoreCase(ABBREVIATIONS[i], source, start, wordLength)) {
+                    return end + 1;
+                }
+            }
+        }
+        return end;
+    }
+
+    /**
+     * @return the start of the contraction ending the word, or end if the word does not end by one
+     */
+    private static int cliticStart(char[] source, int start, int end) {
+        for (int i = 0; i < CLITICS.length; i++) {
+            String clitic = CLITICS[i];
+            int cliticStart = end - clitic.length();
+            if (cliticStart > start && equalsIgnoreCase(clitic, source, cliticStart, clitic.length())) {
+                return cliticStart;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Compare a lower case word with characters of the source, apostrophes matching both the straight and the typographic one
+     */
+    private static boolean equalsIgnoreCase(String word, char[] source, int offset, int length) {
+        if (word.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            char expected = word.charAt(i);
+            char c = source[offset + i];
+            if (expected == '\'' ? !isApostrophe(c) : Character.toLowerCase(c) != expected) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the end of the url starting at start, or start if no url starts there
+     */
+    private static int urlEnd(char[] source, int start, int length) {
+        char first = Character.toLowerCase(source[start]);
+        if (first != 'h' && first != 'f' && first != 'w') {
+            return start;
+        }
+        boolean url = false;
+        for (int i = 0; i < URL_PREFIXES.length && !url; i++) {
+            String prefix = URL_PREFIXES[i];
+            url = start + prefix.length() < length && equalsIgnoreCase(prefix, source, start, prefix.length());
+        }
+        if (!url) {
+            return start;
+        }
+        int end = start;
+        boolean parenthesis = false;
+        while (end < length && classOf(source[end]) != SPACE && source[end] != '<' && source[end] != '>' && source[end] != '"') {
+            parenthesis |= source[end] == '(';
+            end++;
+        }
+        // trailing punctuation belongs to the sentence
+        while (end > start) {
+            char last = source[end - 1];
+            if (last == '.' || last == ',' || last == ';' || last == ':' || last == '!' || last == '?' || isApostrophe(last) || (last == ')' && !parenthesis)) {
+                end--;
+            } else {
+                break;
+            }
+        }
+        return end;
+    }
+
+    private static boolean isEmailChar(char c) {
+        return c == '@' || c == '.' || c == '_' || c == '+' || c == '-' || c == '%';
+    }
+
+    /**
+     * @return the end of the email starting at start, or start if no email starts there
+     */
+    private static int emailEnd(char[] source, int start, int length) {
+        int at = start;
+        while (at < length && (source[at] < 128 && (isWordChar(source[at]) || (isEmailChar(source[at]) && source[at] != '@')))) {
+            at++;
+        }
+        if (at == start || at + 1 >= length || source[at] != '@') {
+            return start;
+        }
+        int end = at + 1;
+        int labels = 0;
+        int labelStart = end;
+        while (end < length) {
+            char c = source[end];
+            if (c < 128 && (isWordChar(c) || c == '-')) {
+                end++;
+            } else if (c == '.' && end > labelStart && end + 1 < length && source[end + 1] < 128 && isWordChar(source[end + 1])) {
+                labels++;
+                end++;
+                labelStart = end;
+            } else {
+                break;
+            }
+        }
+        return labels == 0 || end == labelStart ? start : end;
+    }
+
+    @Override
+    public byte getType() {
+        return PawConstants.ENGLISH_TOKENIZER;
+    }
+}
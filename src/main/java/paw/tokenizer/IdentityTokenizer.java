@@ -16,10 +16,9 @@
 package paw.tokenizer;
 
 import paw.PawConstants;
-import paw.tokenizer.token.ContentT;
-import paw.tokenizer.token.NumberT;
 import paw.tokenizer.token.Token;
-import paw.tokenizer.utils.Utils;
+import paw.tokenizer.utils.CharWindow;
+import paw.tokenizer.utils.NumberParser;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -30,11 +29,7 @@ public class IdentityTokenizer extends AbstractTokenizer {
     @Override
     public List<Token> tokenize(Reader reader) throws IOException {
         StringBuilder sw = new StringBuilder();
-        int ch = reader.read();
-        while (ch != -1) {
-            sw.append((char) ch);
-            ch = reader.read();
-        }
+        new CharWindow(reader).appendAll(sw);
         return tokenize(sw.toString());
     }
 
@@ -42,15 +37,8 @@ public class IdentityTokenizer extends AbstractTokenizer {
     public List<Token> tokenize(String s) {
         List<Token> tokens = new ArrayList<>(1);
         if (s.length() != 0) {
-            if (Utils.isNumericArray(s) && !s.startsWith("0")) {
-                int number = Integer.parseInt(s);
-                tokens.add(new NumberT(number));
-                return tokens;
-
-            } else {
-                tokens.add(new ContentT(s));
-                return tokens;
-            }
+            tokens.add(wordToken(s, numberParser()));
+            return preprocess(tokens);
         } else {
             return null;
         }
@@ -20,10 +20,10 @@ import com.github.javaparser.JavaToken;
 import com.github.javaparser.ParseResult;
 import com.github.javaparser.ast.CompilationUnit;
 import paw.PawConstants;
-import paw.tokenizer.token.ContentT;
-import paw.tokenizer.token.NumberT;
+import paw.tokenizer.java.JavaScanner;
 import paw.tokenizer.token.Token;
-import paw.tokenizer.utils.Utils;
+import paw.tokenizer.utils.CharWindow;
+import paw.tokenizer.utils.NumberParser;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -35,26 +35,63 @@ import static com.github.javaparser.Providers.provider;
 
 public class JavaTokenizer extends AbstractTokenizer {
 
+    private final boolean lexerOnly;
+
+    /**
+     * Tokenizer parsing the files, no token being returned for a file that does not parse
+     */
+    public JavaTokenizer() {
+        this(false);
+    }
+
+    /**
+     * @param lexerOnly whether the tokens are read by a scanner without parsing the file, which is much faster and tolerates invalid files
+     */
+    public JavaTokenizer(boolean lexerOnly) {
+        this.lexerOnly = lexerOnly;
+    }
 
     @Override
     public List<Token> tokenize(Reader reader) throws IOException {
+        if (lexerOnly) {
+            TokenCollector collector = new TokenCollector();
+            tokenize(reader, collector);
+            return collector.getTokens();
+        }
         JavaParser jp = new JavaParser(JavaParser.getStaticConfiguration());
         ParseResult<CompilationUnit> result = jp.parse(COMPILATION_UNIT, provider(reader));
         List<Token> tokens = new ArrayList<>();
         if (result.isSuccessful()) {
+            NumberParser numbers = numberParser();
             List<JavaToken> l = result.getTokens().get();
             for (int i = 0; i < l.size(); i++) {
                 JavaToken jt = l.get(i);
-                String res = jt.getText();
-                if (Utils.isNumericArray(res) && !res.startsWith("0")) {
-                    int number = Integer.parseInt(res);
-                    tokens.add(new NumberT(number));
-                } else {
-                    tokens.add(new ContentT(res));
-                }
+                tokens.add(wordToken(jt.getText(), numbers));
             }
         }
-        return tokens;
+        return preprocess(tokens);
+    }
+
+    @Override
+    public void tokenize(Reader reader, TokenSink sink) throws IOException {
+        if (!lexerOnly) {
+            super.tokenize(reader, sink);
+            return;
+        }
+        sink = preprocess(sink);
+        StringBuilder sb = new StringBuilder();
+        new CharWindow(reader).appendAll(sb);
+        JavaScanner scanner = new JavaScanner(sb.toString());
+        char[] source = scanner.source();
+        NumberParser numbers = numberParser();
+        while (scanner.next()) {
+            pushWord(source, scanner.start(), scanner.end() - scanner.start(), numbers, sink);
+        }
+    }
+
+    @Override
+    protected String settings() {
+        return lexerOnly ? "lexerOnly" : "";
     }
 
     @Override
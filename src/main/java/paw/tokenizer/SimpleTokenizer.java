@@ -16,10 +16,11 @@
 package paw.tokenizer;
 
 import paw.PawConstants;
-import paw.tokenizer.token.ContentT;
-import paw.tokenizer.token.NumberT;
 import paw.tokenizer.token.Token;
-import paw.tokenizer.utils.Utils;
+import paw.tokenizer.utils.CharClass;
+import paw.tokenizer.utils.CharWindow;
+import paw.tokenizer.utils.NumberParser;
+import paw.tokenizer.utils.TokenBuilder;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -28,42 +29,37 @@ import java.util.List;
 
 @SuppressWarnings("Duplicates")
 public class SimpleTokenizer extends AbstractTokenizer {
+
+    private static final CharClass SPACE = Character::isSpaceChar;
+
     @Override
     public List<Token> tokenize(Reader reader) throws IOException {
-        final List<Token> tokens = new ArrayList<>();
-        int ch;
-        StringBuilder sw = new StringBuilder();
-        while ((ch = reader.read()) != -1) {
-            if (!Character.isSpaceChar((char) ch)) {
-                sw.append((char) ch);
-            } else {
-                if (sw.length() > 0) {
-                    String s = sw.toString();
-                    if (Utils.isNumericArray(s) && !s.startsWith("0")) {
-                        int number = Integer.parseInt(s);
-                        tokens.add(new NumberT(number));
-                    } else {
-                        tokens.add(new ContentT(s));
-                    }
-                    sw = new StringBuilder();
-                }
-            }
-        }
-        if (sw.length() != 0) {
-            String s = sw.toString();
-            if (Utils.isNumericArray(s) && !s.startsWith("0")) {
-                int number = Integer.parseInt(s);
-                tokens.add(new NumberT(number));
+        TokenCollector collector = new TokenCollector();
+        tokenize(reader, collector);
+        return collector.getTokens();
+    }
 
-            } else {
-                tokens.add(new ContentT(s));
+    @Override
+    public void tokenize(Reader reader, TokenSink sink) throws IOException {
+        sink = preprocess(sink);
+        CharWindow window = new CharWindow(reader);
+        NumberParser numbers = numberParser();
+        TokenBuilder word = new TokenBuilder();
+        while (window.hasNext()) {
+            window.skipRun(SPACE, true);
+            if (window.appendRun(SPACE, false, word) != 0) {
+                pushWord(word.chars(), 0, word.length(), numbers, sink);
+                word.clear();
             }
         }
-        return tokens;
     }
 
     @Override
     public List<Token> tokenize(String s) {
+        if (!getPreprocessors().isEmpty()) {
+            return super.tokenize(s);
+        }
+        NumberParser numbers = numberParser();
         final List<Token> tokens = new ArrayList<>();
         int i = 0;
         StringBuilder sw = new StringBuilder();
@@ -73,12 +69,7 @@ public class SimpleTokenizer extends AbstractTokenizer {
             } else {
                 if (sw.length() > 0) {
                     String res = sw.toString();
-                    if (Utils.isNumericArray(res) && !res.startsWith("0")) {
-                        int number = Integer.parseInt(res);
-                        tokens.add(new NumberT(number));
-                    } else {
-                        tokens.add(new ContentT(res));
-                    }
+                    tokens.add(wordToken(res, numbers));
                     sw = new StringBuilder();
                 }
             }
@@ -86,13 +77,7 @@ public class SimpleTokenizer extends AbstractTokenizer {
         }
         if (sw.length() != 0) {
             String res = sw.toString();
-            if (Utils.isNumericArray(res) && !res.startsWith("0")) {
-                int number = Integer.parseInt(res);
-                tokens.add(new NumberT(number));
-
-            } else {
-                tokens.add(new ContentT(res));
-            }
+            tokens.add(wordToken(res, numbers));
         }
         return tokens;
     }
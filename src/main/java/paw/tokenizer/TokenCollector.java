@@ -0,0 +1,56 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer;
+
+import paw.tokenizer.token.ContentT;
+import paw.tokenizer.token.DelimiterT;
+import paw.tokenizer.token.NumberT;
+import paw.tokenizer.token.Token;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sink collecting the tokens in a list
+ */
+public class TokenCollector implements TokenSink {
+
+    private final List<Token> tokens = new ArrayList<>();
+
+    @Override
+    public void onContent(char[] chars, int offset, int length) {
+        tokens.add(new ContentT(new String(chars, offset, length)));
+    }
+
+    @Override
+    public void onNumber(int number) {
+        tokens.add(new NumberT(number));
+    }
+
+    @Override
+    public void onNumber(long unscaled, int scale, int leadingZeros) {
+        tokens.add(new NumberT(unscaled, scale, leadingZeros));
+    }
+
+    @Override
+    public void onDelimiter(char[] chars, int offset, int length) {
+        tokens.add(new DelimiterT(new String(chars, offset, length)));
+    }
+
+    public List<Token> getTokens() {
+        return tokens;
+    }
+}
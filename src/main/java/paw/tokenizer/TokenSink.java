@@ -0,0 +1,50 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer;
+
+import paw.tokenizer.token.NumberT;
+
+/**
+ * Receiver of the tokens of a content, in the order they are produced by a tokenizer.
+ * Character arrays are only valid during the call, they are reused by the tokenizer afterwards.
+ */
+public interface TokenSink {
+
+    /**
+     * @param chars  buffer holding the content, in its original casing
+     * @param offset of the first character of the content
+     * @param length of the content
+     */
+    void onContent(char[] chars, int offset, int length);
+
+    void onNumber(int number);
+
+    /**
+     * Number that is not a plain int, its value being unscaled / 10^scale written with a number of extra leading zeros.
+     * Sinks that do not handle such numbers receive them as contents.
+     */
+    default void onNumber(long unscaled, int scale, int leadingZeros) {
+        char[] chars = new NumberT(unscaled, scale, leadingZeros).getToken().toCharArray();
+        onContent(chars, 0, chars.length);
+    }
+
+    /**
+     * @param chars  buffer holding the delimiter
+     * @param offset of the first character of the delimiter
+     * @param length of the delimiter
+     */
+    void onDelimiter(char[] chars, int offset, int length);
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer;
+
+import paw.PawConstants;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+/**
+ * Registry of the tokenizers by type, as returned by {@link AbstractTokenizer#getType()}.
+ * Each thread gets its own instance of a type, created on first use and reused afterwards, so that heavy tokenizers are only built once per thread.
+ * Instances returned by the registry are shared by all the users of a thread and cannot be reconfigured, a configured tokenizer being registered with its own factory instead.
+ */
+public final class TokenizerRegistry {
+
+    private static final int TYPES = 256;
+
+    private static final AtomicReferenceArray<Supplier<AbstractTokenizer>> FACTORIES = new AtomicReferenceArray<>(TYPES);
+
+    /**
+     * Instances of the current thread, with the factory that built each of them so that a replaced factory is noticed
+     */
+    private static final ThreadLocal<Object[]> INSTANCES = ThreadLocal.withInitial(() -> new Object[TYPES * 2]);
+
+    static {
+        register(PawConstants.IDENTITY_TOKENIZER, IdentityTokenizer::new);
+        register(PawConstants.SIMPLE_TOKENIZER, SimpleTokenizer::new);
+        register(PawConstants.UTF_TOKENIZER, UTFTokenizer::new);
+        register(PawConstants.TWITTER_TOKENIZER, TwitterTokenizer::new);
+        register(PawConstants.JAVA_TOKENIZER, JavaTokenizer::new);
+        register(PawConstants.CPP_TOKENIZER, CPPTokenizer::new);
+        register(PawConstants.ENGLISH_TOKENIZER, EnglishTokenizer::new);
+        register(PawConstants.C_TOKENIZER, CTokenizer::new);
+    }
+
+    private TokenizerRegistry() {
+    }
+
+    /**
+     * Method to register the factory of a type of tokenizer, replacing the previous one
+     *
+     * @param type    of the tokenizer
+     * @param factory building a new instance of the tokenizer
+     */
+    public static void register(byte type, Supplier<AbstractTokenizer> factory) {
+        FACTORIES.set(type & 0xFF, factory);
+    }
+
+    /**
+     * @return whether a factory is registered for the type
+     */
+    public static boolean isRegistered(byte type) {
+        return FACTORIES.get(type & 0xFF) != null;
+    }
+
+    /**
+     * Method to get the tokenizer of the current thread for a type
+     *
+     * @param type of the tokenizer
+     * @return the tokenizer, whose wide numbers and preprocessors cannot be changed
+     * @throws IllegalArgumentException if no factory is registered for the type
+     */
+    public static AbstractTokenizer get(byte type) {
+        int index = type & 0xFF;
+        Supplier<AbstractTokenizer> factory = FACTORIES.get(index);
+        if (factory == null) {
+            throw new IllegalArgumentException("no tokenizer registered for type " + type);
+        }
+        Object[] instances = INSTANCES.get();
+        if (instances[index * 2 + 1] != factory) {
+            AbstractTokenizer tokenizer = factory.get();
+            tokenizer.share();
+            instances[index * 2] = tokenizer;
+            instances[index * 2 + 1] = factory;
+        }
+        return (AbstractTokenizer) instances[index * 2];
+    }
+}
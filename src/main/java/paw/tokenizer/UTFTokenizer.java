@@ -16,11 +16,12 @@
 package paw.tokenizer;
 
 import paw.PawConstants;
-import paw.tokenizer.token.ContentT;
 import paw.tokenizer.token.DelimiterT;
-import paw.tokenizer.token.NumberT;
 import paw.tokenizer.token.Token;
-import paw.tokenizer.utils.Utils;
+import paw.tokenizer.utils.CharClass;
+import paw.tokenizer.utils.CharWindow;
+import paw.tokenizer.utils.NumberParser;
+import paw.tokenizer.utils.TokenBuilder;
 
 import java.io.IOException;
 import java.io.Reader;
@@ -29,50 +30,47 @@ import java.util.List;
 
 @SuppressWarnings("Duplicates")
 public class UTFTokenizer extends AbstractTokenizer {
+
+    private static final CharClass WORD = c -> Character.isLetterOrDigit(c) || Character.getType(c) == Character.NON_SPACING_MARK || Character.getType(c) == Character.COMBINING_SPACING_MARK;
+
     @Override
     public List<Token> tokenize(Reader reader) throws IOException {
-        List<Token> tokens = new ArrayList<>();
-        int ch = reader.read();
-        StringBuilder sw;
-        String s;
-        while (ch != -1) {
+        TokenCollector collector = new TokenCollector();
+        tokenize(reader, collector);
+        return collector.getTokens();
+    }
+
+    @Override
+    public void tokenize(Reader reader, TokenSink sink) throws IOException {
+        sink = preprocess(sink);
+        CharWindow window = new CharWindow(reader);
+        NumberParser numbers = numberParser();
+        TokenBuilder sw = new TokenBuilder();
+        while (window.hasNext()) {
         /*
          * Delimiters
          */
-            sw = new StringBuilder();
-
-            while (ch != -1 && !(Character.isLetterOrDigit((char) ch) || Character.getType((char) ch) == Character.NON_SPACING_MARK || Character.getType((char) ch) == Character.COMBINING_SPACING_MARK)
-                    ) {
-                sw.append(ch);
-                ch = reader.read();
-            }
-            s = sw.toString();
-            if (!s.trim().isEmpty()) {
-                tokens.add(new DelimiterT(s));
+            window.appendRun(WORD, false, sw);
+            if (!sw.isBlank()) {
+                sink.onDelimiter(sw.chars(), 0, sw.length());
             }
+            sw.clear();
             /*
               ContentT
              */
-            sw = new StringBuilder();
-            while (ch != -1 && (Character.isLetterOrDigit((char) ch) || Character.getType((char) ch) == Character.NON_SPACING_MARK || Character.getType((char) ch) == Character.COMBINING_SPACING_MARK)) {
-                sw.append((char) ch);
-                ch = reader.read();
-            }
-            s = sw.toString();
-            if (s.length() != 0) {
-                if (Utils.isNumericArray(s) && !s.startsWith("0")) {
-                    int number = Integer.parseInt(s);
-                    tokens.add(new NumberT(number));
-                } else {
-                    tokens.add(new ContentT(s));
-                }
+            if (window.appendRun(WORD, true, sw) != 0) {
+                pushWord(sw.chars(), 0, sw.length(), numbers, sink);
+                sw.clear();
             }
         }
-        return tokens;
     }
 
     @Override
     public List<Token> tokenize(String s) {
+        if (!getPreprocessors().isEmpty()) {
+            return super.tokenize(s);
+        }
+        NumberParser numbers = numberParser();
         List<Token> tokens = new ArrayList<>();
         int i = 0;
         StringBuilder sw;
@@ -101,12 +99,7 @@ public class UTFTokenizer extends AbstractTokenizer {
             }
             res = sw.toString();
             if (res.length() != 0) {
-                if (Utils.isNumericArray(res) && !res.startsWith("0")) {
-                    int number = Integer.parseInt(res);
-                    tokens.add(new NumberT(number));
-                } else {
-                    tokens.add(new ContentT(res));
-                }
+                tokens.add(wordToken(res, numbers));
             }
         }
         return tokens;
@@ -0,0 +1,263 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.c;
+
+import java.util.Arrays;
+
+/**
+ * Hand written scanner of C source code, splitting it in the tokens of the language as the C++ lexer does, without its grammar.
+ * Whitespaces, line splices and comments are skipped; a preprocessor directive, with its continuation lines, is a single token.
+ * Malformed input never fails: unterminated literals and comments end with the line or the file, unknown characters are returned alone.
+ */
+public class CScanner {
+
+    /**
+     * Punctuators of more than one character, longest first, digraphs and the C23 attribute scope included
+     */
+    private static final String[] PUNCTUATORS = {
+            "%:%:", "...", "<<=", ">>=", "->", "++", "--", "<<", ">>", "<=", ">=", "==", "!=", "&&", "||", "::",
+            "*=", "/=", "%=", "+=", "-=", "&=", "^=", "|=", "##", "<:", ":>", "<%", "%>", "%:"
+    };
+
+    /**
+     * Punctuators by their first character, longest first, so that a single character punctuator is found without trying all of them
+     */
+    private static final char[][][] PUNCTUATORS_BY_FIRST_CHAR = new char[128][][];
+
+    static {
+        for (String punctuator : PUNCTUATORS) {
+            char first = punctuator.charAt(0);
+            char[][] candidates = PUNCTUATORS_BY_FIRST_CHAR[first];
+            candidates = candidates == null ? new char[1][] : Arrays.copyOf(candidates, candidates.length + 1);
+            candidates[candidates.length - 1] = punctuator.toCharArray();
+            PUNCTUATORS_BY_FIRST_CHAR[first] = candidates;
+        }
+    }
+
+    private final char[] source;
+    private final int length;
+    private int start = 0;
+    private int end = 0;
+    private boolean directive = false;
+
+    public CScanner(char[] source, int length) {
+        this.source = source;
+        this.length = length;
+    }
+
+    public CScanner(String source) {
+        this(source.toCharArray(), source.length());
+    }
+
+    public char[] source() {
+        return source;
+    }
+
+    /**
+     * @return offset of the current token
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return offset following the current token
+     */
+    public int end() {
+        return end;
+    }
+
+    /**
+     * @return whether the current token is a preprocessor directive
+     */
+    public boolean isDirective() {
+        return directive;
+    }
+
+    public String text() {
+        return new String(source, start, end - start);
+    }
+
+    /**
+     * Move to the next token
+     *
+     * @return false once the end of the source is reached
+     */
+    public boolean next() {
+        start = skipIgnored(end);
+        directive = false;
+        if (start >= length) {
+            end = length;
+            return false;
+        }
+        char c = source[start];
+        if (c == '#' && at(start + 1) != '#') {
+            directive = true;
+            end = directiveEnd(start + 1);
+        } else if (c == '"' || c == '\'') {
+            end = quotedEnd(start + 1, c);
+        } else if (isDigit(c) || (c == '.' && isDigit(at(start + 1)))) {
+            end = numberEnd(start);
+        } else if (isIdentifierStart(c)) {
+            end = start + 1;
+            while (end < length && isIdentifierPart(source[end])) {
+                end++;
+            }
+            char quote = at(end);
+            if ((quote == '"' || quote == '\'') && isLiteralPrefix(start, end)) {
+                end = quotedEnd(end + 1, quote);
+            }
+        } else {
+            end = start + punctuatorLength(start);
+        }
+        return true;
+    }
+
+    private char at(int index) {
+        return index < length ? source[index] : 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isIdentifierStart(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_' || c == '$' || (c >= 128 && Character.isLetter(c));
+    }
+
+    private static boolean isIdentifierPart(char c) {
+        return isIdentifierStart(c) || isDigit(c) || (c >= 128 && Character.isLetterOrDigit(c));
+    }
+
+    /**
+     * @return whether the identifier [from, to[ is the encoding prefix of a character or string literal: L, u, U or u8
+     */
+    private boolean isLiteralPrefix(int from, int to) {
+        char first = source[from];
+        if (to - from == 1) {
+            return first == 'L' || first == 'u' || first == 'U';
+        }
+        return to - from == 2 && first == 'u' && source[from + 1] == '8';
+    }
+
+    /**
+     * @return the offset of the first character that is not a whitespace, a line splice or a comment
+     */
+    private int skipIgnored(int from) {
+        int index = from;
+        while (index < length) {
+            char c = source[index];
+            if (c == '\\' && (at(index + 1) == '\n' || at(index + 1) == '\r')) {
+                index += at(index + 1) == '\r' && at(index + 2) == '\n' ? 3 : 2;
+            } else if (c == '/' && at(index + 1) == '/') {
+                index = lineEnd(index + 2);
+            } else if (c == '/' && at(index + 1) == '*') {
+                index = commentEnd(index + 2);
+            } else if (c <= ' ' || Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+                index++;
+            } else {
+                return index;
+            }
+        }
+        return length;
+    }
+
+    private int lineEnd(int from) {
+        int index = from;
+        while (index < length && source[index] != '\n' && source[index] != '\r') {
+            index++;
+        }
+        return index;
+    }
+
+    /**
+     * @return the end of the line of the directive, continuation lines being part of it
+     */
+    private int directiveEnd(int from) {
+        int index = lineEnd(from);
+        while (index < length && index > from && source[index - 1] == '\\') {
+            index = lineEnd(index + (source[index] == '\r' && at(index + 1) == '\n' ? 2 : 1));
+        }
+        return index;
+    }
+
+    private int commentEnd(int from) {
+        int index = from;
+        while (index < length) {
+            if (source[index] == '*' && at(index + 1) == '/') {
+                return index + 2;
+            }
+            index++;
+        }
+        return length;
+    }
+
+    private int quotedEnd(int from, char quote) {
+        int index = from;
+        while (index < length) {
+            char c = source[index];
+            if (c == quote) {
+                return index + 1;
+            }
+            if (c == '\n' || c == '\r') {
+                return index;
+            }
+            index += c == '\\' ? 2 : 1;
+        }
+        return length;
+    }
+
+    /**
+     * @return the end of the preprocessing number starting at from, suffixes and exponents included
+     */
+    private int numberEnd(int from) {
+        int index = from + 1;
+        while (index < length) {
+            char c = source[index];
+            if (c == '+' || c == '-') {
+                char previous = source[index - 1];
+                if (previous != 'e' && previous != 'E' && previous != 'p' && previous != 'P') {
+                    break;
+                }
+            } else if (c != '.' && !isIdentifierPart(c)) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    private int punctuatorLength(int from) {
+        char first = source[from];
+        char[][] candidates = first < 128 ? PUNCTUATORS_BY_FIRST_CHAR[first] : null;
+        if (candidates == null) {
+            return 1;
+        }
+        for (int i = 0; i < candidates.length; i++) {
+            char[] punctuator = candidates[i];
+            if (from + punctuator.length <= length) {
+                int j = 1;
+                while (j < punctuator.length && source[from + j] == punctuator[j]) {
+                    j++;
+                }
+                if (j == punctuator.length) {
+                    return j;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,197 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.java;
+
+/**
+ * Hand written scanner of Java source code, splitting it in the tokens of the language without building any syntax tree.
+ * Whitespaces are returned one character per token, line terminators and comments as single tokens, a single line comment including its line terminator.
+ * Malformed input never fails: unterminated literals and comments end with the line or the file, unknown characters are returned alone.
+ */
+public class JavaScanner {
+
+    /**
+     * Operators of more than one character, longest first.
+     * Right shifts are left as successive '>' tokens, as closing type arguments cannot be told apart without parsing.
+     */
+    private static final String[] OPERATORS = {
+            ">>>=", "<<=", ">>=", "...", "->", "::", "==", "<=", ">=", "!=", "&&", "||", "++", "--",
+            "+=", "-=", "*=", "/=", "&=", "|=", "^=", "%=", "<<"
+    };
+
+    private final char[] source;
+    private final int length;
+    private int start = 0;
+    private int end = 0;
+
+    public JavaScanner(char[] source, int length) {
+        this.source = source;
+        this.length = length;
+    }
+
+    public JavaScanner(String source) {
+        this(source.toCharArray(), source.length());
+    }
+
+    public char[] source() {
+        return source;
+    }
+
+    /**
+     * @return offset of the current token
+     */
+    public int start() {
+        return start;
+    }
+
+    /**
+     * @return offset following the current token
+     */
+    public int end() {
+        return end;
+    }
+
+    public String text() {
+        return new String(source, start, end - start);
+    }
+
+    /**
+     * Move to the next token
+     *
+     * @return false once the end of the source is reached
+     */
+    public boolean next() {
+        start = end;
+        if (start >= length) {
+            return false;
+        }
+        char c = source[start];
+        if (c == '\r') {
+            end = start + 1 < length && source[start + 1] == '\n' ? start + 2 : start + 1;
+        } else if (c == '\n' || Character.isWhitespace(c) || Character.isSpaceChar(c)) {
+            end = start + 1;
+        } else if (c == '/' && at(start + 1) == '/') {
+            int terminator = lineEnd(start + 2);
+            end = terminator < length ? terminator + (source[terminator] == '\r' && at(terminator + 1) == '\n' ? 2 : 1) : terminator;
+        } else if (c == '/' && at(start + 1) == '*') {
+            end = commentEnd(start + 2);
+        } else if (c == '"' && at(start + 1) == '"' && at(start + 2) == '"') {
+            end = textBlockEnd(start + 3);
+        } else if (c == '"' || c == '\'') {
+            end = quotedEnd(start + 1, c);
+        } else if (isDigit(c) || (c == '.' && isDigit(at(start + 1)))) {
+            end = numberEnd(start);
+        } else if (Character.isJavaIdentifierStart(c)) {
+            end = start + 1;
+            while (end < length && Character.isJavaIdentifierPart(source[end])) {
+                end++;
+            }
+        } else {
+            end = start + operatorLength(start);
+        }
+        return true;
+    }
+
+    private char at(int index) {
+        return index < length ? source[index] : 0;
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private int lineEnd(int from) {
+        int index = from;
+        while (index < length && source[index] != '\n' && source[index] != '\r') {
+            index++;
+        }
+        return index;
+    }
+
+    private int commentEnd(int from) {
+        int index = from;
+        while (index < length) {
+            if (source[index] == '*' && at(index + 1) == '/') {
+                return index + 2;
+            }
+            index++;
+        }
+        return length;
+    }
+
+    private int textBlockEnd(int from) {
+        int index = from;
+        while (index < length) {
+            if (source[index] == '\\') {
+                index += 2;
+            } else if (source[index] == '"' && at(index + 1) == '"' && at(index + 2) == '"') {
+                return index + 3;
+            } else {
+                index++;
+            }
+        }
+        return length;
+    }
+
+    private int quotedEnd(int from, char quote) {
+        int index = from;
+        while (index < length) {
+            char c = source[index];
+            if (c == quote) {
+                return index + 1;
+            }
+            if (c == '\n' || c == '\r') {
+                return index;
+            }
+            index += c == '\\' ? 2 : 1;
+        }
+        return length;
+    }
+
+    private int numberEnd(int from) {
+        int index = from;
+        boolean hexadecimal = source[from] == '0' && (at(from + 1) == 'x' || at(from + 1) == 'X');
+        while (index < length) {
+            char c = source[index];
+            if ((c == '+' || c == '-') && index > from) {
+                char previous = source[index - 1];
+                boolean exponent = hexadecimal ? (previous == 'p' || previous == 'P') : (previous == 'e' || previous == 'E');
+                if (!exponent) {
+                    break;
+                }
+            } else if (c != '.' && !(Character.isLetterOrDigit(c) || c == '_')) {
+                break;
+            }
+            index++;
+        }
+        return index;
+    }
+
+    private int operatorLength(int from) {
+        for (int i = 0; i < OPERATORS.length; i++) {
+            String operator = OPERATORS[i];
+            if (from + operator.length() <= length) {
+                int j = 0;
+                while (j < operator.length() && source[from + j] == operator.charAt(j)) {
+                    j++;
+                }
+                if (j == operator.length()) {
+                    return j;
+                }
+            }
+        }
+        return 1;
+    }
+}
@@ -0,0 +1,51 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.preprocessor;
+
+import paw.tokenizer.TokenSink;
+import paw.tokenizer.utils.TokenBuilder;
+
+/**
+ * Preprocessor converting the contents to lower case, contents already in lower case are forwarded without copy
+ */
+public class LowerCasePreprocessor implements TokenPreprocessor {
+
+    @Override
+    public TokenSink apply(TokenSink next) {
+        return new PreprocessingSink(next) {
+            private final TokenBuilder builder = new TokenBuilder();
+
+            @Override
+            public void onContent(char[] chars, int offset, int length) {
+                int end = offset + length;
+                int i = offset;
+                while (i < end && Character.toLowerCase(chars[i]) == chars[i]) {
+                    i++;
+                }
+                if (i == end) {
+                    next.onContent(chars, offset, length);
+                    return;
+                }
+                builder.clear();
+                builder.append(chars, offset, i - offset);
+                for (; i < end; i++) {
+                    builder.append(Character.toLowerCase(chars[i]));
+                }
+                next.onContent(builder.chars(), 0, builder.length());
+            }
+        };
+    }
+}
@@ -0,0 +1,60 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.preprocessor;
+
+import paw.tokenizer.TokenSink;
+import paw.tokenizer.utils.TokenBuilder;
+
+import java.nio.CharBuffer;
+import java.text.Normalizer;
+
+/**
+ * Preprocessor applying the Unicode NFKC normalization to the contents, so that compatibility variants (ligatures, full width forms...) share the same word.
+ * Ascii contents, which are always normalized, are forwarded without any check.
+ */
+public class NFKCPreprocessor implements TokenPreprocessor {
+
+    @Override
+    public TokenSink apply(TokenSink next) {
+        return new PreprocessingSink(next) {
+            private final TokenBuilder builder = new TokenBuilder();
+
+            @Override
+            public void onContent(char[] chars, int offset, int length) {
+                int end = offset + length;
+                int i = offset;
+                while (i < end && chars[i] < 0x80) {
+                    i++;
+                }
+                if (i == end) {
+                    next.onContent(chars, offset, length);
+                    return;
+                }
+                CharBuffer content = CharBuffer.wrap(chars, offset, length);
+                if (Normalizer.isNormalized(content, Normalizer.Form.NFKC)) {
+                    next.onContent(chars, offset, length);
+                    return;
+                }
+                String normalized = Normalizer.normalize(content, Normalizer.Form.NFKC);
+                builder.clear();
+                for (int j = 0; j < normalized.length(); j++) {
+                    builder.append(normalized.charAt(j));
+                }
+                next.onContent(builder.chars(), 0, builder.length());
+            }
+        };
+    }
+}
@@ -0,0 +1,76 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.preprocessor;
+
+import paw.tokenizer.TokenSink;
+
+/**
+ * Preprocessor replacing each number by the lower bound of its bucket, so that close numbers share the same token.
+ * Buckets are [k * width, (k + 1) * width[, decimals being first truncated to their integer part and leading zeros dropped.
+ */
+public class NumberBucketPreprocessor implements TokenPreprocessor {
+
+    private final long width;
+
+    /**
+     * @param width of a bucket, strictly positive
+     */
+    public NumberBucketPreprocessor(long width) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("bucket width must be strictly positive: " + width);
+        }
+        this.width = width;
+    }
+
+    /**
+     * @return the lower bound of the bucket of the number
+     */
+    public long bucket(long number) {
+        return Math.floorDiv(number, width) * width;
+    }
+
+    @Override
+    public String getConfiguration() {
+        return getClass().getName() + "(" + width + ")";
+    }
+
+    @Override
+    public TokenSink apply(TokenSink next) {
+        return new PreprocessingSink(next) {
+            @Override
+            public void onNumber(int number) {
+                push(bucket(number));
+            }
+
+            @Override
+            public void onNumber(long unscaled, int scale, int leadingZeros) {
+                long integerPart = unscaled;
+                for (int i = 0; i < scale; i++) {
+                    integerPart = Math.floorDiv(integerPart, 10);
+                }
+                push(bucket(integerPart));
+            }
+
+            private void push(long bucket) {
+                if (bucket == (int) bucket) {
+                    next.onNumber((int) bucket);
+                } else {
+                    next.onNumber(bucket, 0, 0);
+                }
+            }
+        };
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.preprocessor;
+
+import paw.tokenizer.TokenSink;
+
+/**
+ * Sink of a preprocessor, every token is forwarded unchanged to the next sink unless the method is overridden
+ */
+public abstract class PreprocessingSink implements TokenSink {
+
+    protected final TokenSink next;
+
+    protected PreprocessingSink(TokenSink next) {
+        this.next = next;
+    }
+
+    @Override
+    public void onContent(char[] chars, int offset, int length) {
+        next.onContent(chars, offset, length);
+    }
+
+    @Override
+    public void onNumber(int number) {
+        next.onNumber(number);
+    }
+
+    @Override
+    public void onNumber(long unscaled, int scale, int leadingZeros) {
+        next.onNumber(unscaled, scale, leadingZeros);
+    }
+
+    @Override
+    public void onDelimiter(char[] chars, int offset, int length) {
+        next.onDelimiter(chars, offset, length);
+    }
+}
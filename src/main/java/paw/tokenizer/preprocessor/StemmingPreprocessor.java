@@ -0,0 +1,77 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.preprocessor;
+
+import paw.tokenizer.TokenSink;
+import paw.tokenizer.utils.TokenBuilder;
+
+/**
+ * Preprocessor applying a light english stemming to the contents, based on the S-stemmer of Harman: plural forms are reduced to their singular.
+ * <ul>
+ * <li>ies becomes y (stories), unless preceded by a or e, the es rule then applying</li>
+ * <li>es becomes e, unless preceded by a, e or o (shoes are kept)</li>
+ * <li>s is removed, unless preceded by u or s (virus and class are kept)</li>
+ * </ul>
+ * Only the replacement of ies by y copies the content, the other rules shorten it in place.
+ */
+public class StemmingPreprocessor implements TokenPreprocessor {
+
+    /**
+     * @return the length of the stem of the characters [offset, offset + length[, or -(length + 1) of the part preceding ies when it has to be replaced by y
+     */
+    static int stemLength(char[] chars, int offset, int length) {
+        if (length < 3 || Character.toLowerCase(chars[offset + length - 1]) != 's') {
+            return length;
+        }
+        char beforeS = Character.toLowerCase(chars[offset + length - 2]);
+        if (beforeS == 'u' || beforeS == 's') {
+            return length;
+        }
+        if (beforeS == 'e') {
+            char beforeE = Character.toLowerCase(chars[offset + length - 3]);
+            if (beforeE == 'a' || beforeE == 'e' || beforeE == 'o' || (beforeE == 'i' && length <= 3)) {
+                return length;
+            }
+            if (beforeE == 'i') {
+                char beforeI = Character.toLowerCase(chars[offset + length - 4]);
+                return beforeI == 'a' || beforeI == 'e' ? length - 1 : -(length - 3) - 1;
+            }
+        }
+        return length - 1;
+    }
+
+    @Override
+    public TokenSink apply(TokenSink next) {
+        return new PreprocessingSink(next) {
+            private final TokenBuilder builder = new TokenBuilder();
+
+            @Override
+            public void onContent(char[] chars, int offset, int length) {
+                int stem = stemLength(chars, offset, length);
+                if (stem >= 0) {
+                    next.onContent(chars, offset, stem);
+                    return;
+                }
+                // ies replaced by y, keeping the case of the i
+                int prefix = -stem - 1;
+                builder.clear();
+                builder.append(chars, offset, prefix);
+                builder.append(Character.isUpperCase(chars[offset + prefix]) ? 'Y' : 'y');
+                next.onContent(builder.chars(), 0, builder.length());
+            }
+        };
+    }
+}
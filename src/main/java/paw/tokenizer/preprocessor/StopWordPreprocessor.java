@@ -0,0 +1,117 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.preprocessor;
+
+import paw.tokenizer.TokenSink;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.TreeSet;
+
+/**
+ * Preprocessor removing the contents belonging to a list of stop words.
+ * Words are matched exactly, a case folding preprocessor should be registered first for a case insensitive removal.
+ * The lookup is done on the characters of the content, without building a String.
+ */
+public class StopWordPreprocessor implements TokenPreprocessor {
+
+    /**
+     * Common english stop words
+     */
+    public static final String[] ENGLISH = {
+            "a", "an", "and", "are", "as", "at", "be", "but", "by", "for", "if", "in", "into", "is", "it",
+            "no", "not", "of", "on", "or", "such", "that", "the", "their", "then", "there", "these",
+            "they", "this", "to", "was", "will", "with"
+    };
+
+    private final char[][] table;
+    private final int mask;
+    private final String configuration;
+
+    public StopWordPreprocessor(String... stopWords) {
+        this(Arrays.asList(stopWords));
+    }
+
+    public StopWordPreprocessor(Collection<String> stopWords) {
+        TreeSet<String> sorted = new TreeSet<>(stopWords);
+        configuration = getClass().getName() + "(" + sorted.size() + " words, " + Integer.toHexString(sorted.hashCode()) + ")";
+        int size = Integer.highestOneBit(Math.max(1, stopWords.size()) * 2) * 2;
+        table = new char[size][];
+        mask = size - 1;
+        for (String word : stopWords) {
+            char[] chars = word.toCharArray();
+            int slot = slot(chars, 0, chars.length);
+            if (slot < 0) {
+                table[-slot - 1] = chars;
+            }
+        }
+    }
+
+    /**
+     * @return whether the characters [offset, offset + length[ are a stop word
+     */
+    public boolean isStopWord(char[] chars, int offset, int length) {
+        return slot(chars, offset, length) >= 0;
+    }
+
+    /**
+     * @return the slot of the word if it is in the table, or -(free slot + 1) otherwise
+     */
+    private int slot(char[] chars, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + chars[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        while (table[slot] != null) {
+            char[] word = table[slot];
+            if (word.length == length && regionEquals(word, chars, offset)) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -slot - 1;
+    }
+
+    private static boolean regionEquals(char[] word, char[] chars, int offset) {
+        for (int i = 0; i < word.length; i++) {
+            if (word[i] != chars[offset + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the name of the class with the number of stop words and a hash of them
+     */
+    @Override
+    public String getConfiguration() {
+        return configuration;
+    }
+
+    @Override
+    public TokenSink apply(TokenSink next) {
+        return new PreprocessingSink(next) {
+            @Override
+            public void onContent(char[] chars, int offset, int length) {
+                if (!isStopWord(chars, offset, length)) {
+                    next.onContent(chars, offset, length);
+                }
+            }
+        };
+    }
+}
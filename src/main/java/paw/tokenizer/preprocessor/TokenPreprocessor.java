@@ -0,0 +1,43 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.preprocessor;
+
+import paw.tokenizer.TokenSink;
+
+/**
+ * Normalization of the tokens, applied by a tokenizer while it produces them.
+ * Preprocessors registered on a tokenizer are chained, each one receiving the tokens forwarded by the previous one.
+ */
+public interface TokenPreprocessor {
+
+    /**
+     * A new sink is requested for each tokenization, so that it can hold buffers reused from one token to the next.
+     *
+     * @param next sink receiving the preprocessed tokens
+     * @return the sink preprocessing the tokens it receives
+     */
+    TokenSink apply(TokenSink next);
+
+    /**
+     * Description of the preprocessor and of its settings, part of the configuration of the tokenizers using it.
+     * Preprocessors with settings, or whose class has no stable name such as lambdas, have to override it.
+     *
+     * @return the name of the class of the preprocessor by default
+     */
+    default String getConfiguration() {
+        return getClass().getName();
+    }
+}
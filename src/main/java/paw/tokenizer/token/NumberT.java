@@ -17,17 +17,47 @@ package paw.tokenizer.token;
 
 import paw.PawConstants;
 
+/**
+ * Number token, its value being unscaled / 10^scale written with a number of extra leading zeros.
+ * Plain ints have neither scale nor leading zeros.
+ */
 public class NumberT implements Token {
 
-    private final int integer;
+    private final long unscaled;
+    private final int scale;
+    private final int leadingZeros;
 
     public NumberT(int integer) {
-        this.integer = integer;
+        this(integer, 0, 0);
+    }
+
+    public NumberT(long unscaled, int scale, int leadingZeros) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+        this.leadingZeros = leadingZeros;
     }
 
     @Override
     public String getToken() {
-        return String.valueOf(integer);
+        if (scale == 0 && leadingZeros == 0) {
+            return String.valueOf(unscaled);
+        }
+        StringBuilder sb = new StringBuilder();
+        if (unscaled < 0) {
+            sb.append('-');
+        }
+        for (int i = 0; i < leadingZeros; i++) {
+            sb.append('0');
+        }
+        StringBuilder digits = new StringBuilder().append(Math.abs(unscaled));
+        while (digits.length() <= scale) {
+            digits.insert(0, '0');
+        }
+        if (scale != 0) {
+            digits.insert(digits.length() - scale, '.');
+        }
+        sb.append(digits);
+        return sb.toString();
     }
 
     @Override
@@ -36,6 +66,25 @@ public class NumberT implements Token {
     }
 
     public int getInt() {
-        return integer;
+        return (int) unscaled;
+    }
+
+    public long getLong() {
+        return unscaled;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public int getLeadingZeros() {
+        return leadingZeros;
+    }
+
+    /**
+     * @return whether the number is a plain int
+     */
+    public boolean isInt() {
+        return scale == 0 && leadingZeros == 0 && unscaled == (int) unscaled;
     }
 }
@@ -0,0 +1,121 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.utils;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Buffered window over a reader, characters are read by blocks in a char array and scanned in place.
+ * Runs of characters are appended block by block, so a token spanning two blocks is handled transparently.
+ */
+public final class CharWindow {
+
+    public static final int DEFAULT_SIZE = 8192;
+
+    private final Reader reader;
+    private final char[] buffer;
+    private int position = 0;
+    private int limit = 0;
+    private boolean ended = false;
+
+    public CharWindow(Reader reader) {
+        this(reader, DEFAULT_SIZE);
+    }
+
+    public CharWindow(Reader reader, int size) {
+        this.reader = reader;
+        this.buffer = new char[size];
+    }
+
+    private boolean fill() throws IOException {
+        if (ended) {
+            return false;
+        }
+        int read;
+        do {
+            read = reader.read(buffer, 0, buffer.length);
+        } while (read == 0);
+        if (read == -1) {
+            ended = true;
+            return false;
+        }
+        position = 0;
+        limit = read;
+        return true;
+    }
+
+    /**
+     * @return whether characters remain to be read
+     */
+    public boolean hasNext() throws IOException {
+        return position < limit || fill();
+    }
+
+    /**
+     * Append to the builder the longest run of characters, starting at the current one, that are in the class or not
+     *
+     * @param charClass class of characters
+     * @param inClass   whether the run is made of characters of the class or of characters out of it
+     * @param builder   to which the run is appended
+     * @return the length of the run
+     */
+    public int appendRun(CharClass charClass, boolean inClass, TokenBuilder builder) throws IOException {
+        int length = 0;
+        while (position < limit || fill()) {
+            int start = position;
+            while (position < limit && charClass.contains(buffer[position]) == inClass) {
+                position++;
+            }
+            builder.append(buffer, start, position - start);
+            length += position - start;
+            if (position < limit) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Skip the longest run of characters, starting at the current one, that are in the class or not
+     *
+     * @return the length of the run
+     */
+    public int skipRun(CharClass charClass, boolean inClass) throws IOException {
+        int length = 0;
+        while (position < limit || fill()) {
+            int start = position;
+            while (position < limit && charClass.contains(buffer[position]) == inClass) {
+                position++;
+            }
+            length += position - start;
+            if (position < limit) {
+                break;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Append all the remaining characters to the builder
+     */
+    public void appendAll(StringBuilder builder) throws IOException {
+        while (position < limit || fill()) {
+            builder.append(buffer, position, limit - position);
+            position = limit;
+        }
+    }
+}
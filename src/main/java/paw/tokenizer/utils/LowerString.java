@@ -15,61 +15,135 @@
  */
 package paw.tokenizer.utils;
 
+/**
+ * Lower case version of a string along with what is needed to rebuild the original casing.
+ * The common casings are described by a code, an explicit mask of the upper case characters being only kept for mixed case strings.
+ */
 public class LowerString {
 
+    public static final byte LOWER = 0;
+    public static final byte CAPITALIZED = 1;
+    public static final byte UPPER = 2;
+    public static final byte MIXED = 3;
+
+    private final byte casing;
     private int[] mask;
-    private String content;
+    private final String content;
 
     public LowerString(String s) {
-        int size = (int) Math.ceil((double) s.length() / 32);
-        mask = new int[size];
-        StringBuilder sb = new StringBuilder(s.length());
-        int offset = 0;
-        int index = 0;
-        for (int i = 0; i < s.length(); i++) {
-            if (offset == 32) {
-                offset = 0;
-                index++;
+        int firstUpper = 0;
+        while (firstUpper < s.length() && !lowers(s.charAt(firstUpper))) {
+            firstUpper++;
+        }
+        if (firstUpper == s.length()) {
+            content = s;
+            casing = LOWER;
+            return;
+        }
+        char[] chars = s.toCharArray();
+        boolean onlyFirst = firstUpper == 0;
+        boolean allUpper = true;
+        for (int i = 0; i < chars.length; i++) {
+            char c = chars[i];
+            if (lowers(c)) {
+                chars[i] = Character.toLowerCase(c);
+                if (i != 0) {
+                    onlyFirst = false;
+                }
+            } else if (Character.toUpperCase(c) != c) {
+                allUpper = false;
             }
-            char c = s.charAt(i);
-            if (Character.isUpperCase(c)) {
-                mask[index] |= (1 << offset);
-                c = Character.toLowerCase(c);
+        }
+        content = new String(chars);
+        if (onlyFirst) {
+            casing = CAPITALIZED;
+        } else if (allUpper) {
+            casing = UPPER;
+        } else {
+            casing = MIXED;
+            mask = new int[(s.length() + 31) >>> 5];
+            for (int i = firstUpper; i < s.length(); i++) {
+                if (lowers(s.charAt(i))) {
+                    mask[i >>> 5] |= (1 << (i & 31));
+                }
             }
-            sb.append(c);
-            offset++;
         }
-        content = sb.toString();
+    }
+
+    /**
+     * Upper case chars that would not be rebuilt by upper casing their lower case, such as the dotted I or the Kelvin sign, are kept as they are
+     *
+     * @return whether the char is lower cased in the content
+     */
+    private static boolean lowers(char c) {
+        return Character.isUpperCase(c) && Character.toUpperCase(Character.toLowerCase(c)) == c;
     }
 
     public LowerString(String s, int[] mask) {
         this.mask = mask;
         this.content = s;
+        this.casing = MIXED;
+    }
+
+    /**
+     * @param s      lower case content
+     * @param casing code of the original casing
+     * @param mask   of the upper case characters, only read for the MIXED casing
+     */
+    public LowerString(String s, byte casing, int[] mask) {
+        this.content = s;
+        this.casing = casing;
+        if (casing == MIXED) {
+            this.mask = mask;
+        }
     }
 
     public String rebuild() {
+        switch (casing) {
+            case LOWER:
+                return content;
+            case CAPITALIZED:
+                return Character.toUpperCase(content.charAt(0)) + content.substring(1);
+            case UPPER:
+                StringBuilder upper = new StringBuilder(content.length());
+                for (int i = 0; i < content.length(); i++) {
+                    upper.append(Character.toUpperCase(content.charAt(i)));
+                }
+                return upper.toString();
+        }
         StringBuilder sb = new StringBuilder(content.length());
-        int offset = 0;
-        int index = 0;
         for (int i = 0; i < content.length(); i++) {
-            if (offset == 32) {
-                offset = 0;
-                index++;
-            }
             char c = content.charAt(i);
-            int currentmask = mask[index];
-            currentmask >>= offset;
-            currentmask &= 1;
-            if (currentmask != 0) {
+            if ((i >>> 5) < mask.length && (mask[i >>> 5] & (1 << (i & 31))) != 0) {
                 c = Character.toUpperCase(c);
             }
             sb.append(c);
-            offset++;
         }
         return sb.toString();
     }
 
+    public byte getCasing() {
+        return casing;
+    }
+
+    /**
+     * @return the mask of the upper case characters, built from the casing code when the string is not mixed case
+     */
     public int[] getMask() {
+        if (mask == null) {
+            int[] built = new int[(content.length() + 31) >>> 5];
+            switch (casing) {
+                case CAPITALIZED:
+                    built[0] = 1;
+                    break;
+                case UPPER:
+                    for (int i = 0; i < content.length(); i++) {
+                        built[i >>> 5] |= (1 << (i & 31));
+                    }
+                    break;
+            }
+            return built;
+        }
         return mask;
     }
 
@@ -0,0 +1,160 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.utils;
+
+import paw.tokenizer.TokenSink;
+import paw.tokenizer.token.NumberT;
+
+/**
+ * Classification and parsing of numbers in a single pass over a char array, without allocation.
+ * By default only the numbers handled since the first versions are recognized: ints of less than 10 characters without leading zero.
+ * Wide numbers also cover longs of up to 18 digits, decimals and leading zeros.
+ */
+public final class NumberParser {
+
+    /**
+     * Largest number of digits of a wide number, so that it always fits in a long
+     */
+    public static final int MAX_DIGITS = 18;
+
+    /**
+     * Largest scale and number of leading zeros of a wide number
+     */
+    public static final int MAX_EXTENSION = 15;
+
+    private final boolean wide;
+    private long unscaled;
+    private int scale;
+    private int leadingZeros;
+
+    public NumberParser(boolean wide) {
+        this.wide = wide;
+    }
+
+    /**
+     * Parse the characters [offset, offset + length[ of an array
+     *
+     * @return whether they form a number, its value being then available through the getters
+     */
+    public boolean parse(char[] data, int offset, int length) {
+        if (length <= 0) {
+            return false;
+        }
+        int end = offset + length;
+        int index = offset;
+        boolean negative = data[index] == '-' && length > 1;
+        if (negative) {
+            index++;
+        }
+        if (!wide) {
+            if (length >= 10 || data[offset] == '0') {
+                return false;
+            }
+            long value = 0;
+            for (; index < end; index++) {
+                char c = data[index];
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+                value = value * 10 + (c - '0');
+            }
+            set(negative ? -value : value, 0, 0);
+            return true;
+        }
+        int zeros = 0;
+        while (index < end - 1 && data[index] == '0' && data[index + 1] != '.') {
+            zeros++;
+            index++;
+        }
+        int firstDigit = index;
+        long value = 0;
+        int digits = 0;
+        int pointIndex = -1;
+        for (; index < end; index++) {
+            char c = data[index];
+            if (c == '.') {
+                if (pointIndex != -1 || index == firstDigit || index == end - 1) {
+                    return false;
+                }
+                pointIndex = index;
+            } else if (c < '0' || c > '9') {
+                return false;
+            } else {
+                if (++digits > MAX_DIGITS) {
+                    return false;
+                }
+                value = value * 10 + (c - '0');
+            }
+        }
+        int fractionDigits = pointIndex == -1 ? 0 : end - pointIndex - 1;
+        if (digits == 0 || zeros > MAX_EXTENSION || fractionDigits > MAX_EXTENSION || (negative && value == 0)) {
+            // the sign of a negative zero could not be rebuilt
+            return false;
+        }
+        set(negative ? -value : value, fractionDigits, zeros);
+        return true;
+    }
+
+    /**
+     * Parse a string, only copying its characters if it starts like a number
+     */
+    public boolean parse(String s) {
+        if (s.isEmpty()) {
+            return false;
+        }
+        char first = s.charAt(s.charAt(0) == '-' && s.length() > 1 ? 1 : 0);
+        if (first < '0' || first > '9') {
+            return false;
+        }
+        return parse(s.toCharArray(), 0, s.length());
+    }
+
+    private void set(long unscaled, int scale, int leadingZeros) {
+        this.unscaled = unscaled;
+        this.scale = scale;
+        this.leadingZeros = leadingZeros;
+    }
+
+    public long getUnscaled() {
+        return unscaled;
+    }
+
+    public int getScale() {
+        return scale;
+    }
+
+    public int getLeadingZeros() {
+        return leadingZeros;
+    }
+
+    /**
+     * @return the token of the last parsed number
+     */
+    public NumberT toToken() {
+        return new NumberT(unscaled, scale, leadingZeros);
+    }
+
+    /**
+     * Push the last parsed number to a sink
+     */
+    public void pushTo(TokenSink sink) {
+        if (scale == 0 && leadingZeros == 0 && unscaled == (int) unscaled) {
+            sink.onNumber((int) unscaled);
+        } else {
+            sink.onNumber(unscaled, scale, leadingZeros);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.utils;
+
+import java.util.Arrays;
+
+/**
+ * Growable char array in which a token is built, reused from one token to the next
+ */
+public final class TokenBuilder {
+
+    private char[] chars = new char[64];
+    private int length = 0;
+
+    public void append(char[] source, int offset, int count) {
+        if (length + count > chars.length) {
+            char[] grown = new char[Math.max(chars.length * 2, length + count)];
+            System.arraycopy(chars, 0, grown, 0, length);
+            chars = grown;
+        }
+        System.arraycopy(source, offset, chars, length, count);
+        length += count;
+    }
+
+    public void append(char c) {
+        if (length == chars.length) {
+            chars = Arrays.copyOf(chars, chars.length * 2);
+        }
+        chars[length++] = c;
+    }
+
+    public char[] chars() {
+        return chars;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public void clear() {
+        length = 0;
+    }
+
+    /**
+     * @return whether the token only holds white spaces or control characters, as removed by String.trim
+     */
+    public boolean isBlank() {
+        for (int i = 0; i < length; i++) {
+            if (chars[i] > ' ') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return new String(chars, 0, length);
+    }
+}
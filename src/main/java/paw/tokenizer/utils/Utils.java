@@ -40,17 +40,18 @@ public class Utils {
     public static boolean isNumericArray(String str) {
         if (str == null)
             return false;
-        char[] data = str.toCharArray();
-        if (data.length <= 0)
+        int length = str.length();
+        if (length <= 0)
             return false;
         int index = 0;
-        if (data[0] == '-' && data.length > 1)
+        if (str.charAt(0) == '-' && length > 1)
             index = 1;
-        for (; index < data.length; index++) {
-            if (data[index] < '0' || data[index] > '9') // Character.isDigit() can go here too.
+        for (; index < length; index++) {
+            char c = str.charAt(index);
+            if (c < '0' || c > '9') // Character.isDigit() can go here too.
                 return false;
         }
         //size of long (javascript long are 53bits)
-        return str.length() < 10;
+        return length < 10;
     }
 }
@@ -0,0 +1,61 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw;
+
+/**
+ * Timing helpers of the benchmarks, the test classes tagged with {@link #TAG} being excluded from the default test run.
+ * They are run with the benchmark profile: mvn test -Pbenchmark
+ */
+public final class Benchmarks {
+
+    public static final String TAG = "benchmark";
+
+    private static final int WARM_UPS = 3;
+    private static final int RUNS = 5;
+
+    /**
+     * Timed piece of work
+     */
+    public interface Task {
+        void run() throws Exception;
+    }
+
+    private Benchmarks() {
+    }
+
+    /**
+     * @return the best time of a few runs of the task in nanoseconds, once it is warmed up
+     */
+    public static long bestTime(Task task) throws Exception {
+        for (int i = 0; i < WARM_UPS; i++) {
+            task.run();
+        }
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < RUNS; i++) {
+            long start = System.nanoTime();
+            task.run();
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        return best;
+    }
+
+    /**
+     * @return the throughput of reading the chars of a text in the given time, in MB/s of UTF-16
+     */
+    public static double megabytesPerSecond(int chars, long nanos) {
+        return chars * 2 * 1000.0 / nanos;
+    }
+}
@@ -0,0 +1,267 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.customTypes.radix.struct;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.Type;
+import greycat.struct.EStruct;
+import greycat.struct.EStructArray;
+import greycat.struct.IntArray;
+import greycat.utility.HashHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paw.graph.PawPlugin;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class RadixTreeTest {
+
+    private Graph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    private EStructArray newBackend() {
+        return (EStructArray) graph.newNode(0, 0).getOrCreateAt(HashHelper.hash("radix"), Type.ESTRUCT_ARRAY);
+    }
+
+    @Test
+    public void denseNodeWithChildStartingAfterLatinChars() {
+        EStructArray backend = newBackend();
+        RadixTree tree = new RadixTree(backend);
+        List<String> words = new ArrayList<>();
+        for (char c = 'A'; c <= 'z'; c++) {
+            words.add(c + "x");
+        }
+        // first char right after the latin table and a further one
+        words.add("\u0100x");
+        words.add("\u0101y");
+        List<Integer> nodes = new ArrayList<>();
+        for (String word : words) {
+            nodes.add(tree.getOrCreate(word));
+        }
+        tree.save();
+
+        RadixTree reloaded = new RadixTree(backend);
+        for (int i = 0; i < words.size(); i++) {
+            assertEquals((int) nodes.get(i), reloaded.getIndexOfKey(words.get(i)));
+            assertEquals(words.get(i), reloaded.getNameOfToken(nodes.get(i)));
+        }
+        assertEquals(-1, reloaded.getIndexOfKey("\u0100"));
+        assertEquals(-1, reloaded.getIndexOfKey("\u0102x"));
+
+        // the root got a direct table holding every child starting with a latin char, and only those
+        IntArray table = (IntArray) backend.root().getAt(HashHelper.hash("charTable"));
+        assertNotNull(table);
+        assertEquals(256, table.size());
+        int[] expected = new int[256];
+        for (int i = 0; i < words.size(); i++) {
+            char first = words.get(i).charAt(0);
+            if (first < 256) {
+                expected[first] = nodes.get(i) + 1;
+            }
+        }
+        assertArrayEquals(expected, table.extract());
+
+        // lookups of latin chars go through the table: a wrong entry is followed instead of the sorted children
+        table.set('q', expected['r']);
+        assertEquals(-1, reloaded.getIndexOfKey("qx"));
+        assertEquals((int) nodes.get(words.indexOf("rx")), reloaded.getIndexOfKey("rx"));
+        table.set('q', expected['q']);
+        assertEquals((int) nodes.get(words.indexOf("qx")), reloaded.getIndexOfKey("qx"));
+
+        // a new latin child is recorded in the table
+        int added = reloaded.getOrCreate("\u00ffz");
+        assertEquals(added + 1, table.get(0xff));
+        assertEquals(added, reloaded.getIndexOfKey("\u00ffz"));
+        assertEquals(words.size() + 1, reloaded.size());
+    }
+
+    @Test
+    public void removedWordsAreCompactedOnSave() {
+        EStructArray backend = newBackend();
+        RadixTree tree = new RadixTree(backend);
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            words.add("word" + Integer.toString(i * 7919, 36));
+        }
+        for (String word : words) {
+            tree.getOrCreate(word);
+        }
+        tree.save();
+        for (int i = 0; i < words.size(); i++) {
+            if (i % 10 != 0) {
+                tree.removeWord(words.get(i));
+            }
+        }
+        tree.save();
+
+        RadixTree reloaded = new RadixTree(backend);
+        for (int i = 0; i < words.size(); i++) {
+            int node = reloaded.getIndexOfKey(words.get(i));
+            if (i % 10 == 0) {
+                assertEquals(words.get(i), reloaded.getNameOfToken(node));
+            } else {
+                assertEquals(-1, node);
+            }
+        }
+        assertEquals(words.size() / 10, reloaded.size());
+    }
+
+    /**
+     * Sorted words sharing prefixes of every length, with duplicates, words prefix of others and chars outside of the latin table
+     */
+    private static String[] sortedWords(int count, long seed) {
+        Random random = new Random(seed);
+        String alphabet = "abcde\u00e9\u0101";
+        String[] words = new String[count];
+        for (int i = 0; i < count; i++) {
+            int length = 1 + random.nextInt(8);
+            StringBuilder builder = new StringBuilder();
+            for (int j = 0; j < length; j++) {
+                builder.append(alphabet.charAt(random.nextInt(alphabet.length())));
+            }
+            words[i] = builder.toString();
+        }
+        Arrays.sort(words);
+        return words;
+    }
+
+    private static void assertSameTrees(RadixTree expected, RadixTree actual, String[] words) {
+        assertEquals(expected.size(), actual.size());
+        for (String word : words) {
+            assertEquals(expected.getIndexOfKey(word), actual.getIndexOfKey(word), word);
+            assertEquals(word, actual.getNameOfToken(actual.getIndexOfKey(word)));
+        }
+        assertEquals(Arrays.toString(expected.getKeysStartingWith("a")), Arrays.toString(actual.getKeysStartingWith("a")));
+    }
+
+    @Test
+    public void bulkLoadMatchesRepeatedGetOrCreate() {
+        String[] words = sortedWords(3000, 42);
+        RadixTree bulk = new RadixTree(newBackend());
+        RadixTree single = new RadixTree(newBackend());
+        int[] positions = bulk.getOrCreateAll(words);
+        int[] expected = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            expected[i] = single.getOrCreate(words[i]);
+        }
+        assertArrayEquals(expected, positions);
+        assertSameTrees(single, bulk, words);
+        assertEquals((int) Arrays.stream(words).distinct().count(), bulk.size());
+    }
+
+    @Test
+    public void bulkLoadIntoAnExistingTree() {
+        String[] existing = sortedWords(500, 1);
+        String[] words = sortedWords(2000, 2);
+        RadixTree bulk = new RadixTree(newBackend());
+        RadixTree single = new RadixTree(newBackend());
+        for (String word : existing) {
+            bulk.getOrCreate(word);
+            single.getOrCreate(word);
+        }
+        int[] positions = bulk.getOrCreateAll(words);
+        for (int i = 0; i < words.length; i++) {
+            assertEquals(single.getOrCreate(words[i]), positions[i], words[i]);
+        }
+        String[] all = Arrays.copyOf(existing, existing.length + words.length);
+        System.arraycopy(words, 0, all, existing.length, words.length);
+        assertSameTrees(single, bulk, all);
+
+        // loading the same words again creates nothing
+        assertArrayEquals(positions, bulk.getOrCreateAll(words));
+        assertEquals(single.size(), bulk.size());
+    }
+
+    @Test
+    public void bulkLoadRejectsInvalidKeys() {
+        RadixTree tree = new RadixTree(newBackend());
+        assertThrows(IllegalArgumentException.class, () -> tree.getOrCreateAll(new String[]{"b", "a"}));
+        assertThrows(IllegalArgumentException.class, () -> tree.getOrCreateAll(new String[]{"a", null}));
+        assertThrows(IllegalArgumentException.class, () -> tree.getOrCreateAll(new String[]{"", "a"}));
+        assertArrayEquals(new int[0], tree.getOrCreateAll(new String[0]));
+    }
+
+    @Test
+    public void leavesHaveNoChildArrays() {
+        EStructArray backend = newBackend();
+        RadixTree tree = new RadixTree(backend);
+        int word = tree.getOrCreate("word");
+        int words = tree.getOrCreate("words");
+        int world = tree.getOrCreate("world");
+        // lookups of missing words below a leaf do not create its arrays either
+        assertEquals(-1, tree.getIndexOfKey("wordsmith"));
+        assertEquals(-1, tree.getIndexOfKey("worldwide"));
+        for (int leaf : new int[]{words, world}) {
+            assertNull(backend.estruct(leaf).getAt(HashHelper.hash("children")));
+            assertNull(backend.estruct(leaf).getAt(HashHelper.hash("firstChars")));
+        }
+        assertNotNull(backend.estruct(word).getAt(HashHelper.hash("children")));
+
+        // a leaf gets its arrays with its first child, and loses its child again
+        int wordsmith = tree.getOrCreate("wordsmith");
+        assertEquals(words, tree.getIndexOfKey("words"));
+        assertEquals(wordsmith, tree.getIndexOfKey("wordsmith"));
+        assertEquals(1, ((IntArray) backend.estruct(words).getAt(HashHelper.hash("firstChars"))).size());
+        tree.removeWord("wordsmith");
+        tree.removeWord("world");
+        tree.save();
+        RadixTree reloaded = new RadixTree(backend);
+        assertEquals(2, reloaded.size());
+        assertEquals(words, reloaded.getIndexOfKey("words"));
+        assertEquals("word", reloaded.getNameOfToken(reloaded.getIndexOfKey("word")));
+        assertEquals(-1, reloaded.getIndexOfKey("world"));
+        assertEquals(2, reloaded.getKeysStartingWith("wor").length);
+    }
+
+    @Test
+    public void legacyLeavesWithEmptyChildren() {
+        EStructArray backend = newBackend();
+        RadixTree tree = new RadixTree(backend);
+        int word = tree.getOrCreate("word");
+        // leaves written before the arrays were created lazily have empty children and no first chars
+        EStruct leaf = backend.estruct(word);
+        leaf.getOrCreateAt(HashHelper.hash("children"), Type.INT_ARRAY);
+        assertEquals(-1, tree.getIndexOfKey("words"));
+        assertNull(leaf.getAt(HashHelper.hash("firstChars")));
+        int words = tree.getOrCreate("words");
+        assertEquals(words, tree.getIndexOfKey("words"));
+        assertEquals(word, tree.getIndexOfKey("word"));
+    }
+}
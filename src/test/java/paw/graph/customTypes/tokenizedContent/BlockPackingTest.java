@@ -0,0 +1,202 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.customTypes.tokenizedContent;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BlockPackingTest {
+
+    /**
+     * Pack the values, check that they are read back by unpack and by a reader, and return the encoding
+     */
+    private static int[] roundTrip(int[] values) {
+        int[] encoded = BlockPacking.pack(values, values.length);
+        assertEquals(values.length, BlockPacking.size(encoded));
+        assertArrayEquals(values, BlockPacking.unpack(encoded));
+        BlockPacking.Reader reader = new BlockPacking.Reader(encoded);
+        for (int value : values) {
+            assertTrue(reader.hasNext());
+            assertEquals(value, reader.next());
+        }
+        assertFalse(reader.hasNext());
+        return encoded;
+    }
+
+    private static int width(int[] encoded, int block) {
+        return header(encoded, block) & 0xFF;
+    }
+
+    private static int exceptions(int[] encoded, int block) {
+        return header(encoded, block) >>> 8;
+    }
+
+    /**
+     * @return the header of a block, found by skipping the packed values and exceptions of the previous ones
+     */
+    private static int header(int[] encoded, int block) {
+        int position = 1;
+        int remaining = encoded[0];
+        for (int i = 0; i < block; i++) {
+            int n = Math.min(BlockPacking.BLOCK_SIZE, remaining);
+            int header = encoded[position];
+            position += 1 + (n * (header & 0xFF) + 31) / 32 + 2 * (header >>> 8);
+            remaining -= n;
+        }
+        return encoded[position];
+    }
+
+    @Test
+    public void empty() {
+        int[] encoded = roundTrip(new int[0]);
+        assertArrayEquals(new int[]{0}, encoded);
+        assertEquals(0, BlockPacking.size(new int[0]));
+        assertFalse(new BlockPacking.Reader(new int[0]).hasNext());
+    }
+
+    @Test
+    public void zeroWidth() {
+        int[] values = new int[300];
+        int[] encoded = roundTrip(values);
+        // a size and three headers, no packed value
+        assertEquals(4, encoded.length);
+        for (int block = 0; block < 3; block++) {
+            assertEquals(0, width(encoded, block));
+            assertEquals(0, exceptions(encoded, block));
+        }
+    }
+
+    @Test
+    public void fullWidth() {
+        Random random = new Random(42);
+        int[] values = new int[BlockPacking.BLOCK_SIZE];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextInt() | Integer.MIN_VALUE;
+        }
+        int[] encoded = roundTrip(values);
+        assertEquals(32, width(encoded, 0));
+        assertEquals(0, exceptions(encoded, 0));
+        assertEquals(2 + values.length, encoded.length);
+    }
+
+    @Test
+    public void negativeValues() {
+        roundTrip(new int[]{-1, Integer.MIN_VALUE, Integer.MAX_VALUE, 0, -2});
+        // a few negative values among small ones are exceptions keeping their 32 bits
+        int[] values = new int[BlockPacking.BLOCK_SIZE];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = i & 7;
+        }
+        values[5] = -1;
+        values[77] = Integer.MIN_VALUE;
+        int[] encoded = roundTrip(values);
+        assertEquals(3, width(encoded, 0));
+        assertEquals(2, exceptions(encoded, 0));
+    }
+
+    @Test
+    public void everyWidth() {
+        Random random = new Random(42);
+        for (int width = 0; width <= 32; width++) {
+            int[] values = new int[2 * BlockPacking.BLOCK_SIZE + 17];
+            for (int i = 0; i < values.length; i++) {
+                values[i] = width == 0 ? 0 : random.nextInt() >>> (32 - width);
+            }
+            // make sure the whole width is used in each block
+            for (int i = 0; i < values.length; i += BlockPacking.BLOCK_SIZE) {
+                values[i] = width == 0 ? 0 : -1 >>> (32 - width);
+            }
+            int[] encoded = roundTrip(values);
+            for (int block = 0; block < 3; block++) {
+                // a block is packed on fewer bits only if some of its values are exceptions
+                assertTrue(width(encoded, block) <= width, "width " + width);
+                if (exceptions(encoded, block) == 0) {
+                    assertEquals(width, width(encoded, block), "width " + width);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void unrolledWidthsEndingInsideAWord() {
+        Random random = new Random(42);
+        for (int width : new int[]{4, 8, 16}) {
+            for (int tail = 1; tail < 8; tail++) {
+                int[] values = new int[BlockPacking.BLOCK_SIZE + tail];
+                for (int i = 0; i < values.length; i++) {
+                    values[i] = random.nextInt() >>> (32 - width);
+                }
+                values[0] = -1 >>> (32 - width);
+                values[BlockPacking.BLOCK_SIZE] = -1 >>> (32 - width);
+                int[] encoded = roundTrip(values);
+                assertEquals(width, width(encoded, 1), "width " + width + ", tail " + tail);
+            }
+        }
+    }
+
+    @Test
+    public void exceptions() {
+        int[] values = new int[BlockPacking.BLOCK_SIZE];
+        Arrays.fill(values, 5);
+        values[0] = 1 << 20;
+        values[64] = (1 << 30) + 3;
+        values[BlockPacking.BLOCK_SIZE - 1] = 1 << 31;
+        int[] encoded = roundTrip(values);
+        assertEquals(3, width(encoded, 0));
+        assertEquals(3, exceptions(encoded, 0));
+        // size, header, 128 values on 3 bits and 3 exceptions
+        assertEquals(2 + 12 + 6, encoded.length);
+
+        // exceptions in every block, the low bits of an exception being packed with the other values
+        int[] many = new int[3 * BlockPacking.BLOCK_SIZE];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = i % 31 == 0 ? (i << 12) | 0xFFF : i & 0xF;
+        }
+        encoded = roundTrip(many);
+        for (int block = 0; block < 3; block++) {
+            assertEquals(4, width(encoded, block));
+            assertTrue(exceptions(encoded, block) > 0);
+        }
+    }
+
+    @Test
+    public void partialLastBlock() {
+        Random random = new Random(42);
+        for (int size : new int[]{1, 7, 31, 33, BlockPacking.BLOCK_SIZE - 1, BlockPacking.BLOCK_SIZE, BlockPacking.BLOCK_SIZE + 1, 5 * BlockPacking.BLOCK_SIZE + 63}) {
+            int[] values = new int[size];
+            for (int i = 0; i < size; i++) {
+                values[i] = random.nextInt(1 << (i % 20));
+            }
+            values[size - 1] = 1 << 25;
+            roundTrip(values);
+        }
+    }
+
+    @Test
+    public void packOnlyTheGivenSize() {
+        int[] values = {1, 2, 3, 1 << 30, -1};
+        int[] encoded = BlockPacking.pack(values, 3);
+        assertEquals(3, BlockPacking.size(encoded));
+        assertArrayEquals(new int[]{1, 2, 3}, BlockPacking.unpack(encoded));
+    }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.customTypes.tokenizedContent;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.Type;
+import greycat.struct.EStructArray;
+import greycat.utility.HashHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import paw.Benchmarks;
+import paw.graph.PawPlugin;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decoding throughput of the codecs, out of the default test run
+ */
+@Tag(Benchmarks.TAG)
+public class CTTCPackedBenchmark {
+
+    private Graph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    private EStructArray newBackend() {
+        return (EStructArray) graph.newNode(0, 0).getOrCreateAt(HashHelper.hash("content"), Type.ESTRUCT_ARRAY);
+    }
+
+    /**
+     * @return the checksum of the words read through the cursor of the content
+     */
+    private static long checksum(InterfaceTokenizeContent content) {
+        long checksum = 0;
+        CTTokenizeContent.WordCursor cursor = content.cursor();
+        while (cursor.next()) {
+            checksum = 31 * checksum + cursor.getWordID() + cursor.getFirstChar() + cursor.getNumber();
+        }
+        return checksum;
+    }
+
+    /**
+     * The cursor of the packed encoding must decode faster than the one of the Roaring encoding
+     */
+    @Test
+    public void packedDecodesFasterThanRoaring() throws Exception {
+        List<Word> words = CTTCPackedTest.words(200000, 42);
+        CTTCPacked packed = new CTTCPacked(newBackend());
+        packed.addWords(words);
+        packed.save();
+        CTTCRoaring roaring = new CTTCRoaring(newBackend());
+        roaring.addWords(words);
+        roaring.save();
+        assertEquals(checksum(roaring), checksum(packed));
+
+        long[] sink = new long[1];
+        long packedTime = Benchmarks.bestTime(() -> sink[0] += checksum(packed));
+        long roaringTime = Benchmarks.bestTime(() -> sink[0] += checksum(roaring));
+        assertTrue(packedTime < roaringTime, String.format("cursor over %d words, Mwords/s: packed %.1f, roaring %.1f",
+                words.size(), words.size() * 1000.0 / packedTime, words.size() * 1000.0 / roaringTime));
+    }
+}
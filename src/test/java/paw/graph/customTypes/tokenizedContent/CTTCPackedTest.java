@@ -0,0 +1,178 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.customTypes.tokenizedContent;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.Node;
+import greycat.Type;
+import greycat.struct.EStructArray;
+import greycat.utility.HashHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paw.PawConstants;
+import paw.graph.PawPlugin;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CTTCPackedTest {
+
+    private Graph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    private EStructArray newBackend() {
+        return (EStructArray) graph.newNode(0, 0).getOrCreateAt(HashHelper.hash("content"), Type.ESTRUCT_ARRAY);
+    }
+
+    /**
+     * Words of every type with ids, first chars and numbers of every size, more than a block of each
+     */
+    static List<Word> words(int size, long seed) {
+        Random random = new Random(seed);
+        long[] numbers = {0, 1, -1, 255, -256, Integer.MAX_VALUE, Integer.MIN_VALUE, Long.MAX_VALUE, Long.MIN_VALUE};
+        List<Word> words = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            switch (random.nextInt(3)) {
+                case 0:
+                    int id = random.nextInt(20) == 0 ? random.nextInt() : random.nextInt(1000);
+                    words.add(new Word(PawConstants.CONTENT_TOKEN, id, random.nextInt(10) == 0 ? random.nextInt(Character.MAX_CODE_POINT) : 'a' + random.nextInt(26)));
+                    break;
+                case 1:
+                    words.add(new Word(PawConstants.DELIMITER_TOKEN, random.nextInt(20) == 0 ? random.nextInt() : random.nextInt(8)));
+                    break;
+                default:
+                    long number = random.nextBoolean() ? numbers[random.nextInt(numbers.length)] : random.nextInt(10000);
+                    words.add(new Word(number, random.nextInt(CTTokenizeContent.MAX_NUMBER_EXTENSION + 1), random.nextInt(CTTokenizeContent.MAX_NUMBER_EXTENSION + 1)));
+                    break;
+            }
+        }
+        return words;
+    }
+
+    private static String describe(List<Word> words) {
+        StringBuilder builder = new StringBuilder();
+        for (Word word : words) {
+            builder.append(word.getType()).append(':').append(word.getWordID());
+            if (word.getType() == PawConstants.CONTENT_TOKEN) {
+                builder.append(':').append(word.getFirstChar());
+            } else if (word.getType() == PawConstants.NUMBER_TOKEN) {
+                builder.append(':').append(word.getNumber()).append(':').append(word.getScale()).append(':').append(word.getLeadingZeros());
+            }
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+
+    private static List<Word> fromCursor(InterfaceTokenizeContent content) {
+        List<Word> words = new ArrayList<>();
+        CTTokenizeContent.WordCursor cursor = content.cursor();
+        while (cursor.next()) {
+            words.add(cursor.toWord());
+        }
+        return words;
+    }
+
+    @Test
+    public void saveAndReload() {
+        for (int size : new int[]{0, 1, 15, 16, 17, BlockPacking.BLOCK_SIZE, 1000}) {
+            List<Word> words = words(size, size);
+            EStructArray backend = newBackend();
+            CTTCPacked content = new CTTCPacked(backend);
+            content.addWords(words);
+            assertTrue(content.isDirty());
+            // the words are readable before being saved
+            assertEquals(describe(words), describe(fromCursor(content)));
+            content.save();
+            assertFalse(content.isDirty());
+
+            CTTCPacked reloaded = new CTTCPacked(backend);
+            assertEquals(size, reloaded.size());
+            assertEquals(describe(words), describe(reloaded.decodeWords()));
+            assertEquals(describe(words), describe(fromCursor(reloaded)));
+            assertEquals(CTTokenizeContent.NUMBER_FORMAT, reloaded.getFormat());
+        }
+    }
+
+    @Test
+    public void replaceAndClear() {
+        List<Word> words = words(500, 42);
+        EStructArray backend = newBackend();
+        CTTCPacked content = new CTTCPacked(backend);
+        content.addWords(words);
+        content.save();
+
+        List<Word> replacement = words(40, 7);
+        content = new CTTCPacked(backend);
+        content.replaceWords(100, 300, replacement);
+        content.save();
+        List<Word> expected = new ArrayList<>(words.subList(0, 100));
+        expected.addAll(replacement);
+        expected.addAll(words.subList(300, words.size()));
+        assertEquals(describe(expected), describe(fromCursor(new CTTCPacked(backend))));
+
+        content = new CTTCPacked(backend);
+        content.clear();
+        content.addWords(replacement);
+        content.save();
+        assertEquals(describe(replacement), describe(new CTTCPacked(backend).decodeWords()));
+    }
+
+    @Test
+    public void registeredInThePlugin() {
+        List<Word> words = words(300, 3);
+        Node node = graph.newNode(0, 0);
+        InterfaceTokenizeContent content = (InterfaceTokenizeContent) node.getOrCreateCustomAt(HashHelper.hash("content"), CTTCPacked.NAME);
+        content.addWords(words);
+        content.save();
+        InterfaceTokenizeContent reloaded = (InterfaceTokenizeContent) node.getOrCreateCustomAt(HashHelper.hash("content"), CTTCPacked.NAME);
+        assertEquals(describe(words), describe(fromCursor(reloaded)));
+    }
+
+    @Test
+    public void smallerThanRoaringOnSmallIds() {
+        List<Word> words = new ArrayList<>();
+        Random random = new Random(42);
+        for (int i = 0; i < 10000; i++) {
+            words.add(i % 2 == 0 ? new Word(PawConstants.CONTENT_TOKEN, random.nextInt(500), 'a' + random.nextInt(26)) : new Word(PawConstants.DELIMITER_TOKEN, random.nextInt(4)));
+        }
+        CTTCPacked packed = new CTTCPacked(newBackend());
+        packed.addWords(words);
+        packed.save();
+        CTTCRoaring roaring = new CTTCRoaring(newBackend());
+        roaring.addWords(words);
+        roaring.save();
+        assertTrue(packed.estimatedSize() < roaring.estimatedSize(), packed.estimatedSize() + " >= " + roaring.estimatedSize());
+    }
+}
@@ -0,0 +1,261 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.customTypes.tokenizedContent;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.Type;
+import greycat.struct.EStructArray;
+import greycat.utility.HashHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.IntIterator;
+import paw.PawConstants;
+import paw.graph.PawPlugin;
+import paw.graph.customTypes.bitset.CTBitset;
+import paw.graph.customTypes.bitset.fastbitset.CTFastBitSet;
+import paw.graph.customTypes.bitset.roaring.CTRoaringBitMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Words replaced in place must be encoded exactly like the same words encoded from scratch
+ */
+public class CTTokenizeContentReplaceTest {
+
+    private Graph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    private EStructArray newBackend() {
+        return (EStructArray) graph.newNode(0, 0).getOrCreateAt(HashHelper.hash("content"), Type.ESTRUCT_ARRAY);
+    }
+
+    private interface Codec {
+        InterfaceTokenizeContent wrap(EStructArray backend);
+    }
+
+    private static final Codec ROARING = CTTCRoaring::new;
+    private static final Codec BITSET = CTTCBitset::new;
+
+    /**
+     * Bitset without any tokenized content format, to write contents as they were before the format was stored
+     */
+    private interface BitsetType {
+        CTBitset wrap(EStructArray backend);
+    }
+
+    /**
+     * Words of every size class: delimiters, contents and first chars on each of their id sizes, int numbers on 8, 16, 32 and 64 bits,
+     * negative numbers and numbers with a scale or leading zeros
+     */
+    private static List<Word> everySizeClass() {
+        List<Word> words = new ArrayList<>();
+        int[] ids = {0, 1, 127, 128, 255, 256, 65535, 65536, (1 << 24) - 1, 1 << 24, Integer.MAX_VALUE, -1, Integer.MIN_VALUE};
+        int[] firstChars = {'a', 127, 128, 255, 256, 65535, 65536, Character.MAX_CODE_POINT};
+        for (int i = 0; i < ids.length; i++) {
+            words.add(new Word(PawConstants.DELIMITER_TOKEN, ids[i]));
+            words.add(new Word(PawConstants.CONTENT_TOKEN, ids[i], firstChars[i % firstChars.length]));
+        }
+        long[] numbers = {0, 1, -1, 63, -64, 64, 127, 128, 32767, -32768, 32768, Integer.MAX_VALUE, Integer.MIN_VALUE,
+                (long) Integer.MAX_VALUE + 1, (long) Integer.MIN_VALUE - 1, Long.MAX_VALUE / 2, Long.MIN_VALUE / 2, Long.MAX_VALUE, Long.MIN_VALUE};
+        for (long number : numbers) {
+            words.add(new Word(number, 0, 0));
+        }
+        words.add(new Word(314159, 5, 0));
+        words.add(new Word(-25, 1, 0));
+        words.add(new Word(7, 0, 2));
+        words.add(new Word(Long.MAX_VALUE, CTTokenizeContent.MAX_NUMBER_EXTENSION, CTTokenizeContent.MAX_NUMBER_EXTENSION));
+        return words;
+    }
+
+    private static String describe(List<Word> words) {
+        StringBuilder builder = new StringBuilder();
+        for (Word word : words) {
+            builder.append(word.getType()).append(':').append(word.getWordID());
+            if (word.getType() == PawConstants.CONTENT_TOKEN) {
+                builder.append(':').append(word.getFirstChar());
+            } else if (word.getType() == PawConstants.NUMBER_TOKEN) {
+                builder.append(':').append(word.getNumber()).append(':').append(word.getScale()).append(':').append(word.getLeadingZeros());
+            }
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+
+    private static List<Integer> setBits(CTBitset bitset) {
+        List<Integer> bits = new ArrayList<>();
+        IntIterator iterator = bitset.iterator();
+        while (iterator.hasNext()) {
+            bits.add(iterator.next());
+        }
+        return bits;
+    }
+
+    /**
+     * Replace the words [from, to[ of an encoded content, reload it and compare it with the expected words encoded from scratch
+     */
+    private void checkReplace(Codec codec, List<Word> initial, int from, int to, List<Word> replacement) {
+        EStructArray backend = newBackend();
+        InterfaceTokenizeContent content = codec.wrap(backend);
+        content.addWords(initial);
+        content.save();
+
+        content = codec.wrap(backend);
+        content.replaceWords(from, to, replacement);
+        content.save();
+
+        List<Word> expected = new ArrayList<>(initial.subList(0, from));
+        expected.addAll(replacement);
+        expected.addAll(initial.subList(to, initial.size()));
+        InterfaceTokenizeContent reencoded = codec.wrap(newBackend());
+        reencoded.addWords(expected);
+        reencoded.save();
+
+        InterfaceTokenizeContent reloaded = codec.wrap(backend);
+        String message = "replace [" + from + ", " + to + "[ by " + describe(replacement);
+        assertEquals(describe(expected), describe(reloaded.decodeWords()), message);
+        assertEquals(describe(reencoded.decodeWords()), describe(reloaded.decodeWords()), message);
+        assertEquals(setBits((CTBitset) reencoded), setBits((CTBitset) reloaded), message);
+
+        List<Word> fromCursor = new ArrayList<>();
+        CTTokenizeContent.WordCursor cursor = reloaded.cursor();
+        while (cursor.next()) {
+            fromCursor.add(cursor.toWord());
+        }
+        assertEquals(describe(expected), describe(fromCursor), message);
+    }
+
+    private void checkEdits(Codec codec) {
+        List<Word> words = everySizeClass();
+        int n = words.size();
+        List<Word> edit = Arrays.asList(new Word(PawConstants.CONTENT_TOKEN, 70000, 'z'), new Word(1L << 40, 0, 0), new Word(PawConstants.DELIMITER_TOKEN, 3));
+        List<Word> none = Collections.emptyList();
+
+        // head
+        checkReplace(codec, words, 0, 0, edit);
+        checkReplace(codec, words, 0, 1, edit);
+        checkReplace(codec, words, 0, 5, edit.subList(0, 1));
+        checkReplace(codec, words, 0, 3, none);
+        // middle
+        checkReplace(codec, words, n / 2, n / 2, edit);
+        checkReplace(codec, words, n / 2, n / 2 + 1, edit.subList(1, 2));
+        checkReplace(codec, words, n / 3, 2 * n / 3, edit);
+        checkReplace(codec, words, n / 3, n / 3 + 4, none);
+        // tail
+        checkReplace(codec, words, n, n, edit);
+        checkReplace(codec, words, n - 1, n, edit);
+        checkReplace(codec, words, n - 4, n, none);
+        // deletion to empty and rewrite of the whole content
+        checkReplace(codec, words, 0, n, none);
+        checkReplace(codec, words, 0, n, edit);
+        checkReplace(codec, edit, 0, edit.size(), words);
+        // every size class replaced by every other one
+        for (int i = 0; i < n; i++) {
+            checkReplace(codec, words, i, i + 1, words.subList(n - 1 - i, n - i));
+        }
+    }
+
+    private void checkRandomEdits(Codec codec) {
+        List<Word> pool = everySizeClass();
+        Random random = new Random(42);
+        for (int iteration = 0; iteration < 200; iteration++) {
+            List<Word> words = new ArrayList<>();
+            int n = random.nextInt(40);
+            for (int i = 0; i < n; i++) {
+                words.add(pool.get(random.nextInt(pool.size())));
+            }
+            int from = random.nextInt(n + 1);
+            int to = from + random.nextInt(n - from + 1);
+            List<Word> replacement = new ArrayList<>();
+            int m = random.nextInt(6);
+            for (int i = 0; i < m; i++) {
+                replacement.add(pool.get(random.nextInt(pool.size())));
+            }
+            checkReplace(codec, words, from, to, replacement);
+        }
+    }
+
+    @Test
+    public void roaringEdits() {
+        checkEdits(ROARING);
+    }
+
+    @Test
+    public void roaringRandomEdits() {
+        checkRandomEdits(ROARING);
+    }
+
+    @Test
+    public void bitsetEdits() {
+        checkEdits(BITSET);
+    }
+
+    @Test
+    public void bitsetRandomEdits() {
+        checkRandomEdits(BITSET);
+    }
+
+    @Test
+    public void replaceOnEmptyContent() {
+        for (Codec codec : new Codec[]{ROARING, BITSET}) {
+            checkReplace(codec, Collections.<Word>emptyList(), 0, 0, everySizeClass());
+            checkReplace(codec, Collections.<Word>emptyList(), 0, 0, Collections.<Word>emptyList());
+        }
+    }
+
+    @Test
+    public void formatIsReadFromTheRoot() {
+        List<Word> words = Arrays.asList(new Word(PawConstants.CONTENT_TOKEN, 3, 'a'), new Word(42, 0, 0), new Word(PawConstants.DELIMITER_TOKEN, 1));
+        Codec[] codecs = {ROARING, BITSET};
+        BitsetType[] bitsets = {CTRoaringBitMap::new, CTFastBitSet::new};
+        for (int c = 0; c < codecs.length; c++) {
+            assertEquals(CTTokenizeContent.NUMBER_FORMAT, codecs[c].wrap(newBackend()).getFormat());
+
+            // a content written before the format was stored is in the legacy format until it is cleared
+            EStructArray backend = newBackend();
+            CTBitset legacy = bitsets[c].wrap(backend);
+            int currentStop = CTTokenizeContent.addWord(words, legacy, 0);
+            legacy.save();
+            backend.root().setAt(HashHelper.hash(CTTokenizeContent.CURRENTSTOP), Type.INT, currentStop);
+            InterfaceTokenizeContent content = codecs[c].wrap(backend);
+            assertEquals(CTTokenizeContent.LEGACY_FORMAT, content.getFormat());
+            assertEquals(describe(words), describe(content.decodeWords()));
+
+            content.clear();
+            content.save();
+            assertEquals(CTTokenizeContent.NUMBER_FORMAT, codecs[c].wrap(backend).getFormat());
+        }
+    }
+}
@@ -0,0 +1,200 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.customTypes.tokenizedContent;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.Type;
+import greycat.struct.EStructArray;
+import greycat.utility.HashHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.roaringbitmap.IntIterator;
+import paw.PawConstants;
+import paw.graph.PawPlugin;
+import paw.graph.customTypes.bitset.CTBitset;
+import paw.graph.customTypes.bitset.fastbitset.CTFastBitSet;
+import paw.graph.customTypes.bitset.roaring.CTRoaringBitMap;
+import paw.tokenizer.token.NumberT;
+import paw.tokenizer.utils.NumberParser;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Numbers of the NUMBER_FORMAT, their zigzag value, scale and leading zeros, and numbers of contents written in the LEGACY_FORMAT
+ */
+public class NumberEncodingTest {
+
+    private Graph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    private EStructArray newBackend() {
+        return (EStructArray) graph.newNode(0, 0).getOrCreateAt(HashHelper.hash("content"), Type.ESTRUCT_ARRAY);
+    }
+
+    private interface Codec {
+        InterfaceTokenizeContent wrap(EStructArray backend);
+    }
+
+    private static final Codec[] CODECS = {CTTCRoaring::new, CTTCBitset::new, CTTCPacked::new};
+
+    private static List<Integer> setBits(CTBitset bitset) {
+        List<Integer> bits = new ArrayList<>();
+        IntIterator iterator = bitset.iterator();
+        while (iterator.hasNext()) {
+            bits.add(iterator.next());
+        }
+        return bits;
+    }
+
+    /**
+     * @return the token of a number word, as rebuilt from a content
+     */
+    private static String token(Word word) {
+        return new NumberT(word.getNumber(), word.getScale(), word.getLeadingZeros()).getToken();
+    }
+
+    private static Word parsed(String number) {
+        NumberParser parser = new NumberParser(true);
+        parser.parse(number);
+        return new Word(parser.getUnscaled(), parser.getScale(), parser.getLeadingZeros());
+    }
+
+    @Test
+    public void layoutOfTheNumberFormat() {
+        CTFastBitSet bitset = new CTFastBitSet(newBackend());
+        // type 11, no extension, size 00, zigzag(-1) = 1 on 8 bits
+        int stop = CTTokenizeContent.addWord(Collections.singletonList(new Word(-1, 0, 0)), bitset, 0, CTTokenizeContent.NUMBER_FORMAT);
+        assertEquals(13, stop);
+        assertEquals(Arrays.asList(0, 1, 12), setBits(bitset));
+
+        bitset.clear();
+        // type 11, extension bit, scale 0010, leading zeros 0001, size 00, zigzag(5) = 00001010
+        stop = CTTokenizeContent.addWord(Collections.singletonList(new Word(5, 2, 1)), bitset, 0, CTTokenizeContent.NUMBER_FORMAT);
+        assertEquals(21, stop);
+        assertEquals(Arrays.asList(0, 1, 2, 5, 10, 17, 19), setBits(bitset));
+    }
+
+    @Test
+    public void zigzagSizeBoundaries() {
+        // zigzag values of 8, 16, 32 and 64 bits
+        long[][] sizes = {
+                {0, 8}, {-1, 8}, {127, 8}, {-128, 8}, {128, 16}, {-129, 16},
+                {32767, 16}, {-32768, 16}, {32768, 32}, {-32769, 32},
+                {Integer.MAX_VALUE, 32}, {Integer.MIN_VALUE, 32}, {Integer.MAX_VALUE + 1L, 64}, {Integer.MIN_VALUE - 1L, 64},
+                {Long.MAX_VALUE, 64}, {Long.MIN_VALUE, 64}
+        };
+        for (long[] size : sizes) {
+            Word word = new Word(size[0], 0, 0);
+            assertEquals(2 + 1 + 2 + size[1], CTTokenizeContent.encodedLength(word, CTTokenizeContent.NUMBER_FORMAT), String.valueOf(size[0]));
+            Word extended = new Word(size[0], 1, 0);
+            assertEquals(2 + 9 + 2 + size[1], CTTokenizeContent.encodedLength(extended, CTTokenizeContent.NUMBER_FORMAT), String.valueOf(size[0]));
+        }
+    }
+
+    @Test
+    public void numbersRoundTripInEveryCodec() {
+        String eighteen = "999999999999999999";
+        String[] numbers = {"0", "007", "0.05", "-0.5", "1.50", "00.5", "-007", eighteen, "-" + eighteen,
+                "0.000000000000001", "0000000000000001", "000000000000000" + eighteen.substring(3) + "." + "123"};
+        List<Word> words = new ArrayList<>();
+        for (String number : numbers) {
+            words.add(parsed(number));
+            words.add(new Word(PawConstants.DELIMITER_TOKEN, 3));
+        }
+        words.add(new Word(Long.MIN_VALUE, CTTokenizeContent.MAX_NUMBER_EXTENSION, CTTokenizeContent.MAX_NUMBER_EXTENSION));
+        for (Codec codec : CODECS) {
+            EStructArray backend = newBackend();
+            InterfaceTokenizeContent content = codec.wrap(backend);
+            content.addWords(words);
+            content.save();
+            List<Word> decoded = codec.wrap(backend).decodeWords();
+            assertEquals(words.size(), decoded.size());
+            for (int i = 0; i < numbers.length; i++) {
+                assertEquals(numbers[i], token(decoded.get(2 * i)), content.getClass().getSimpleName());
+            }
+            Word last = decoded.get(decoded.size() - 1);
+            assertEquals(Long.MIN_VALUE, last.getNumber());
+            assertEquals(CTTokenizeContent.MAX_NUMBER_EXTENSION, last.getScale());
+            assertEquals(CTTokenizeContent.MAX_NUMBER_EXTENSION, last.getLeadingZeros());
+        }
+    }
+
+    @Test
+    public void legacyContentsAreRead() {
+        List<Word> words = Arrays.asList(new Word(PawConstants.NUMBER_TOKEN, 42), new Word(PawConstants.NUMBER_TOKEN, -5),
+                new Word(PawConstants.DELIMITER_TOKEN, 7), new Word(PawConstants.NUMBER_TOKEN, Integer.MAX_VALUE));
+
+        // contents written before the number format have no format attribute
+        EStructArray roaringBackend = newBackend();
+        CTRoaringBitMap roaringBits = new CTRoaringBitMap(roaringBackend);
+        int roaringStop = CTTokenizeContent.addWord(words, roaringBits, 0);
+        roaringBits.save();
+        roaringBackend.root().setAt(HashHelper.hash("cs"), Type.INT, roaringStop);
+
+        EStructArray bitsetBackend = newBackend();
+        CTFastBitSet bitsetBits = new CTFastBitSet(bitsetBackend);
+        int bitsetStop = CTTokenizeContent.addWord(words, bitsetBits, 0);
+        bitsetBits.save();
+        bitsetBackend.root().setAt(HashHelper.hash("cs"), Type.INT, bitsetStop);
+
+        for (InterfaceTokenizeContent content : new InterfaceTokenizeContent[]{new CTTCRoaring(roaringBackend), new CTTCBitset(bitsetBackend)}) {
+            assertEquals(CTTokenizeContent.LEGACY_FORMAT, content.getFormat());
+            List<Word> decoded = content.decodeWords();
+            assertEquals(Arrays.asList(42L, -5L, 7L, (long) Integer.MAX_VALUE), numbersOf(decoded));
+            assertEquals(PawConstants.DELIMITER_TOKEN, decoded.get(2).getType());
+
+            CTTokenizeContent.WordCursor cursor = content.cursor();
+            cursor.next();
+            assertEquals(42, cursor.getNumber());
+
+            // a legacy content only holds ints until it is cleared
+            assertThrows(IllegalArgumentException.class, () -> content.addWords(Collections.singletonList(new Word(15, 1, 0))));
+            assertThrows(IllegalArgumentException.class, () -> content.addWords(Collections.singletonList(new Word(Integer.MAX_VALUE + 1L, 0, 0))));
+            content.clear();
+            assertEquals(CTTokenizeContent.NUMBER_FORMAT, content.getFormat());
+            content.addWords(Collections.singletonList(new Word(15, 1, 0)));
+            assertEquals("1.5", token(content.decodeWords().get(0)));
+        }
+    }
+
+    private static List<Long> numbersOf(List<Word> words) {
+        List<Long> numbers = new ArrayList<>();
+        for (Word word : words) {
+            numbers.add(word.getType() == PawConstants.NUMBER_TOKEN ? word.getNumber() : word.getWordID());
+        }
+        return numbers;
+    }
+}
@@ -0,0 +1,275 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.struct.LongLongMap;
+import greycat.utility.HashHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paw.PawConstants;
+import paw.graph.PawPlugin;
+import paw.graph.customTypes.tokenizedContent.CTTCBitset;
+import paw.graph.customTypes.tokenizedContent.CTTCPacked;
+import paw.graph.customTypes.tokenizedContent.CTTCRoaring;
+import paw.graph.customTypes.tokenizedContent.CTTokenizeContent;
+import paw.graph.customTypes.tokenizedContent.Word;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ContentChunksTest {
+
+    private Graph graph;
+    private DictionnaryNode dictionnaryNode;
+    private int[] cases;
+    private Map<Integer, int[]> masks;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+        dictionnaryNode = (DictionnaryNode) graph.newTypedNode(0, 0, DictionnaryNode.NAME);
+        // every word in lower case
+        cases = new int[64];
+        masks = new HashMap<>();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    private static List<Word> words(int... ids) {
+        List<Word> words = new ArrayList<>();
+        for (int id : ids) {
+            words.add(new Word(PawConstants.CONTENT_TOKEN, id, 'a'));
+        }
+        return words;
+    }
+
+    private ContentChunks.Content content(int... ids) {
+        return new ContentChunks.Content(words(ids), cases, masks);
+    }
+
+    private List<Integer> read(long[] chunkIds) {
+        List<Integer> ids = new ArrayList<>();
+        for (Word word : ContentChunks.read(graph, chunkIds).words) {
+            ids.add(word.getWordID());
+        }
+        return ids;
+    }
+
+    private String codecOf(long chunkId) {
+        String[] codec = new String[1];
+        graph.lookup(0, 0, chunkId, result -> {
+            codec[0] = ((ContentChunkNode) result).getCodec();
+            result.free();
+        });
+        return codec[0];
+    }
+
+    private List<Integer> readWithCursor(long[] chunkIds) {
+        List<Integer> ids = new ArrayList<>();
+        CTTokenizeContent.WordCursor cursor = ContentChunks.cursor(graph, chunkIds);
+        while (cursor.next()) {
+            ids.add(cursor.getWordID());
+        }
+        return ids;
+    }
+
+    private long onlyChunkKey() {
+        LongLongMap chunks = (LongLongMap) dictionnaryNode.getAt(HashHelper.hash("contentChunks"));
+        long[] key = new long[1];
+        chunks.each((hash, id) -> key[0] = hash);
+        return key[0];
+    }
+
+    @Test
+    public void identicalChunksAreShared() {
+        long[] first = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3));
+        long[] second = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3));
+        assertEquals(1, first.length);
+        assertEquals(first[0], second[0]);
+        assertEquals(Arrays.asList(1, 2, 3), read(second));
+    }
+
+    @Test
+    public void collidingChunksAreNotShared() {
+        List<Word> first = words(1, 2, 3);
+        List<Word> second = words(4, 5, 6);
+        long[] secondIds = ContentChunks.write(graph, dictionnaryNode, new ContentChunks.Content(second, cases, masks));
+        long secondKey = onlyChunkKey();
+        long[] firstIds = ContentChunks.write(graph, dictionnaryNode, new ContentChunks.Content(first, cases, masks));
+        // the hash of the second chunk now leads to the first one, as if both had the same hash
+        dictionnaryNode.addContentChunk(secondKey, firstIds[0]);
+
+        long[] rewritten = ContentChunks.write(graph, dictionnaryNode, new ContentChunks.Content(second, cases, masks));
+        assertNotEquals(firstIds[0], rewritten[0]);
+        assertNotEquals(secondIds[0], rewritten[0]);
+        assertEquals(Arrays.asList(4, 5, 6), read(rewritten));
+        assertEquals(rewritten[0], dictionnaryNode.getContentChunk(secondKey + 1));
+
+        // the chunk stored after the collision is found again, the first one is still shared
+        assertEquals(rewritten[0], ContentChunks.write(graph, dictionnaryNode, new ContentChunks.Content(second, cases, masks))[0]);
+        assertEquals(Arrays.asList(1, 2, 3), read(firstIds));
+    }
+
+    @Test
+    public void casesTakePartInTheComparison() {
+        long[] lower = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3));
+        long key = onlyChunkKey();
+        // same words with the second one upper cased, its hash is then made to lead to the lower case chunk
+        cases[0] = 2 << 2;
+        long[] upper = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3));
+        dictionnaryNode.addContentChunk(onlyOtherKey(key), lower[0]);
+        long[] again = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3));
+        assertNotEquals(lower[0], again[0]);
+        assertNotEquals(upper[0], again[0]);
+    }
+
+    private long onlyOtherKey(long key) {
+        LongLongMap chunks = (LongLongMap) dictionnaryNode.getAt(HashHelper.hash("contentChunks"));
+        long[] other = new long[1];
+        chunks.each((hash, id) -> {
+            if (hash != key) {
+                other[0] = hash;
+            }
+        });
+        return other[0];
+    }
+
+    @Test
+    public void chunksKeepTheCodecOfTheirCategory() {
+        long[] roaring = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3));
+        dictionnaryNode.setCodec(CTTCPacked.NAME);
+        long[] packed = ContentChunks.write(graph, dictionnaryNode, content(4, 5, 6));
+        dictionnaryNode.setCodec(CTTCBitset.NAME);
+        long[] bitset = ContentChunks.write(graph, dictionnaryNode, content(7, 8));
+        assertEquals(CTTCRoaring.NAME, codecOf(roaring[0]));
+        assertEquals(CTTCPacked.NAME, codecOf(packed[0]));
+        assertEquals(CTTCBitset.NAME, codecOf(bitset[0]));
+
+        // a content made of chunks of different codecs is read by chaining their cursors
+        long[] mixed = {bitset[0], roaring[0], packed[0], roaring[0]};
+        assertEquals(Arrays.asList(7, 8, 1, 2, 3, 4, 5, 6, 1, 2, 3), readWithCursor(mixed));
+        assertEquals(Arrays.asList(7, 8, 1, 2, 3, 4, 5, 6, 1, 2, 3), read(mixed));
+
+        // the chunk of the same words is shared whatever the codec of the category
+        assertEquals(roaring[0], ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3))[0]);
+    }
+
+    @Test
+    public void chunksWithoutCodecUseTheDefaultOne() {
+        long[] ids = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3));
+        graph.lookup(0, 0, ids[0], result -> {
+            result.remove(ContentChunkNode.CODEC);
+            result.free();
+        });
+        assertEquals(CTTCRoaring.NAME, codecOf(ids[0]));
+        assertEquals(Arrays.asList(1, 2, 3), readWithCursor(ids));
+        assertTrue(readWithCursor(new long[0]).isEmpty());
+    }
+
+    private int numberOfChunks() {
+        int[] size = new int[1];
+        ((LongLongMap) dictionnaryNode.getAt(HashHelper.hash("contentChunks"))).each((hash, id) -> size[0]++);
+        return size[0];
+    }
+
+    private static int[] range(int from, int to) {
+        int[] ids = new int[to - from];
+        for (int i = from; i < to; i++) {
+            ids[i - from] = i;
+        }
+        return ids;
+    }
+
+    @Test
+    public void untouchedChunksOfThePreviousVersionAreReused() {
+        int[] ids = range(1, 1001);
+        long[] first = ContentChunks.write(graph, dictionnaryNode, content(ids));
+        assertTrue(first.length > 4);
+        int chunks = numberOfChunks();
+
+        // one word replaced in the middle of the content
+        int[] edited = ids.clone();
+        edited[500] = 5000;
+        long[] second = ContentChunks.write(graph, dictionnaryNode, content(edited), ContentChunks.read(graph, first));
+        assertEquals(first[0], second[0]);
+        assertEquals(first[first.length - 1], second[second.length - 1]);
+        int reused = 0;
+        for (long id : second) {
+            for (long previous : first) {
+                if (id == previous) {
+                    reused++;
+                    break;
+                }
+            }
+        }
+        // only the chunks around the edit are new, as many as were added to the category
+        assertTrue(reused >= second.length - 2);
+        assertEquals(chunks + second.length - reused, numberOfChunks());
+        List<Integer> expected = new ArrayList<>();
+        for (int id : edited) {
+            expected.add(id);
+        }
+        assertEquals(expected, read(second));
+    }
+
+    @Test
+    public void previousChunksAreReusedWithoutTheCategory() {
+        long[] first = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3));
+        long[] other = ContentChunks.write(graph, dictionnaryNode, content(4, 5, 6));
+        // the key of the chunk now leads to another one, the previous version still holding it
+        dictionnaryNode.addContentChunk(onlyChunkKeyOf(first[0]), other[0]);
+
+        long[] second = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3), ContentChunks.read(graph, first));
+        assertEquals(first[0], second[0]);
+        assertEquals(2, numberOfChunks());
+    }
+
+    private long onlyChunkKeyOf(long chunkId) {
+        LongLongMap chunks = (LongLongMap) dictionnaryNode.getAt(HashHelper.hash("contentChunks"));
+        long[] key = new long[1];
+        chunks.each((hash, id) -> {
+            if (id == chunkId) {
+                key[0] = hash;
+            }
+        });
+        return key[0];
+    }
+
+    @Test
+    public void changedCasesAreNotReusedFromThePreviousVersion() {
+        long[] first = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3));
+        cases[0] = 2 << 2;
+        long[] second = ContentChunks.write(graph, dictionnaryNode, content(1, 2, 3), ContentChunks.read(graph, first));
+        assertNotEquals(first[0], second[0]);
+        assertEquals(2 << 2, ContentChunks.read(graph, second).cases[0]);
+    }
+}
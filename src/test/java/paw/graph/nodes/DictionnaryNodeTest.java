@@ -0,0 +1,236 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.struct.Relation;
+import greycat.utility.HashHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paw.graph.PawPlugin;
+import paw.tokenizer.SimpleTokenizer;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static paw.graph.nodes.DictionnaryNode.TC_PER_LIST;
+
+public class DictionnaryNodeTest {
+
+    private Graph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    private DictionnaryNode dictionnaryOf(String category) {
+        DictionnaryNode[] dictionnaryNode = new DictionnaryNode[1];
+        DictionnaryNode.getOrCreateDictionnaryNode(graph, category, result -> dictionnaryNode[0] = result);
+        return dictionnaryNode[0];
+    }
+
+    private static Relation tcList(DictionnaryNode dictionnaryNode) {
+        return (Relation) dictionnaryNode.getAt(HashHelper.hash(DictionnaryNode.TC_LIST));
+    }
+
+    /**
+     * @return the id registered at the given ordinal, distinct from any node id of the graph
+     */
+    private static long tcId(int ordinal) {
+        return 1000000L + 3L * ordinal;
+    }
+
+    @Test
+    public void ordinalsAreSequential() {
+        DictionnaryNode dictionnaryNode = dictionnaryOf("ordinals");
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, dictionnaryNode.addTCToTCList(tcId(i)));
+        }
+        assertEquals(5, dictionnaryNode.getNumberOfTC());
+        assertEquals(0, tcList(dictionnaryNode).size());
+        for (int i = 0; i < 5; i++) {
+            assertEquals(tcId(i), dictionnaryNode.tcIdAtOrdinal(i));
+        }
+        assertArrayEquals(new long[]{tcId(1), tcId(2), tcId(3)}, dictionnaryNode.tcIds(1, 4));
+        assertArrayEquals(new long[0], dictionnaryNode.tcIds(5, 5));
+        assertThrows(IndexOutOfBoundsException.class, () -> dictionnaryNode.tcIdAtOrdinal(5));
+        assertThrows(IndexOutOfBoundsException.class, () -> dictionnaryNode.tcIdAtOrdinal(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> dictionnaryNode.tcIds(3, 6));
+    }
+
+    @Test
+    public void chunkBoundary() {
+        DictionnaryNode dictionnaryNode = dictionnaryOf("boundary");
+        for (int i = 0; i < TC_PER_LIST - 1; i++) {
+            dictionnaryNode.addTCToTCList(tcId(i));
+        }
+        assertEquals(0, tcList(dictionnaryNode).size());
+
+        // the last id of the tail fills it, the tail becoming a TCListNode
+        assertEquals(TC_PER_LIST - 1, dictionnaryNode.addTCToTCList(tcId(TC_PER_LIST - 1)));
+        assertEquals(1, tcList(dictionnaryNode).size());
+        assertEquals(tcId(TC_PER_LIST - 1), dictionnaryNode.tcIdAtOrdinal(TC_PER_LIST - 1));
+        TCListNode[] chunk = new TCListNode[1];
+        graph.lookup(0, 0, tcList(dictionnaryNode).get(0), result -> chunk[0] = (TCListNode) result);
+        assertEquals(TC_PER_LIST, chunk[0].size());
+
+        // the next id starts a new tail
+        assertEquals(TC_PER_LIST, dictionnaryNode.addTCToTCList(tcId(TC_PER_LIST)));
+        assertEquals(TC_PER_LIST + 1, dictionnaryNode.addTCToTCList(tcId(TC_PER_LIST + 1)));
+        assertEquals(1, tcList(dictionnaryNode).size());
+        assertEquals(TC_PER_LIST + 2, dictionnaryNode.getNumberOfTC());
+
+        assertEquals(tcId(0), dictionnaryNode.tcIdAtOrdinal(0));
+        assertEquals(tcId(TC_PER_LIST - 1), dictionnaryNode.tcIdAtOrdinal(TC_PER_LIST - 1));
+        assertEquals(tcId(TC_PER_LIST), dictionnaryNode.tcIdAtOrdinal(TC_PER_LIST));
+        assertEquals(tcId(TC_PER_LIST + 1), dictionnaryNode.tcIdAtOrdinal(TC_PER_LIST + 1));
+        assertArrayEquals(new long[]{tcId(TC_PER_LIST - 2), tcId(TC_PER_LIST - 1), tcId(TC_PER_LIST), tcId(TC_PER_LIST + 1)},
+                dictionnaryNode.tcIds(TC_PER_LIST - 2, TC_PER_LIST + 2));
+
+        long[] all = dictionnaryNode.tcIds(0, TC_PER_LIST + 2);
+        for (int i = 0; i < all.length; i++) {
+            assertEquals(tcId(i), all[i]);
+        }
+    }
+
+    @Test
+    public void migrationOfLegacyLists() {
+        DictionnaryNode dictionnaryNode = dictionnaryOf("legacy");
+        // before the ordinals, every tokenize content had its own TCListNode and no count was kept
+        int legacy = TC_PER_LIST + 3;
+        for (int i = 0; i < legacy; i++) {
+            TCListNode node = (TCListNode) graph.newTypedNode(0, 0, TCListNode.NAME);
+            node.initNode();
+            node.addTokenizeContentID(tcId(i));
+            tcList(dictionnaryNode).add(node.id());
+        }
+        assertEquals(0, dictionnaryNode.getNumberOfTC());
+
+        // the first access migrates, the ordinals following the order of the legacy relation
+        assertEquals(tcId(0), dictionnaryNode.tcIdAtOrdinal(0));
+        assertEquals(legacy, dictionnaryNode.getNumberOfTC());
+        assertEquals(tcId(TC_PER_LIST - 1), dictionnaryNode.tcIdAtOrdinal(TC_PER_LIST - 1));
+        assertEquals(tcId(legacy - 1), dictionnaryNode.tcIdAtOrdinal(legacy - 1));
+        long[] all = dictionnaryNode.tcIds(0, legacy);
+        for (int i = 0; i < legacy; i++) {
+            assertEquals(tcId(i), all[i]);
+        }
+
+        // new contents follow the migrated ones
+        assertEquals(legacy, dictionnaryNode.addTCToTCList(tcId(legacy)));
+        assertEquals(tcId(legacy), dictionnaryNode.tcIdAtOrdinal(legacy));
+    }
+
+    @Test
+    public void migrationClearsTheLegacyRelationFirst() {
+        DictionnaryNode dictionnaryNode = dictionnaryOf("cleared");
+        int legacy = TC_PER_LIST;
+        long[] legacyNodes = new long[legacy];
+        for (int i = 0; i < legacy; i++) {
+            TCListNode node = (TCListNode) graph.newTypedNode(0, 0, TCListNode.NAME);
+            node.initNode();
+            node.addTokenizeContentID(tcId(i));
+            tcList(dictionnaryNode).add(node.id());
+            legacyNodes[i] = node.id();
+        }
+
+        // the migration re-registers every id through addTCToTCList, which would migrate again, and count
+        // every id twice, if the legacy relation were still filled when the first id is re-registered
+        assertEquals(legacy, dictionnaryNode.addTCToTCList(tcId(legacy)));
+        assertEquals(legacy + 1, dictionnaryNode.getNumberOfTC());
+
+        // only the chunk filled by the migrated ids remains in the relation, none of the legacy nodes
+        Relation relation = tcList(dictionnaryNode);
+        assertEquals(1, relation.size());
+        Arrays.sort(legacyNodes);
+        assertFalse(Arrays.binarySearch(legacyNodes, relation.get(0)) >= 0);
+        TCListNode[] chunk = new TCListNode[1];
+        graph.lookup(0, 0, relation.get(0), result -> chunk[0] = (TCListNode) result);
+        assertEquals(TC_PER_LIST, chunk[0].size());
+        for (int i = 0; i < TC_PER_LIST; i++) {
+            assertEquals(tcId(i), chunk[0].tcIdAtPosition(i));
+        }
+        assertEquals(tcId(legacy), dictionnaryNode.tcIdAtOrdinal(legacy));
+    }
+
+    private TokenizeContentNode newContent(String category, String text) {
+        TokenizeContentNode[] content = new TokenizeContentNode[1];
+        TokenizeContentNode.getOrCreateTokenizeContentOfNode(graph.newNode(0, 0), "text", category, result -> content[0] = result);
+        content[0].setContent(new SimpleTokenizer().tokenize(text));
+        return content[0];
+    }
+
+    private VocabularyNode vocabularyOf(DictionnaryNode dictionnaryNode, char firstChar) {
+        VocabularyNode[] vocabularyNode = new VocabularyNode[1];
+        dictionnaryNode.getVocabularyNodeFor(firstChar, result -> vocabularyNode[0] = result);
+        return vocabularyNode[0];
+    }
+
+    @Test
+    public void tombstonesOfUnreferencedWordsArePurged() {
+        DictionnaryNode dictionnaryNode = dictionnaryOf("purged");
+        TokenizeContentNode content = newContent("purged", "zeta eta theta");
+        VocabularyNode vocabulary = vocabularyOf(dictionnaryNode, 'z');
+        int zeta = vocabulary.getWord(HashHelper.hash("zeta"));
+        content.setContent(new SimpleTokenizer().tokenize("eta theta"));
+
+        assertEquals(1, dictionnaryNode.compactVocabulary());
+        assertEquals("zeta", vocabulary.getWordForPosition(zeta));
+        // no version nor chunk holds zeta anymore
+        assertEquals(1, dictionnaryNode.purgeTombstones(0));
+        assertNull(vocabulary.getWordForPosition(zeta));
+        assertEquals(0, vocabulary.getNumberOfTombstones());
+
+        // a word used again gets a new id
+        content.setContent(new SimpleTokenizer().tokenize("zeta eta theta"));
+        int again = vocabulary.getWord(HashHelper.hash("zeta"));
+        assertNotEquals(zeta, again);
+        assertEquals("zeta", vocabulary.getWordForPosition(again));
+        assertEquals(0, dictionnaryNode.purgeTombstones(0));
+    }
+
+    @Test
+    public void tombstonesOfSharedChunksAreKept() {
+        DictionnaryNode dictionnaryNode = dictionnaryOf("shared");
+        dictionnaryNode.enableSharedContent();
+        TokenizeContentNode content = newContent("shared", "zeta eta theta");
+        VocabularyNode vocabulary = vocabularyOf(dictionnaryNode, 'z');
+        int zeta = vocabulary.getWord(HashHelper.hash("zeta"));
+        content.setContent(new SimpleTokenizer().tokenize("eta theta"));
+
+        assertEquals(1, dictionnaryNode.compactVocabulary());
+        // the chunk of the first version still holds zeta
+        assertEquals(0, dictionnaryNode.purgeTombstones(0));
+        assertEquals("zeta", vocabulary.getWordForPosition(zeta));
+        assertEquals(1, vocabulary.getNumberOfTombstones());
+    }
+}
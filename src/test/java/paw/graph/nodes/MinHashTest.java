@@ -0,0 +1,241 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.Node;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paw.graph.PawPlugin;
+import paw.tokenizer.SimpleTokenizer;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class MinHashTest {
+
+    private static final String CATEGORY = "minhash";
+    private static final int PAIRS = 100;
+    private static final int UNION = 40;
+
+    private Graph graph;
+    private SimpleTokenizer tokenizer;
+    private int nextWord;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+        tokenizer = new SimpleTokenizer();
+        nextWord = 0;
+        dictionnary().enableMinHash();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    private DictionnaryNode dictionnary() {
+        DictionnaryNode[] dictionnaryNode = new DictionnaryNode[1];
+        DictionnaryNode.getOrCreateDictionnaryNode(graph, CATEGORY, result -> dictionnaryNode[0] = result);
+        return dictionnaryNode[0];
+    }
+
+    private TokenizeContentNode content(List<String> words) {
+        Node node = graph.newNode(0, 0);
+        TokenizeContentNode[] content = new TokenizeContentNode[1];
+        TokenizeContentNode.getOrCreateTokenizeContentOfNode(node, "text", CATEGORY, result -> content[0] = result);
+        content[0].setContent(tokenizer.tokenize(String.join(" ", words)));
+        return content[0];
+    }
+
+    /**
+     * @return a word never returned before, made of letters only
+     */
+    private String newWord() {
+        StringBuilder builder = new StringBuilder("w");
+        int value = nextWord++;
+        do {
+            builder.append((char) ('a' + value % 26));
+            value /= 26;
+        } while (value != 0);
+        return builder.toString();
+    }
+
+    /**
+     * @return two contents whose sets of words have the given Jaccard similarity, on a union of UNION words
+     */
+    private TokenizeContentNode[] pair(double jaccard, Random random) {
+        int shared = (int) Math.round(jaccard * UNION);
+        List<String> first = new ArrayList<>();
+        List<String> second = new ArrayList<>();
+        for (int i = 0; i < shared; i++) {
+            String word = newWord();
+            first.add(word);
+            second.add(word);
+        }
+        for (int i = shared; i < UNION; i++) {
+            (i % 2 == 0 ? first : second).add(newWord());
+        }
+        Collections.shuffle(first, random);
+        Collections.shuffle(second, random);
+        return new TokenizeContentNode[]{content(first), content(second)};
+    }
+
+    private static boolean contains(long[] ids, long id) {
+        for (long candidate : ids) {
+            if (candidate == id) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return the fraction of PAIRS pairs of the given similarity found as candidates of each other
+     */
+    private double recall(double jaccard, long seed) {
+        DictionnaryNode dictionnaryNode = dictionnary();
+        Random random = new Random(seed);
+        int found = 0;
+        for (int i = 0; i < PAIRS; i++) {
+            TokenizeContentNode[] pair = pair(jaccard, random);
+            long[] candidates = dictionnaryNode.signatureCandidates(pair[0].getSignature());
+            assertTrue(contains(candidates, pair[0].id()));
+            if (contains(candidates, pair[1].id())) {
+                found++;
+            }
+        }
+        return (double) found / PAIRS;
+    }
+
+    /**
+     * @return the probability for two contents of the given similarity to share at least one band
+     */
+    private static double expectedRecall(double jaccard) {
+        return 1 - Math.pow(1 - Math.pow(jaccard, MinHash.ROWS), MinHash.BANDS);
+    }
+
+    @Test
+    public void bandKeys() {
+        int[] signature = new int[MinHash.SIZE];
+        for (int i = 0; i < signature.length; i++) {
+            signature[i] = 1000 + i % MinHash.ROWS;
+        }
+        long[] keys = MinHash.bandKeys(signature);
+        assertEquals(MinHash.BANDS, keys.length);
+        assertArrayEquals(keys, MinHash.bandKeys(signature.clone()));
+        // bands holding the same rows are still told apart by their number
+        for (int band = 0; band < MinHash.BANDS; band++) {
+            assertEquals(band, (int) (keys[band] >>> 32));
+        }
+        assertNotEquals(keys[0], keys[1]);
+
+        // a single changed row only changes the key of its band
+        int[] changed = signature.clone();
+        changed[5 * MinHash.ROWS + 2]++;
+        long[] changedKeys = MinHash.bandKeys(changed);
+        for (int band = 0; band < MinHash.BANDS; band++) {
+            if (band == 5) {
+                assertNotEquals(keys[band], changedKeys[band]);
+            } else {
+                assertEquals(keys[band], changedKeys[band]);
+            }
+        }
+    }
+
+    @Test
+    public void similarityOfSignatures() {
+        Random random = new Random(7);
+        TokenizeContentNode[] same = pair(1, random);
+        assertArrayEquals(same[0].getSignature(), same[1].getSignature());
+        assertEquals(1.0, MinHash.similarity(same[0].getSignature(), same[1].getSignature()));
+
+        // the estimate of a single pair is within a few standard deviations of the Jaccard similarity
+        TokenizeContentNode[] half = pair(0.5, random);
+        assertEquals(0.5, MinHash.similarity(half[0].getSignature(), half[1].getSignature()), 0.15);
+        TokenizeContentNode[] disjoint = pair(0, random);
+        assertEquals(0, MinHash.similarity(disjoint[0].getSignature(), disjoint[1].getSignature()), 0.05);
+    }
+
+    @Test
+    public void recallOfCloseContents() {
+        // a pair of similarity 0.8 misses every band with a probability below 1e-7
+        assertEquals(1.0, recall(0.8, 1));
+        assertEquals(1.0, recall(0.9, 2));
+    }
+
+    @Test
+    public void recallFollowsTheBandingCurve() {
+        for (double jaccard : new double[]{0.3, 0.5, 0.6}) {
+            double recall = recall(jaccard, (long) (jaccard * 100));
+            assertEquals(expectedRecall(jaccard), recall, 0.1, "similarity " + jaccard);
+        }
+        // distant contents are seldom compared
+        assertTrue(recall(0.1, 10) < 0.05);
+    }
+
+    @Test
+    public void nearDuplicatesOfACandidate() {
+        Random random = new Random(3);
+        TokenizeContentNode[] close = pair(0.9, random);
+        TokenizeContentNode[] distant = pair(0.2, random);
+        long[][] duplicates = new long[1][];
+        close[0].nearDuplicates(0.7, result -> duplicates[0] = result);
+        assertArrayEquals(new long[]{close[1].id()}, duplicates[0]);
+        distant[0].nearDuplicates(0.7, result -> duplicates[0] = result);
+        assertEquals(0, duplicates[0].length);
+    }
+
+    @Test
+    public void newContentLeavesItsOldBands() {
+        DictionnaryNode dictionnaryNode = dictionnary();
+        Random random = new Random(5);
+        TokenizeContentNode[] pair = pair(1, random);
+        int[] oldSignature = pair[0].getSignature();
+        assertTrue(contains(dictionnaryNode.signatureCandidates(oldSignature), pair[0].id()));
+
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < UNION; i++) {
+            words.add(newWord());
+        }
+        pair[0].setContent(tokenizer.tokenize(String.join(" ", words)));
+        long[] candidates = dictionnaryNode.signatureCandidates(oldSignature);
+        assertFalse(contains(candidates, pair[0].id()));
+        assertTrue(contains(candidates, pair[1].id()));
+        assertTrue(contains(dictionnaryNode.signatureCandidates(pair[0].getSignature()), pair[0].id()));
+
+        // a content without word leaves the index
+        int[] signature = pair[0].getSignature();
+        pair[0].setContent(new ArrayList<>());
+        assertNull(pair[0].getSignature());
+        assertFalse(contains(dictionnaryNode.signatureCandidates(signature), pair[0].id()));
+    }
+}
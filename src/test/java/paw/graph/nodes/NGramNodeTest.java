@@ -0,0 +1,247 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.struct.LongLongMap;
+import greycat.utility.HashHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paw.graph.PawPlugin;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NGramNodeTest {
+
+    private Graph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    private NGramNode newShard() {
+        NGramNode shard = (NGramNode) graph.newTypedNode(0, 0, NGramNode.NAME);
+        shard.initNGramNode('a');
+        return shard;
+    }
+
+    @Test
+    public void trigramsOfLargeTermIds() {
+        NGramNode shard = newShard();
+        int large = 3000000;
+        int max = Integer.MAX_VALUE;
+        shard.addTrigramOccurrences(NGramNode.bigramKey(large, 7), max, 2);
+        shard.addTrigramOccurrences(NGramNode.bigramKey(large, 7), 1, 1);
+        shard.addTrigramOccurrences(NGramNode.bigramKey(7, large), max, 5);
+        // same low bits as the first prefix on 21 bits
+        shard.addTrigramOccurrences(NGramNode.bigramKey(large & ((1 << 21) - 1), 7), max, 3);
+
+        assertEquals(2, shard.getOccurrences(new int[]{large, 7, max}));
+        assertEquals(1, shard.getOccurrences(new int[]{large, 7, 1}));
+        assertEquals(5, shard.getOccurrences(new int[]{7, large, max}));
+        assertEquals(3, shard.getOccurrences(new int[]{large & ((1 << 21) - 1), 7, max}));
+        assertEquals(0, shard.getOccurrences(new int[]{large, 7, 2}));
+        assertEquals(0, shard.getOccurrences(new int[]{large, 8, max}));
+
+        long[][] top = shard.topContinuations(new int[]{large, 7}, 10);
+        assertEquals(2, top.length);
+        assertArrayEquals(new long[]{max, 2}, top[0]);
+        assertArrayEquals(new long[]{1, 1}, top[1]);
+        assertEquals(0, shard.topContinuations(new int[]{large, 8}, 10).length);
+    }
+
+    @Test
+    public void removedOccurrences() {
+        NGramNode shard = newShard();
+        long prefix = NGramNode.bigramKey(1, 2);
+        shard.addTrigramOccurrences(prefix, 3, 2);
+        shard.addTrigramOccurrences(prefix, 3, -2);
+        assertEquals(0, shard.getOccurrences(new int[]{1, 2, 3}));
+        assertEquals(0, shard.topContinuations(new int[]{1, 2}, 10).length);
+        // removing occurrences of an unknown trigram does not create it
+        shard.addTrigramOccurrences(NGramNode.bigramKey(4, 5), 6, -1);
+        assertEquals(0, shard.topContinuations(new int[]{4, 5}, 10).length);
+        shard.addTrigramOccurrences(prefix, 3, 1);
+        assertEquals(1, shard.getOccurrences(new int[]{1, 2, 3}));
+    }
+
+    @Test
+    public void bigrams() {
+        NGramNode shard = newShard();
+        shard.addOccurrences(NGramNode.bigramKey(Integer.MAX_VALUE, Integer.MAX_VALUE - 1), 4);
+        shard.addOccurrences(NGramNode.bigramKey(Integer.MAX_VALUE, 0), 1);
+        assertEquals(4, shard.getOccurrences(new int[]{Integer.MAX_VALUE, Integer.MAX_VALUE - 1}));
+        long[][] top = shard.topContinuations(new int[]{Integer.MAX_VALUE}, 1);
+        assertEquals(1, top.length);
+        assertArrayEquals(new long[]{Integer.MAX_VALUE - 1, 4}, top[0]);
+    }
+
+    @Test
+    public void legacyTrigramsAreKeyedAgain() {
+        NGramNode shard = newShard();
+        shard.removeAt(HashHelper.hash(NGramNode.TRIGRAM_PREFIXES));
+        LongLongMap legacy = (LongLongMap) shard.getAt(HashHelper.hash(NGramNode.TRIGRAMS));
+        legacy.put((5L << 42) | (6L << 21) | 7L, 3);
+        legacy.put((5L << 42) | (6L << 21) | 8L, 1);
+
+        assertEquals(3, shard.getOccurrences(new int[]{5, 6, 7}));
+        assertEquals(1, shard.getOccurrences(new int[]{5, 6, 8}));
+        long[][] top = shard.topContinuations(new int[]{5, 6}, 10);
+        assertEquals(2, top.length);
+        assertArrayEquals(new long[]{7, 3}, top[0]);
+    }
+
+    private static int size(NGramNode shard, String attribute) {
+        return ((LongLongMap) shard.getAt(HashHelper.hash(attribute))).size();
+    }
+
+    @Test
+    public void prefixIdsAreDroppedWithTheirLastTrigram() {
+        NGramNode shard = newShard();
+        long first = NGramNode.bigramKey(1, 2);
+        long second = NGramNode.bigramKey(1, 3);
+        shard.addTrigramOccurrences(first, 4, 2);
+        shard.addTrigramOccurrences(first, 5, 1);
+        shard.addTrigramOccurrences(second, 4, 1);
+        assertEquals(2, size(shard, NGramNode.TRIGRAM_PREFIXES));
+
+        shard.addTrigramOccurrences(first, 4, -2);
+        assertEquals(2, size(shard, NGramNode.TRIGRAM_PREFIXES));
+        shard.addTrigramOccurrences(first, 5, -1);
+        assertEquals(1, size(shard, NGramNode.TRIGRAM_PREFIXES));
+        shard.addTrigramOccurrences(second, 4, -3);
+        assertEquals(0, size(shard, NGramNode.TRIGRAM_PREFIXES));
+        assertEquals(0, size(shard, NGramNode.TRIGRAMS));
+
+        // counted again under a new prefix id
+        shard.addTrigramOccurrences(first, 5, 3);
+        assertEquals(3, shard.getOccurrences(new int[]{1, 2, 5}));
+        assertEquals(0, shard.getOccurrences(new int[]{1, 2, 4}));
+        long[][] top = shard.topContinuations(new int[]{1, 2}, 10);
+        assertEquals(1, top.length);
+        assertArrayEquals(new long[]{5, 3}, top[0]);
+    }
+
+    @Test
+    public void continuationsMatchAScanOfTheShard() {
+        NGramNode shard = newShard();
+        Random random = new Random(7);
+        Map<Long, Long> bigrams = new HashMap<>();
+        Map<List<Integer>, Long> trigrams = new HashMap<>();
+        for (int i = 0; i < 5000; i++) {
+            int a = random.nextInt(5);
+            int b = random.nextInt(5);
+            int c = random.nextInt(20);
+            long delta = random.nextInt(3) == 0 ? -random.nextInt(3) : 1 + random.nextInt(2);
+            long key = NGramNode.bigramKey(a, b);
+            shard.addOccurrences(key, delta);
+            bigrams.merge(key, delta, Long::sum);
+            if (bigrams.get(key) <= 0) {
+                bigrams.remove(key);
+            }
+            shard.addTrigramOccurrences(key, c, delta);
+            List<Integer> trigram = Arrays.asList(a, b, c);
+            if (delta > 0 || trigrams.containsKey(trigram)) {
+                trigrams.merge(trigram, delta, Long::sum);
+                if (trigrams.get(trigram) <= 0) {
+                    trigrams.remove(trigram);
+                }
+            }
+        }
+        for (int a = 0; a < 5; a++) {
+            Map<Long, Long> expected = new HashMap<>();
+            for (int b = 0; b < 5; b++) {
+                Long count = bigrams.get(NGramNode.bigramKey(a, b));
+                if (count != null) {
+                    expected.put((long) b, count);
+                }
+                Map<Long, Long> expectedTrigrams = new HashMap<>();
+                for (int c = 0; c < 20; c++) {
+                    Long trigramCount = trigrams.get(Arrays.asList(a, b, c));
+                    if (trigramCount != null) {
+                        expectedTrigrams.put((long) c, trigramCount);
+                    }
+                }
+                assertEquals(expectedTrigrams, asMap(shard.topContinuations(new int[]{a, b}, 100)));
+            }
+            assertEquals(expected, asMap(shard.topContinuations(new int[]{a}, 100)));
+        }
+        Set<Long> prefixes = new HashSet<>();
+        for (List<Integer> trigram : trigrams.keySet()) {
+            prefixes.add(NGramNode.bigramKey(trigram.get(0), trigram.get(1)));
+        }
+        assertEquals(prefixes.size(), size(shard, NGramNode.TRIGRAM_PREFIXES));
+    }
+
+    private static Map<Long, Long> asMap(long[][] continuations) {
+        Map<Long, Long> map = new HashMap<>();
+        for (int i = 0; i < continuations.length; i++) {
+            if (i > 0) {
+                assertTrue(continuations[i - 1][1] >= continuations[i][1]);
+            }
+            map.put(continuations[i][0], continuations[i][1]);
+        }
+        return map;
+    }
+
+    @Test
+    public void indexIsBuiltForShardsWrittenWithoutIt() {
+        NGramNode shard = newShard();
+        shard.addOccurrences(NGramNode.bigramKey(1, 2), 3);
+        shard.addOccurrences(NGramNode.bigramKey(1, 4), 5);
+        shard.addTrigramOccurrences(NGramNode.bigramKey(1, 2), 6, 2);
+        shard.addTrigramOccurrences(NGramNode.bigramKey(1, 4), 7, 1);
+        // a shard of the previous version kept the prefix ids of its removed trigrams
+        shard.addTrigramOccurrences(NGramNode.bigramKey(1, 4), 7, -1);
+        ((LongLongMap) shard.getAt(HashHelper.hash(NGramNode.TRIGRAM_PREFIXES))).put(NGramNode.bigramKey(1, 4), 1);
+        shard.removeAt(HashHelper.hash(NGramNode.BIGRAM_CONTINUATIONS));
+        shard.removeAt(HashHelper.hash(NGramNode.TRIGRAM_CONTINUATIONS));
+
+        long[][] bigrams = shard.topContinuations(new int[]{1}, 10);
+        assertEquals(2, bigrams.length);
+        assertArrayEquals(new long[]{4, 5}, bigrams[0]);
+        assertArrayEquals(new long[]{2, 3}, bigrams[1]);
+        long[][] trigrams = shard.topContinuations(new int[]{1, 2}, 10);
+        assertEquals(1, trigrams.length);
+        assertArrayEquals(new long[]{6, 2}, trigrams[0]);
+        assertEquals(1, size(shard, NGramNode.TRIGRAM_PREFIXES));
+
+        // the built index is maintained
+        shard.addOccurrences(NGramNode.bigramKey(1, 2), -3);
+        assertEquals(1, shard.topContinuations(new int[]{1}, 10).length);
+    }
+}
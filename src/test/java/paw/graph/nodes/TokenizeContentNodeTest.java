@@ -0,0 +1,423 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.Node;
+import greycat.Type;
+import greycat.utility.HashHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paw.PawConstants;
+import paw.graph.PawPlugin;
+import paw.tokenizer.AbstractTokenizer;
+import paw.tokenizer.JavaTokenizer;
+import paw.tokenizer.SimpleTokenizer;
+import paw.tokenizer.TokenizerRegistry;
+import paw.tokenizer.token.ContentT;
+import paw.tokenizer.token.Token;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TokenizeContentNodeTest {
+
+    /**
+     * Number of words encoded at once by a streamed setContent, as in TokenizeContentNode
+     */
+    private static final int STREAM_BATCH = 1024;
+
+    private static final String[] WORDS = {"Alpha", "beta", "GAMMA", "dElta", "42", "epsilon", "7", "Zeta", "eta"};
+
+    private Graph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    private TokenizeContentNode newContent(String category) {
+        Node node = graph.newNode(0, 0);
+        TokenizeContentNode[] content = new TokenizeContentNode[1];
+        TokenizeContentNode.getOrCreateTokenizeContentOfNode(node, "text", category, result -> content[0] = result);
+        return content[0];
+    }
+
+    private DictionnaryNode dictionnaryOf(String category) {
+        DictionnaryNode[] dictionnaryNode = new DictionnaryNode[1];
+        DictionnaryNode.getOrCreateDictionnaryNode(graph, category, result -> dictionnaryNode[0] = result);
+        return dictionnaryNode[0];
+    }
+
+    private DictionnaryNode statisticsCategory(String category) {
+        DictionnaryNode dictionnaryNode = dictionnaryOf(category);
+        dictionnaryNode.enableNGrams(result -> {
+        });
+        dictionnaryNode.enableTermVectors();
+        dictionnaryNode.enableFingerprints();
+        return dictionnaryNode;
+    }
+
+    /**
+     * @return text of exactly the given number of tokens for the simple tokenizer, mixing casings and numbers
+     */
+    private static String text(int tokens) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < tokens; i++) {
+            builder.append(WORDS[(i * 7 + i / 5) % WORDS.length]).append(' ');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return the tokens as rebuilt by the node, with the casing of their content
+     */
+    private static List<String> rebuilt(TokenizeContentNode content) {
+        List<String> tokens = new ArrayList<>();
+        for (Token token : content.rebuildContent()) {
+            tokens.add(token instanceof ContentT ? ((ContentT) token).getLowerString().rebuild() : token.getToken());
+        }
+        return tokens;
+    }
+
+    private static void assertSameStatistics(DictionnaryNode listed, DictionnaryNode streamed) {
+        for (String first : new String[]{"alpha", "beta", "gamma", "delta", "epsilon"}) {
+            assertEquals(listed.topContinuations(new String[]{first}, 5), streamed.topContinuations(new String[]{first}, 5), first);
+            for (String second : new String[]{"beta", "zeta", "eta"}) {
+                Map<String, Long> expected = listed.topContinuations(new String[]{first, second}, 5);
+                assertEquals(expected, streamed.topContinuations(new String[]{first, second}, 5), first + " " + second);
+            }
+        }
+    }
+
+    @Test
+    public void streamedContentMatchesListedContentAcrossBatches() throws IOException {
+        AbstractTokenizer tokenizer = new SimpleTokenizer();
+        DictionnaryNode listedCategory = statisticsCategory("listed");
+        DictionnaryNode streamedCategory = statisticsCategory("streamed");
+        int[] sizes = {0, 1, STREAM_BATCH - 1, STREAM_BATCH, STREAM_BATCH + 1, 2 * STREAM_BATCH, 2 * STREAM_BATCH + 1};
+        for (int size : sizes) {
+            String text = text(size);
+            List<Token> tokens = tokenizer.tokenize(text);
+            assertEquals(size, tokens.size());
+
+            TokenizeContentNode listed = newContent("listed");
+            listed.setContent(tokens);
+            TokenizeContentNode streamed = newContent("streamed");
+            streamed.setContent(new StringReader(text), tokenizer);
+
+            assertEquals(rebuilt(listed), rebuilt(streamed), "size " + size);
+            assertEquals(listed.getFingerprint(), streamed.getFingerprint(), "size " + size);
+            assertEquals(listed.cosineSimilarity(listed), streamed.cosineSimilarity(streamed), 1e-9, "size " + size);
+            assertArrayEquals(listed.getTermFrequencies(), streamed.getTermFrequencies(), "size " + size);
+            assertSameStatistics(listedCategory, streamedCategory);
+        }
+    }
+
+    @Test
+    public void streamingReplacesALongerContent() throws IOException {
+        AbstractTokenizer tokenizer = new SimpleTokenizer();
+        DictionnaryNode listedCategory = statisticsCategory("listed");
+        DictionnaryNode streamedCategory = statisticsCategory("streamed");
+        TokenizeContentNode listed = newContent("listed");
+        TokenizeContentNode streamed = newContent("streamed");
+        // every version is longer then shorter than the batches
+        int[] sizes = {3 * STREAM_BATCH + 5, STREAM_BATCH + 1, STREAM_BATCH - 1, 2 * STREAM_BATCH};
+        for (int size : sizes) {
+            String text = text(size);
+            listed.setContent(tokenizer.tokenize(text));
+            streamed.setContent(new StringReader(text), tokenizer);
+            assertEquals(rebuilt(listed), rebuilt(streamed), "size " + size);
+            assertSameStatistics(listedCategory, streamedCategory);
+        }
+    }
+
+    @Test
+    public void streamedSharedContentMatchesListedContent() throws IOException {
+        AbstractTokenizer tokenizer = new SimpleTokenizer();
+        dictionnaryOf("listed").enableSharedContent();
+        dictionnaryOf("streamed").enableSharedContent();
+        for (int size : new int[]{STREAM_BATCH, STREAM_BATCH + 1, 2 * STREAM_BATCH + 1}) {
+            String text = text(size);
+            TokenizeContentNode listed = newContent("listed");
+            listed.setContent(tokenizer.tokenize(text));
+            TokenizeContentNode streamed = newContent("streamed");
+            streamed.setContent(new StringReader(text), tokenizer);
+            assertEquals(rebuilt(listed), rebuilt(streamed), "size " + size);
+        }
+    }
+
+    @Test
+    public void editedSharedContentMatchesPlainContent() throws IOException {
+        AbstractTokenizer tokenizer = new SimpleTokenizer();
+        DictionnaryNode plainCategory = statisticsCategory("plain");
+        DictionnaryNode sharedCategory = statisticsCategory("shared");
+        sharedCategory.enableSharedContent();
+        TokenizeContentNode plain = newContent("plain");
+        TokenizeContentNode shared = newContent("shared");
+        String text = text(600);
+        // a word replaced, words inserted then removed, the whole content replaced
+        String[] versions = {text, text.replaceFirst("epsilon", "Omega"), "inserted words " + text, text, text(40)};
+        for (int v = 0; v < versions.length; v++) {
+            plain.setContent(tokenizer.tokenize(versions[v]));
+            if (v % 2 == 0) {
+                shared.setContent(tokenizer.tokenize(versions[v]));
+            } else {
+                shared.setContent(new StringReader(versions[v]), tokenizer);
+            }
+            assertEquals(rebuilt(plain), rebuilt(shared), "version " + v);
+            assertEquals(plain.getFingerprint(), shared.getFingerprint(), "version " + v);
+            assertArrayEquals(plain.getTermFrequencies(), shared.getTermFrequencies(), "version " + v);
+            assertSameStatistics(plainCategory, sharedCategory);
+        }
+    }
+
+    @Test
+    public void sameFingerprintIsNotTakenAsTheSameContent() {
+        AbstractTokenizer tokenizer = new SimpleTokenizer();
+        statisticsCategory("fingerprints");
+        TokenizeContentNode content = newContent("fingerprints");
+        content.setContent(tokenizer.tokenize("alpha Beta gamma"));
+        List<Token> other = tokenizer.tokenize("alpha BETA gamma");
+        // the current content now has the fingerprint of the other one, as if both fingerprints collided
+        content.setAt(HashHelper.hash("fingerprint"), Type.LONG, ContentFingerprint.of(other));
+
+        content.setContent(other);
+        assertEquals(Arrays.asList("alpha", "BETA", "gamma"), rebuilt(content));
+    }
+
+    @Test
+    public void sameFingerprintDoesNotAdoptAnotherPayload() {
+        AbstractTokenizer tokenizer = new SimpleTokenizer();
+        DictionnaryNode dictionnaryNode = statisticsCategory("payloads");
+        dictionnaryNode.enableSharedContent();
+        List<Token> first = tokenizer.tokenize("alpha Beta gamma");
+        List<Token> second = tokenizer.tokenize("alpha beta gamma delta");
+        newContent("payloads").setContent(first);
+        // the fingerprint of the second content now leads to the chunks of the first one
+        dictionnaryNode.addContentPayload(ContentFingerprint.of(second), dictionnaryNode.getContentPayload(ContentFingerprint.of(first)));
+
+        TokenizeContentNode content = newContent("payloads");
+        content.setContent(second);
+        assertEquals(Arrays.asList("alpha", "beta", "gamma", "delta"), rebuilt(content));
+
+        // the payload of a content with the same tokens is still adopted
+        TokenizeContentNode same = newContent("payloads");
+        same.setContent(tokenizer.tokenize("alpha Beta gamma"));
+        assertEquals(Arrays.asList("alpha", "Beta", "gamma"), rebuilt(same));
+        assertEquals(ContentFingerprint.of(first), same.getFingerprint());
+    }
+
+    @Test
+    public void wideNumbersSurviveTheContent() {
+        AbstractTokenizer tokenizer = new SimpleTokenizer();
+        tokenizer.setWideNumbers(true);
+        String text = "007 0.05 -0.5 1.50 999999999999999999 -999999999999999999 0.000000000000001 0000000000000001 42";
+        List<Token> tokens = tokenizer.tokenize(text);
+        TokenizeContentNode content = newContent("numbers");
+        content.setContent(tokens);
+        assertEquals(Arrays.asList(text.split(" ")), rebuilt(content));
+        for (Token token : content.rebuildContent()) {
+            assertEquals(PawConstants.NUMBER_TOKEN, token.getType());
+        }
+    }
+
+    @Test
+    public void tokenizerConfigurationIsRecorded() throws IOException {
+        String source = "class A { String s = \"unterminated\n }";
+        TokenizeContentNode first = newContent("java");
+        first.setContent(new StringReader(source), new JavaTokenizer(true));
+        DictionnaryNode dictionnaryNode = dictionnaryOf("java");
+        assertEquals(PawConstants.JAVA_TOKENIZER, dictionnaryNode.getTokenizerType());
+        assertEquals(new JavaTokenizer(true).getConfiguration(), dictionnaryNode.getTokenizerConfiguration());
+
+        // the registered java tokenizer parses the files, it would not return the same tokens
+        TokenizeContentNode second = newContent("java");
+        assertThrows(IllegalStateException.class, () -> second.setContent(new StringReader(source)));
+        TokenizerRegistry.register(PawConstants.JAVA_TOKENIZER, () -> new JavaTokenizer(true));
+        try {
+            second.setContent(new StringReader(source));
+        } finally {
+            TokenizerRegistry.register(PawConstants.JAVA_TOKENIZER, JavaTokenizer::new);
+        }
+        assertEquals(rebuilt(first), rebuilt(second));
+        assertTrue(rebuilt(second).contains("\"unterminated"));
+    }
+
+    /**
+     * @return the number of occurrences of each lower cased content word of the text, numbers being left out
+     */
+    private static Map<String, Integer> wordCounts(String text) {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String word : text.split(" +")) {
+            if (!word.isEmpty() && Character.isLetter(word.charAt(0))) {
+                counts.merge(word.toLowerCase(), 1, Integer::sum);
+            }
+        }
+        return counts;
+    }
+
+    private static double referenceCosine(Map<String, Integer> first, Map<String, Integer> second) {
+        if (first.isEmpty() || second.isEmpty()) {
+            return 0;
+        }
+        long dot = 0;
+        for (Map.Entry<String, Integer> entry : first.entrySet()) {
+            dot += (long) entry.getValue() * second.getOrDefault(entry.getKey(), 0);
+        }
+        return dot / (norm(first) * norm(second));
+    }
+
+    private static double norm(Map<String, Integer> counts) {
+        long sum = 0;
+        for (int count : counts.values()) {
+            sum += (long) count * count;
+        }
+        return Math.sqrt(sum);
+    }
+
+    /**
+     * @return a text of the given number of words drawn from the pool, in random casings, with a few numbers
+     */
+    private static String randomText(String[] pool, int words, Random random) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            if (random.nextInt(10) == 0) {
+                // 0 is a content word for the default number parser, which rejects leading zeros
+                builder.append(1 + random.nextInt(99));
+            } else {
+                String word = pool[random.nextInt(pool.length)];
+                builder.append(random.nextBoolean() ? word : word.toUpperCase());
+            }
+            builder.append(' ');
+        }
+        return builder.toString();
+    }
+
+    @Test
+    public void termVectorCountsTheContentWords() {
+        DictionnaryNode dictionnaryNode = dictionnaryOf("vectors");
+        dictionnaryNode.enableTermVectors();
+        SimpleTokenizer tokenizer = new SimpleTokenizer();
+        String text = "gamma Alpha beta 12 ALPHA gamma gamma delta 3 alpha";
+        TokenizeContentNode content = newContent("vectors");
+        content.setContent(tokenizer.tokenize(text));
+
+        int[] ids = content.getTermIds();
+        int[] frequencies = content.getTermFrequencies();
+        assertEquals(4, ids.length);
+        for (int i = 1; i < ids.length; i++) {
+            assertTrue(ids[i - 1] < ids[i], "term ids are increasing");
+        }
+        // term ids are given in order of first occurrence in the category: gamma, alpha, beta, delta
+        assertArrayEquals(new int[]{3, 3, 1, 1}, frequencies);
+
+        // the same words get the same term ids in another content
+        TokenizeContentNode other = newContent("vectors");
+        other.setContent(tokenizer.tokenize("delta gamma"));
+        assertArrayEquals(new int[]{ids[0], ids[3]}, other.getTermIds());
+        assertArrayEquals(new int[]{1, 1}, other.getTermFrequencies());
+
+        // a new version replaces the vector
+        content.setContent(tokenizer.tokenize("beta beta 5"));
+        assertArrayEquals(new int[]{ids[2]}, content.getTermIds());
+        assertArrayEquals(new int[]{2}, content.getTermFrequencies());
+    }
+
+    @Test
+    public void cosineSimilarityMatchesTheWordCounts() {
+        DictionnaryNode dictionnaryNode = dictionnaryOf("cosine");
+        dictionnaryNode.enableTermVectors();
+        SimpleTokenizer tokenizer = new SimpleTokenizer();
+        String[] pool = new String[40];
+        for (int i = 0; i < pool.length; i++) {
+            pool[i] = "word" + (char) ('a' + i % 26) + (char) ('a' + i / 26);
+        }
+        Random random = new Random(11);
+        int contents = 30;
+        TokenizeContentNode[] nodes = new TokenizeContentNode[contents];
+        String[] texts = new String[contents];
+        for (int i = 0; i < contents; i++) {
+            // from disjoint halves of the pool to the whole pool, so that the merge join skips on both sides
+            String[] part = i % 3 == 0 ? Arrays.copyOfRange(pool, 0, 20) : i % 3 == 1 ? Arrays.copyOfRange(pool, 20, 40) : pool;
+            texts[i] = randomText(part, 1 + random.nextInt(60), random);
+            nodes[i] = newContent("cosine");
+            nodes[i].setContent(tokenizer.tokenize(texts[i]));
+        }
+        for (int i = 0; i < contents; i++) {
+            Map<String, Integer> first = wordCounts(texts[i]);
+            for (int j = 0; j < contents; j++) {
+                double expected = referenceCosine(first, wordCounts(texts[j]));
+                assertEquals(expected, nodes[i].cosineSimilarity(nodes[j]), 1e-12, i + " " + j);
+            }
+        }
+    }
+
+    @Test
+    public void cosineSimilarityEdgeCases() {
+        DictionnaryNode dictionnaryNode = dictionnaryOf("edges");
+        dictionnaryNode.enableTermVectors();
+        SimpleTokenizer tokenizer = new SimpleTokenizer();
+        TokenizeContentNode first = newContent("edges");
+        first.setContent(tokenizer.tokenize("alpha beta gamma"));
+        TokenizeContentNode interleaved = newContent("edges");
+        interleaved.setContent(tokenizer.tokenize("delta beta epsilon"));
+        TokenizeContentNode disjoint = newContent("edges");
+        disjoint.setContent(tokenizer.tokenize("zeta eta"));
+        TokenizeContentNode last = newContent("edges");
+        last.setContent(tokenizer.tokenize("eta"));
+        TokenizeContentNode numbers = newContent("edges");
+        numbers.setContent(tokenizer.tokenize("1 2 3"));
+
+        assertEquals(1, first.cosineSimilarity(first), 1e-12);
+        assertEquals(1 / 3.0, first.cosineSimilarity(interleaved), 1e-12);
+        assertEquals(first.cosineSimilarity(interleaved), interleaved.cosineSimilarity(first), 1e-12);
+        assertEquals(0, first.cosineSimilarity(disjoint), 1e-12);
+        // the only common term is the last one of both vectors
+        assertEquals(1 / Math.sqrt(2), disjoint.cosineSimilarity(last), 1e-12);
+        // no content word, no vector to compare
+        assertEquals(0, numbers.getTermIds().length);
+        assertEquals(0, numbers.cosineSimilarity(first), 1e-12);
+        assertEquals(0, first.cosineSimilarity(numbers), 1e-12);
+
+        // without term vectors in the category, the similarity is 0
+        TokenizeContentNode untracked = newContent("untracked");
+        untracked.setContent(tokenizer.tokenize("alpha beta gamma"));
+        assertEquals(null, untracked.getTermIds());
+        assertEquals(0, untracked.cosineSimilarity(first), 1e-12);
+    }
+}
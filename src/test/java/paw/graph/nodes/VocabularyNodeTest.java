@@ -0,0 +1,191 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.nodes;
+
+import greycat.Constants;
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.struct.IntArray;
+import greycat.struct.LongArray;
+import greycat.utility.HashHelper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paw.graph.PawPlugin;
+import paw.graph.customTypes.radix.struct.RadixTree;
+
+import java.util.BitSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class VocabularyNodeTest {
+
+    private Graph graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).build();
+        graph.connect(result -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    @Test
+    public void removedWordsStayResolvable() {
+        VocabularyNode vocabulary = (VocabularyNode) graph.newTypedNode(0, 0, VocabularyNode.NAME);
+        vocabulary.initVocNode('w');
+        String[] words = {"word", "words", "wordy", "world", "worm"};
+        int[] ids = vocabulary.getOrCreateWords(words);
+        // only word and world are still held by a content
+        vocabulary.addFrequencies(new int[]{ids[0], ids[3]}, new int[]{1, 2}, new long[]{1, 3});
+
+        assertEquals(3, vocabulary.compact());
+
+        for (int i = 0; i < words.length; i++) {
+            assertEquals(words[i], vocabulary.getWordForPosition(ids[i]));
+        }
+        assertEquals(ids[0], vocabulary.getWord(HashHelper.hash("word")));
+        assertEquals(ids[3], vocabulary.getWord(HashHelper.hash("world")));
+        assertEquals(Constants.NULL_INT, vocabulary.getWord(HashHelper.hash("words")));
+
+        // a removed word used again gets a new id, the previous one still resolving for the previous versions
+        int again = vocabulary.getOrCreateWord("words");
+        assertNotEquals(ids[1], again);
+        assertEquals("words", vocabulary.getWordForPosition(again));
+        assertEquals("words", vocabulary.getWordForPosition(ids[1]));
+
+        // a second compaction keeps the tombstones of the first one
+        vocabulary.addFrequencies(new int[]{again}, new int[]{1}, new long[]{1});
+        vocabulary.compact();
+        assertEquals("wordy", vocabulary.getWordForPosition(ids[2]));
+        assertEquals("words", vocabulary.getWordForPosition(again));
+        assertNull(vocabulary.getWordForPosition(again + 100));
+    }
+
+    @Test
+    public void unreferencedTombstonesArePurged() {
+        VocabularyNode vocabulary = (VocabularyNode) graph.newTypedNode(0, 0, VocabularyNode.NAME);
+        vocabulary.initVocNode('w');
+        String[] words = {"word", "words", "wordy", "world", "worm"};
+        int[] ids = vocabulary.getOrCreateWords(words);
+        vocabulary.addFrequencies(new int[]{ids[0]}, new int[]{1}, new long[]{1});
+        assertEquals(4, vocabulary.compact());
+        assertEquals(4, vocabulary.getNumberOfTombstones());
+
+        // only words and worm are still held by a previous version
+        BitSet referenced = new BitSet();
+        referenced.set(ids[1]);
+        referenced.set(ids[4]);
+        assertEquals(2, vocabulary.purgeTombstones(referenced));
+        assertEquals(2, vocabulary.getNumberOfTombstones());
+        assertEquals("word", vocabulary.getWordForPosition(ids[0]));
+        assertEquals("words", vocabulary.getWordForPosition(ids[1]));
+        assertNull(vocabulary.getWordForPosition(ids[2]));
+        assertNull(vocabulary.getWordForPosition(ids[3]));
+        assertEquals("worm", vocabulary.getWordForPosition(ids[4]));
+        assertEquals(0, vocabulary.purgeTombstones(referenced));
+
+        // the ids of the purged words are not given again
+        int again = vocabulary.getOrCreateWord("wordy");
+        for (int id : ids) {
+            assertNotEquals(id, again);
+        }
+        assertEquals("wordy", vocabulary.getWordForPosition(again));
+
+        // a second compaction adds its words to the remaining tombstones
+        vocabulary.addFrequencies(new int[]{ids[0]}, new int[]{-1}, new long[]{-1});
+        assertEquals(2, vocabulary.compact());
+        assertEquals(4, vocabulary.getNumberOfTombstones());
+        assertEquals("word", vocabulary.getWordForPosition(ids[0]));
+        assertEquals("words", vocabulary.getWordForPosition(ids[1]));
+        assertEquals("worm", vocabulary.getWordForPosition(ids[4]));
+        assertEquals("wordy", vocabulary.getWordForPosition(again));
+        assertEquals(4, vocabulary.purgeTombstones(new BitSet()));
+        assertEquals(0, vocabulary.getNumberOfTombstones());
+        assertNull(vocabulary.getWordForPosition(ids[0]));
+    }
+
+    @Test
+    public void newWordsAreSavedOnce() {
+        VocabularyNode vocabulary = (VocabularyNode) graph.newTypedNode(0, 0, VocabularyNode.NAME);
+        vocabulary.initVocNode('w');
+        String[] words = new String[2000];
+        int[] ids = new int[words.length];
+        for (int i = 0; i < words.length; i++) {
+            words[i] = "w" + Integer.toString(i * 7919, 36);
+            ids[i] = vocabulary.getOrCreateWord(words[i]);
+            assertEquals(words[i], vocabulary.getWordForPosition(ids[i]));
+        }
+        // the labels are buffered in the radix tree of the node object until saveWords
+        RadixTree stored = (RadixTree) vocabulary.getOrCreateCustomAt(HashHelper.hash(VocabularyNode.RADIX), RadixTree.NAME);
+        assertEquals(words.length, stored.size());
+        vocabulary.saveWords();
+
+        stored = (RadixTree) vocabulary.getOrCreateCustomAt(HashHelper.hash(VocabularyNode.RADIX), RadixTree.NAME);
+        for (int i = 0; i < words.length; i++) {
+            assertEquals(words[i], stored.getNameOfToken(ids[i]));
+            assertEquals(ids[i], vocabulary.getOrCreateWord(words[i]));
+        }
+    }
+
+    @Test
+    public void frequenciesGrowGeometrically() {
+        VocabularyNode vocabulary = (VocabularyNode) graph.newTypedNode(0, 0, VocabularyNode.NAME);
+        vocabulary.initVocNode('w');
+        int words = 5000;
+        int[] ids = new int[words];
+        int[] documents = new int[words];
+        long[] occurrences = new long[words];
+        int maxId = -1;
+        int growths = 0;
+        int capacity = 0;
+        for (int i = 0; i < words; i++) {
+            // every document brings one new word and one already known
+            ids[i] = vocabulary.getOrCreateWord("w" + Integer.toString(i * 7919, 36));
+            maxId = Math.max(maxId, ids[i]);
+            int known = i / 2;
+            vocabulary.addFrequencies(new int[]{ids[i], ids[known]}, new int[]{1, 1}, new long[]{2, 3});
+            documents[i]++;
+            occurrences[i] += 2;
+            documents[known]++;
+            occurrences[known] += 3;
+            int size = ((IntArray) vocabulary.getAt(HashHelper.hash(VocabularyNode.DOCUMENT_FREQUENCIES))).size();
+            assertEquals(size, ((LongArray) vocabulary.getAt(HashHelper.hash(VocabularyNode.COLLECTION_FREQUENCIES))).size());
+            if (size != capacity) {
+                growths++;
+                capacity = size;
+            }
+        }
+        assertTrue(growths < 40, growths + " growths");
+        assertTrue(capacity < 2 * (maxId + 1), "capacity " + capacity + " for " + (maxId + 1) + " ids");
+
+        for (int i = 0; i < words; i++) {
+            assertEquals(documents[i], vocabulary.getDocumentFrequency(ids[i]), "word " + i);
+            assertEquals(occurrences[i], vocabulary.getCollectionFrequency(ids[i]), "word " + i);
+        }
+        // the spare capacity holds no frequency
+        assertEquals(0, vocabulary.getDocumentFrequency(capacity - 1 > maxId ? capacity - 1 : maxId + 1));
+        assertEquals(0, vocabulary.getCollectionFrequency(capacity + 10));
+    }
+}
@@ -0,0 +1,263 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.graph.tasks;
+
+import greycat.Graph;
+import greycat.GraphBuilder;
+import greycat.Node;
+import greycat.TaskResult;
+import greycat.plugin.NodeFactory;
+import greycat.plugin.Plugin;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import paw.graph.PawPlugin;
+import paw.graph.nodes.DictionnaryNode;
+import paw.graph.nodes.TokenizeContentNode;
+import paw.tokenizer.SimpleTokenizer;
+import paw.tokenizer.token.Token;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CategoryScanTest {
+
+    private static final String CATEGORY = "scanned";
+    private static final int CONTENTS = 25;
+    private static final int BATCH = 7;
+    private static final int THREADS = 3;
+
+    private Graph graph;
+    /**
+     * number of times each tokenize content was freed since the beginning of the scan
+     */
+    private final Map<Long, AtomicInteger> freed = new ConcurrentHashMap<>();
+    private final AtomicInteger freedTotal = new AtomicInteger();
+    private volatile boolean scanning;
+
+    @BeforeEach
+    public void setUp() {
+        // the tokenize contents count their free calls once the scan started
+        Plugin countingFrees = new Plugin() {
+            @Override
+            public void start(Graph graph) {
+                graph.nodeRegistry()
+                        .getOrCreateDeclaration(TokenizeContentNode.NAME)
+                        .setFactory(new NodeFactory() {
+                            @Override
+                            public Node create(long world, long time, long id, Graph graph) {
+                                return new TokenizeContentNode(world, time, id, graph) {
+                                    @Override
+                                    public void free() {
+                                        if (scanning) {
+                                            freed.computeIfAbsent(id(), key -> new AtomicInteger()).incrementAndGet();
+                                            freedTotal.incrementAndGet();
+                                        }
+                                        super.free();
+                                    }
+                                };
+                            }
+                        });
+            }
+
+            @Override
+            public void stop() {
+            }
+        };
+        graph = GraphBuilder.newBuilder().withPlugin(new PawPlugin()).withPlugin(countingFrees).build();
+        graph.connect(result -> {
+        });
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.disconnect(result -> {
+        });
+    }
+
+    /**
+     * @return the ordinal of each tokenize content of the category, by id
+     */
+    private Map<Long, Integer> fillCategory() {
+        SimpleTokenizer tokenizer = new SimpleTokenizer();
+        for (int i = 0; i < CONTENTS; i++) {
+            Node node = graph.newNode(0, 0);
+            int index = i;
+            TokenizeContentNode.getOrCreateTokenizeContentOfNode(node, "text", CATEGORY, result -> {
+                List<Token> tokens = tokenizer.tokenize("content number " + index + " of the category");
+                result.setContent(tokens);
+                result.free();
+            });
+        }
+        DictionnaryNode[] dictionnaryNode = new DictionnaryNode[1];
+        DictionnaryNode.getOrCreateDictionnaryNode(graph, CATEGORY, result -> dictionnaryNode[0] = result);
+        long[] ids = dictionnaryNode[0].tcIds(0, dictionnaryNode[0].getNumberOfTC());
+        Map<Long, Integer> ordinals = new HashMap<>();
+        for (int i = 0; i < ids.length; i++) {
+            ordinals.put(ids[i], i);
+        }
+        assertEquals(CONTENTS, ordinals.size());
+        return ordinals;
+    }
+
+    private static void await(CountDownLatch latch) throws InterruptedException {
+        assertTrue(latch.await(10, TimeUnit.SECONDS), "the scan did not end");
+    }
+
+    @Test
+    public void everyContentIsVisitedOnceBatchAfterBatch() throws InterruptedException {
+        Map<Long, Integer> ordinals = fillCategory();
+        Map<Long, AtomicInteger> visited = new ConcurrentHashMap<>();
+        AtomicReference<String> violation = new AtomicReference<>();
+        CountDownLatch ended = new CountDownLatch(1);
+        int[] size = new int[]{-1};
+        RuntimeException[] error = new RuntimeException[1];
+
+        scanning = true;
+        CategoryScan.scan(graph, 0, 0, CATEGORY, BATCH, THREADS, (node, cursor) -> {
+            int ordinal = ordinals.get(node.id());
+            // every content of the previous batches is freed before a batch is resolved
+            int previousBatches = (ordinal / BATCH) * BATCH;
+            if (freedTotal.get() < previousBatches) {
+                violation.compareAndSet(null, "ordinal " + ordinal + " visited while only " + freedTotal.get() + " contents were freed");
+            }
+            int words = 0;
+            while (cursor.next()) {
+                words++;
+            }
+            if (words == 0) {
+                violation.compareAndSet(null, "no word for ordinal " + ordinal);
+            }
+            visited.computeIfAbsent(node.id(), key -> new AtomicInteger()).incrementAndGet();
+        }, (scanned, exception) -> {
+            size[0] = scanned;
+            error[0] = exception;
+            ended.countDown();
+        });
+        await(ended);
+
+        assertNull(error[0]);
+        assertNull(violation.get());
+        assertEquals(CONTENTS, size[0]);
+        assertEquals(ordinals.keySet(), visited.keySet());
+        for (long id : ordinals.keySet()) {
+            assertEquals(1, visited.get(id).get());
+            assertEquals(1, freed.get(id).get());
+        }
+    }
+
+    @Test
+    public void firstErrorStopsTheScan() throws InterruptedException {
+        Map<Long, Integer> ordinals = fillCategory();
+        int failing = BATCH + 2;
+        RuntimeException failure = new IllegalStateException("visitor failure");
+        AtomicInteger visits = new AtomicInteger();
+        CountDownLatch ended = new CountDownLatch(1);
+        RuntimeException[] error = new RuntimeException[1];
+
+        scanning = true;
+        CategoryScan.scan(graph, 0, 0, CATEGORY, BATCH, THREADS, (node, cursor) -> {
+            visits.incrementAndGet();
+            if (ordinals.get(node.id()) == failing) {
+                throw failure;
+            }
+        }, (scanned, exception) -> {
+            error[0] = exception;
+            ended.countDown();
+        });
+        await(ended);
+
+        assertSame(failure, error[0]);
+        // the batch of the failure is the last one resolved, and all its contents are freed
+        int resolved = (failing / BATCH + 1) * BATCH;
+        assertTrue(visits.get() <= resolved, visits.get() + " visits");
+        assertEquals(resolved, freedTotal.get());
+        for (Map.Entry<Long, Integer> entry : ordinals.entrySet()) {
+            AtomicInteger count = freed.get(entry.getKey());
+            assertEquals(entry.getValue() < resolved ? 1 : 0, count == null ? 0 : count.get(), "ordinal " + entry.getValue());
+        }
+    }
+
+    @Test
+    public void unknownCategoryIsEmpty() throws InterruptedException {
+        CountDownLatch ended = new CountDownLatch(1);
+        int[] size = new int[]{-1};
+        CategoryScan.scan(graph, 0, 0, "unknown", BATCH, THREADS, (node, cursor) -> {
+            throw new AssertionError("no content to visit");
+        }, (scanned, exception) -> {
+            assertNull(exception);
+            size[0] = scanned;
+            ended.countDown();
+        });
+        await(ended);
+        assertEquals(0, size[0]);
+    }
+
+    @Test
+    public void taskContinuesOnceTheScanEnded() throws InterruptedException {
+        fillCategory();
+        AtomicInteger visits = new AtomicInteger();
+        CountDownLatch ended = new CountDownLatch(1);
+        AtomicReference<TaskResult> taskResult = new AtomicReference<>();
+        CategoryScan.scanCategory(CATEGORY, BATCH, THREADS, (node, cursor) -> visits.incrementAndGet())
+                .thenDo(ctx -> {
+                    // the scan is over when the next action runs
+                    assertEquals(CONTENTS, visits.get());
+                    ctx.continueTask();
+                })
+                .execute(graph, result -> {
+                    taskResult.set(result);
+                    ended.countDown();
+                });
+        await(ended);
+        assertNull(taskResult.get().exception());
+        assertEquals(CONTENTS, visits.get());
+    }
+
+    @Test
+    public void taskEndsWithTheErrorOfTheVisitor() throws InterruptedException {
+        fillCategory();
+        RuntimeException failure = new IllegalStateException("visitor failure");
+        AtomicInteger nextActions = new AtomicInteger();
+        CountDownLatch ended = new CountDownLatch(1);
+        AtomicReference<TaskResult> taskResult = new AtomicReference<>();
+        CategoryScan.scanCategory(CATEGORY, BATCH, THREADS, (node, cursor) -> {
+            throw failure;
+        })
+                .thenDo(ctx -> {
+                    nextActions.incrementAndGet();
+                    ctx.continueTask();
+                })
+                .execute(graph, result -> {
+                    taskResult.set(result);
+                    ended.countDown();
+                });
+        await(ended);
+        assertSame(failure, taskResult.get().exception());
+        assertEquals(0, nextActions.get());
+    }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer;
+
+import org.junit.jupiter.api.Test;
+import paw.tokenizer.token.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class CTokenizerTest {
+
+    static final String SOURCE = "#include <stdio.h>\n"
+            + "#define SHIFT(a) ((a) >> 1)\n"
+            + "/* block comment */\n"
+            + "static unsigned int hash(const char *s, size_t n) {\n"
+            + "    unsigned int h = 0x811C9DC5u; // FNV\n"
+            + "    for (size_t i = 0; i < n; ++i) {\n"
+            + "        h ^= (unsigned char) s[i];\n"
+            + "        h *= 16777619u;\n"
+            + "        h += h << 3; h ^= h >> 7;\n"
+            + "    }\n"
+            + "    printf(\"%u\\n\", h);\n"
+            + "    return h != 0 ? h : 'x';\n"
+            + "}\n";
+
+    private static List<String> tokens(AbstractTokenizer tokenizer, String text) {
+        List<String> result = new ArrayList<>();
+        for (Token token : tokenizer.tokenize(text)) {
+            result.add(token.getToken());
+        }
+        return result;
+    }
+
+    @Test
+    public void rightShiftsAreSingleTokens() {
+        assertEquals(Arrays.asList("h", ">>=", "2", ";", "x", "=", "y", ">>", "1", ";"), tokens(new CTokenizer(), "h >>= 2; x = y >> 1;"));
+    }
+
+    @Test
+    public void directives() {
+        assertEquals(Arrays.asList("#define shift(a) ((a) >> 1)", "int", "x", ";"), tokens(new CTokenizer(), "#define SHIFT(a) ((a) >> 1)\nint x;"));
+        assertEquals(Arrays.asList("int", "x", ";"), tokens(new CTokenizer(true), "#define SHIFT(a) ((a) >> 1)\nint x;"));
+    }
+
+    @Test
+    public void sameTokensAsTheCPPTokenizerWithoutShifts() {
+        String source = SOURCE.replace(">>", "/").replace("<<", "*");
+        assertEquals(tokens(new CPPTokenizer(), source), tokens(new CTokenizer(), source));
+    }
+}
@@ -0,0 +1,75 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer;
+
+import org.junit.jupiter.api.Test;
+import paw.PawConstants;
+import paw.tokenizer.token.Token;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EnglishTokenizerTest {
+
+    private static List<String> tokens(String text) {
+        List<String> result = new ArrayList<>();
+        for (Token token : new EnglishTokenizer().tokenize(text)) {
+            result.add(token.getToken());
+        }
+        return result;
+    }
+
+    @Test
+    public void contractions() {
+        assertEquals(Arrays.asList("i", "do", "n't", "know", ",", "we", "'re", "fine", "."), tokens("I don't know, we're fine."));
+        assertEquals(Arrays.asList("john", "'s", "car", "is", "n't", "here"), tokens("John's car isn't here"));
+        assertEquals(Arrays.asList("they", "'ll", "say", "i", "'d", "have", ",", "you", "'ve"), tokens("They'll say I'd have, you've"));
+        // typographic apostrophe
+        assertEquals(Arrays.asList("i", "\u2019m", "here"), tokens("I\u2019m here"));
+        // an apostrophe inside a word is not a contraction
+        assertEquals(Arrays.asList("o'neil", "rock'n'roll"), tokens("O'Neil rock'n'roll"));
+    }
+
+    @Test
+    public void abbreviations() {
+        assertEquals(Arrays.asList("mr.", "smith", "met", "dr.", "who", "at", "5", "p.m.", "in", "the", "u.s.", "yesterday", "."),
+                tokens("Mr. Smith met Dr. Who at 5 p.m. in the U.S. yesterday."));
+        assertEquals(Arrays.asList("etc.", "e.g.", "end", "."), tokens("etc. e.g. end."));
+        // a sentence ending by a word that is not an abbreviation
+        assertEquals(Arrays.asList("the", "end", ".", "next"), tokens("The end. Next"));
+    }
+
+    @Test
+    public void hyphensAndNumbers() {
+        assertEquals(Arrays.asList("state-of-the-art", "1,000.5", "3.14", "1", ",", "00"), tokens("state-of-the-art 1,000.5 3.14 1,00"));
+        List<Token> tokens = new EnglishTokenizer().tokenize("42 words");
+        assertEquals(PawConstants.NUMBER_TOKEN, tokens.get(0).getType());
+        assertEquals(PawConstants.CONTENT_TOKEN, tokens.get(1).getType());
+    }
+
+    @Test
+    public void urlsAndEmails() {
+        assertEquals(Arrays.asList("see", "http://example.com/a_(b)/c?x=1", ".", "or", "www.test.org", ",", "then", "mail", "john.doe+x@mail.example.co.uk", "!"),
+                tokens("See http://example.com/a_(b)/c?x=1. Or www.test.org, then mail john.doe+x@mail.example.co.uk!"));
+        // closing parenthesis of the sentence
+        assertEquals(Arrays.asList("(", "https://x.io", ")", "now"), tokens("(https://x.io) now"));
+        // an address without domain is not an email
+        assertEquals(Arrays.asList("a", "@", "b", "is", "not", ",", "a@b.c", "is"), tokens("a@b is not, a@b.c is"));
+    }
+}
@@ -0,0 +1,97 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer;
+
+import org.antlr.v4.runtime.ANTLRInputStream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import paw.Benchmarks;
+import paw.tokenizer.c.CScanner;
+import paw.tokenizer.cpp.CPP14Lexer;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Throughput of the tokenizers, out of the default test run
+ */
+@Tag(Benchmarks.TAG)
+public class TokenizerBenchmark {
+
+    /**
+     * @return a failure message holding the throughput of both timings
+     */
+    private static String compared(String first, String second, int chars, long firstTime, long secondTime) {
+        return String.format("%s %.1f MB/s, %s %.1f MB/s", first, Benchmarks.megabytesPerSecond(chars, firstTime), second, Benchmarks.megabytesPerSecond(chars, secondTime));
+    }
+
+    /**
+     * The Reader path, going through a char window, must stay in the same order of magnitude as the String one
+     */
+    @Test
+    public void readerKeepsUpWithString() throws Exception {
+        String text = TokenizerParityTest.corpus(42, 1 << 20);
+        AbstractTokenizer[] tokenizers = {new SimpleTokenizer(), new UTFTokenizer(), new TwitterTokenizer(), new IdentityTokenizer()};
+        for (AbstractTokenizer tokenizer : tokenizers) {
+            long stringTime = Benchmarks.bestTime(() -> tokenizer.tokenize(text));
+            long readerTime = Benchmarks.bestTime(() -> tokenizer.tokenize(new StringReader(text)));
+            assertTrue(readerTime < 3 * stringTime, tokenizer.getClass().getSimpleName() + ": " + compared("String", "Reader", text.length(), stringTime, readerTime));
+        }
+    }
+
+    /**
+     * The english tokenizer, handling contractions, abbreviations, urls and emails, must stay close to the UTF tokenizer
+     */
+    @Test
+    public void englishKeepsUpWithUTF() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        String sentence = "Mr. O'Neil didn't say the state-of-the-art U.S. model costs $1,000.50, see https://example.com/p?id=3 or mail info@example.com. ";
+        while (builder.length() < 1 << 20) {
+            builder.append(sentence);
+        }
+        String text = builder.toString();
+        long englishTime = Benchmarks.bestTime(() -> new EnglishTokenizer().tokenize(text));
+        long utfTime = Benchmarks.bestTime(() -> new UTFTokenizer().tokenize(text));
+        assertTrue(englishTime < 3 * utfTime, compared("EnglishTokenizer", "UTFTokenizer", text.length(), englishTime, utfTime));
+    }
+
+    /**
+     * The hand written C scanner must be faster than the C++14 lexer.
+     * Both are timed alone, the building of the tokens, shared by both tokenizers, taking most of the time of a tokenization.
+     */
+    @Test
+    public void cScannerBeatsTheCPPLexer() throws Exception {
+        StringBuilder builder = new StringBuilder();
+        while (builder.length() < 1 << 18) {
+            builder.append(CTokenizerTest.SOURCE);
+        }
+        String text = builder.toString();
+        long scanTime = Benchmarks.bestTime(() -> {
+            CScanner scanner = new CScanner(text);
+            while (scanner.next()) {
+                scanner.end();
+            }
+        });
+        long lexTime = Benchmarks.bestTime(() -> {
+            CPP14Lexer lexer = new CPP14Lexer(new ANTLRInputStream(text));
+            while (lexer.nextToken().getType() != org.antlr.v4.runtime.Token.EOF) {
+                lexer.getCharIndex();
+            }
+        });
+        assertTrue(scanTime < lexTime, compared("CScanner", "CPP14Lexer", text.length(), scanTime, lexTime));
+    }
+}
@@ -0,0 +1,144 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer;
+
+import org.junit.jupiter.api.Test;
+import paw.tokenizer.token.Token;
+import paw.tokenizer.utils.CharWindow;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.StringReader;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * The String path of the tokenizers and their Reader path, going through a {@link CharWindow}, must produce the same tokens
+ */
+public class TokenizerParityTest {
+
+    private static final String[] PIECES = {
+            "word", "Word", "WORD", "wOrD", "e\u0301t\u00e9", "na\u00efve", "\u00fcber", "\u0416\u0443\u043a", "\u4e2d\u6587", "\ud83d\ude00",
+            "42", "007", "-12", "3.14", "2147483648", "99999999999999999999", "1e5", "0x1F",
+            " ", "  ", "\t", "\n", "\r\n", ", ", ". ", "!", "?!", "(", ")", "--", "...", "'", "\"",
+            "@user", "#tag", "http://example.com/a/b", "a/b", "mail@example.com", "can't", "U.S.A."
+    };
+
+    private static final AbstractTokenizer[] TOKENIZERS = {
+            new SimpleTokenizer(), new UTFTokenizer(), new TwitterTokenizer(), new IdentityTokenizer()
+    };
+
+    /**
+     * @return random text long enough for tokens to span several blocks of the char window
+     */
+    static String corpus(long seed, int length) {
+        Random random = new Random(seed);
+        StringBuilder builder = new StringBuilder(length + 64);
+        while (builder.length() < length) {
+            builder.append(PIECES[random.nextInt(PIECES.length)]);
+            if (random.nextInt(50) == 0) {
+                // long runs of word or delimiter chars
+                char c = random.nextBoolean() ? 'x' : ' ';
+                for (int i = random.nextInt(300); i > 0; i--) {
+                    builder.append(c);
+                }
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return text with a word, a number and a delimiter run starting a few chars before the end of the first block of the window
+     */
+    private static String acrossBlocks() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; builder.length() < CharWindow.DEFAULT_SIZE - 3; i++) {
+            builder.append(i % 7 == 0 ? ". " : "ab ");
+        }
+        builder.setLength(CharWindow.DEFAULT_SIZE - 3);
+        builder.append("boundary 1234567 ;;;;;;;; Caf\u00e9 ");
+        for (int i = 0; builder.length() < 2 * CharWindow.DEFAULT_SIZE - 2; i++) {
+            builder.append('z');
+        }
+        builder.append("3.25 end");
+        return builder.toString();
+    }
+
+    /**
+     * Reader handing out a few chars at a time, so that every token may be split between two reads
+     */
+    private static final class TricklingReader extends Reader {
+        private final String text;
+        private final Random random = new Random(7);
+        private int position = 0;
+
+        TricklingReader(String text) {
+            this.text = text;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position == text.length()) {
+                return -1;
+            }
+            int count = Math.min(Math.min(length, 1 + random.nextInt(7)), text.length() - position);
+            text.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+
+    private static String describe(List<Token> tokens) {
+        if (tokens == null) {
+            // the identity tokenizer has no token for an empty text
+            return "null";
+        }
+        StringBuilder builder = new StringBuilder();
+        for (Token token : tokens) {
+            builder.append(token.getType()).append(':').append(token.getToken()).append('\n');
+        }
+        return builder.toString();
+    }
+
+    private static void checkParity(AbstractTokenizer tokenizer, String text) throws IOException {
+        String name = tokenizer.getClass().getSimpleName() + (tokenizer.isWideNumbers() ? " with wide numbers" : "");
+        String expected = describe(tokenizer.tokenize(text));
+        assertEquals(expected, describe(tokenizer.tokenize(new StringReader(text))), name + " on a string reader");
+        assertEquals(expected, describe(tokenizer.tokenize(new TricklingReader(text))), name + " on a trickling reader");
+    }
+
+    @Test
+    public void stringAndReaderProduceTheSameTokens() throws IOException {
+        for (boolean wideNumbers : new boolean[]{false, true}) {
+            for (AbstractTokenizer tokenizer : TOKENIZERS) {
+                tokenizer.setWideNumbers(wideNumbers);
+                checkParity(tokenizer, "");
+                checkParity(tokenizer, " ");
+                checkParity(tokenizer, "word");
+                checkParity(tokenizer, acrossBlocks());
+                for (int seed = 0; seed < 5; seed++) {
+                    checkParity(tokenizer, corpus(seed, 3 * CharWindow.DEFAULT_SIZE + seed * 1000));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,81 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer;
+
+import org.junit.jupiter.api.Test;
+import paw.PawConstants;
+import paw.tokenizer.preprocessor.LowerCasePreprocessor;
+import paw.tokenizer.preprocessor.NumberBucketPreprocessor;
+import paw.tokenizer.preprocessor.StemmingPreprocessor;
+import paw.tokenizer.preprocessor.StopWordPreprocessor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TokenizerRegistryTest {
+
+    @Test
+    public void sharedInstancesCannotBeReconfigured() {
+        AbstractTokenizer shared = TokenizerRegistry.get(PawConstants.SIMPLE_TOKENIZER);
+        assertSame(shared, TokenizerRegistry.get(PawConstants.SIMPLE_TOKENIZER));
+        assertThrows(IllegalStateException.class, () -> shared.setWideNumbers(true));
+        assertThrows(IllegalStateException.class, () -> shared.addPreprocessor(new LowerCasePreprocessor()));
+        assertThrows(UnsupportedOperationException.class, () -> shared.getPreprocessors().add(new LowerCasePreprocessor()));
+        assertEquals(new SimpleTokenizer().getConfiguration(), shared.getConfiguration());
+    }
+
+    @Test
+    public void configuredFactories() {
+        try {
+            TokenizerRegistry.register(PawConstants.SIMPLE_TOKENIZER, () -> {
+                SimpleTokenizer tokenizer = new SimpleTokenizer();
+                tokenizer.setWideNumbers(true);
+                tokenizer.addPreprocessor(new LowerCasePreprocessor());
+                return tokenizer;
+            });
+            AbstractTokenizer configured = TokenizerRegistry.get(PawConstants.SIMPLE_TOKENIZER);
+            assertEquals("1.5", configured.tokenize("1.5").get(0).getToken());
+            assertThrows(IllegalStateException.class, () -> configured.setWideNumbers(false));
+        } finally {
+            TokenizerRegistry.register(PawConstants.SIMPLE_TOKENIZER, SimpleTokenizer::new);
+        }
+        assertEquals(new SimpleTokenizer().getConfiguration(), TokenizerRegistry.get(PawConstants.SIMPLE_TOKENIZER).getConfiguration());
+    }
+
+    @Test
+    public void configurations() {
+        assertNotEquals(new JavaTokenizer().getConfiguration(), new JavaTokenizer(true).getConfiguration());
+        assertNotEquals(new CPPTokenizer().getConfiguration(), new CPPTokenizer(true).getConfiguration());
+        assertNotEquals(new CTokenizer().getConfiguration(), new CTokenizer(true).getConfiguration());
+        assertNotEquals(new SimpleTokenizer().getConfiguration(), new UTFTokenizer().getConfiguration());
+
+        SimpleTokenizer wide = new SimpleTokenizer();
+        wide.setWideNumbers(true);
+        assertNotEquals(new SimpleTokenizer().getConfiguration(), wide.getConfiguration());
+
+        // preprocessors count with their order and their settings
+        AbstractTokenizer lowerThenStem = new SimpleTokenizer().addPreprocessor(new LowerCasePreprocessor()).addPreprocessor(new StemmingPreprocessor());
+        AbstractTokenizer stemThenLower = new SimpleTokenizer().addPreprocessor(new StemmingPreprocessor()).addPreprocessor(new LowerCasePreprocessor());
+        assertNotEquals(lowerThenStem.getConfiguration(), stemThenLower.getConfiguration());
+        assertEquals(lowerThenStem.getConfiguration(),
+                new SimpleTokenizer().addPreprocessor(new LowerCasePreprocessor()).addPreprocessor(new StemmingPreprocessor()).getConfiguration());
+        assertNotEquals(new NumberBucketPreprocessor(10).getConfiguration(), new NumberBucketPreprocessor(100).getConfiguration());
+        assertEquals(new StopWordPreprocessor("a", "the").getConfiguration(), new StopWordPreprocessor("the", "a", "a").getConfiguration());
+        assertNotEquals(new StopWordPreprocessor("a", "the").getConfiguration(), new StopWordPreprocessor("a", "then").getConfiguration());
+    }
+}
@@ -0,0 +1,80 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.c;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CScannerTest {
+
+    private static List<String> scan(String source) {
+        List<String> tokens = new ArrayList<>();
+        CScanner scanner = new CScanner(source);
+        while (scanner.next()) {
+            tokens.add(scanner.text());
+        }
+        return tokens;
+    }
+
+    @Test
+    public void rightShifts() {
+        assertEquals(Arrays.asList("a", ">>", "b"), scan("a>>b"));
+        assertEquals(Arrays.asList("a", ">>=", "b"), scan("a>>=b"));
+        assertEquals(Arrays.asList("a", ">>=", "b", ">>", "2", ";"), scan("a >>= b >> 2;"));
+        // no >>> operator in C, a space splits the compound assignment
+        assertEquals(Arrays.asList("d", ">>", ">", "e"), scan("d >>> e"));
+        assertEquals(Arrays.asList("x", ">>", "=", "y"), scan("x >> =y"));
+        assertEquals(Arrays.asList("x", ">", ">=", "y"), scan("x > >=y"));
+        assertEquals(Arrays.asList("a", "<<=", "b", "<<", "c"), scan("a<<=b<<c"));
+    }
+
+    @Test
+    public void punctuatorsAreLongestFirst() {
+        assertEquals(Arrays.asList("c", "->", "d", "--", ">", "e"), scan("c->d-->e"));
+        assertEquals(Arrays.asList("f", "(", "...", ")"), scan("f(...)"));
+        assertEquals(Arrays.asList("<:", ":>", "<%", "%>", "%:%:"), scan("<::><%%>%:%:"));
+    }
+
+    @Test
+    public void commentsAndDirectives() {
+        CScanner scanner = new CScanner("#define X(a) a>>1 \\\n  + 2\nint /* >> */ y; // z >>= 1\n");
+        assertTrue(scanner.next());
+        assertEquals("#define X(a) a>>1 \\\n  + 2", scanner.text());
+        assertTrue(scanner.isDirective());
+        assertTrue(scanner.next());
+        assertEquals("int", scanner.text());
+        assertFalse(scanner.isDirective());
+        assertTrue(scanner.next());
+        assertEquals("y", scanner.text());
+        assertTrue(scanner.next());
+        assertEquals(";", scanner.text());
+        assertFalse(scanner.next());
+    }
+
+    @Test
+    public void literals() {
+        assertEquals(Arrays.asList("s", "=", "\"a >> b\"", ";"), scan("s = \"a >> b\";"));
+        assertEquals(Arrays.asList("c", "=", "'>'", ">>", "u8\"x\""), scan("c = '>' >> u8\"x\""));
+        assertEquals(Arrays.asList("0x1F", ">>", "3", "1.5e-3f"), scan("0x1F >> 3 1.5e-3f"));
+    }
+}
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.java;
+
+import com.github.javaparser.JavaParser;
+import com.github.javaparser.JavaToken;
+import com.github.javaparser.ParseResult;
+import com.github.javaparser.ast.CompilationUnit;
+import org.junit.jupiter.api.Test;
+import paw.tokenizer.JavaTokenizer;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.github.javaparser.ParseStart.COMPILATION_UNIT;
+import static com.github.javaparser.Providers.provider;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JavaScannerTest {
+
+    private static List<String> scan(String source) {
+        List<String> tokens = new ArrayList<>();
+        JavaScanner scanner = new JavaScanner(source);
+        while (scanner.next()) {
+            tokens.add(scanner.text());
+        }
+        return tokens;
+    }
+
+    /**
+     * @return the tokens of the source as read by JavaParser when it parses the source, without the empty end of file token
+     */
+    private static List<String> parse(String source) {
+        JavaParser parser = new JavaParser(JavaParser.getStaticConfiguration());
+        ParseResult<CompilationUnit> result = parser.parse(COMPILATION_UNIT, provider(source));
+        assertTrue(result.isSuccessful(), () -> "the source does not parse: " + result.getProblems());
+        List<String> tokens = new ArrayList<>();
+        for (JavaToken token : result.getTokens().get()) {
+            if (token.getKind() != JavaToken.Kind.EOF.getKind()) {
+                tokens.add(token.getText());
+            }
+        }
+        return tokens;
+    }
+
+    private static void assertParity(String source) {
+        assertEquals(parse(source), scan(source));
+    }
+
+    /**
+     * Every character of a malformed source has to be returned in exactly one token
+     */
+    private static void assertCovered(String source) {
+        assertEquals(source, String.join("", scan(source)));
+    }
+
+    @Test
+    public void shifts() {
+        assertParity("class A { int x = a >> 2; int y = b >>> 3; List<List<Map<String, int[]>>> l; }");
+        assertParity("class A { void f() { x >>= 1; y >>>= 2; z <<= 3; w = v << 1; b = c > d && e >= f; } }");
+        assertEquals(Arrays.asList("a", ">", ">", "b"), scan("a>>b"));
+        assertEquals(Arrays.asList("a", ">>>=", "b", "<<=", "c"), scan("a>>>=b<<=c"));
+    }
+
+    @Test
+    public void comments() {
+        assertParity("/** doc >> */ class A { // line >>= 1\n /* block\n */ int a; /**/ int b; }");
+        assertParity("class A { // comment at the end of the file, without line terminator\n}\n// last");
+        assertParity("class A {\r\n // windows line\r\n int a; /* \r\n */\r\n}\r\n");
+    }
+
+    @Test
+    public void charAndStringLiterals() {
+        assertParity("class A { char c = '\\''; char d = '\\u0041'; char e = '\"'; char f = '\\\\'; }");
+        assertParity("class A { String s = \"a\\\"b\"; String t = \"'\"; String u = \"\\\\\"; String v = \"// not a comment\"; }");
+    }
+
+    @Test
+    public void numericSuffixes() {
+        assertParity("class A { long a = 10L; long b = 017l; float f = 1.5f; float g = 3F; double d = 1e-3d; double e = 2D; }");
+        assertParity("class A { int h = 0xFF_FF; int b = 0b1010_1010; long m = 1_000_000L; double e = .5e+2; double f = 1.; }");
+    }
+
+    @Test
+    public void hexadecimalFloats() {
+        assertParity("class A { double a = 0x1.8p1; double b = 0X1P-3; float c = 0x.8p+1f; double d = 0x1_0p0d; }");
+        assertEquals(Arrays.asList("0x1.8p-1", "-", "2"), scan("0x1.8p-1-2"));
+        assertEquals(Arrays.asList("1e-3", "-", "2", "+", "0x1", "-", "1"), scan("1e-3-2+0x1-1"));
+    }
+
+    @Test
+    public void lambdasReferencesAndAnnotations() {
+        assertParity("class A { Runnable r = () -> {}; Object m = String::valueOf; void v(int... xs) {} @Override public String toString() { return null; } }");
+    }
+
+    @Test
+    public void sourcesOfTheRepository() throws IOException {
+        List<Path> sources;
+        try (Stream<Path> paths = Files.walk(Paths.get("src", "main", "java", "paw"))) {
+            sources = paths.filter(path -> path.toString().endsWith(".java")).collect(Collectors.toList());
+        }
+        assertFalse(sources.isEmpty());
+        for (Path path : sources) {
+            String source = new String(Files.readAllBytes(path), StandardCharsets.UTF_8);
+            assertEquals(parse(source), scan(source), path.toString());
+        }
+    }
+
+    @Test
+    public void textBlocks() {
+        // text blocks are newer than the JavaParser release, the scanner alone is checked
+        assertEquals(Arrays.asList("s", " ", "=", " ", "\"\"\"\n  a \"quoted\" \\\"\"\" b\n  \"\"\"", ";"),
+                scan("s = \"\"\"\n  a \"quoted\" \\\"\"\" b\n  \"\"\";"));
+        assertEquals(Arrays.asList("\"\"\"\n\"\"\"", "+", "\"\"\"\nx\"\"\""), scan("\"\"\"\n\"\"\"+\"\"\"\nx\"\"\""));
+        assertEquals(Arrays.asList("\"\"", "+", "\"\""), scan("\"\"+\"\""));
+    }
+
+    @Test
+    public void invalidSources() throws IOException {
+        String[] invalid = {
+                "class A { String s = \"unterminated\n int a; }",
+                "class A { char c = 'x\n char d = '';",
+                "class A { /* unterminated comment",
+                "class A { String t = \"\"\"\n never closed",
+                "class A { int # a = `b`; \\ }",
+                "class { { { ) int 0x; 1e+; 0b; ..",
+                "\"ends with an escape\\",
+                ""
+        };
+        for (String source : invalid) {
+            assertCovered(source);
+            if (!source.isEmpty()) {
+                assertFalse(new JavaTokenizer(true).tokenize(source).isEmpty(), source);
+            }
+        }
+        assertEquals(Arrays.asList("\"unterminated", "\n", " ", "int"), scan("\"unterminated\n int"));
+        assertEquals(Arrays.asList("/* unterminated comment"), scan("/* unterminated comment"));
+        assertEquals(Arrays.asList("#", " ", "`", "b", "`"), scan("# `b`"));
+        // the parsing tokenizer returns nothing for a file that does not parse
+        assertTrue(new JavaTokenizer(false).tokenize(invalid[4]).isEmpty());
+    }
+}
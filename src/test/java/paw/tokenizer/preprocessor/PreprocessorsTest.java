@@ -0,0 +1,129 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.preprocessor;
+
+import org.junit.jupiter.api.Test;
+import paw.tokenizer.AbstractTokenizer;
+import paw.tokenizer.JavaTokenizer;
+import paw.tokenizer.SimpleTokenizer;
+import paw.tokenizer.token.ContentT;
+import paw.tokenizer.token.NumberT;
+import paw.tokenizer.token.Token;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PreprocessorsTest {
+
+    /**
+     * @return the tokens with the casing of their content
+     */
+    private static List<String> texts(List<Token> tokens) {
+        List<String> texts = new ArrayList<>();
+        for (Token token : tokens) {
+            texts.add(token instanceof ContentT ? ((ContentT) token).getLowerString().rebuild() : token.getToken());
+        }
+        return texts;
+    }
+
+    private static List<String> tokenize(String text, TokenPreprocessor... preprocessors) {
+        AbstractTokenizer tokenizer = new SimpleTokenizer();
+        tokenizer.setWideNumbers(true);
+        for (TokenPreprocessor preprocessor : preprocessors) {
+            tokenizer.addPreprocessor(preprocessor);
+        }
+        return texts(tokenizer.tokenize(text));
+    }
+
+    @Test
+    public void lowerCase() {
+        assertEquals(Arrays.asList("hello", "world", "iphone", "42", "already"), tokenize("Hello WORLD iPhone 42 already", new LowerCasePreprocessor()));
+    }
+
+    @Test
+    public void upperCase() {
+        assertEquals(Arrays.asList("HELLO", "WORLD", "IPHONE", "ALREADY"), tokenize("Hello WORLD iPhone ALREADY", new UpperCasePreprocessor()));
+    }
+
+    @Test
+    public void nfkc() {
+        // ligature, full width letters and accents written as combining marks
+        assertEquals(Arrays.asList("file", "ABC", "\u00e9t\u00e9", "ascii"),
+                tokenize("\ufb01le \uff21\uff22\uff23 e\u0301te\u0301 ascii", new NFKCPreprocessor()));
+        assertEquals(Arrays.asList("d\u00e9j\u00e0"), tokenize("d\u00e9j\u00e0", new NFKCPreprocessor()));
+    }
+
+    @Test
+    public void stopWords() {
+        StopWordPreprocessor english = new StopWordPreprocessor(StopWordPreprocessor.ENGLISH);
+        for (String word : StopWordPreprocessor.ENGLISH) {
+            char[] chars = ("#" + word + "#").toCharArray();
+            assertTrue(english.isStopWord(chars, 1, word.length()), word);
+        }
+        for (String word : new String[]{"", "th", "thee", "The", "tha", "wills", "b"}) {
+            assertFalse(english.isStopWord(word.toCharArray(), 0, word.length()), word);
+        }
+        assertEquals(Arrays.asList("The", "cat", "mat"), tokenize("The cat is on the mat", english));
+        assertFalse(new StopWordPreprocessor().isStopWord("a".toCharArray(), 0, 1));
+    }
+
+    @Test
+    public void numberBuckets() {
+        NumberBucketPreprocessor tens = new NumberBucketPreprocessor(10);
+        assertEquals(40, tens.bucket(42));
+        assertEquals(-10, tens.bucket(-3));
+        assertEquals(0, tens.bucket(9));
+        assertEquals(Arrays.asList("40", "-10", "0", "-10", "0", "word", "1000000000000"),
+                tokenize("42 -3 1.5 -1.5 007 word 1000000000005", tens));
+        List<Token> tokens = new SimpleTokenizer().addPreprocessor(tens).tokenize("42");
+        assertTrue(((NumberT) tokens.get(0)).isInt());
+        assertThrows(IllegalArgumentException.class, () -> new NumberBucketPreprocessor(0));
+    }
+
+    @Test
+    public void stemming() {
+        assertEquals(Arrays.asList("Story", "cat", "class", "shoes", "house", "42"), tokenize("Stories cats class shoes houses 42", new StemmingPreprocessor()));
+    }
+
+    @Test
+    public void chainedInTheirOrderOfRegistration() {
+        StopWordPreprocessor english = new StopWordPreprocessor(StopWordPreprocessor.ENGLISH);
+        assertEquals(Arrays.asList("story", "cat"), tokenize("The Stories of the Cats", new LowerCasePreprocessor(), english, new StemmingPreprocessor()));
+        // stop words matched before the case is folded
+        assertEquals(Arrays.asList("the", "story", "cat"), tokenize("The Stories of the Cats", english, new LowerCasePreprocessor(), new StemmingPreprocessor()));
+        // thes is only a stop word once stemmed
+        assertEquals(Arrays.asList("cat"), tokenize("as thes cats", new StemmingPreprocessor(), english));
+        assertEquals(Arrays.asList("the", "cat"), tokenize("as thes cats", english, new StemmingPreprocessor()));
+    }
+
+    @Test
+    public void appliedToTokenizersProducingLists() throws IOException {
+        AbstractTokenizer parsing = new JavaTokenizer(false).addPreprocessor(new UpperCasePreprocessor());
+        AbstractTokenizer lexing = new JavaTokenizer(true).addPreprocessor(new UpperCasePreprocessor());
+        String source = "class Stories { int cats = 42; }";
+        List<String> parsed = texts(parsing.tokenize(source));
+        parsed.remove(parsed.size() - 1);
+        assertEquals(texts(lexing.tokenize(source)), parsed);
+        assertTrue(parsed.contains("STORIES"));
+    }
+}
@@ -0,0 +1,103 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.preprocessor;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class StemmingPreprocessorTest {
+
+    /**
+     * @return the word stemmed as the preprocessor does, read from the middle of a larger array
+     */
+    private static String stem(String word) {
+        char[] chars = ("##" + word + "##").toCharArray();
+        int stem = StemmingPreprocessor.stemLength(chars, 2, word.length());
+        if (stem >= 0) {
+            return new String(chars, 2, stem);
+        }
+        int prefix = -stem - 1;
+        return new String(chars, 2, prefix) + (Character.isUpperCase(chars[2 + prefix]) ? 'Y' : 'y');
+    }
+
+    @Test
+    public void shortWordsAreKept() {
+        assertEquals("", stem(""));
+        assertEquals("s", stem("s"));
+        assertEquals("is", stem("is"));
+        assertEquals("as", stem("as"));
+        assertEquals(2, StemmingPreprocessor.stemLength("is".toCharArray(), 0, 2));
+    }
+
+    @Test
+    public void wordsNotEndingWithSAreKept() {
+        assertEquals("story", stem("story"));
+        assertEquals("tree", stem("tree"));
+        assertEquals("sky", stem("sky"));
+        assertEquals(5, StemmingPreprocessor.stemLength("storyX".toCharArray(), 0, 5));
+    }
+
+    @Test
+    public void usAndSsAreKept() {
+        assertEquals("virus", stem("virus"));
+        assertEquals("class", stem("class"));
+        assertEquals("CLASS", stem("CLASS"));
+        assertEquals("bus", stem("bus"));
+    }
+
+    @Test
+    public void iesBecomesY() {
+        assertEquals("story", stem("stories"));
+        assertEquals("Story", stem("Stories"));
+        assertEquals("STORY", stem("STORIES"));
+        assertEquals("StorY", stem("StorIes"));
+        assertEquals("ty", stem("ties"));
+        assertEquals(-(4 + 1), StemmingPreprocessor.stemLength("stories".toCharArray(), 0, 7));
+    }
+
+    @Test
+    public void iesPrecededByAOrEFollowsTheEsRule() {
+        // aies and eies are left to the es rule, losing their s
+        assertEquals("aie", stem("aies"));
+        assertEquals("eie", stem("eies"));
+        // ies alone is too short to have a stem
+        assertEquals("ies", stem("ies"));
+    }
+
+    @Test
+    public void esPrecededByAEOrOIsKept() {
+        assertEquals("shoes", stem("shoes"));
+        assertEquals("trees", stem("trees"));
+        assertEquals("toes", stem("toes"));
+        assertEquals("AES", stem("AES"));
+    }
+
+    @Test
+    public void otherEsLosesItsS() {
+        assertEquals("house", stem("houses"));
+        assertEquals("boxe", stem("boxes"));
+        assertEquals("Race", stem("Races"));
+    }
+
+    @Test
+    public void sIsRemoved() {
+        assertEquals("cat", stem("cats"));
+        assertEquals("CAT", stem("CATS"));
+        assertEquals("dog", stem("dogS"));
+        assertEquals("ab", stem("abs"));
+    }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.utils;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+public class LowerStringTest {
+
+    /**
+     * Split the word, check its content and casing, and rebuild it from what the encoding stores: the content, the code and the mask of mixed case words only
+     */
+    private static LowerString check(String word, String content, byte casing) {
+        LowerString lower = new LowerString(word);
+        assertEquals(content, lower.getContent(), word);
+        assertEquals(casing, lower.getCasing(), word);
+        assertEquals(word, lower.rebuild(), word);
+        int[] stored = casing == LowerString.MIXED ? lower.getMask() : null;
+        assertEquals(word, new LowerString(lower.getContent(), lower.getCasing(), stored).rebuild(), word);
+        // the mask built from the code gives the same word as the code
+        assertEquals(word, new LowerString(lower.getContent(), lower.getMask()).rebuild(), word);
+        return lower;
+    }
+
+    @Test
+    public void lower() {
+        check("word", "word", LowerString.LOWER);
+        check("", "", LowerString.LOWER);
+        check("42", "42", LowerString.LOWER);
+        check("stra\u00dfe", "stra\u00dfe", LowerString.LOWER);
+        assertEquals(0, new LowerString("word").getMask()[0]);
+    }
+
+    @Test
+    public void capitalized() {
+        check("Word", "word", LowerString.CAPITALIZED);
+        check("A", "a", LowerString.CAPITALIZED);
+        check("X1", "x1", LowerString.CAPITALIZED);
+        check("\u00c9t\u00e9", "\u00e9t\u00e9", LowerString.CAPITALIZED);
+        assertArrayEquals(new int[]{1}, new LowerString("Word").getMask());
+    }
+
+    @Test
+    public void upper() {
+        check("WORD", "word", LowerString.UPPER);
+        check("HTTP2", "http2", LowerString.UPPER);
+        check("GRO\u00df", "gro\u00df", LowerString.UPPER);
+        check("\u00c9T\u00c9", "\u00e9t\u00e9", LowerString.UPPER);
+        assertArrayEquals(new int[]{0xF}, new LowerString("WORD").getMask());
+    }
+
+    @Test
+    public void mixed() {
+        check("iPhone", "iphone", LowerString.MIXED);
+        check("WoRd", "word", LowerString.MIXED);
+        check("camelCaseWord", "camelcaseword", LowerString.MIXED);
+        check("ABCd", "abcd", LowerString.MIXED);
+        assertArrayEquals(new int[]{0b1010}, new LowerString("wOrD").getMask());
+    }
+
+    @Test
+    public void mixedOverSeveralMaskInts() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            builder.append(i % 3 == 0 ? 'A' : 'b');
+        }
+        String word = builder.toString();
+        LowerString lower = check(word, word.toLowerCase(), LowerString.MIXED);
+        assertEquals(4, lower.getMask().length);
+        // upper case words longer than an int of mask
+        check(word.toUpperCase(), word.toLowerCase(), LowerString.UPPER);
+        check("A" + word.substring(1).toLowerCase(), word.toLowerCase(), LowerString.CAPITALIZED);
+        assertNotNull(new LowerString(word.toUpperCase()).getMask());
+        assertEquals(4, new LowerString(word.toUpperCase()).getMask().length);
+    }
+
+    @Test
+    public void charsNotRebuiltByUpperCasing() {
+        // dotted capital I and Kelvin sign lower case to chars whose upper case is another char
+        check("\u0130stanbul", "\u0130stanbul", LowerString.LOWER);
+        check("\u0130STANBUL", "\u0130stanbul", LowerString.UPPER);
+        check("5\u212a", "5\u212a", LowerString.LOWER);
+        check("x\u0130Y", "x\u0130y", LowerString.MIXED);
+    }
+}
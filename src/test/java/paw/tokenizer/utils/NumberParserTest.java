@@ -0,0 +1,133 @@
+/**
+ * Copyright 2017 Matthieu Jimenez.  All rights reserved.
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package paw.tokenizer.utils;
+
+import org.junit.jupiter.api.Test;
+import paw.tokenizer.TokenCollector;
+import paw.tokenizer.token.NumberT;
+import paw.tokenizer.token.Token;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class NumberParserTest {
+
+    private static String repeat(char c, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; i++) {
+            builder.append(c);
+        }
+        return builder.toString();
+    }
+
+    private static NumberParser parsed(boolean wide, String number) {
+        NumberParser parser = new NumberParser(wide);
+        assertTrue(parser.parse(number), number);
+        // the string and char array entry points agree
+        NumberParser fromChars = new NumberParser(wide);
+        char[] padded = ("x" + number + "x").toCharArray();
+        assertTrue(fromChars.parse(padded, 1, number.length()), number);
+        assertEquals(parser.getUnscaled(), fromChars.getUnscaled(), number);
+        assertEquals(parser.getScale(), fromChars.getScale(), number);
+        assertEquals(parser.getLeadingZeros(), fromChars.getLeadingZeros(), number);
+        return parser;
+    }
+
+    private static void assertRoundTrip(String number, long unscaled, int scale, int leadingZeros) {
+        NumberParser parser = parsed(true, number);
+        assertEquals(unscaled, parser.getUnscaled(), number);
+        assertEquals(scale, parser.getScale(), number);
+        assertEquals(leadingZeros, parser.getLeadingZeros(), number);
+        assertEquals(number, parser.toToken().getToken());
+        assertEquals(number, new NumberT(unscaled, scale, leadingZeros).getToken());
+    }
+
+    private static void assertRejected(boolean wide, String number) {
+        assertFalse(new NumberParser(wide).parse(number), number);
+        assertFalse(new NumberParser(wide).parse(number.toCharArray(), 0, number.length()), number);
+    }
+
+    @Test
+    public void wideNumbersRoundTrip() {
+        assertRoundTrip("0", 0, 0, 0);
+        assertRoundTrip("42", 42, 0, 0);
+        assertRoundTrip("-42", -42, 0, 0);
+        assertRoundTrip("007", 7, 0, 2);
+        assertRoundTrip("000", 0, 0, 2);
+        assertRoundTrip("-007", -7, 0, 2);
+        assertRoundTrip("0.05", 5, 2, 0);
+        assertRoundTrip("-0.5", -5, 1, 0);
+        assertRoundTrip("1.50", 150, 2, 0);
+        assertRoundTrip("00.5", 5, 1, 1);
+        assertRoundTrip("0.0", 0, 1, 0);
+        assertRoundTrip("3.14", 314, 2, 0);
+    }
+
+    @Test
+    public void eighteenDigits() {
+        String eighteen = repeat('9', NumberParser.MAX_DIGITS);
+        assertRoundTrip(eighteen, 999999999999999999L, 0, 0);
+        assertRoundTrip("-" + eighteen, -999999999999999999L, 0, 0);
+        assertRoundTrip("123456789.123456789", 123456789123456789L, 9, 0);
+        assertRejected(true, eighteen + "9");
+        assertRejected(true, "1" + eighteen.substring(1) + ".5");
+    }
+
+    @Test
+    public void scaleAndLeadingZerosLimits() {
+        int max = NumberParser.MAX_EXTENSION;
+        assertRoundTrip("0." + repeat('0', max - 1) + "1", 1, max, 0);
+        assertRoundTrip(repeat('0', max) + "1", 1, 0, max);
+        assertRoundTrip(repeat('0', max) + "1." + repeat('5', max), Long.parseLong("1" + repeat('5', max)), max, max);
+        assertRejected(true, "0." + repeat('0', max) + "1");
+        assertRejected(true, repeat('0', max + 1) + "1");
+    }
+
+    @Test
+    public void malformedNumbers() {
+        for (String number : new String[]{"", "-", "-0", "-0.0", "1.", ".5", "1.2.3", "1e3", "12a", "+1", "--1", "1-"}) {
+            assertRejected(true, number);
+        }
+    }
+
+    @Test
+    public void narrowNumbers() {
+        assertEquals(123456789, parsed(false, "123456789").getUnscaled());
+        assertEquals(-12345678, parsed(false, "-12345678").getUnscaled());
+        for (String number : new String[]{"1234567890", "-123456789", "007", "0", "0.5", "1.5", "-"}) {
+            assertRejected(false, number);
+        }
+    }
+
+    @Test
+    public void pushedAsIntsWhenPossible() {
+        TokenCollector collector = new TokenCollector();
+        NumberParser parser = new NumberParser(true);
+        for (String number : new String[]{"7", "007", "1.5", String.valueOf(Integer.MAX_VALUE + 1L)}) {
+            assertTrue(parser.parse(number));
+            parser.pushTo(collector);
+        }
+        Token[] tokens = collector.getTokens().toArray(new Token[0]);
+        assertTrue(((NumberT) tokens[0]).isInt());
+        for (int i = 1; i < tokens.length; i++) {
+            assertFalse(((NumberT) tokens[i]).isInt());
+        }
+        assertEquals("007", tokens[1].getToken());
+        assertEquals("1.5", tokens[2].getToken());
+        assertEquals("2147483648", tokens[3].getToken());
+    }
+}